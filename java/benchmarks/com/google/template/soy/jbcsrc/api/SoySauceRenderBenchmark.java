@@ -0,0 +1,167 @@
+/*
+ * Copyright 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.jbcsrc.api;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.template.soy.SoyFileSet;
+import com.google.template.soy.base.internal.SoyFileKind;
+import com.google.template.soy.data.SanitizedContent;
+import com.google.template.soy.testing.Foo;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures end to end rendering through {@link SoySauce} for a small corpus of representative
+ * templates.
+ *
+ * <p>Each scenario is reported in both throughput and sample time modes (the latter includes p99
+ * latency) and {@link #main} always attaches the {@link GCProfiler} so that {@code
+ * gc.alloc.rate.norm} is reported as well. This makes it possible to compare both speed and
+ * garbage production across releases.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SoySauceRenderBenchmark {
+
+  /** The scenarios in the benchmark corpus, each maps to a template in render_benchmark.soy. */
+  public enum Scenario {
+    DEEP_CALLS("soy.benchmark.deepCalls") {
+      @Override
+      Map<String, ?> createData() {
+        return ImmutableMap.of("depth", 64, "name", "Bob");
+      }
+    },
+    BIG_LOOP("soy.benchmark.bigLoop") {
+      @Override
+      Map<String, ?> createData() {
+        ImmutableList.Builder<String> items = ImmutableList.builder();
+        for (int i = 0; i < 1000; i++) {
+          items.add("item " + i);
+        }
+        return ImmutableMap.of("items", items.build());
+      }
+    },
+    MESSAGES("soy.benchmark.messages") {
+      @Override
+      Map<String, ?> createData() {
+        ImmutableList<String> genders = ImmutableList.of("female", "male", "unknown");
+        ImmutableList.Builder<Map<String, ?>> people = ImmutableList.builder();
+        for (int i = 0; i < 100; i++) {
+          people.add(
+              ImmutableMap.of(
+                  "name", "Person " + i, "gender", genders.get(i % 3), "count", i % 4));
+        }
+        return ImmutableMap.of("people", people.build());
+      }
+    },
+    PROTO_ACCESS("soy.benchmark.protoAccess") {
+      @Override
+      Map<String, ?> createData() {
+        ImmutableList.Builder<Foo> foos = ImmutableList.builder();
+        for (int i = 0; i < 100; i++) {
+          foos.add(
+              Foo.newBuilder()
+                  .setStringField("foo " + i)
+                  .setIntField(i)
+                  .setLongField(i * 1000L)
+                  .setBoolField(i % 2 == 0)
+                  .build());
+        }
+        return ImmutableMap.of("foos", foos.build());
+      }
+    },
+    ESCAPING_ATTRIBUTES("soy.benchmark.escapingAttributes") {
+      @Override
+      Map<String, ?> createData() {
+        ImmutableList.Builder<Map<String, ?>> links = ImmutableList.builder();
+        for (int i = 0; i < 100; i++) {
+          links.add(
+              ImmutableMap.of(
+                  "href", "https://example.com/search?q=a&b=" + i + "#\"frag\"",
+                  "title", "Tom & Jerry's <adventure> #" + i,
+                  "label", "It's \"label\" " + i + " </script>"));
+        }
+        return ImmutableMap.of("links", links.build());
+      }
+    };
+
+    final String templateName;
+
+    Scenario(String templateName) {
+      this.templateName = templateName;
+    }
+
+    abstract Map<String, ?> createData();
+  }
+
+  @Param public Scenario scenario;
+
+  private SoySauce sauce;
+  private Map<String, ?> data;
+
+  @Setup
+  public void setUp() {
+    sauce =
+        SoyFileSet.builder()
+            .add(SoySauceRenderBenchmark.class.getResource("render_benchmark.soy"))
+            .addProtoDescriptors(SoyFileKind.DEP, Foo.getDescriptor())
+            .build()
+            .compileTemplates();
+    data = scenario.createData();
+  }
+
+  @Benchmark
+  public SanitizedContent render() {
+    return sauce.renderTemplate(scenario.templateName).setData(data).renderHtml().get();
+  }
+
+  /**
+   * Runs the benchmark with the {@link GCProfiler} enabled, any additional JMH command line options
+   * are also accepted.
+   */
+  public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+    new Runner(
+            new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(SoySauceRenderBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build())
+        .run();
+  }
+}
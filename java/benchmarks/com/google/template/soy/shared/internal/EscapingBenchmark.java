@@ -0,0 +1,116 @@
+/*
+ * Copyright 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.shared.internal;
+
+import com.google.template.soy.shared.internal.EscapingConventions.CrossLanguageStringXform;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/** Measures the escapers over typical user content, most of which needs no escaping. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EscapingBenchmark {
+
+  /** The escapers behind the most commonly used print directives. */
+  public enum Escaper {
+    ESCAPE_HTML(EscapingConventions.EscapeHtml.INSTANCE),
+    ESCAPE_HTML_NOSPACE(EscapingConventions.EscapeHtmlNospace.INSTANCE),
+    ESCAPE_JS_STRING(EscapingConventions.EscapeJsString.INSTANCE),
+    ESCAPE_URI(EscapingConventions.EscapeUri.INSTANCE);
+
+    final CrossLanguageStringXform xform;
+
+    Escaper(CrossLanguageStringXform xform) {
+      this.xform = xform;
+    }
+  }
+
+  /** The kind of user content being escaped. */
+  public enum Text {
+    ASCII("Thanks for the quick delivery, the package arrived two days early and works great."),
+    LATIN("Très bien reçu, l'article était conforme à la description. Würde wieder bestellen!"),
+    CJK("配送がとても早く、商品も説明どおりでした。また利用したいと思います。ありがとうございました。"),
+    MARKUP("I <3 this & would \"definitely\" buy it again, see <a href='/review'>my review</a>.");
+
+    final String value;
+
+    Text(String value) {
+      this.value = value;
+    }
+  }
+
+  @Param public Escaper escaper;
+
+  @Param public Text text;
+
+  private CrossLanguageStringXform xform;
+  private String value;
+  private final StringBuilder out = new StringBuilder();
+
+  @Setup
+  public void setUp() {
+    xform = escaper.xform;
+    value = text.value;
+  }
+
+  @Benchmark
+  public String escape() {
+    return xform.escape(value);
+  }
+
+  @Benchmark
+  public StringBuilder escapeOnto() throws IOException {
+    out.setLength(0);
+    xform.escapeOnto(value, out);
+    return out;
+  }
+
+  /**
+   * Runs the benchmark with the {@link GCProfiler} enabled, any additional JMH command line options
+   * are also accepted.
+   */
+  public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+    new Runner(
+            new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(EscapingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build())
+        .run();
+  }
+}
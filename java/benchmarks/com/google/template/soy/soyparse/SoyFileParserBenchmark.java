@@ -0,0 +1,122 @@
+/*
+ * Copyright 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.soyparse;
+
+import com.google.template.soy.base.SourceFilePath;
+import com.google.template.soy.base.internal.IncrementingIdGenerator;
+import com.google.template.soy.error.ErrorReporter;
+import com.google.template.soy.soytree.SoyFileNode;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures parsing a single large Soy file, including the lexer and the char stream that tracks
+ * source locations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SoyFileParserBenchmark {
+
+  /** The kind of text in the generated file. */
+  public enum Text {
+    ASCII("Hello"),
+    NON_ASCII("Grüße 👋");
+
+    final String greeting;
+
+    Text(String greeting) {
+      this.greeting = greeting;
+    }
+  }
+
+  @Param public Text text;
+
+  @Param({"200"})
+  public int templates;
+
+  private String file;
+
+  @Setup
+  public void setUp() {
+    StringBuilder sb = new StringBuilder("{namespace soy.benchmark.parse}\n\n");
+    for (int i = 0; i < templates; i++) {
+      sb.append("/** Template ")
+          .append(i)
+          .append(". */\n{template t")
+          .append(i)
+          .append("}\n  {@param name: string}\n  {@param items: list<string>}\n")
+          .append("  <div class=\"greeting\" data-id=\"")
+          .append(i)
+          .append("\">\n    ")
+          .append(text.greeting)
+          .append(" {$name}!\n")
+          .append("    {for $item, $index in $items}\n")
+          .append("      {if $index > 0}, {/if}<span title=\"{$item}\">{$item}</span>\n")
+          .append("    {/for}\n")
+          .append("    {msg desc=\"A greeting.\"}")
+          .append(text.greeting)
+          .append(" {$name}{/msg}\n")
+          .append("  </div>\n{/template}\n\n");
+    }
+    file = sb.toString();
+  }
+
+  @Benchmark
+  public SoyFileNode parse() {
+    return new SoyFileParser(
+            new IncrementingIdGenerator(),
+            new StringReader(file),
+            SourceFilePath.forTest("parse_benchmark.soy"),
+            ErrorReporter.exploding())
+        .parseSoyFile();
+  }
+
+  /**
+   * Runs the benchmark with the {@link GCProfiler} enabled, any additional JMH command line options
+   * are also accepted.
+   */
+  public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+    new Runner(
+            new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(SoyFileParserBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build())
+        .run();
+  }
+}
@@ -17,6 +17,7 @@
 package com.google.template.soy;
 
 import static com.google.common.collect.ImmutableSet.toImmutableSet;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.stream.Collectors.joining;
 
 import com.google.common.annotations.VisibleForTesting;
@@ -32,6 +33,7 @@ import com.google.common.collect.MultimapBuilder;
 import com.google.common.collect.Multimaps;
 import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Sets;
+import com.google.common.io.Files;
 import com.google.errorprone.annotations.CheckReturnValue;
 import com.google.errorprone.annotations.ForOverride;
 import com.google.inject.Guice;
@@ -43,6 +45,7 @@ import com.google.protobuf.Descriptors.FileDescriptor;
 import com.google.template.soy.CacheLoaders.CachedDescriptorSet;
 import com.google.template.soy.base.SourceFilePath;
 import com.google.template.soy.base.SourceLogicalPath;
+import com.google.template.soy.base.internal.CompilerProfiler;
 import com.google.template.soy.base.internal.KytheMode;
 import com.google.template.soy.base.internal.SourceMapMode;
 import com.google.template.soy.base.internal.SoyFileKind;
@@ -58,6 +61,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.io.StringWriter;
+import java.io.Writer;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -204,6 +208,13 @@ public abstract class AbstractSoyCompiler {
               + "This flag should only be set in integration test environment.")
   private boolean disableOptimizer = false;
 
+  @Option(
+      name = "--compiler_threads",
+      usage =
+          "The number of threads to use for the parts of compilation that are done file by file."
+              + " Files are compiled sequentially by default.")
+  private int compilerThreads = 1;
+
   @Option(
       name = "--allow_unblessed_generated_files",
       usage = "Whether to allow generated source files without the blessed comment.")
@@ -227,6 +238,14 @@ public abstract class AbstractSoyCompiler {
       usage = "The mode for generating sourcemap metadata. Used by some compilers.")
   protected SourceMapMode sourceMapMode = SourceMapMode.DISABLED;
 
+  @Option(
+      name = "--profile_output",
+      usage =
+          "Where to write a profile of the compile, with the wall time, CPU time and allocated"
+              + " bytes of each compiler pass on each file and of the code generators. The profile"
+              + " is written in the Chrome trace event format, which is JSON.")
+  private File profileOutput = null;
+
   /** The remaining arguments after parsing command-line flags. */
   @Argument private List<String> arguments = new ArrayList<>();
 
@@ -255,9 +274,33 @@ public abstract class AbstractSoyCompiler {
     this(new PluginLoader.Default(), SoyInputCache.DEFAULT);
   }
 
-  final void runMain(String... args) {
-    int status = run(args, System.err);
-    System.exit(status);
+  /**
+   * Runs a compiler from a {@code main} method.
+   *
+   * <p>If {@code --persistent_worker} is passed the compiler runs as a Bazel persistent worker, see
+   * {@link SoyCompilerWorker}. Otherwise a single compiler is created to process {@code args}.
+   */
+  static void runMain(SoyCompilerWorker.CompilerFactory compilerFactory, String... args) {
+    if (SoyCompilerWorker.isPersistentWorker(args)) {
+      // stdout is reserved for responses.
+      PrintStream out = System.out;
+      System.setOut(System.err);
+      try {
+        new SoyCompilerWorker(
+                compilerFactory,
+                new PluginLoader.Default(),
+                FileSystemSoyFileReader.INSTANCE,
+                new DigestSoyInputCache())
+            .run(System.in, out);
+      } catch (IOException e) {
+        e.printStackTrace(System.err);
+        System.exit(1);
+      }
+      System.exit(0);
+    }
+    AbstractSoyCompiler compiler =
+        compilerFactory.create(new PluginLoader.Default(), SoyInputCache.DEFAULT);
+    System.exit(compiler.run(args, System.err));
   }
 
   @CheckReturnValue
@@ -309,6 +352,9 @@ public abstract class AbstractSoyCompiler {
     if (requireSources() && srcs.isEmpty()) {
       exitWithError("Must provide list of source Soy files (--srcs).");
     }
+    if (compilerThreads < 1) {
+      exitWithError("--compiler_threads must be positive.");
+    }
 
     SoyFileSet.Builder sfsBuilder = new SoyFileSet.Builder(/* ignored= */ true);
 
@@ -366,7 +412,8 @@ public abstract class AbstractSoyCompiler {
         .setJavaPluginValidator(new DelegatingMethodChecker(builder.build()))
         // Set experimental features that are not generally available.
         .setExperimentalFeatures(experimentalFeatures)
-        .setSoyAstCache(cache.astCache());
+        .setSoyAstCache(cache.astCache())
+        .setCompilerThreads(compilerThreads);
 
     Set<File> directProtoFiles = ImmutableSet.copyOf(protoDescDirectDeps);
     Set<File> allProtoFiles =
@@ -402,7 +449,19 @@ public abstract class AbstractSoyCompiler {
       sfsBuilder.disableOptimizer();
     }
 
-    compile(sfsBuilder);
+    CompilerProfiler profiler =
+        profileOutput != null ? CompilerProfiler.create() : CompilerProfiler.NONE;
+    sfsBuilder.setCompilerProfiler(profiler);
+    try (CompilerProfiler.Span span = profiler.start("compile", "Compile")) {
+      compile(sfsBuilder);
+    } finally {
+      // The profile of a compile that failed is just as useful.
+      if (profileOutput != null) {
+        try (Writer writer = Files.asCharSink(profileOutput, UTF_8).openBufferedStream()) {
+          profiler.writeTraceEvents(writer);
+        }
+      }
+    }
     timer.stop();
     // Unless the build is faster than 1 second, issue a warning if more than half of the build is
     // constructing the guice injector.  This often happens just because the modules install too
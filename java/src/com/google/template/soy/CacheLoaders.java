@@ -34,6 +34,7 @@ import com.google.template.soy.plugin.java.internal.CompiledJarsPluginSignatureR
 import com.google.template.soy.soytree.CompilationUnit;
 import java.io.File;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -116,14 +117,19 @@ final class CacheLoaders {
     Collection<FileDescriptor> getFileDescriptors(
         SetMultimap<String, CachedDescriptorSet> protoFileToDescriptor, SoyInputCache cache)
         throws DescriptorValidationException {
-      if (fileNameToDescriptors.size() == protosByFileName.size()) {
-        return fileNameToDescriptors.values();
-      }
-      // we are missing some descriptors, iterate over everything to make sure they are populated.
-      for (FileDescriptorProto fileProto : protosByFileName.values()) {
-        buildDescriptor(fileProto, protoFileToDescriptor, cache);
+      // Descriptors are built lazily and may be shared by concurrent compiles in a multiplex
+      // worker. Building one can visit any other descriptor set, so use a single lock for all.
+      synchronized (CachedDescriptorSet.class) {
+        if (fileNameToDescriptors.size() == protosByFileName.size()) {
+          return ImmutableList.copyOf(fileNameToDescriptors.values());
+        }
+        // we are missing some descriptors, iterate over everything to make sure they are
+        // populated.
+        for (FileDescriptorProto fileProto : protosByFileName.values()) {
+          buildDescriptor(fileProto, protoFileToDescriptor, cache);
+        }
+        return ImmutableList.copyOf(fileNameToDescriptors.values());
       }
-      return fileNameToDescriptors.values();
     }
 
     private FileDescriptor buildDescriptor(
@@ -189,13 +195,29 @@ final class CacheLoaders {
 
   // TODO(lukes): ideally this would be reading directly to a List<TemplateMetadata> objects by
   // invoking the TemplateMetadataSerializer.  Doing so will require changing how types are parsed.
+  /**
+   * Reads a header written by the {@link SoyHeaderCompiler}. Headers are gzipped by default, those
+   * written with {@code --compress_output=false} are parsed straight from a mapping of the file.
+   * The templates in the unit are converted to TemplateMetadata lazily, see {@link
+   * com.google.template.soy.soytree.Metadata#metadataForDeps}.
+   */
   static final SoyInputCache.CacheLoader<CompilationUnit> COMPILATION_UNIT_LOADER =
       (file, reader, cache) -> {
+        ByteBuffer contents = reader.readBuffer(file);
+        if (!isGzipped(contents)) {
+          return CompilationUnit.parseFrom(contents, ExtensionRegistry.getEmptyRegistry());
+        }
         try (InputStream is =
             new GZIPInputStream(reader.read(file).openStream(), /* bufferSize */ 32 * 1024)) {
           return CompilationUnit.parseFrom(is, ExtensionRegistry.getEmptyRegistry());
         }
       };
 
+  private static boolean isGzipped(ByteBuffer contents) {
+    return contents.remaining() >= 2
+        && (contents.get(contents.position()) & 0xff) == (GZIPInputStream.GZIP_MAGIC & 0xff)
+        && (contents.get(contents.position() + 1) & 0xff) == (GZIPInputStream.GZIP_MAGIC >> 8);
+  }
+
   private CacheLoaders() {}
 }
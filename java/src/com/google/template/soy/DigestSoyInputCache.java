@@ -0,0 +1,338 @@
+/*
+ * Copyright 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.SetMultimap;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteSource;
+import com.google.common.io.CharSource;
+import com.google.protobuf.ByteString;
+import com.google.template.soy.base.SourceFilePath;
+import com.google.template.soy.base.internal.AbstractSoyFileSupplier;
+import com.google.template.soy.base.internal.SoyFileSupplier;
+import com.google.template.soy.shared.SoyAstCache;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * A {@link SoyInputCache} that keeps compiler inputs across compiles, for compilers that run as
+ * persistent workers.
+ *
+ * <p>Entries are keyed by file path and are reused as long as the digest of the file, and of every
+ * file it {@linkplain #declareDependency declared a dependency} on, is unchanged. The digests are
+ * normally supplied by the build tool with each request, see {@link #forRequest}, otherwise they
+ * are computed from the file contents.
+ *
+ * <p>The cache holds at most {@code maxEntries} entries, evicting the least recently used. When an
+ * entry is evicted or replaced the entries that depend on it are evicted too.
+ */
+final class DigestSoyInputCache {
+  /** The default maximum number of entries. */
+  static final int DEFAULT_MAX_ENTRIES = 4096;
+
+  private final int maxEntries;
+  private final SoyAstCache astCache = new SoyAstCache();
+
+  /** All entries, in access order. */
+  @GuardedBy("this")
+  private final LinkedHashMap<Key, Entry<?>> entries =
+      new LinkedHashMap<>(16, 0.75f, /* accessOrder= */ true);
+
+  /** Maps the path of a file to the paths of the files that declared a dependency on it. */
+  @GuardedBy("this")
+  private final SetMultimap<String, String> dependents = HashMultimap.create();
+
+  @GuardedBy("this")
+  private long hits;
+
+  @GuardedBy("this")
+  private long misses;
+
+  DigestSoyInputCache() {
+    this(DEFAULT_MAX_ENTRIES);
+  }
+
+  DigestSoyInputCache(int maxEntries) {
+    checkArgument(maxEntries > 0, "maxEntries must be positive: %s", maxEntries);
+    this.maxEntries = maxEntries;
+  }
+
+  /**
+   * Returns a view of this cache for a single compile.
+   *
+   * @param digests The digests of the inputs of the compile, keyed by path. Files that aren't in
+   *     this map are hashed when they are read.
+   * @param reader The reader used to hash files that don't have a digest.
+   */
+  SoyInputCache forRequest(Map<String, ByteString> digests, SoyCompilerFileReader reader) {
+    return new RequestCache(ImmutableMap.copyOf(digests), reader);
+  }
+
+  /** Returns the number of reads that were served from the cache. */
+  synchronized long hitCount() {
+    return hits;
+  }
+
+  /** Returns the number of reads that had to load the file. */
+  synchronized long missCount() {
+    return misses;
+  }
+
+  /** Returns the number of entries currently in the cache. */
+  synchronized int size() {
+    return entries.size();
+  }
+
+  private <T> T read(
+      File file,
+      SoyInputCache.CacheLoader<T> loader,
+      SoyCompilerFileReader reader,
+      RequestCache request)
+      throws IOException {
+    Key key = new Key(file.getPath(), loader);
+    ByteString digest = request.digest(file);
+    synchronized (this) {
+      @SuppressWarnings("unchecked") // the loader is part of the key
+      Entry<T> entry = (Entry<T>) entries.get(key);
+      if (entry != null && entry.digest.equals(digest) && dependenciesUnchanged(entry, request)) {
+        hits++;
+        return entry.value;
+      }
+      misses++;
+    }
+    T value = loader.read(file, reader, request);
+    List<Entry<?>> evicted = new ArrayList<>();
+    synchronized (this) {
+      Entry<?> previous = entries.put(key, new Entry<>(loader, digest, value));
+      // The new value declares its own dependencies.
+      dependents.entries().removeIf(dependency -> dependency.getValue().equals(key.path));
+      if (previous != null) {
+        evicted.add(previous);
+        evictDependents(key.path, evicted);
+      }
+      Iterator<Map.Entry<Key, Entry<?>>> leastRecentlyUsed = entries.entrySet().iterator();
+      while (entries.size() > maxEntries) {
+        Map.Entry<Key, Entry<?>> eldest = leastRecentlyUsed.next();
+        leastRecentlyUsed.remove();
+        evicted.add(eldest.getValue());
+        evictDependents(eldest.getKey().path, evicted);
+        // Evicting dependents may have modified the map.
+        leastRecentlyUsed = entries.entrySet().iterator();
+      }
+    }
+    for (Entry<?> entry : evicted) {
+      entry.evict();
+    }
+    return value;
+  }
+
+  /**
+   * Checks that the files that an entry depends on have the same digests they had when the
+   * dependency was declared.
+   */
+  @GuardedBy("this")
+  private boolean dependenciesUnchanged(Entry<?> entry, RequestCache request) throws IOException {
+    for (Map.Entry<String, ByteString> dependency : entry.dependencyDigests.entrySet()) {
+      if (!request.digest(new File(dependency.getKey())).equals(dependency.getValue())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Removes the entries that transitively depend on {@code path}. */
+  @GuardedBy("this")
+  private void evictDependents(String path, List<Entry<?>> evicted) {
+    Deque<String> toVisit = new ArrayDeque<>(dependents.removeAll(path));
+    while (!toVisit.isEmpty()) {
+      String dependent = toVisit.pop();
+      Iterator<Map.Entry<Key, Entry<?>>> it = entries.entrySet().iterator();
+      while (it.hasNext()) {
+        Map.Entry<Key, Entry<?>> entry = it.next();
+        if (entry.getKey().path.equals(dependent)) {
+          it.remove();
+          evicted.add(entry.getValue());
+        }
+      }
+      toVisit.addAll(dependents.removeAll(dependent));
+    }
+  }
+
+  private void declareDependency(File file, File dependency, RequestCache request) {
+    ByteString dependencyDigest;
+    try {
+      dependencyDigest = request.digest(dependency);
+    } catch (IOException e) {
+      // The dependency has already been read by this compile, so this is unexpected.
+      throw new UncheckedIOException(e);
+    }
+    synchronized (this) {
+      dependents.put(dependency.getPath(), file.getPath());
+      for (Map.Entry<Key, Entry<?>> entry : entries.entrySet()) {
+        if (entry.getKey().path.equals(file.getPath())) {
+          entry.getValue().dependencyDigests.put(dependency.getPath(), dependencyDigest);
+        }
+      }
+    }
+  }
+
+  private static final class Key {
+    final String path;
+    final SoyInputCache.CacheLoader<?> loader;
+
+    Key(String path, SoyInputCache.CacheLoader<?> loader) {
+      this.path = path;
+      this.loader = loader;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return path.equals(other.path) && loader == other.loader;
+    }
+
+    @Override
+    public int hashCode() {
+      return path.hashCode() * 31 + System.identityHashCode(loader);
+    }
+  }
+
+  private static final class Entry<T> {
+    final SoyInputCache.CacheLoader<T> loader;
+    final ByteString digest;
+    final T value;
+
+    /** The digests of the files this entry depends on, when the dependency was declared. */
+    @GuardedBy("DigestSoyInputCache.this")
+    final Map<String, ByteString> dependencyDigests = new HashMap<>();
+
+    Entry(SoyInputCache.CacheLoader<T> loader, ByteString digest, T value) {
+      this.loader = loader;
+      this.digest = digest;
+      this.value = value;
+    }
+
+    void evict() throws IOException {
+      loader.onEvict(value);
+    }
+  }
+
+  private static final class DigestSoyFileSupplier extends AbstractSoyFileSupplier {
+    final CharSource contents;
+    final Version version;
+
+    DigestSoyFileSupplier(CharSource contents, SourceFilePath filePath, Version version) {
+      super(filePath);
+      this.contents = contents;
+      this.version = version;
+    }
+
+    @Override
+    public Reader open() throws IOException {
+      return contents.openStream();
+    }
+
+    @Override
+    public Version getVersion() {
+      return version;
+    }
+  }
+
+  /** The view of the cache for a single compile. */
+  private final class RequestCache implements SoyInputCache {
+    final ImmutableMap<String, ByteString> digests;
+    final SoyCompilerFileReader reader;
+    final Map<String, ByteString> computedDigests = new ConcurrentHashMap<>();
+
+    RequestCache(ImmutableMap<String, ByteString> digests, SoyCompilerFileReader reader) {
+      this.digests = digests;
+      this.reader = reader;
+    }
+
+    ByteString digest(File file) throws IOException {
+      ByteString digest = digests.get(file.getPath());
+      if (digest != null) {
+        return digest;
+      }
+      digest = computedDigests.get(file.getPath());
+      if (digest == null) {
+        digest = ByteString.copyFrom(reader.read(file).hash(Hashing.sha256()).asBytes());
+        computedDigests.put(file.getPath(), digest);
+      }
+      return digest;
+    }
+
+    @Override
+    public <T> T read(File file, CacheLoader<T> loader, SoyCompilerFileReader reader)
+        throws IOException {
+      return DigestSoyInputCache.this.read(file, loader, reader, this);
+    }
+
+    @Override
+    public void declareDependency(File file, File dependency) {
+      DigestSoyInputCache.this.declareDependency(file, dependency, this);
+    }
+
+    @Override
+    public SoyAstCache astCache() {
+      return astCache;
+    }
+
+    @Override
+    public SoyFileSupplier createFileSupplier(
+        File file, SourceFilePath pathToUse, SoyCompilerFileReader reader)
+        throws FileNotFoundException {
+      ByteSource contents = reader.read(file);
+      ByteString digest = digests.get(file.getPath());
+      if (digest == null) {
+        // Without a digest the file has to be read to tell whether it changed, the cached AST is
+        // still reused if it didn't.
+        try {
+          digest = ByteString.copyFrom(contents.hash(Hashing.sha256()).asBytes());
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+      return new DigestSoyFileSupplier(
+          contents.asCharSource(UTF_8),
+          pathToUse,
+          SoyFileSupplier.Version.forContentHash(HashCode.fromBytes(digest.toByteArray())));
+    }
+  }
+}
@@ -20,6 +20,8 @@ import com.google.common.io.ByteSource;
 import com.google.common.io.Files;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /** Reads files from the file system. */
 public final class FileSystemSoyFileReader implements SoyCompilerFileReader {
@@ -34,4 +36,12 @@ public final class FileSystemSoyFileReader implements SoyCompilerFileReader {
     }
     return Files.asByteSource(f);
   }
+
+  @Override
+  public ByteBuffer readBuffer(File f) throws IOException {
+    if (!f.exists()) {
+      throw new FileNotFoundException(f.getPath());
+    }
+    return Files.map(f);
+  }
 }
@@ -0,0 +1,270 @@
+/*
+ * Copyright 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.SetMultimap;
+import com.google.template.soy.base.SourceFilePath;
+import com.google.template.soy.base.SourceLogicalPath;
+import com.google.template.soy.base.internal.SoyFileSupplier;
+import com.google.template.soy.exprtree.TemplateLiteralNode;
+import com.google.template.soy.jbcsrc.shared.CompiledTemplates;
+import com.google.template.soy.soytree.CallDelegateNode;
+import com.google.template.soy.soytree.CompilationUnit;
+import com.google.template.soy.soytree.CompilationUnitAndKind;
+import com.google.template.soy.soytree.FileSetMetadata;
+import com.google.template.soy.soytree.ImportNode;
+import com.google.template.soy.soytree.SoyFileNode;
+import com.google.template.soy.soytree.SoyFileP;
+import com.google.template.soy.soytree.SoyFileSetNode;
+import com.google.template.soy.soytree.SoyTreeUtils;
+import com.google.template.soy.soytree.TemplateMetadata;
+import com.google.template.soy.soytree.TemplateMetadataSerializer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * The state kept between calls to {@link SoyFileSet#compileTemplatesIncrementally}, for 'edit
+ * refresh' workflows.
+ *
+ * <p>Each compile records which files depend on which, through imports, template calls and
+ * deltemplate calls. The next compile only reruns the passes and generates classes for the files
+ * whose {@linkplain SoyFileSupplier.Version version} changed and for the files that depend on
+ * them, directly or indirectly. The other files are compiled against the metadata recorded for
+ * them, and their classes are loaded from the previous {@link CompiledTemplates}.
+ *
+ * <p>Like {@link com.google.template.soy.shared.SoyAstCache}, an instance can outlive the file
+ * sets that use it. It should only be used with file sets that are configured the same way except
+ * for their sources. If the dependencies of the file set change, everything is recompiled.
+ */
+public final class IncrementalCompilation {
+
+  @GuardedBy("this")
+  @Nullable
+  private CompiledTemplates templates;
+
+  @GuardedBy("this")
+  private ImmutableList<CompilationUnitAndKind> compilationUnits = ImmutableList.of();
+
+  /** The versions of the sources the last successful compile used. */
+  @GuardedBy("this")
+  private ImmutableMap<SourceLogicalPath, SoyFileSupplier.Version> versions = ImmutableMap.of();
+
+  /** The metadata of every source, as a dependency. */
+  @GuardedBy("this")
+  private ImmutableMap<SourceLogicalPath, SoyFileP> headers = ImmutableMap.of();
+
+  /** Maps each source to the sources it depends on. */
+  @GuardedBy("this")
+  private ImmutableSetMultimap<SourceLogicalPath, SourceLogicalPath> dependencies =
+      ImmutableSetMultimap.of();
+
+  @GuardedBy("this")
+  private ImmutableSet<SourceLogicalPath> lastCompiledFiles = ImmutableSet.of();
+
+  public IncrementalCompilation() {}
+
+  /**
+   * Returns the sources that were compiled by the last successful compile. This is every source
+   * after a full compile.
+   */
+  public synchronized ImmutableSet<SourceLogicalPath> getLastCompiledFiles() {
+    return lastCompiledFiles;
+  }
+
+  /** Returns the templates of the last successful compile. */
+  @VisibleForTesting
+  @Nullable
+  synchronized CompiledTemplates getTemplates() {
+    return templates;
+  }
+
+  /** The sources that a compile has to compile, and what it can reuse from the previous one. */
+  static final class Plan {
+    final ImmutableMap<SourceLogicalPath, SoyFileSupplier.Version> versions;
+
+    /** The sources to compile, or empty to compile all of them. */
+    final Optional<ImmutableSet<SourceLogicalPath>> filesToCompile;
+
+    /** The metadata of the sources that aren't compiled. */
+    final CompilationUnit unchangedFiles;
+
+    @Nullable final CompiledTemplates previous;
+
+    Plan(
+        ImmutableMap<SourceLogicalPath, SoyFileSupplier.Version> versions,
+        Optional<ImmutableSet<SourceLogicalPath>> filesToCompile,
+        CompilationUnit unchangedFiles,
+        @Nullable CompiledTemplates previous) {
+      this.versions = versions;
+      this.filesToCompile = filesToCompile;
+      this.unchangedFiles = unchangedFiles;
+      this.previous = previous;
+    }
+
+    boolean isFullCompile() {
+      return filesToCompile.isEmpty();
+    }
+  }
+
+  /** Works out which of the given sources have to be compiled. */
+  synchronized Plan plan(
+      ImmutableMap<SourceLogicalPath, SoyFileSupplier> suppliers,
+      ImmutableList<CompilationUnitAndKind> compilationUnits) {
+    ImmutableMap.Builder<SourceLogicalPath, SoyFileSupplier.Version> newVersions =
+        ImmutableMap.builder();
+    Set<SourceLogicalPath> changed = new HashSet<>();
+    for (Map.Entry<SourceLogicalPath, SoyFileSupplier> entry : suppliers.entrySet()) {
+      SoyFileSupplier.Version version = entry.getValue().getVersion();
+      newVersions.put(entry.getKey(), version);
+      if (!version.equals(versions.get(entry.getKey()))) {
+        changed.add(entry.getKey());
+      }
+    }
+    for (SourceLogicalPath path : versions.keySet()) {
+      if (!suppliers.containsKey(path)) {
+        changed.add(path);
+      }
+    }
+    if (templates == null || !compilationUnits.equals(this.compilationUnits)) {
+      return new Plan(
+          newVersions.buildOrThrow(),
+          Optional.empty(),
+          CompilationUnit.getDefaultInstance(),
+          null);
+    }
+
+    // Every file that depends on a changed file, directly or indirectly, has to be compiled too.
+    SetMultimap<SourceLogicalPath, SourceLogicalPath> dependents = dependencies.inverse();
+    Set<SourceLogicalPath> affected = new HashSet<>(changed);
+    Deque<SourceLogicalPath> toVisit = new ArrayDeque<>(changed);
+    while (!toVisit.isEmpty()) {
+      for (SourceLogicalPath dependent : dependents.get(toVisit.pop())) {
+        if (affected.add(dependent)) {
+          toVisit.add(dependent);
+        }
+      }
+    }
+
+    ImmutableSet.Builder<SourceLogicalPath> filesToCompile = ImmutableSet.builder();
+    CompilationUnit.Builder unchangedFiles = CompilationUnit.newBuilder();
+    for (SourceLogicalPath path : suppliers.keySet()) {
+      if (affected.contains(path)) {
+        filesToCompile.add(path);
+      } else {
+        unchangedFiles.addFile(headers.get(path));
+      }
+    }
+    if (unchangedFiles.getFileCount() == 0) {
+      // A full compile is just as fast, and lets the previous templates be collected.
+      return new Plan(
+          newVersions.buildOrThrow(),
+          Optional.empty(),
+          CompilationUnit.getDefaultInstance(),
+          null);
+    }
+    return new Plan(
+        newVersions.buildOrThrow(),
+        Optional.of(filesToCompile.build()),
+        unchangedFiles.build(),
+        templates);
+  }
+
+  /** Records a compile that didn't have to compile anything. */
+  synchronized void updateUnchanged(Plan plan) {
+    this.versions = plan.versions;
+    this.lastCompiledFiles = ImmutableSet.of();
+  }
+
+  /** Records the result of a successful compile. */
+  synchronized void update(
+      Plan plan,
+      ImmutableList<CompilationUnitAndKind> compilationUnits,
+      SoyFileSetNode fileSet,
+      FileSetMetadata registry,
+      CompiledTemplates templates) {
+    Map<SourceLogicalPath, SoyFileP> newHeaders = new LinkedHashMap<>();
+    ImmutableSetMultimap.Builder<SourceLogicalPath, SourceLogicalPath> newDependencies =
+        ImmutableSetMultimap.builder();
+    if (!plan.isFullCompile()) {
+      for (SourceLogicalPath path : plan.versions.keySet()) {
+        if (!plan.filesToCompile.get().contains(path)) {
+          newHeaders.put(path, headers.get(path));
+          newDependencies.putAll(path, dependencies.get(path));
+        }
+      }
+    }
+    for (SoyFileP file :
+        TemplateMetadataSerializer.compilationUnitFromFileSet(fileSet, registry).getFileList()) {
+      newHeaders.put(SourceFilePath.create(file).asLogicalPath(), file);
+    }
+    ImmutableSet.Builder<SourceLogicalPath> compiledFiles = ImmutableSet.builder();
+    for (SoyFileNode file : fileSet.getChildren()) {
+      SourceLogicalPath path = file.getFilePath().asLogicalPath();
+      compiledFiles.add(path);
+      newDependencies.putAll(path, dependencies(file, registry));
+    }
+
+    this.templates = templates;
+    this.compilationUnits = compilationUnits;
+    this.versions = plan.versions;
+    this.headers = ImmutableMap.copyOf(newHeaders);
+    this.dependencies = newDependencies.build();
+    this.lastCompiledFiles = compiledFiles.build();
+  }
+
+  /** Returns the other sources that the code generated for {@code file} depends on. */
+  private static Set<SourceLogicalPath> dependencies(SoyFileNode file, FileSetMetadata registry) {
+    SourceLogicalPath path = file.getFilePath().asLogicalPath();
+    Set<SourceLogicalPath> dependencies = new HashSet<>();
+    SoyTreeUtils.allNodesOfType(file, ImportNode.class)
+        .forEach(i -> dependencies.add(i.getSourceFilePath()));
+    SoyTreeUtils.allNodesOfType(file, TemplateLiteralNode.class)
+        .filter(TemplateLiteralNode::isResolved)
+        .forEach(
+            t -> {
+              TemplateMetadata template = registry.getTemplate(t.getResolvedName());
+              if (template != null) {
+                dependencies.add(template.getSourceLocation().getFilePath().asLogicalPath());
+              }
+            });
+    SoyTreeUtils.allNodesOfType(file, CallDelegateNode.class)
+        .forEach(
+            call ->
+                registry
+                    .getDelTemplateSelector()
+                    .delTemplateNameToValues()
+                    .get(call.getDelCalleeName())
+                    .forEach(
+                        t ->
+                            dependencies.add(
+                                t.getSourceLocation().getFilePath().asLogicalPath())));
+    dependencies.remove(path);
+    return dependencies;
+  }
+}
@@ -19,6 +19,8 @@ package com.google.template.soy;
 import com.google.common.io.ByteSource;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /** Provides a way for the compiler to read files. */
 public interface SoyCompilerFileReader {
@@ -28,4 +30,14 @@ public interface SoyCompilerFileReader {
    * @throws FileNotFoundException if the file doesn't exist
    */
   ByteSource read(File path) throws FileNotFoundException;
+
+  /**
+   * Returns the contents of the file with the given path in a read only buffer. Implementations
+   * may map the file into memory instead of copying it.
+   *
+   * @throws FileNotFoundException if the file doesn't exist
+   */
+  default ByteBuffer readBuffer(File path) throws IOException {
+    return ByteBuffer.wrap(read(path).read()).asReadOnlyBuffer();
+  }
 }
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.protobuf.ByteString;
+import com.google.template.soy.worker.Input;
+import com.google.template.soy.worker.WorkRequest;
+import com.google.template.soy.worker.WorkResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a compiler as a Bazel persistent worker.
+ *
+ * <p>When a compiler is started with {@code --persistent_worker} it reads length delimited {@link
+ * WorkRequest}s from stdin and writes a {@link WorkResponse} to stdout for each one, until stdin
+ * is closed. Every request gets a new compiler, but they share a {@link DigestSoyInputCache}, so
+ * dependency headers, proto descriptors, plugin jars, toggles and the ASTs of sources that haven't
+ * changed are only read once, and the JVM stays warm.
+ *
+ * <p>Requests with a non-zero id come from a multiplex worker and are compiled concurrently.
+ * Cancellation and sandboxed multiplex workers aren't supported, the build tool won't ask for
+ * either unless the worker declares support for it.
+ */
+final class SoyCompilerWorker {
+  static final String PERSISTENT_WORKER_FLAG = "--persistent_worker";
+
+  /** Creates a compiler for a single request. */
+  @FunctionalInterface
+  interface CompilerFactory {
+    AbstractSoyCompiler create(PluginLoader loader, SoyInputCache cache);
+  }
+
+  static boolean isPersistentWorker(String[] args) {
+    return Arrays.asList(args).contains(PERSISTENT_WORKER_FLAG);
+  }
+
+  private final CompilerFactory compilerFactory;
+  private final PluginLoader pluginLoader;
+  private final SoyCompilerFileReader fileReader;
+  private final DigestSoyInputCache cache;
+
+  SoyCompilerWorker(
+      CompilerFactory compilerFactory,
+      PluginLoader pluginLoader,
+      SoyCompilerFileReader fileReader,
+      DigestSoyInputCache cache) {
+    this.compilerFactory = compilerFactory;
+    this.pluginLoader = pluginLoader;
+    this.fileReader = fileReader;
+    this.cache = cache;
+  }
+
+  /** Processes requests from {@code in} until it is closed. */
+  void run(InputStream in, OutputStream out) throws IOException {
+    ExecutorService executor = Executors.newCachedThreadPool();
+    try {
+      WorkRequest request;
+      while ((request = WorkRequest.parseDelimitedFrom(in)) != null) {
+        if (request.getCancel()) {
+          // The response to the cancelled request is still sent once it completes.
+          continue;
+        }
+        if (request.getRequestId() == 0) {
+          respond(handle(request), out);
+        } else {
+          WorkRequest multiplexRequest = request;
+          executor.execute(() -> respond(handle(multiplexRequest), out));
+        }
+      }
+    } finally {
+      MoreExecutors.shutdownAndAwaitTermination(executor, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /** Compiles a single request. */
+  WorkResponse handle(WorkRequest request) {
+    Map<String, ByteString> digests = new HashMap<>();
+    for (Input input : request.getInputsList()) {
+      if (!input.getDigest().isEmpty()) {
+        digests.put(input.getPath(), input.getDigest());
+      }
+    }
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    int exitCode;
+    try (PrintStream err = new PrintStream(output, /* autoFlush= */ true, UTF_8)) {
+      exitCode =
+          compilerFactory
+              .create(pluginLoader, cache.forRequest(digests, fileReader))
+              .run(request.getArgumentsList().toArray(new String[0]), err);
+    }
+    return WorkResponse.newBuilder()
+        .setExitCode(exitCode)
+        .setOutput(output.toString(UTF_8))
+        .setRequestId(request.getRequestId())
+        .build();
+  }
+
+  private static void respond(WorkResponse response, OutputStream out) {
+    synchronized (out) {
+      try {
+        response.writeDelimitedTo(out);
+        out.flush();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+}
@@ -45,7 +45,7 @@ public final class SoyConformanceChecker extends AbstractSoyCompiler {
   SoyConformanceChecker() {}
 
   public static void main(String[] args) {
-    new SoyConformanceChecker().runMain(args);
+    runMain(SoyConformanceChecker::new, args);
   }
 
   @Override
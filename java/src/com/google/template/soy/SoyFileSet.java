@@ -26,6 +26,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
 import com.google.common.io.ByteSink;
 import com.google.common.io.CharSource;
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
@@ -34,6 +35,7 @@ import com.google.protobuf.Descriptors.GenericDescriptor;
 import com.google.template.soy.SoyFileSetParser.ParseResult;
 import com.google.template.soy.base.SourceFilePath;
 import com.google.template.soy.base.SourceLogicalPath;
+import com.google.template.soy.base.internal.CompilerProfiler;
 import com.google.template.soy.base.internal.KytheMode;
 import com.google.template.soy.base.internal.SoyFileKind;
 import com.google.template.soy.base.internal.SoyFileSupplier;
@@ -92,7 +94,9 @@ import com.google.template.soy.shared.restricted.SoyPrintDirective;
 import com.google.template.soy.soytree.CompilationUnit;
 import com.google.template.soy.soytree.CompilationUnitAndKind;
 import com.google.template.soy.soytree.FileSetMetadata;
+import com.google.template.soy.soytree.SoyFileP;
 import com.google.template.soy.soytree.SoyFileSetNode;
+import com.google.template.soy.soytree.TemplateMetadataSerializer;
 import com.google.template.soy.tofu.SoyTofu;
 import com.google.template.soy.tofu.internal.BaseTofu;
 import com.google.template.soy.types.SoyTypeRegistry;
@@ -153,6 +157,14 @@ public final class SoyFileSet {
     /** Optional AST cache. */
     private SoyAstCache cache = null;
 
+    private int compilerThreads = 1;
+
+    private boolean prefetchParams = false;
+
+    private boolean utf8Constants = false;
+
+    private CompilerProfiler profiler = CompilerProfiler.NONE;
+
     /** The general compiler options. */
     private SoyGeneralOptions lazyGeneralOptions = null;
 
@@ -249,6 +261,10 @@ public final class SoyFileSet {
           compilationUnitsBuilder.build(),
           getGeneralOptions(),
           cache,
+          compilerThreads,
+          prefetchParams,
+          utf8Constants,
+          profiler,
           conformanceConfig,
           warningSink,
           pluginRuntimeJars,
@@ -458,6 +474,68 @@ public final class SoyFileSet {
       return this;
     }
 
+    /**
+     * Sets the number of threads used to parse files and to generate code for them. Files are
+     * compiled sequentially by default.
+     *
+     * <p>These are the parts of the compiler that can be done file by file, so this can speed up
+     * compiles of a large number of files on machines with multiple cores. The results, including
+     * the order of any errors, don't depend on the number of threads.
+     *
+     * @param compilerThreads The number of threads, must be positive.
+     * @return This builder.
+     */
+    @CanIgnoreReturnValue
+    public Builder setCompilerThreads(int compilerThreads) {
+      Preconditions.checkArgument(
+          compilerThreads > 0, "compilerThreads must be positive: %s", compilerThreads);
+      this.compilerThreads = compilerThreads;
+      return this;
+    }
+
+    /**
+     * Sets whether SoySauce templates resolve all of their params before rendering.
+     *
+     * <p>When enabled, each template waits up front for all of the params it will definitely
+     * reference, so it detaches at most once for them instead of once per param as rendering
+     * reaches it. This is off by default since it can delay output that doesn't depend on the slow
+     * params.
+     *
+     * @return This builder.
+     */
+    @CanIgnoreReturnValue
+    public Builder setPrefetchParams(boolean prefetchParams) {
+      this.prefetchParams = prefetchParams;
+      return this;
+    }
+
+    /**
+     * Sets whether SoySauce templates carry a pre-encoded UTF-8 copy of their raw text.
+     *
+     * <p>When enabled, byte oriented outputs like {@code Utf8OutputAppendable} can copy raw text
+     * instead of encoding it on every render, at the cost of an extra constant per raw text node in
+     * the generated classes.
+     *
+     * @return This builder.
+     */
+    @CanIgnoreReturnValue
+    public Builder setUtf8Constants(boolean utf8Constants) {
+      this.utf8Constants = utf8Constants;
+      return this;
+    }
+
+    /**
+     * Sets a profiler that records the wall time, CPU time and allocated bytes of each compiler
+     * pass on each file, and of the code generators.
+     *
+     * @return This builder.
+     */
+    @CanIgnoreReturnValue
+    public Builder setCompilerProfiler(CompilerProfiler profiler) {
+      this.profiler = checkNotNull(profiler);
+      return this;
+    }
+
     /**
      * Sets experimental features. These features are unreleased and are not generally available.
      *
@@ -613,6 +691,11 @@ public final class SoyFileSet {
   /** Optional soy tree cache for faster recompile times. */
   @Nullable private final SoyAstCache cache;
 
+  private final int compilerThreads;
+  private final boolean prefetchParams;
+  private final boolean utf8Constants;
+  private final CompilerProfiler profiler;
+
   private final SoyGeneralOptions generalOptions;
 
   private final ValidatedConformanceConfig conformanceConfig;
@@ -648,6 +731,10 @@ public final class SoyFileSet {
       ImmutableList<CompilationUnitAndKind> compilationUnits,
       SoyGeneralOptions generalOptions,
       @Nullable SoyAstCache cache,
+      int compilerThreads,
+      boolean prefetchParams,
+      boolean utf8Constants,
+      CompilerProfiler profiler,
       ValidatedConformanceConfig conformanceConfig,
       @Nullable Appendable warningSink,
       ImmutableList<File> pluginRuntimeJars,
@@ -662,6 +749,10 @@ public final class SoyFileSet {
     this.soyFileSuppliers = soyFileSuppliers;
     this.compilationUnits = compilationUnits;
     this.cache = cache;
+    this.compilerThreads = compilerThreads;
+    this.prefetchParams = prefetchParams;
+    this.utf8Constants = utf8Constants;
+    this.profiler = profiler;
     this.generalOptions = generalOptions.clone();
     this.soyFunctions = InternalPlugins.filterDuplicateFunctions(soyFunctions);
     this.printDirectives = InternalPlugins.filterDuplicateDirectives(printDirectives);
@@ -986,6 +1077,171 @@ public final class SoyFileSet {
         });
   }
 
+  /**
+   * Compiles this Soy file set into a set of java classes implementing the {@link SoySauce}
+   * interface, only recompiling the files that changed since the last compile that used {@code
+   * incrementalCompilation} and the files that depend on them.
+   *
+   * <p>This is meant for 'edit refresh' workflows that compile a new file set with the same
+   * configuration after every edit. Changes are detected with {@link SoyFileSupplier#getVersion},
+   * so the file suppliers need to report a new version when their contents change.
+   *
+   * @return A set of compiled templates
+   * @throws SoyCompilationException If compilation fails, in which case {@code
+   *     incrementalCompilation} is unchanged.
+   */
+  public SoySauce compileTemplatesIncrementally(IncrementalCompilation incrementalCompilation) {
+    return compileTemplatesIncrementally(incrementalCompilation, ImmutableMap.of());
+  }
+
+  /**
+   * Compiles this Soy file set into a set of java classes implementing the {@link SoySauce}
+   * interface, only recompiling the files that changed since the last compile that used {@code
+   * incrementalCompilation} and the files that depend on them.
+   *
+   * @return A set of compiled templates
+   * @throws SoyCompilationException If compilation fails, in which case {@code
+   *     incrementalCompilation} is unchanged.
+   * @see #compileTemplatesIncrementally(IncrementalCompilation)
+   */
+  public SoySauce compileTemplatesIncrementally(
+      IncrementalCompilation incrementalCompilation,
+      Map<String, ? extends Supplier<Object>> pluginInstances) {
+    return entryPoint(
+        () -> {
+          synchronized (incrementalCompilation) {
+            IncrementalCompilation.Plan plan =
+                incrementalCompilation.plan(soyFileSuppliers, compilationUnits);
+            if (!plan.isFullCompile() && plan.filesToCompile.get().isEmpty()) {
+              incrementalCompilation.updateUnchanged(plan);
+              return new SoySauceImpl(
+                  plan.previous,
+                  soyFunctions,
+                  printDirectives,
+                  PluginInstances.of(pluginInstances));
+            }
+            ImmutableMap<SourceLogicalPath, SoyFileSupplier> suppliers = soyFileSuppliers;
+            ImmutableList<CompilationUnitAndKind> units = compilationUnits;
+            if (!plan.isFullCompile()) {
+              suppliers =
+                  ImmutableMap.copyOf(
+                      Maps.filterKeys(soyFileSuppliers, plan.filesToCompile.get()::contains));
+              units =
+                  ImmutableList.<CompilationUnitAndKind>builder()
+                      .addAll(compilationUnits)
+                      .add(CompilationUnitAndKind.create(SoyFileKind.DEP, plan.unchangedFiles))
+                      .build();
+            }
+            ParseResult result =
+                parse(
+                    passManagerBuilder().addHtmlAttributesForLogging(true),
+                    typeRegistry,
+                    suppliers,
+                    units);
+            throwIfErrorsPresent();
+            Optional<CompiledTemplates> templates =
+                BytecodeCompiler.compile(
+                    result.registry(),
+                    result.fileSet(),
+                    errorReporter,
+                    soyFileSuppliers,
+                    typeRegistry,
+                    plan.previous,
+                    prefetchParams,
+                    utf8Constants);
+            throwIfErrorsPresent();
+            incrementalCompilation.update(
+                plan, compilationUnits, result.fileSet(), result.registry(), templates.get());
+            return new SoySauceImpl(
+                templates.get(), soyFunctions, printDirectives, PluginInstances.of(pluginInstances));
+          }
+        });
+  }
+
+  /**
+   * Compiles this Soy file set into a set of java classes implementing the {@link SoySauce}
+   * interface, analyzing and compiling each file only when one of its templates is first loaded.
+   *
+   * <p>This is meant for development servers, where most requests only render a small part of a
+   * large file set. Up front only the passes needed to calculate the template headers are run, so
+   * errors in template headers are still reported here. Errors in template bodies are only reported
+   * when the file is loaded, by throwing a {@link SoyCompilationException} from the {@link
+   * SoySauce} methods. Production servers should use {@link #compileTemplates()}, or better compile
+   * the templates ahead of time.
+   *
+   * @return A set of compiled templates
+   * @throws SoyCompilationException If the template headers fail to compile.
+   */
+  public SoySauce compileTemplatesLazily() {
+    return compileTemplatesLazily(ImmutableMap.of());
+  }
+
+  /**
+   * Compiles this Soy file set into a set of java classes implementing the {@link SoySauce}
+   * interface, analyzing and compiling each file only when one of its templates is first loaded.
+   *
+   * @return A set of compiled templates
+   * @throws SoyCompilationException If the template headers fail to compile.
+   * @see #compileTemplatesLazily()
+   */
+  public SoySauce compileTemplatesLazily(Map<String, ? extends Supplier<Object>> pluginInstances) {
+    return entryPoint(
+        () -> {
+          ParseResult headerResult = parse(passManagerBuilderForHeaders(), typeRegistry);
+          throwIfErrorsPresent();
+          Map<SourceLogicalPath, SoyFileP> headers = new LinkedHashMap<>();
+          for (SoyFileP file :
+              TemplateMetadataSerializer.compilationUnitFromFileSet(
+                      headerResult.fileSet(), headerResult.registry())
+                  .getFileList()) {
+            headers.put(SourceFilePath.create(file).asLogicalPath(), file);
+          }
+          // The passes share the registries of this file set, so files are analyzed one at a time.
+          Object lock = new Object();
+          CompiledTemplates templates =
+              BytecodeCompiler.compileOnDemand(
+                  headerResult.registry(),
+                  headerResult.fileSet(),
+                  soyFileSuppliers,
+                  typeRegistry,
+                  (path, reporter) -> {
+                    // Every other file is compiled against its header, like a dependency.
+                    CompilationUnit.Builder otherFiles = CompilationUnit.newBuilder();
+                    headers.forEach(
+                        (otherPath, header) -> {
+                          if (!otherPath.equals(path)) {
+                            otherFiles.addFile(header);
+                          }
+                        });
+                    ImmutableList<CompilationUnitAndKind> units =
+                        ImmutableList.<CompilationUnitAndKind>builder()
+                            .addAll(compilationUnits)
+                            .add(CompilationUnitAndKind.create(SoyFileKind.DEP, otherFiles.build()))
+                            .build();
+                    ParseResult result;
+                    synchronized (lock) {
+                      result =
+                          parse(
+                              passManagerBuilder(reporter).addHtmlAttributesForLogging(true),
+                              typeRegistry,
+                              ImmutableMap.of(path, soyFileSuppliers.get(path)),
+                              units,
+                              reporter);
+                    }
+                    if (reporter.hasErrors()) {
+                      return null;
+                    }
+                    return new BytecodeCompiler.AnalyzedFile(
+                        Iterables.getOnlyElement(result.fileSet().getChildren()),
+                        result.registry());
+                  },
+                  prefetchParams,
+                  utf8Constants);
+          return new SoySauceImpl(
+              templates, soyFunctions, printDirectives, PluginInstances.of(pluginInstances));
+        });
+  }
+
   public CssRegistry getCssRegistry() {
     return cssRegistry;
   }
@@ -1001,9 +1257,16 @@ public final class SoyFileSet {
     entryPointVoid(
         () -> {
           ServerCompilationPrimitives primitives = compileForServerRendering(/* isTofu= */ false);
-          try {
+          try (CompilerProfiler.Span span = profiler.start("backend", "Jbcsrc")) {
             BytecodeCompiler.compileToJar(
-                primitives.soyTree, errorReporter, typeRegistry, jarTarget, primitives.registry);
+                primitives.soyTree,
+                errorReporter,
+                typeRegistry,
+                jarTarget,
+                primitives.registry,
+                compilerThreads,
+                prefetchParams,
+                utf8Constants);
             if (srcJarTarget.isPresent()) {
               BytecodeCompiler.writeSrcJar(
                   primitives.soyTree, soyFileSuppliers, srcJarTarget.get());
@@ -1017,9 +1280,19 @@ public final class SoyFileSet {
   /** Helper method to compile SoySauce from {@link ServerCompilationPrimitives} */
   private SoySauce doCompileSoySauce(
       ServerCompilationPrimitives primitives, PluginInstances pluginInstances) {
-    Optional<CompiledTemplates> templates =
-        BytecodeCompiler.compile(
-            primitives.registry, primitives.soyTree, errorReporter, soyFileSuppliers, typeRegistry);
+    Optional<CompiledTemplates> templates;
+    try (CompilerProfiler.Span span = profiler.start("backend", "Jbcsrc")) {
+      templates =
+          BytecodeCompiler.compile(
+              primitives.registry,
+              primitives.soyTree,
+              errorReporter,
+              soyFileSuppliers,
+              typeRegistry,
+              /* previous= */ null,
+              prefetchParams,
+              utf8Constants);
+    }
 
     throwIfErrorsPresent();
 
@@ -1090,8 +1363,10 @@ public final class SoyFileSet {
           throwIfErrorsPresent();
           FileSetMetadata registry = result.registry();
           SoyFileSetNode fileSet = result.fileSet();
-          return new JsSrcMain(scopedData.enterable(), typeRegistry)
-              .genJsSrc(fileSet, registry, jsSrcOptions, msgBundle, errorReporter);
+          try (CompilerProfiler.Span span = profiler.start("backend", "Jssrc")) {
+            return new JsSrcMain(scopedData.enterable(), typeRegistry, compilerThreads)
+                .genJsSrc(fileSet, registry, jsSrcOptions, msgBundle, errorReporter);
+          }
         });
   }
 
@@ -1119,8 +1394,10 @@ public final class SoyFileSet {
                       .addHtmlAttributesForLogging(false)
                       .validateJavaMethods(false));
           throwIfErrorsPresent();
-          return new IdomSrcMain(scopedData.enterable(), typeRegistry)
-              .genJsSrc(result.fileSet(), result.registry(), jsSrcOptions, errorReporter);
+          try (CompilerProfiler.Span span = profiler.start("backend", "Idomsrc")) {
+            return new IdomSrcMain(scopedData.enterable(), typeRegistry, compilerThreads)
+                .genJsSrc(result.fileSet(), result.registry(), jsSrcOptions, errorReporter);
+          }
         });
   }
 
@@ -1143,8 +1420,10 @@ public final class SoyFileSet {
                         // pysrc doesn't support velogging
                         .addHtmlAttributesForLogging(false));
             throwIfErrorsPresent();
-            return new PySrcMain(scopedData.enterable())
-                .genPyFiles(result.fileSet(), result.registry(), pySrcOptions, errorReporter);
+            try (CompilerProfiler.Span span = profiler.start("backend", "Pysrc")) {
+              return new PySrcMain(scopedData.enterable(), compilerThreads)
+                  .genPyFiles(result.fileSet(), result.registry(), pySrcOptions, errorReporter);
+            }
           } catch (IOException e) {
             throw new RuntimeException(e);
           }
@@ -1167,17 +1446,7 @@ public final class SoyFileSet {
   HeaderResult compileMinimallyForHeaders() {
     return entryPoint(
         () -> {
-          ParseResult parseResult =
-              parse(
-                  passManagerBuilder()
-                      // Because we allow this for JS generated templates, we allow this for
-                      // headers.
-                      .allowUnknownJsGlobals()
-                      // Only run passes that not cross template checking.
-                      .addPassContinuationRule(
-                          CheckTemplateHeaderVarsPass.class, PassContinuationRule.STOP_BEFORE_PASS)
-                      .validateJavaMethods(false),
-                  typeRegistry);
+          ParseResult parseResult = parse(passManagerBuilderForHeaders(), typeRegistry);
           // throw before accessing registry() to make sure it is definitely available.
           throwIfErrorsPresent();
           return new AutoValue_SoyFileSet_HeaderResult(
@@ -1185,6 +1454,17 @@ public final class SoyFileSet {
         });
   }
 
+  /** Returns a pass manager that only runs the passes needed to calculate TemplateMetadata. */
+  private PassManager.Builder passManagerBuilderForHeaders() {
+    return passManagerBuilder()
+        // Because we allow this for JS generated templates, we allow this for headers.
+        .allowUnknownJsGlobals()
+        // Only run passes that not cross template checking.
+        .addPassContinuationRule(
+            CheckTemplateHeaderVarsPass.class, PassContinuationRule.STOP_BEFORE_PASS)
+        .validateJavaMethods(false);
+  }
+
   /** Returns the result of {@link #compileForAnalysis}. */
   @AutoValue
   public abstract static class AnalysisResult {
@@ -1270,8 +1550,27 @@ public final class SoyFileSet {
   }
 
   private ParseResult parse(PassManager.Builder builder, SoyTypeRegistry typeRegistry) {
+    return parse(builder, typeRegistry, soyFileSuppliers, compilationUnits);
+  }
+
+  private ParseResult parse(
+      PassManager.Builder builder,
+      SoyTypeRegistry typeRegistry,
+      ImmutableMap<SourceLogicalPath, SoyFileSupplier> soyFileSuppliers,
+      ImmutableList<CompilationUnitAndKind> compilationUnits) {
+    return parse(builder, typeRegistry, soyFileSuppliers, compilationUnits, errorReporter);
+  }
+
+  private ParseResult parse(
+      PassManager.Builder builder,
+      SoyTypeRegistry typeRegistry,
+      ImmutableMap<SourceLogicalPath, SoyFileSupplier> soyFileSuppliers,
+      ImmutableList<CompilationUnitAndKind> compilationUnits,
+      ErrorReporter errorReporter) {
     return SoyFileSetParser.newBuilder()
         .setCache(cache)
+        .setCompilerThreads(compilerThreads)
+        .setProfiler(profiler)
         .setSoyFileSuppliers(soyFileSuppliers)
         .setCompilationUnits(compilationUnits)
         .setCssRegistry(cssRegistry)
@@ -1288,6 +1587,10 @@ public final class SoyFileSet {
   }
 
   private PassManager.Builder passManagerBuilder() {
+    return passManagerBuilder(errorReporter);
+  }
+
+  private PassManager.Builder passManagerBuilder(ErrorReporter errorReporter) {
     return new PassManager.Builder()
         .setGeneralOptions(generalOptions)
         .optimize(optimize)
@@ -1296,12 +1599,13 @@ public final class SoyFileSet {
         .setCssRegistry(cssRegistry)
         .setToggleRegistry(toggleRegistry)
         .setErrorReporter(errorReporter)
+        .setProfiler(profiler)
         .setJavaPluginValidator(javaMethodChecker)
         .setConformanceConfig(conformanceConfig)
-        .setPluginResolver(buildPluginResolver());
+        .setPluginResolver(buildPluginResolver(errorReporter));
   }
 
-  private PluginResolver buildPluginResolver() {
+  private PluginResolver buildPluginResolver(ErrorReporter errorReporter) {
     return new PluginResolver(
         skipPluginValidation
             ? PluginResolver.Mode.ALLOW_UNDEFINED
@@ -16,14 +16,18 @@
 
 package com.google.template.soy;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 import com.google.auto.value.AutoValue;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.template.soy.base.SourceFilePath;
 import com.google.template.soy.base.SourceLogicalPath;
+import com.google.template.soy.base.internal.CompilerProfiler;
 import com.google.template.soy.base.internal.FixedIdGenerator;
 import com.google.template.soy.base.internal.IdGenerator;
 import com.google.template.soy.base.internal.IncrementingIdGenerator;
+import com.google.template.soy.base.internal.ParallelFileTasks;
 import com.google.template.soy.base.internal.SoyFileSupplier;
 import com.google.template.soy.css.CssRegistry;
 import com.google.template.soy.error.ErrorReporter;
@@ -40,6 +44,10 @@ import com.google.template.soy.soytree.SoyTreeUtils;
 import com.google.template.soy.types.SoyTypeRegistry;
 import java.io.IOException;
 import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
 import javax.annotation.Nullable;
 
@@ -92,7 +100,10 @@ public abstract class SoyFileSetParser {
   }
 
   public static Builder newBuilder() {
-    return new AutoValue_SoyFileSetParser.Builder().setToggleRegistry(ToggleRegistry.EMPTY);
+    return new AutoValue_SoyFileSetParser.Builder()
+        .setToggleRegistry(ToggleRegistry.EMPTY)
+        .setCompilerThreads(1)
+        .setProfiler(CompilerProfiler.NONE);
   }
 
   /** Optional file cache. */
@@ -114,6 +125,15 @@ public abstract class SoyFileSetParser {
 
   public abstract ToggleRegistry toggleRegistry();
 
+  /**
+   * The number of threads to use for parsing files and running the parse passes. When this is
+   * greater than 1 files are parsed in parallel, errors are still reported in file order.
+   */
+  abstract int compilerThreads();
+
+  /** Records how long parsing each file and reading the dependencies takes. */
+  abstract CompilerProfiler profiler();
+
   /** Builder for {@link SoyFileSetParser}. */
   @AutoValue.Builder
   public abstract static class Builder {
@@ -135,7 +155,20 @@ public abstract class SoyFileSetParser {
 
     public abstract Builder setToggleRegistry(ToggleRegistry toggleRegistry);
 
-    public abstract SoyFileSetParser build();
+    public abstract Builder setCompilerThreads(int compilerThreads);
+
+    public abstract Builder setProfiler(CompilerProfiler profiler);
+
+    abstract SoyFileSetParser autoBuild();
+
+    public SoyFileSetParser build() {
+      SoyFileSetParser parser = autoBuild();
+      checkArgument(
+          parser.compilerThreads() > 0,
+          "compilerThreads must be positive: %s",
+          parser.compilerThreads());
+      return parser;
+    }
   }
 
   /** Parses a set of Soy files, returning a structure containing the parse tree and any errors. */
@@ -163,12 +196,51 @@ public abstract class SoyFileSetParser {
     // help with assigning unique names in the js and python backends.  We should just move this
     // into those backends
     FixedIdGenerator fixedIdGenerator = new FixedIdGenerator(-1);
-    for (SoyFileSupplier fileSupplier : soyFileSuppliers().values()) {
+    ImmutableList<SoyFileSupplier> fileSuppliers = soyFileSuppliers().values().asList();
+    List<SoyFileSupplier.Version> versions = new ArrayList<>(fileSuppliers.size());
+    List<SoyFileNode> cachedNodes = new ArrayList<>(fileSuppliers.size());
+    List<SoyFileSupplier> filesToParse = new ArrayList<>();
+    for (SoyFileSupplier fileSupplier : fileSuppliers) {
       SoyFileSupplier.Version version = fileSupplier.getVersion();
       SoyFileNode node =
           cache() != null ? cache().get(fileSupplier.getFilePath().asLogicalPath(), version) : null;
+      versions.add(version);
+      cachedNodes.add(node);
       if (node == null) {
-        node = parseSoyFileHelper(fileSupplier, fixedIdGenerator);
+        filesToParse.add(fileSupplier);
+      }
+    }
+    Iterator<SoyFileNode> parsedNodes;
+    try {
+      parsedNodes =
+          ParallelFileTasks.run(
+                  filesToParse,
+                  compilerThreads(),
+                  errorReporter(),
+                  (fileSupplier, reporter) -> {
+                    SoyFileNode node;
+                    try (CompilerProfiler.Span span =
+                        profiler().start("parse", "Parse", fileSupplier.getFilePath().path())) {
+                      node = parseSoyFileHelper(fileSupplier, fixedIdGenerator, reporter);
+                    } catch (IOException e) {
+                      throw new UncheckedIOException(e);
+                    }
+                    if (node != null) {
+                      // Run passes that are considered part of initial parsing.
+                      passManager().runParsePasses(node, fixedIdGenerator, reporter);
+                    }
+                    return node;
+                  })
+              .iterator();
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    for (int i = 0; i < fileSuppliers.size(); i++) {
+      SoyFileSupplier fileSupplier = fileSuppliers.get(i);
+      SoyFileSupplier.Version version = versions.get(i);
+      SoyFileNode node = cachedNodes.get(i);
+      if (node == null) {
+        node = parsedNodes.next();
         // TODO(b/19269289): implement error recovery and keep on trucking in order to display
         // as many errors as possible. Currently, the later passes just spew NPEs if run on
         // a malformed parse tree.
@@ -176,9 +248,6 @@ public abstract class SoyFileSetParser {
           filesWereSkipped = true;
           continue;
         }
-        // Run passes that are considered part of initial parsing.
-        passManager().runParsePasses(node, fixedIdGenerator);
-        // Run passes that check the tree.
         if (cache() != null) {
           cache().put(fileSupplier.getFilePath().asLogicalPath(), version, node);
         }
@@ -200,8 +269,11 @@ public abstract class SoyFileSetParser {
     }
 
     // Build the template registry for the file set & its dependencies.
-    FileSetMetadata partialRegistryForDeps =
-        Metadata.metadataForDeps(compilationUnits(), errorReporter(), typeRegistry());
+    FileSetMetadata partialRegistryForDeps;
+    try (CompilerProfiler.Span span = profiler().start("parse", "MetadataForDeps")) {
+      partialRegistryForDeps =
+          Metadata.metadataForDeps(compilationUnits(), errorReporter(), typeRegistry());
+    }
     passManager().runPasses(soyTree, partialRegistryForDeps);
 
     FileSetMetadata finalFileSetMetadata = passManager().getFinalTemplateRegistry();
@@ -213,9 +285,11 @@ public abstract class SoyFileSetParser {
    *
    * @param soyFileSupplier Supplier of the Soy file content and path.
    * @param nodeIdGen The generator of node ids.
+   * @param errorReporter The reporter for parse errors.
    * @return The resulting parse tree for one Soy file and the version from which it was parsed.
    */
-  private SoyFileNode parseSoyFileHelper(SoyFileSupplier soyFileSupplier, IdGenerator nodeIdGen)
+  private static SoyFileNode parseSoyFileHelper(
+      SoyFileSupplier soyFileSupplier, IdGenerator nodeIdGen, ErrorReporter errorReporter)
       throws IOException {
     try (Reader soyFileReader = soyFileSupplier.open()) {
       String filePath = soyFileSupplier.getFilePath().path();
@@ -232,7 +306,7 @@ public abstract class SoyFileSetParser {
               nodeIdGen,
               soyFileReader,
               SourceFilePath.create(filePath, soyFileSupplier.getFilePath().realPath()),
-              errorReporter())
+              errorReporter)
           .parseSoyFile();
     }
   }
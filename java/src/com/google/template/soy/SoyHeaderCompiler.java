@@ -30,6 +30,7 @@ import com.google.template.soy.soytree.SoyTreeUtils;
 import com.google.template.soy.soytree.TemplateMetadataSerializer;
 import com.google.template.soy.soytree.TemplateNode;
 import com.google.template.soy.templatecall.TemplateCallMetadata;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -73,6 +74,13 @@ final class SoyHeaderCompiler extends AbstractSoyCompiler {
               + " a gzipped TemplateCallMetadata proto")
   private File templateCallMetadataOutput = null;
 
+  @Option(
+      name = "--compress_output",
+      usage =
+          "Whether to gzip the output file. Uncompressed headers are larger but are mapped into"
+              + " memory and parsed without inflating them, which is faster for dependent compiles.")
+  private boolean compressOutput = true;
+
   SoyHeaderCompiler(PluginLoader loader, SoyInputCache cache) {
     super(loader, cache);
   }
@@ -88,7 +96,9 @@ final class SoyHeaderCompiler extends AbstractSoyCompiler {
     // some small tests revealed about a 5x compression ratio.  This is likely due to template names
     // sharing common prefixes and repeated parameter names and types.
     try (OutputStream os =
-        new GZIPOutputStream(new FileOutputStream(output), OUTPUT_STREAM_BUFFER_SIZE)) {
+        compressOutput
+            ? new GZIPOutputStream(new FileOutputStream(output), OUTPUT_STREAM_BUFFER_SIZE)
+            : new BufferedOutputStream(new FileOutputStream(output), OUTPUT_STREAM_BUFFER_SIZE)) {
       unit.writeTo(os);
     }
     if (cssMetadataOutput != null) {
@@ -169,6 +179,6 @@ final class SoyHeaderCompiler extends AbstractSoyCompiler {
    * @param args Should contain command-line flags and the list of paths to the Soy files.
    */
   public static void main(String[] args) {
-    new SoyHeaderCompiler().runMain(args);
+    runMain(SoyHeaderCompiler::new, args);
   }
 }
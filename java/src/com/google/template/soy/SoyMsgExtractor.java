@@ -72,7 +72,7 @@ public final class SoyMsgExtractor extends AbstractSoyCompiler {
    * @param args Should contain command-line flags and the list of paths to the Soy files.
    */
   public static void main(String... args) {
-    new SoyMsgExtractor().runMain(args);
+    runMain(SoyMsgExtractor::new, args);
   }
 
   SoyMsgExtractor(PluginLoader loader, SoyInputCache cache) {
@@ -90,7 +90,7 @@ public final class SoyParseInfoGenerator extends AbstractSoyCompiler {
    * @param args Should contain command-line flags and the list of paths to the Soy files.
    */
   public static void main(String[] args) {
-    new SoyParseInfoGenerator().runMain(args);
+    runMain(SoyParseInfoGenerator::new, args);
   }
 
   @Override
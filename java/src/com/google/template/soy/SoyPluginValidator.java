@@ -68,7 +68,7 @@ public final class SoyPluginValidator extends AbstractSoyCompiler {
   SoyPluginValidator() {}
 
   public static void main(String[] args) {
-    new SoyPluginValidator().runMain(args);
+    runMain(SoyPluginValidator::new, args);
   }
 
   @Override
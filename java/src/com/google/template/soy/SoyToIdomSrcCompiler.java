@@ -68,7 +68,7 @@ public final class SoyToIdomSrcCompiler extends AbstractSoyCompiler {
    * @param args Should contain command-line flags and the list of paths to the Soy files.
    */
   public static void main(String[] args) {
-    new SoyToIdomSrcCompiler().runMain(args);
+    runMain(SoyToIdomSrcCompiler::new, args);
   }
 
   SoyToIdomSrcCompiler(PluginLoader loader, SoyInputCache cache) {
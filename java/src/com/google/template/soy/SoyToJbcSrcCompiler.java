@@ -43,6 +43,20 @@ public final class SoyToJbcSrcCompiler extends AbstractSoyCompiler {
   )
   private File outputSrcJar;
 
+  @Option(
+      name = "--prefetch_params",
+      usage =
+          "Whether compiled templates wait for all the params they will definitely reference"
+              + " before rendering, so they detach at most once for them.")
+  private boolean prefetchParams = false;
+
+  @Option(
+      name = "--utf8_constants",
+      usage =
+          "Whether compiled templates carry a pre-encoded UTF-8 copy of their raw text, so byte"
+              + " oriented outputs can copy it instead of encoding it.")
+  private boolean utf8Constants = false;
+
   SoyToJbcSrcCompiler(PluginLoader loader, SoyInputCache cache) {
     super(loader, cache);
   }
@@ -55,6 +69,8 @@ public final class SoyToJbcSrcCompiler extends AbstractSoyCompiler {
     if (outputSrcJar != null) {
       srcJarSink = Optional.of(Files.asByteSink(outputSrcJar));
     }
+    sfsBuilder.setPrefetchParams(prefetchParams);
+    sfsBuilder.setUtf8Constants(utf8Constants);
     compile(sfsBuilder.build(), Files.asByteSink(output), srcJarSink);
   }
 
@@ -74,6 +90,6 @@ public final class SoyToJbcSrcCompiler extends AbstractSoyCompiler {
   }
 
   public static void main(String[] args) {
-    new SoyToJbcSrcCompiler().runMain(args);
+    runMain(SoyToJbcSrcCompiler::new, args);
   }
 }
@@ -128,7 +128,7 @@ public final class SoyToJsSrcCompiler extends AbstractSoyCompiler {
    * @param args Should contain command-line flags and the list of paths to the Soy files.
    */
   public static void main(String[] args) {
-    new SoyToJsSrcCompiler().runMain(args);
+    runMain(SoyToJsSrcCompiler::new, args);
   }
 
   @Override
@@ -106,7 +106,7 @@ public final class SoyToPySrcCompiler extends AbstractSoyCompiler {
    * @param args Should contain command-line flags and the list of paths to the Soy files.
    */
   public static void main(String[] args) {
-    new SoyToPySrcCompiler().runMain(args);
+    runMain(SoyToPySrcCompiler::new, args);
   }
 
   @Override
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.base.internal;
+
+import com.google.common.collect.ImmutableList;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import javax.annotation.Nullable;
+
+/**
+ * Records the wall time, CPU time and allocated bytes of the phases of a compile, such as each pass
+ * over each file, for {@code --profile_output}.
+ *
+ * <p>Phases are recorded with try-with-resources:
+ *
+ * <pre>{@code
+ * try (CompilerProfiler.Span span = profiler.start("pass", "ResolveNames", file)) {
+ *   ...
+ * }
+ * }</pre>
+ *
+ * <p>Spans may be recorded concurrently from different threads. CPU time and allocated bytes are
+ * measured for the current thread, so they are only accurate if the phase runs on a single thread.
+ * They are reported as -1 if the JVM doesn't support measuring them.
+ */
+public final class CompilerProfiler {
+  /** A profiler that doesn't record anything. */
+  public static final CompilerProfiler NONE = new CompilerProfiler(/* enabled= */ false);
+
+  /** A phase that is being recorded. Closing it records it. */
+  public interface Span extends AutoCloseable {
+    @Override
+    void close();
+  }
+
+  private static final Span NO_OP_SPAN = () -> {};
+
+  /** A recorded phase. */
+  public static final class Event {
+    private final String category;
+    private final String name;
+    @Nullable private final String file;
+    private final long threadId;
+    private final long startNanos;
+    private final long wallNanos;
+    private final long cpuNanos;
+    private final long allocatedBytes;
+
+    Event(
+        String category,
+        String name,
+        @Nullable String file,
+        long threadId,
+        long startNanos,
+        long wallNanos,
+        long cpuNanos,
+        long allocatedBytes) {
+      this.category = category;
+      this.name = name;
+      this.file = file;
+      this.threadId = threadId;
+      this.startNanos = startNanos;
+      this.wallNanos = wallNanos;
+      this.cpuNanos = cpuNanos;
+      this.allocatedBytes = allocatedBytes;
+    }
+
+    /** The kind of phase, e.g. {@code pass} or {@code parse}. */
+    public String category() {
+      return category;
+    }
+
+    public String name() {
+      return name;
+    }
+
+    /** The file the phase ran on, or {@code null} if it ran on the whole file set. */
+    @Nullable
+    public String file() {
+      return file;
+    }
+
+    public long wallNanos() {
+      return wallNanos;
+    }
+
+    public long cpuNanos() {
+      return cpuNanos;
+    }
+
+    public long allocatedBytes() {
+      return allocatedBytes;
+    }
+  }
+
+  /** Creates a profiler that records every span. */
+  public static CompilerProfiler create() {
+    return new CompilerProfiler(/* enabled= */ true);
+  }
+
+  private final boolean enabled;
+  private final long startNanos = System.nanoTime();
+  private final Queue<Event> events = new ConcurrentLinkedQueue<>();
+  private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+  private CompilerProfiler(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /** Starts recording a phase of the whole file set. */
+  public Span start(String category, String name) {
+    return start(category, name, null);
+  }
+
+  /** Starts recording a phase of a single file. */
+  public Span start(String category, String name, @Nullable String file) {
+    if (!enabled) {
+      return NO_OP_SPAN;
+    }
+    long threadId = Thread.currentThread().getId();
+    long start = System.nanoTime();
+    long cpuStart = cpuNanos();
+    long allocatedStart = allocatedBytes(threadId);
+    return () -> {
+      long cpuEnd = cpuNanos();
+      long allocatedEnd = allocatedBytes(threadId);
+      events.add(
+          new Event(
+              category,
+              name,
+              file,
+              threadId,
+              start - startNanos,
+              System.nanoTime() - start,
+              cpuStart == -1 || cpuEnd == -1 ? -1 : cpuEnd - cpuStart,
+              allocatedStart == -1 || allocatedEnd == -1 ? -1 : allocatedEnd - allocatedStart));
+    };
+  }
+
+  /** Returns the recorded phases, in the order they completed. */
+  public ImmutableList<Event> getEvents() {
+    return ImmutableList.copyOf(events);
+  }
+
+  /**
+   * Writes the recorded phases in the Chrome trace event format, which can be loaded by {@code
+   * chrome://tracing} and Perfetto, or read as plain JSON.
+   *
+   * <p>Each phase is a complete ({@code "ph": "X"}) event, with its file, CPU time and allocated
+   * bytes in its {@code args}.
+   */
+  public void writeTraceEvents(Writer writer) throws IOException {
+    JsonWriter json = new JsonWriter(writer);
+    json.setIndent(" ");
+    json.beginObject();
+    json.name("displayTimeUnit").value("ms");
+    json.name("traceEvents").beginArray();
+    for (Event event : events) {
+      json.beginObject();
+      json.name("name").value(event.name);
+      json.name("cat").value(event.category);
+      json.name("ph").value("X");
+      json.name("pid").value(1);
+      json.name("tid").value(event.threadId);
+      json.name("ts").value(event.startNanos / 1000);
+      json.name("dur").value(event.wallNanos / 1000);
+      json.name("args").beginObject();
+      if (event.file != null) {
+        json.name("file").value(event.file);
+      }
+      json.name("cpuMicros").value(event.cpuNanos == -1 ? -1 : event.cpuNanos / 1000);
+      json.name("allocatedBytes").value(event.allocatedBytes);
+      json.endObject();
+      json.endObject();
+    }
+    json.endArray();
+    json.endObject();
+    json.flush();
+  }
+
+  private long cpuNanos() {
+    return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : -1;
+  }
+
+  private long allocatedBytes(long threadId) {
+    if (threads instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+      if (sunThreads.isThreadAllocatedMemorySupported()
+          && sunThreads.isThreadAllocatedMemoryEnabled()) {
+        return sunThreads.getThreadAllocatedBytes(threadId);
+      }
+    }
+    return -1;
+  }
+}
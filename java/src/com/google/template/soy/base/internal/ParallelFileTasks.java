@@ -0,0 +1,95 @@
+/*
+ * Copyright 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.base.internal;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.template.soy.error.ErrorReporter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.annotation.Nullable;
+
+/**
+ * Runs a compiler task for each file in a list, optionally in parallel.
+ *
+ * <p>The results and the errors are the same regardless of the number of threads. When running in
+ * parallel each task reports to its own {@link ErrorReporter}, these are copied to the main
+ * reporter in input order once all the tasks have completed.
+ */
+public final class ParallelFileTasks {
+
+  /** A task for a single file. Tasks for different files must be independent of each other. */
+  @FunctionalInterface
+  public interface Task<I, O> {
+    /** Runs the task, reporting errors to the given reporter. */
+    @Nullable
+    O run(I input, ErrorReporter errorReporter);
+  }
+
+  /**
+   * Runs the task for each input.
+   *
+   * @param inputs The files, or other per file inputs, to run the task on.
+   * @param threads The number of threads to use. If this is 1 the tasks run on the calling thread
+   *     and report directly to {@code errorReporter}.
+   * @param errorReporter The reporter that errors are eventually reported to.
+   * @param task The task to run.
+   * @return The result of each task, at the same index as its input. Results may be {@code null}.
+   */
+  public static <I, O> List<O> run(
+      List<I> inputs, int threads, ErrorReporter errorReporter, Task<? super I, O> task) {
+    checkArgument(threads > 0, "threads must be positive: %s", threads);
+    List<O> results = new ArrayList<>(inputs.size());
+    if (threads == 1 || inputs.size() < 2) {
+      for (I input : inputs) {
+        results.add(task.run(input, errorReporter));
+      }
+      return results;
+    }
+    List<ErrorReporter> reporters = new ArrayList<>(inputs.size());
+    List<Future<O>> futures = new ArrayList<>(inputs.size());
+    ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, inputs.size()));
+    try {
+      for (I input : inputs) {
+        ErrorReporter reporter = ErrorReporter.create();
+        reporters.add(reporter);
+        futures.add(pool.submit(() -> task.run(input, reporter)));
+      }
+      for (Future<O> future : futures) {
+        results.add(Futures.getUnchecked(future));
+      }
+    } catch (UncheckedExecutionException e) {
+      Throwables.throwIfUnchecked(e.getCause());
+      throw e;
+    } finally {
+      // Cancels any tasks that haven't started if one of them failed.
+      pool.shutdownNow();
+    }
+    for (ErrorReporter reporter : reporters) {
+      reporter.copyTo(errorReporter);
+    }
+    return results;
+  }
+
+  private ParallelFileTasks() {}
+}
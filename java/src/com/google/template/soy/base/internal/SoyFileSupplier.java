@@ -16,8 +16,10 @@
 
 package com.google.template.soy.base.internal;
 
+import static com.google.common.base.Preconditions.checkNotNull;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
+import com.google.common.hash.HashCode;
 import com.google.common.io.CharSource;
 import com.google.common.io.Files;
 import com.google.common.io.Resources;
@@ -53,6 +55,39 @@ public interface SoyFileSupplier {
 
     /** A version for stable resources : resources that don't change over the life of a JVM. */
     Version STABLE_VERSION = new Version() {};
+
+    /**
+     * Returns a version identified by a hash of the resource's contents, so that two versions are
+     * equal whenever the contents are.
+     */
+    static Version forContentHash(HashCode contentHash) {
+      return new ContentHashVersion(contentHash);
+    }
+  }
+
+  /** A {@link Version} that compares the hashes of the contents. */
+  final class ContentHashVersion implements Version {
+    private final HashCode contentHash;
+
+    private ContentHashVersion(HashCode contentHash) {
+      this.contentHash = checkNotNull(contentHash);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof ContentHashVersion
+          && ((ContentHashVersion) o).contentHash.equals(contentHash);
+    }
+
+    @Override
+    public int hashCode() {
+      return contentHash.hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return contentHash.toString();
+    }
   }
 
   /** View this supplier as a {@link CharSource}. */
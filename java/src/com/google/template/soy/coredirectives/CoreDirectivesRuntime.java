@@ -27,6 +27,7 @@ import com.google.template.soy.data.UnsafeSanitizedContentOrdainer;
 import com.google.template.soy.data.restricted.NullData;
 import com.google.template.soy.shared.internal.AbstractStreamingHtmlEscaper;
 import com.google.template.soy.shared.internal.EscapingConventions;
+import com.google.template.soy.shared.internal.Sanitizers;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
@@ -48,9 +49,7 @@ public final class CoreDirectivesRuntime {
       valueDir = sanitizedContent.getContentDirection();
     }
     return UnsafeSanitizedContentOrdainer.ordainAsSafe(
-        EscapingConventions.EscapeHtml.INSTANCE.escape(value.coerceToString()),
-        SanitizedContent.ContentKind.HTML,
-        valueDir);
+        Sanitizers.escapeHtml(value), SanitizedContent.ContentKind.HTML, valueDir);
   }
 
   @Nonnull
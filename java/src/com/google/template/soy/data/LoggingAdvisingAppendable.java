@@ -86,6 +86,22 @@ public abstract class LoggingAdvisingAppendable implements AdvisingAppendable {
   @Nonnull
   public abstract LoggingAdvisingAppendable append(char c) throws IOException;
 
+  /**
+   * Appends a string constant along with its UTF-8 encoding.
+   *
+   * <p>This allows appendables that write bytes to skip encoding {@code text}. The default
+   * implementation just appends {@code text}.
+   *
+   * @param text The constant to append
+   * @param utf8 The UTF-8 encoding of {@code text}, which must not be modified
+   */
+  @CanIgnoreReturnValue
+  @Nonnull
+  public LoggingAdvisingAppendable appendUtf8Constant(String text, byte[] utf8)
+      throws IOException {
+    return append(text);
+  }
+
   /** Called whenever a loggable element is entered. */
   @CanIgnoreReturnValue
   @Nonnull
@@ -25,6 +25,17 @@ import javax.annotation.Nonnull;
 @Immutable
 public final class FloatData extends NumberData {
 
+  /** The smallest value in {@link #CACHE}. */
+  private static final int CACHE_LOW = -128;
+
+  /** One more than the largest value in {@link #CACHE}. */
+  private static final int CACHE_HIGH = 1024;
+
+  /** Preallocated instances for the integral values in {@code [CACHE_LOW, CACHE_HIGH)}. */
+  private static final FloatData[] CACHE = createCache();
+
+  private static final long NEGATIVE_ZERO_BITS = Double.doubleToRawLongBits(-0.0);
+
   /** The float value. */
   private final double value;
 
@@ -40,9 +51,24 @@ public final class FloatData extends NumberData {
    */
   @Nonnull
   public static FloatData forValue(double value) {
+    // -0.0 isn't cached since it formats differently from 0.0, and NaN fails the comparisons.
+    if (value >= CACHE_LOW
+        && value < CACHE_HIGH
+        && value == (int) value
+        && Double.doubleToRawLongBits(value) != NEGATIVE_ZERO_BITS) {
+      return CACHE[(int) value - CACHE_LOW];
+    }
     return new FloatData(value);
   }
 
+  private static FloatData[] createCache() {
+    FloatData[] cache = new FloatData[CACHE_HIGH - CACHE_LOW];
+    for (int i = 0; i < cache.length; i++) {
+      cache[i] = new FloatData(i + CACHE_LOW);
+    }
+    return cache;
+  }
+
   /** Returns the float value. */
   public double getValue() {
     return value;
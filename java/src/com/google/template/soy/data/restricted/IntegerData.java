@@ -24,43 +24,25 @@ import javax.annotation.Nonnull;
 @Immutable
 public final class IntegerData extends NumberData {
 
-  // Note: ZERO, ONE, and MINUS_ONE are public. The rest are private.
+  /** The smallest value in {@link #CACHE}. */
+  private static final int CACHE_LOW = -128;
 
-  /** Static instance of IntegerData with value 0. */
-  public static final IntegerData ZERO = new IntegerData(0);
-
-  /** Static instance of IntegerData with value 1. */
-  public static final IntegerData ONE = new IntegerData(1);
-
-  /** Static instance of IntegerData with value -1. */
-  public static final IntegerData MINUS_ONE = new IntegerData(-1);
-
-  /** Static instance of IntegerData with value 2. */
-  private static final IntegerData TWO = new IntegerData(2);
-
-  /** Static instance of IntegerData with value 3. */
-  private static final IntegerData THREE = new IntegerData(3);
+  /** One more than the largest value in {@link #CACHE}, covering most loop indices and lengths. */
+  private static final int CACHE_HIGH = 1024;
 
-  /** Static instance of IntegerData with value 4. */
-  private static final IntegerData FOUR = new IntegerData(4);
+  /** Preallocated instances for the values in {@code [CACHE_LOW, CACHE_HIGH)}. */
+  private static final IntegerData[] CACHE = createCache();
 
-  /** Static instance of IntegerData with value 5. */
-  private static final IntegerData FIVE = new IntegerData(5);
+  // Note: ZERO, ONE, and MINUS_ONE are public. The rest of the cache is private.
 
-  /** Static instance of IntegerData with value 6. */
-  private static final IntegerData SIX = new IntegerData(6);
-
-  /** Static instance of IntegerData with value 7. */
-  private static final IntegerData SEVEN = new IntegerData(7);
-
-  /** Static instance of IntegerData with value 8. */
-  private static final IntegerData EIGHT = new IntegerData(8);
+  /** Static instance of IntegerData with value 0. */
+  public static final IntegerData ZERO = forValue(0);
 
-  /** Static instance of IntegerData with value 9. */
-  private static final IntegerData NINE = new IntegerData(9);
+  /** Static instance of IntegerData with value 1. */
+  public static final IntegerData ONE = forValue(1);
 
-  /** Static instance of IntegerData with value 10. */
-  private static final IntegerData TEN = new IntegerData(10);
+  /** Static instance of IntegerData with value -1. */
+  public static final IntegerData MINUS_ONE = forValue(-1);
 
   /** The integer value. */
   private final long value;
@@ -77,37 +59,18 @@ public final class IntegerData extends NumberData {
    */
   @Nonnull
   public static IntegerData forValue(long value) {
-    if (value > 10 || value < -1) {
-      return new IntegerData(value);
+    if (value >= CACHE_LOW && value < CACHE_HIGH) {
+      return CACHE[(int) value - CACHE_LOW];
     }
-    switch ((int) value) {
-      case -1:
-        return MINUS_ONE;
-      case 0:
-        return ZERO;
-      case 1:
-        return ONE;
-      case 2:
-        return TWO;
-      case 3:
-        return THREE;
-      case 4:
-        return FOUR;
-      case 5:
-        return FIVE;
-      case 6:
-        return SIX;
-      case 7:
-        return SEVEN;
-      case 8:
-        return EIGHT;
-      case 9:
-        return NINE;
-      case 10:
-        return TEN;
-      default:
-        throw new AssertionError("Impossible case");
+    return new IntegerData(value);
+  }
+
+  private static IntegerData[] createCache() {
+    IntegerData[] cache = new IntegerData[CACHE_HIGH - CACHE_LOW];
+    for (int i = 0; i < cache.length; i++) {
+      cache[i] = new IntegerData(i + CACHE_LOW);
     }
+    return cache;
   }
 
   /** Returns the integer value. */
@@ -16,6 +16,8 @@
 
 package com.google.template.soy.data.restricted;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.google.errorprone.annotations.Immutable;
 import com.google.errorprone.annotations.concurrent.LazyInit;
 import com.google.template.soy.data.LoggingAdvisingAppendable;
@@ -30,6 +32,12 @@ public abstract class StringData extends PrimitiveData {
   /** Static instance of StringData with value "". */
   public static final StringData EMPTY_STRING = new Impl("");
 
+  /** Preallocated instances for the single char ASCII strings, indexed by the char. */
+  private static final StringData[] ASCII_CHARS = createAsciiChars();
+
+  /** Canonical instances for {@link #forConstant}, held weakly so unloaded templates free them. */
+  private static final Interner<StringData> CONSTANTS = Interners.newWeakInterner();
+
   /**
    * Gets a StringData instance for the given value.
    *
@@ -38,7 +46,25 @@ public abstract class StringData extends PrimitiveData {
    */
   @Nonnull
   public static StringData forValue(String value) {
-    return (value.length() == 0) ? EMPTY_STRING : new Impl(value);
+    if (value.isEmpty()) {
+      return EMPTY_STRING;
+    }
+    if (value.length() == 1 && value.charAt(0) < ASCII_CHARS.length) {
+      return ASCII_CHARS[value.charAt(0)];
+    }
+    return new Impl(value);
+  }
+
+  /**
+   * Gets the canonical StringData instance for a compile time constant, so that every template
+   * that loads the same constant shares one instance, along with what it records about escaping.
+   *
+   * <p>This is intended for the constant pools of compiled templates, which call it once per
+   * constant. Use {@link #forValue(String)} for values computed at render time.
+   */
+  @Nonnull
+  public static StringData forConstant(String value) {
+    return CONSTANTS.intern(forValue(value));
   }
 
   @Nonnull
@@ -46,9 +72,49 @@ public abstract class StringData extends PrimitiveData {
     return new BufferedImpl(value);
   }
 
+  private static StringData[] createAsciiChars() {
+    StringData[] chars = new StringData[0x80];
+    for (char c = 0; c < chars.length; c++) {
+      chars[c] = new Impl(String.valueOf(c));
+    }
+    return chars;
+  }
+
+  /**
+   * A bit set of the escapers that are known to leave this value unchanged. This is only a cache,
+   * racing updates can at worst lose a bit which causes an escaper to rerun.
+   */
+  @LazyInit private int unchangedByEscapers;
+
   /** Returns the string value. */
   public abstract String getValue();
 
+  /**
+   * Returns whether {@link #markUnchangedByEscaper} has recorded that the escaper identified by the
+   * given bit leaves this value unchanged.
+   *
+   * <p>This is an implementation detail of the escaping runtime, which assigns the bits.
+   */
+  public final boolean isUnchangedByEscaper(int escaperBit) {
+    return (unchangedByEscapers & escaperBit) != 0;
+  }
+
+  /**
+   * Records that the escaper identified by the given bit leaves this value unchanged, so it can be
+   * skipped the next time this value is escaped.
+   */
+  public final void markUnchangedByEscaper(int escaperBit) {
+    unchangedByEscapers |= escaperBit;
+  }
+
+  /**
+   * Returns whether {@link #render} replays buffered commands, such as logging function
+   * invocations, rather than appending {@link #getValue}.
+   */
+  public boolean isBuffered() {
+    return false;
+  }
+
   @Override
   public final String stringValue() {
     return getValue();
@@ -125,6 +191,11 @@ public abstract class StringData extends PrimitiveData {
       return true;
     }
 
+    @Override
+    public boolean isBuffered() {
+      return true;
+    }
+
     @Override
     public void render(LoggingAdvisingAppendable appendable) throws IOException {
       buffer.replayOn(appendable);
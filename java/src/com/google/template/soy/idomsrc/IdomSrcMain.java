@@ -16,6 +16,7 @@
 
 package com.google.template.soy.idomsrc;
 
+import com.google.template.soy.base.internal.ParallelFileTasks;
 import com.google.template.soy.error.ErrorReporter;
 import com.google.template.soy.internal.i18n.BidiGlobalDir;
 import com.google.template.soy.internal.i18n.SoyBidiUtils;
@@ -38,9 +39,17 @@ public class IdomSrcMain {
 
   private final SoyTypeRegistry typeRegistry;
 
+  private final int compilerThreads;
+
   public IdomSrcMain(SoyScopedData.Enterable apiCallScope, SoyTypeRegistry typeRegistry) {
+    this(apiCallScope, typeRegistry, /* compilerThreads= */ 1);
+  }
+
+  public IdomSrcMain(
+      SoyScopedData.Enterable apiCallScope, SoyTypeRegistry typeRegistry, int compilerThreads) {
     this.apiCallScope = apiCallScope;
     this.typeRegistry = typeRegistry;
+    this.compilerThreads = compilerThreads;
   }
 
   /**
@@ -82,9 +91,18 @@ public class IdomSrcMain {
       new RemoveUnnecessaryEscapingDirectives(bidiGlobalDir).run(soyTree);
       // some of the above passes may slice up raw text nodes, recombine them.
       new CombineConsecutiveRawTextNodesPass().run(soyTree);
-      return createVisitor(
-              incrementalJSSrcOptions, typeRegistry, inScope.getBidiGlobalDir(), errorReporter)
-          .gen(soyTree, registry, errorReporter);
+      BidiGlobalDir dir = inScope.getBidiGlobalDir();
+      // Each file gets its own visitor so that files can be generated in parallel.
+      return ParallelFileTasks.run(
+          soyTree.getChildren(),
+          compilerThreads,
+          errorReporter,
+          (file, reporter) -> {
+            try (SoyScopedData.InScope unused = apiCallScope.enter(dir)) {
+              return createVisitor(incrementalJSSrcOptions, typeRegistry, dir, reporter)
+                  .gen(file, registry, reporter);
+            }
+          });
     }
   }
 
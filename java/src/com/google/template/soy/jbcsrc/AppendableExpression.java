@@ -21,6 +21,7 @@ import static com.google.template.soy.jbcsrc.restricted.BytecodeUtils.BUFFERING_
 import static com.google.template.soy.jbcsrc.restricted.BytecodeUtils.LOGGING_ADVISING_APPENDABLE_TYPE;
 import static com.google.template.soy.jbcsrc.restricted.BytecodeUtils.MULTIPLEXING_APPENDABLE_TYPE;
 import static com.google.template.soy.jbcsrc.restricted.BytecodeUtils.constant;
+import static com.google.template.soy.jbcsrc.restricted.BytecodeUtils.constantUtf8;
 import static java.util.Arrays.asList;
 
 import com.google.common.collect.ImmutableList;
@@ -136,6 +137,10 @@ final class AppendableExpression extends Expression {
   private static final MethodRef APPEND_CHAR =
       MethodRef.createNonPure(LoggingAdvisingAppendable.class, "append", char.class);
 
+  private static final MethodRef APPEND_UTF8_CONSTANT =
+      MethodRef.createNonPure(
+          LoggingAdvisingAppendable.class, "appendUtf8Constant", String.class, byte[].class);
+
   static final MethodRef ENTER_LOGGABLE_STATEMENT =
       MethodRef.createNonPure(
           LoggingAdvisingAppendable.class, "enterLoggableElement", LogStatement.class);
@@ -230,6 +235,15 @@ final class AppendableExpression extends Expression {
     return withNewDelegate(e -> e.invoke(APPEND_CHAR, exp));
   }
 
+  /**
+   * Returns a similar {@link AppendableExpression} but with the given string constant appended to
+   * it, along with its pre-encoded UTF-8 form.
+   */
+  AppendableExpression appendUtf8Constant(String text) {
+    return withNewDelegate(
+        e -> e.invoke(APPEND_UTF8_CONSTANT, constant(text), constantUtf8(text)));
+  }
+
   /** Invokes {@link LoggingAdvisingAppendable#enterLoggableElement} on the appendable. */
   AppendableExpression enterLoggableElement(Expression logStatement) {
     return withNewDelegate(e -> e.invoke(ENTER_LOGGABLE_STATEMENT, logStatement));
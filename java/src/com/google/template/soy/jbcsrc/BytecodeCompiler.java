@@ -16,16 +16,19 @@
 
 package com.google.template.soy.jbcsrc;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.collect.ImmutableSet.toImmutableSet;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.io.ByteSink;
 import com.google.common.io.ByteSource;
 import com.google.template.soy.base.SourceLogicalPath;
+import com.google.template.soy.base.internal.ParallelFileTasks;
 import com.google.template.soy.base.internal.SoyFileSupplier;
 import com.google.template.soy.base.internal.SoyJarFileWriter;
 import com.google.template.soy.error.ErrorReporter;
@@ -46,14 +49,17 @@ import com.google.template.soy.soytree.SoyFileSetNode;
 import com.google.template.soy.soytree.SoyTreeUtils;
 import com.google.template.soy.soytree.TemplateMetadata;
 import com.google.template.soy.soytree.TemplateNode;
+import com.google.template.soy.soytree.Visibility;
 import com.google.template.soy.types.SoyTypeRegistry;
 import com.google.template.soy.types.TemplateType;
 import java.io.IOException;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import javax.annotation.Nullable;
 
 /** The entry point to the {@code jbcsrc} compiler. */
 public final class BytecodeCompiler {
@@ -72,6 +78,59 @@ public final class BytecodeCompiler {
       ErrorReporter reporter,
       ImmutableMap<SourceLogicalPath, SoyFileSupplier> filePathsToSuppliers,
       SoyTypeRegistry typeRegistry) {
+    return compile(
+        registry, fileSet, reporter, filePathsToSuppliers, typeRegistry, /* previous= */ null);
+  }
+
+  /**
+   * Compiles the templates in the given file set, and loads the templates from all other files
+   * from {@code previous}.
+   *
+   * <p>The files in {@code fileSet} must include every file whose templates call, directly or
+   * indirectly, a template that changed since {@code previous} was compiled, since classes loaded
+   * from {@code previous} only see the templates of that compile.
+   *
+   * @param registry All the templates, including the ones from {@code previous}
+   * @param previous The result of the previous compile, or {@code null} to compile everything in
+   *     {@code fileSet}
+   */
+  public static Optional<CompiledTemplates> compile(
+      FileSetMetadata registry,
+      SoyFileSetNode fileSet,
+      ErrorReporter reporter,
+      ImmutableMap<SourceLogicalPath, SoyFileSupplier> filePathsToSuppliers,
+      SoyTypeRegistry typeRegistry,
+      @Nullable CompiledTemplates previous) {
+    return compile(
+        registry,
+        fileSet,
+        reporter,
+        filePathsToSuppliers,
+        typeRegistry,
+        previous,
+        /* prefetchParams= */ false,
+        /* utf8Constants= */ false);
+  }
+
+  /**
+   * Like {@link #compile(FileSetMetadata, SoyFileSetNode, ErrorReporter, ImmutableMap,
+   * SoyTypeRegistry, CompiledTemplates)}.
+   *
+   * @param prefetchParams Whether templates wait for all of the params they will definitely
+   *     reference to be resolved before rendering anything, see {@link
+   *     com.google.template.soy.SoyFileSet.Builder#setPrefetchParams}.
+   * @param utf8Constants Whether raw text is appended along with a pre-encoded UTF-8 copy, see
+   *     {@link com.google.template.soy.SoyFileSet.Builder#setUtf8Constants}.
+   */
+  public static Optional<CompiledTemplates> compile(
+      FileSetMetadata registry,
+      SoyFileSetNode fileSet,
+      ErrorReporter reporter,
+      ImmutableMap<SourceLogicalPath, SoyFileSupplier> filePathsToSuppliers,
+      SoyTypeRegistry typeRegistry,
+      @Nullable CompiledTemplates previous,
+      boolean prefetchParams,
+      boolean utf8Constants) {
     ErrorReporter.Checkpoint checkpoint = reporter.checkpoint();
     CompiledTemplates templates =
         new CompiledTemplates(
@@ -79,13 +138,91 @@ public final class BytecodeCompiler {
                 .filter(BytecodeCompiler::isModTemplate)
                 .map(BytecodeCompiler::modImplName)
                 .collect(toImmutableSet()),
-            new CompilingClassLoader(fileSet, filePathsToSuppliers, typeRegistry, registry));
+            new CompilingClassLoader(
+                fileSet,
+                filePathsToSuppliers,
+                typeRegistry,
+                registry,
+                previous == null ? null : previous.getClassLoader(),
+                prefetchParams,
+                utf8Constants));
     if (reporter.errorsSince(checkpoint)) {
       return Optional.empty();
     }
     return Optional.of(templates);
   }
 
+  /** Runs the compiler passes over a single file, for {@link #compileOnDemand}. */
+  @FunctionalInterface
+  public interface FileAnalyzer {
+    /**
+     * Returns the given file with all passes run over it, or {@code null} if errors were reported
+     * to {@code reporter}.
+     *
+     * <p>This may be called concurrently, by threads loading classes for different files.
+     */
+    @Nullable
+    AnalyzedFile analyze(SourceLogicalPath file, ErrorReporter reporter);
+  }
+
+  /** A file that is ready to be compiled, along with the metadata of the templates it uses. */
+  public static final class AnalyzedFile {
+    private final SoyFileNode file;
+    private final FileSetMetadata fileSetMetadata;
+
+    public AnalyzedFile(SoyFileNode file, FileSetMetadata fileSetMetadata) {
+      this.file = file;
+      this.fileSetMetadata = fileSetMetadata;
+    }
+
+    SoyFileNode file() {
+      return file;
+    }
+
+    FileSetMetadata fileSetMetadata() {
+      return fileSetMetadata;
+    }
+  }
+
+  /**
+   * Returns templates that are analyzed and compiled one file at a time, the first time one of the
+   * classes for the file is loaded. This is meant for development servers, where startup time
+   * matters more than finding every error up front. Errors are reported by throwing {@link
+   * com.google.template.soy.error.SoyCompilationException} when the templates are loaded.
+   *
+   * @param registry The metadata for all the templates, it only needs to have been built by the
+   *     passes needed for headers.
+   * @param fileSet The files to compile, it is only used to find out which classes each file
+   *     defines.
+   * @param analyzer Runs the remaining passes on each file that is loaded.
+   * @param prefetchParams Whether templates wait for all of the params they will definitely
+   *     reference to be resolved before rendering anything.
+   * @param utf8Constants Whether raw text is appended along with a pre-encoded UTF-8 copy.
+   */
+  public static CompiledTemplates compileOnDemand(
+      FileSetMetadata registry,
+      SoyFileSetNode fileSet,
+      ImmutableMap<SourceLogicalPath, SoyFileSupplier> filePathsToSuppliers,
+      SoyTypeRegistry typeRegistry,
+      FileAnalyzer analyzer,
+      boolean prefetchParams,
+      boolean utf8Constants) {
+    return new CompiledTemplates(
+        /* delTemplateNames=*/ registry.getAllTemplates().stream()
+            .filter(BytecodeCompiler::isModTemplate)
+            .map(BytecodeCompiler::modImplName)
+            .collect(toImmutableSet()),
+        new CompilingClassLoader(
+            fileSet,
+            filePathsToSuppliers,
+            typeRegistry,
+            registry,
+            /* previousGeneration= */ null,
+            analyzer,
+            prefetchParams,
+            utf8Constants));
+  }
+
   static boolean isModTemplate(TemplateMetadata template) {
     if (template.getTemplateType().getTemplateKind() == TemplateType.TemplateKind.DELTEMPLATE) {
       return true;
@@ -125,8 +262,62 @@ public final class BytecodeCompiler {
       ByteSink sink,
       FileSetMetadata fileSetMetadata)
       throws IOException {
+    compileToJar(fileSet, reporter, typeRegistry, sink, fileSetMetadata, /* compilerThreads= */ 1);
+  }
+
+  /**
+   * Compiles all the templates in the given registry to a jar file written to the given output
+   * stream, generating the classes for different files in parallel.
+   *
+   * <p>The jar entries are written in the same order regardless of the number of threads so the
+   * output is identical to a sequential compile.
+   *
+   * @param reporter The error reporter
+   * @param sink The output sink to write the JAR to.
+   * @param compilerThreads The number of threads to generate classes with.
+   */
+  public static void compileToJar(
+      SoyFileSetNode fileSet,
+      ErrorReporter reporter,
+      SoyTypeRegistry typeRegistry,
+      ByteSink sink,
+      FileSetMetadata fileSetMetadata,
+      int compilerThreads)
+      throws IOException {
+    compileToJar(
+        fileSet,
+        reporter,
+        typeRegistry,
+        sink,
+        fileSetMetadata,
+        compilerThreads,
+        /* prefetchParams= */ false,
+        /* utf8Constants= */ false);
+  }
+
+  /**
+   * Like {@link #compileToJar(SoyFileSetNode, ErrorReporter, SoyTypeRegistry, ByteSink,
+   * FileSetMetadata, int)}.
+   *
+   * @param prefetchParams Whether templates wait for all of the params they will definitely
+   *     reference to be resolved before rendering anything.
+   * @param utf8Constants Whether raw text is appended along with a pre-encoded UTF-8 copy.
+   */
+  public static void compileToJar(
+      SoyFileSetNode fileSet,
+      ErrorReporter reporter,
+      SoyTypeRegistry typeRegistry,
+      ByteSink sink,
+      FileSetMetadata fileSetMetadata,
+      int compilerThreads,
+      boolean prefetchParams,
+      boolean utf8Constants)
+      throws IOException {
+    checkArgument(compilerThreads > 0, "compilerThreads must be positive: %s", compilerThreads);
     try (SoyJarFileWriter writer = new SoyJarFileWriter(sink.openStream())) {
       Set<String> modTemplates = new TreeSet<>();
+      Set<String> publicTemplates = new TreeSet<>();
+      Set<String> classes = new TreeSet<>();
 
       // A map of plugin names -> info about the required instance class (only for plugins that
       // require a runtime class).
@@ -141,6 +332,7 @@ public final class BytecodeCompiler {
             void onCompile(ClassData clazz) throws IOException {
               writer.writeEntry(
                   clazz.type().internalName() + ".class", ByteSource.wrap(clazz.data()));
+              classes.add(clazz.type().internalName());
             }
 
             @Override
@@ -148,6 +340,11 @@ public final class BytecodeCompiler {
               modTemplates.add(name);
             }
 
+            @Override
+            void onCompilePublicTemplate(String name) {
+              publicTemplates.add(name);
+            }
+
             @Override
             void onFunctionCallFound(FunctionNode fnNode) {
               // For each function call, check if the plugin needs an instance class. If so, add an
@@ -172,12 +369,27 @@ public final class BytecodeCompiler {
               }
             }
           },
-          fileSetMetadata);
+          fileSetMetadata,
+          compilerThreads,
+          prefetchParams,
+          utf8Constants);
       if (!modTemplates.isEmpty()) {
         String delData = Joiner.on('\n').join(modTemplates);
         writer.writeEntry(
             Names.META_INF_DELTEMPLATE_PATH, ByteSource.wrap(delData.getBytes(UTF_8)));
       }
+      // Write out the information needed to load everything eagerly at startup, or to create a
+      // class data sharing archive ahead of time.
+      if (!publicTemplates.isEmpty()) {
+        String templateData = Joiner.on('\n').join(publicTemplates);
+        writer.writeEntry(
+            Names.META_INF_TEMPLATES_PATH, ByteSource.wrap(templateData.getBytes(UTF_8)));
+      }
+      if (!classes.isEmpty()) {
+        String classData = Joiner.on('\n').join(classes);
+        writer.writeEntry(
+            Names.META_INF_CLASSLIST_PATH, ByteSource.wrap(classData.getBytes(UTF_8)));
+      }
 
       // Collect all instances from all declared externs.
       fileSet.getChildren().stream()
@@ -247,6 +459,13 @@ public final class BytecodeCompiler {
      */
     abstract void onCompileModifiableTemplate(String name);
 
+    /**
+     * Callback to notify that a public template was compiled.
+     *
+     * @param name The full name as would be returned by SoyTemplateInfo.getName()
+     */
+    abstract void onCompilePublicTemplate(String name);
+
     /**
      * Callback to notify that a function call was found.
      *
@@ -260,13 +479,30 @@ public final class BytecodeCompiler {
       ErrorReporter errorReporter,
       SoyTypeRegistry typeRegistry,
       CompilerListener<E> listener,
-      FileSetMetadata fileSetMetadata)
+      FileSetMetadata fileSetMetadata,
+      int compilerThreads,
+      boolean prefetchParams,
+      boolean utf8Constants)
       throws E {
-    JavaSourceFunctionCompiler javaSourceFunctionCompiler =
-        new JavaSourceFunctionCompiler(typeRegistry, errorReporter);
-    for (SoyFileNode file : fileSet.getChildren()) {
-      for (ClassData clazz :
-          new SoyFileCompiler(file, javaSourceFunctionCompiler, fileSetMetadata).compile()) {
+    // The metadata indexes are built lazily, make sure that happens before any parallel work.
+    var unused = fileSetMetadata.getAllTemplates();
+    List<SoyFileNode> files = fileSet.getChildren();
+    List<ImmutableList<ClassData>> classesByFile =
+        ParallelFileTasks.run(
+            files,
+            compilerThreads,
+            errorReporter,
+            (file, reporter) ->
+                new SoyFileCompiler(
+                        file,
+                        new JavaSourceFunctionCompiler(typeRegistry, reporter),
+                        fileSetMetadata,
+                        prefetchParams,
+                        utf8Constants)
+                    .compile());
+    for (int i = 0; i < files.size(); i++) {
+      SoyFileNode file = files.get(i);
+      for (ClassData clazz : classesByFile.get(i)) {
         if (Flags.DEBUG) {
           clazz.checkClass();
         }
@@ -277,6 +513,10 @@ public final class BytecodeCompiler {
         if (isModTemplate(metadata)) {
           listener.onCompileModifiableTemplate(modImplName(metadata));
         }
+        if (metadata.getVisibility() == Visibility.PUBLIC
+            && (!isModTemplate(metadata) || metadata.getTemplateType().isModifiable())) {
+          listener.onCompilePublicTemplate(metadata.getTemplateName());
+        }
 
         /* For each function call in the template, trigger the function call listener. */
         for (FunctionNode fnNode : SoyTreeUtils.getAllNodesOfType(template, FunctionNode.class)) {
@@ -17,7 +17,9 @@
 package com.google.template.soy.jbcsrc;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Sets;
 import com.google.template.soy.base.SourceLogicalPath;
 import com.google.template.soy.base.internal.SoyFileSupplier;
 import com.google.template.soy.error.ErrorFormatter;
@@ -29,6 +31,7 @@ import com.google.template.soy.internal.exemptions.NamespaceExemptions;
 import com.google.template.soy.jbcsrc.internal.AbstractMemoryClassLoader;
 import com.google.template.soy.jbcsrc.internal.ClassData;
 import com.google.template.soy.jbcsrc.shared.Names;
+import com.google.template.soy.soytree.FileMetadata;
 import com.google.template.soy.soytree.FileSetMetadata;
 import com.google.template.soy.soytree.SoyFileNode;
 import com.google.template.soy.soytree.SoyFileSetNode;
@@ -38,40 +41,165 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import javax.annotation.Nullable;
 
-/** A classloader that can compile templates on demand. */
+/**
+ * A classloader that can compile templates on demand.
+ *
+ * <p>When compiling incrementally the classloader only compiles the files it was given, and the
+ * classes of all other templates are loaded from the classloader that defined them in an earlier
+ * compile. Each classloader delegates to those classloaders directly rather than to the previous
+ * one, so that a classloader, and the ASTs it holds onto, can be collected once every class it
+ * defined has been recompiled.
+ *
+ * <p>The files are normally fully analyzed up front. When compiling {@linkplain
+ * BytecodeCompiler#compileOnDemand on demand} the passes are also run on demand, by a {@link
+ * BytecodeCompiler.FileAnalyzer}.
+ */
 final class CompilingClassLoader extends AbstractMemoryClassLoader {
   // Synchronized hashmap is sufficient for our usecase since we are only calling remove(), CHM
   // would just use more memory.
   private final Map<String, ClassData> classesByName = Collections.synchronizedMap(new HashMap<>());
 
   private final ErrorFormatter errorFormatter;
-  private final ImmutableMap<String, SoyFileNode> javaClassNameToFile;
+  private final ImmutableMap<String, SourceLogicalPath> javaClassNameToFile;
   private final SoyTypeRegistry typeRegistry;
-  private final FileSetMetadata fileSetMetadata;
+  private final BytecodeCompiler.FileAnalyzer analyzer;
+  private final boolean prefetchParams;
+  private final boolean utf8Constants;
+  /** The classloaders that define the file classes that this classloader doesn't compile. */
+  private final ImmutableMap<String, ClassLoader> previousGenerationClassLoaders;
 
   CompilingClassLoader(
       SoyFileSetNode fileSet,
       ImmutableMap<SourceLogicalPath, SoyFileSupplier> filePathsToSuppliers,
       SoyTypeRegistry typeRegistry,
       FileSetMetadata fileSetMetadata) {
-    Map<String, SoyFileNode> javaClassNameToFile = new LinkedHashMap<>();
+    this(
+        fileSet,
+        filePathsToSuppliers,
+        typeRegistry,
+        fileSetMetadata,
+        /* previousGeneration= */ null,
+        /* prefetchParams= */ false,
+        /* utf8Constants= */ false);
+  }
+
+  CompilingClassLoader(
+      SoyFileSetNode fileSet,
+      ImmutableMap<SourceLogicalPath, SoyFileSupplier> filePathsToSuppliers,
+      SoyTypeRegistry typeRegistry,
+      FileSetMetadata fileSetMetadata,
+      @Nullable ClassLoader previousGeneration,
+      boolean prefetchParams,
+      boolean utf8Constants) {
+    this(
+        fileSet,
+        filePathsToSuppliers,
+        typeRegistry,
+        fileSetMetadata,
+        previousGeneration,
+        analyzedFiles(fileSet, fileSetMetadata),
+        prefetchParams,
+        utf8Constants);
+  }
+
+  /**
+   * @param fileSet The files to compile. They are only used to find the classes of each file, the
+   *     ASTs that are compiled come from {@code analyzer}.
+   * @param fileSetMetadata The metadata for all the templates.
+   * @param prefetchParams Whether templates wait for all of the params they will definitely
+   *     reference before rendering anything.
+   * @param utf8Constants Whether raw text is appended along with a pre-encoded UTF-8 copy.
+   */
+  CompilingClassLoader(
+      SoyFileSetNode fileSet,
+      ImmutableMap<SourceLogicalPath, SoyFileSupplier> filePathsToSuppliers,
+      SoyTypeRegistry typeRegistry,
+      FileSetMetadata fileSetMetadata,
+      @Nullable ClassLoader previousGeneration,
+      BytecodeCompiler.FileAnalyzer analyzer,
+      boolean prefetchParams,
+      boolean utf8Constants) {
+    Map<String, SourceLogicalPath> javaClassNameToFile = new LinkedHashMap<>();
     for (SoyFileNode file : fileSet.getChildren()) {
+      SourceLogicalPath path = file.getFilePath().asLogicalPath();
       if (NamespaceExemptions.isKnownDuplicateNamespace(file.getNamespace())) {
         // TODO(b/180904763):For the vast majority of files all templates share the same class, but
         // there are some exceptions due to this bug.  Remove this loop when that is cleaned up.
         for (TemplateNode template : file.getTemplates()) {
           javaClassNameToFile.put(
-              Names.javaClassNameFromSoyTemplateName(template.getTemplateName()), file);
+              Names.javaClassNameFromSoyTemplateName(template.getTemplateName()), path);
         }
       } else {
-        javaClassNameToFile.put(Names.javaClassNameFromSoyNamespace(file.getNamespace()), file);
+        javaClassNameToFile.put(Names.javaClassNameFromSoyNamespace(file.getNamespace()), path);
       }
     }
     this.errorFormatter = ErrorFormatterImpl.create().withSources(filePathsToSuppliers);
     this.javaClassNameToFile = ImmutableMap.copyOf(javaClassNameToFile);
     this.typeRegistry = typeRegistry;
-    this.fileSetMetadata = fileSetMetadata;
+    this.analyzer = analyzer;
+    this.prefetchParams = prefetchParams;
+    this.utf8Constants = utf8Constants;
+    if (previousGeneration == null) {
+      this.previousGenerationClassLoaders = ImmutableMap.of();
+    } else {
+      // Only delegate for the files that are still in the file set, the previous classloader may
+      // also know about files that have since been removed.
+      ImmutableSet.Builder<String> classNames = ImmutableSet.builder();
+      for (FileMetadata file : fileSetMetadata.getAllFiles()) {
+        if (NamespaceExemptions.isKnownDuplicateNamespace(file.getNamespace())) {
+          for (String template : file.getTemplateNames()) {
+            classNames.add(
+                Names.javaClassNameFromSoyTemplateName(file.getNamespace() + "." + template));
+          }
+        } else if (!file.getNamespace()
+            .equals(TemplateNode.SoyFileHeaderInfo.EMPTY.getNamespace())) {
+          classNames.add(Names.javaClassNameFromSoyNamespace(file.getNamespace()));
+        }
+      }
+      ImmutableMap.Builder<String, ClassLoader> classLoaders = ImmutableMap.builder();
+      for (String className :
+          Sets.difference(classNames.build(), this.javaClassNameToFile.keySet())) {
+        classLoaders.put(className, definingClassLoader(previousGeneration, className));
+      }
+      this.previousGenerationClassLoaders = classLoaders.buildOrThrow();
+    }
+  }
+
+  /**
+   * Returns the classloader that defines the given file class, skipping over the classloaders that
+   * only delegate it so that they aren't kept alive by this one.
+   */
+  private static ClassLoader definingClassLoader(ClassLoader classLoader, String fileClassName) {
+    if (classLoader instanceof CompilingClassLoader) {
+      ClassLoader delegate =
+          ((CompilingClassLoader) classLoader).previousGenerationClassLoaders.get(fileClassName);
+      if (delegate != null) {
+        return delegate;
+      }
+    }
+    return classLoader;
+  }
+
+  /** Returns an analyzer for files that have already been analyzed. */
+  private static BytecodeCompiler.FileAnalyzer analyzedFiles(
+      SoyFileSetNode fileSet, FileSetMetadata fileSetMetadata) {
+    ImmutableMap.Builder<SourceLogicalPath, SoyFileNode> filesByPath = ImmutableMap.builder();
+    for (SoyFileNode file : fileSet.getChildren()) {
+      filesByPath.put(file.getFilePath().asLogicalPath(), file);
+    }
+    ImmutableMap<SourceLogicalPath, SoyFileNode> files = filesByPath.buildOrThrow();
+    return (path, reporter) ->
+        new BytecodeCompiler.AnalyzedFile(files.get(path), fileSetMetadata);
+  }
+
+  @Override
+  protected ClassLoader getGeneratedClassDelegate(String name) {
+    // Inner classes are compiled with the class of their file.
+    int innerClassSeparator = name.indexOf('$');
+    String fileClassName = innerClassSeparator == -1 ? name : name.substring(0, innerClassSeparator);
+    return previousGenerationClassLoaders.get(fileClassName);
   }
 
   @Override
@@ -90,22 +218,29 @@ final class CompilingClassLoader extends AbstractMemoryClassLoader {
 
     // For each template we compile there is only one 'public' class that could be loaded prior
     // to compiling the template, CompiledTemplate itself.
-    SoyFileNode node = javaClassNameToFile.get(name);
-    if (node == null) {
+    SourceLogicalPath path = javaClassNameToFile.get(name);
+    if (path == null) {
       // typo in template name?
       return null;
     }
     ClassData clazzToLoad = null;
     ErrorReporter reporter = ErrorReporter.create();
-    for (ClassData clazz :
-        new SoyFileCompiler(
-                node, new JavaSourceFunctionCompiler(typeRegistry, reporter), fileSetMetadata)
-            .compile()) {
-      String className = clazz.type().className();
-      if (className.equals(name)) {
-        clazzToLoad = clazz;
-      } else {
-        classesByName.put(className, clazz);
+    BytecodeCompiler.AnalyzedFile file = analyzer.analyze(path, reporter);
+    if (file != null) {
+      for (ClassData clazz :
+          new SoyFileCompiler(
+                  file.file(),
+                  new JavaSourceFunctionCompiler(typeRegistry, reporter),
+                  file.fileSetMetadata(),
+                  prefetchParams,
+                  utf8Constants)
+              .compile()) {
+        String className = clazz.type().className();
+        if (className.equals(name)) {
+          clazzToLoad = clazz;
+        } else {
+          classesByName.put(className, clazz);
+        }
       }
     }
     if (reporter.hasErrors()) {
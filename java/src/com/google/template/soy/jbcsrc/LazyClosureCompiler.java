@@ -404,7 +404,7 @@ final class LazyClosureCompiler {
     Expression value = constant(builder == null ? "" : builder.toString());
     SanitizedContentKind kind = renderUnit.getContentKind();
     if (kind == SanitizedContentKind.TEXT) {
-      value = MethodRefs.STRING_DATA_FOR_VALUE.invoke(value);
+      value = MethodRefs.STRING_DATA_FOR_CONSTANT.invoke(value);
     } else {
       value =
           MethodRefs.ORDAIN_AS_SAFE.invoke(value, constantSanitizedContentKindAsContentKind(kind));
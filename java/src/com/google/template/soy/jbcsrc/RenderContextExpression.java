@@ -200,6 +200,17 @@ final class RenderContextExpression extends Expression implements JbcSrcPluginCo
       MethodRef.createNonPure(RenderContext.class, "softLimitReached", AdvisingAppendable.class)
           .asCheap();
 
+  private static final MethodRef ENTER_TEMPLATE =
+      MethodRef.createNonPure(RenderContext.class, "enterTemplate", String.class, StackFrame.class);
+
+  static final MethodRef EXIT_TEMPLATE =
+      MethodRef.createNonPure(
+          RenderContext.class,
+          "exitTemplate",
+          StackFrame.class,
+          RenderContext.class,
+          String.class);
+
   private static final Type CSS_TO_TRACK_TYPE = Type.getType(RenderContext.CssToTrack.class);
   private static final Handle CSS_TO_TRACK_HANDLE =
       MethodRef.createPure(
@@ -344,6 +355,11 @@ final class RenderContextExpression extends Expression implements JbcSrcPluginCo
     return delegate.invoke(GET_CONST, constant(name));
   }
 
+  /** Notifies the {@link RenderContext} that the template is starting or resuming. */
+  Statement enterTemplate(String templateName, Expression stackFrame) {
+    return delegate.invokeVoid(ENTER_TEMPLATE, constant(templateName), stackFrame);
+  }
+
   Statement storeConst(String name, Expression value) {
     return delegate.invokeVoid(STORE_CONST, constant(name), value);
   }
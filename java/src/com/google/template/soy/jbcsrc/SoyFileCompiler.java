@@ -43,14 +43,32 @@ final class SoyFileCompiler {
   private final SoyFileNode fileNode;
   private final JavaSourceFunctionCompiler javaSourceFunctionCompiler;
   private final FileSetMetadata fileSetMetadata;
+  private final boolean prefetchParams;
+  private final boolean utf8Constants;
 
   SoyFileCompiler(
       SoyFileNode fileNode,
       JavaSourceFunctionCompiler javaSourceFunctionCompiler,
       FileSetMetadata fileSetMetadata) {
+    this(
+        fileNode,
+        javaSourceFunctionCompiler,
+        fileSetMetadata,
+        /* prefetchParams= */ false,
+        /* utf8Constants= */ false);
+  }
+
+  SoyFileCompiler(
+      SoyFileNode fileNode,
+      JavaSourceFunctionCompiler javaSourceFunctionCompiler,
+      FileSetMetadata fileSetMetadata,
+      boolean prefetchParams,
+      boolean utf8Constants) {
     this.fileNode = fileNode;
     this.javaSourceFunctionCompiler = javaSourceFunctionCompiler;
     this.fileSetMetadata = fileSetMetadata;
+    this.prefetchParams = prefetchParams;
+    this.utf8Constants = utf8Constants;
   }
 
   ImmutableList<ClassData> compile() {
@@ -81,7 +99,9 @@ final class SoyFileCompiler {
                           typeWriter.fields(),
                           typeWriter.innerMethods(),
                           javaSourceFunctionCompiler,
-                          fileSetMetadata)
+                          fileSetMetadata,
+                          prefetchParams,
+                          utf8Constants)
                       .compile();
                   return typeWriter;
                 })
@@ -118,7 +138,9 @@ final class SoyFileCompiler {
                         typeWriter.fields(),
                         typeWriter.innerMethods(),
                         javaSourceFunctionCompiler,
-                        fileSetMetadata)
+                        fileSetMetadata,
+                        prefetchParams,
+                        utf8Constants)
                     .compile();
               }
             });
@@ -174,6 +174,8 @@ final class SoyNodeCompiler extends AbstractReturningSoyNodeVisitor<Statement> {
    *     rendering into
    * @param variables The variable set for generating locals and fields
    * @param parameterLookup The variable lookup table for reading locals.
+   * @param utf8Constants Whether raw text is appended along with a pre-encoded UTF-8 copy, see
+   *     {@link com.google.template.soy.SoyFileSet.Builder#setUtf8Constants}.
    */
   static SoyNodeCompiler create(
       SoyNode context,
@@ -186,7 +188,8 @@ final class SoyNodeCompiler extends AbstractReturningSoyNodeVisitor<Statement> {
       FieldManager fields,
       BasicExpressionCompiler constantCompiler,
       JavaSourceFunctionCompiler javaSourceFunctionCompiler,
-      FileSetMetadata fileSetMetadata) {
+      FileSetMetadata fileSetMetadata,
+      boolean utf8Constants) {
     return create(
         context,
         typeInfo,
@@ -199,6 +202,7 @@ final class SoyNodeCompiler extends AbstractReturningSoyNodeVisitor<Statement> {
         constantCompiler,
         javaSourceFunctionCompiler,
         fileSetMetadata,
+        utf8Constants,
         null);
   }
 
@@ -214,6 +218,7 @@ final class SoyNodeCompiler extends AbstractReturningSoyNodeVisitor<Statement> {
       BasicExpressionCompiler constantCompiler,
       JavaSourceFunctionCompiler javaSourceFunctionCompiler,
       FileSetMetadata fileSetMetadata,
+      boolean utf8Constants,
       Function<SoyExpression, SoyExpression> returnMapper) {
     // We pass a lazy supplier of render context so that lazy closure compiler classes that don't
     // generate detach logic don't trigger capturing this value into a field.
@@ -241,6 +246,7 @@ final class SoyNodeCompiler extends AbstractReturningSoyNodeVisitor<Statement> {
         constantCompiler,
         javaSourceFunctionCompiler,
         fileSetMetadata,
+        utf8Constants,
         returnMapper);
   }
 
@@ -264,6 +270,8 @@ final class SoyNodeCompiler extends AbstractReturningSoyNodeVisitor<Statement> {
         constantCompiler,
         javaSourceFunctionCompiler,
         fileSetMetadata,
+        // Extern implementations return values rather than rendering raw text.
+        /* utf8Constants= */ false,
         checkNotNull(returnMapper));
   }
 
@@ -280,6 +288,7 @@ final class SoyNodeCompiler extends AbstractReturningSoyNodeVisitor<Statement> {
   final BasicExpressionCompiler constantCompiler;
   final JavaSourceFunctionCompiler javaSourceFunctionCompiler;
   final FileSetMetadata fileSetMetadata;
+  private final boolean utf8Constants;
   @Nullable private final Function<SoyExpression, SoyExpression> returnMapper;
   private Scope currentScope;
   private final Deque<LoopContext> loopStack = new ArrayDeque<>();
@@ -298,6 +307,7 @@ final class SoyNodeCompiler extends AbstractReturningSoyNodeVisitor<Statement> {
       BasicExpressionCompiler constantCompiler,
       JavaSourceFunctionCompiler javaSourceFunctionCompiler,
       FileSetMetadata fileSetMetadata,
+      boolean utf8Constants,
       Function<SoyExpression, SoyExpression> returnMapper) {
     this.typeInfo = typeInfo;
     this.analysis = checkNotNull(analysis);
@@ -312,6 +322,7 @@ final class SoyNodeCompiler extends AbstractReturningSoyNodeVisitor<Statement> {
     this.constantCompiler = checkNotNull(constantCompiler);
     this.javaSourceFunctionCompiler = checkNotNull(javaSourceFunctionCompiler);
     this.fileSetMetadata = checkNotNull(fileSetMetadata);
+    this.utf8Constants = utf8Constants;
     this.returnMapper = returnMapper;
   }
 
@@ -1254,8 +1265,12 @@ final class SoyNodeCompiler extends AbstractReturningSoyNodeVisitor<Statement> {
     // detach despite our static analysis saying otherwise.  Remove references to the analyzer and
     // instead type test the expression.  If the ExpressionCompiler doesn't require a detach we
     // should get something statically typed as a SoyValue subtype.
+    // With escaping directives, strings go through a runtime helper that can skip escapers that are
+    // known to leave them unchanged.
     Expression callRenderAndResolve =
-        soyValueProvider.invoke(MethodRefs.SOY_VALUE_PROVIDER_RENDER_AND_RESOLVE, appendable);
+        directives.isEmpty()
+            ? soyValueProvider.invoke(MethodRefs.SOY_VALUE_PROVIDER_RENDER_AND_RESOLVE, appendable)
+            : MethodRefs.RUNTIME_RENDER_AND_RESOLVE_ESCAPED.invoke(soyValueProvider, appendable);
     Statement doCall =
         requiresDetachLogic
             ? getDetachState().detachForRender(callRenderAndResolve)
@@ -1269,6 +1284,8 @@ final class SoyNodeCompiler extends AbstractReturningSoyNodeVisitor<Statement> {
     AppendableExpression render;
     if (node.getRawText().length() == 1) {
       render = getAppendableExpression().appendChar(constant(node.getRawText().charAt(0)));
+    } else if (utf8Constants) {
+      render = getAppendableExpression().appendUtf8Constant(node.getRawText());
     } else {
       render = getAppendableExpression().appendString(constant(node.getRawText()));
     }
@@ -2264,6 +2281,7 @@ final class SoyNodeCompiler extends AbstractReturningSoyNodeVisitor<Statement> {
         constantCompiler,
         javaSourceFunctionCompiler,
         fileSetMetadata,
+        utf8Constants,
         returnMapper);
   }
 
@@ -2284,6 +2302,7 @@ final class SoyNodeCompiler extends AbstractReturningSoyNodeVisitor<Statement> {
         fields,
         constantCompiler,
         javaSourceFunctionCompiler,
-        fileSetMetadata);
+        fileSetMetadata,
+        utf8Constants);
   }
 }
@@ -16,8 +16,10 @@
 
 package com.google.template.soy.jbcsrc;
 
+import com.google.common.collect.ImmutableSet;
 import com.google.template.soy.exprtree.DataAccessNode;
 import com.google.template.soy.exprtree.VarRefNode;
+import com.google.template.soy.soytree.defn.TemplateParam;
 
 /**
  * A static analyzer for how templates will access variables.
@@ -32,6 +34,8 @@ import com.google.template.soy.exprtree.VarRefNode;
  *       field reference has already been referenced at a given point and therefore {code
  *       SoyValueProvider#status()} has already returned {@link
  *       com.google.template.soy.jbcsrc.api.RenderResult#done()}.
+ *   <li>{@link #getDefinitelyReferencedParams()} can tell us which params will be referenced by
+ *       every complete render of the template.
  * </ul>
  *
  * <p>TODO(lukes): consider adding the following
@@ -57,4 +61,17 @@ interface TemplateAnalysis {
    * within a given template.
    */
   boolean isResolved(DataAccessNode ref);
+
+  /**
+   * Returns the params that are referenced along every path through the template, in declaration
+   * order.
+   *
+   * <p>The status of each of these params will be checked by any render that completes normally,
+   * so it is safe to wait for all of them to be resolved before rendering anything.
+   *
+   * <p>The default implementation conservatively returns the empty set.
+   */
+  default ImmutableSet<TemplateParam> getDefinitelyReferencedParams() {
+    return ImmutableSet.of();
+  }
 }
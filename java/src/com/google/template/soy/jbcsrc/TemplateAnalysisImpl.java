@@ -17,6 +17,7 @@
 package com.google.template.soy.jbcsrc;
 
 import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
 import static java.util.stream.Collectors.joining;
 
 import com.google.common.annotations.VisibleForTesting;
@@ -100,6 +101,7 @@ import com.google.template.soy.soytree.SwitchDefaultNode;
 import com.google.template.soy.soytree.SwitchNode;
 import com.google.template.soy.soytree.TemplateNode;
 import com.google.template.soy.soytree.VeLogNode;
+import com.google.template.soy.soytree.defn.TemplateParam;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -118,13 +120,16 @@ final class TemplateAnalysisImpl implements TemplateAnalysis {
 
   static TemplateAnalysisImpl analyze(TemplateNode node) {
     AccessGraph templateGraph = new PseudoEvaluatorVisitor().evaluate(node);
-    return new TemplateAnalysisImpl(templateGraph);
+    return new TemplateAnalysisImpl(node, templateGraph);
   }
 
+  private final TemplateNode node;
   private final AccessGraph templateGraph;
   private final ImmutableSet<ExprNode> resolvedExpressions;
+  private ImmutableSet<TemplateParam> definitelyReferencedParams;
 
-  private TemplateAnalysisImpl(AccessGraph templateGraph) {
+  private TemplateAnalysisImpl(TemplateNode node, AccessGraph templateGraph) {
+    this.node = node;
     this.templateGraph = templateGraph;
     this.resolvedExpressions =
         templateGraph != null
@@ -148,6 +153,18 @@ final class TemplateAnalysisImpl implements TemplateAnalysis {
     return resolvedExpressions.contains(ref);
   }
 
+  @Override
+  public ImmutableSet<TemplateParam> getDefinitelyReferencedParams() {
+    // This is only needed by some compilation modes, so calculate it lazily.
+    if (definitelyReferencedParams == null) {
+      Set<VarDefn> referenced =
+          templateGraph != null ? templateGraph.getDefinitelyReferencedVars() : ImmutableSet.of();
+      definitelyReferencedParams =
+          node.getAllParams().stream().filter(referenced::contains).collect(toImmutableSet());
+    }
+    return definitelyReferencedParams;
+  }
+
   /**
    * This visitor (and the {@link PseudoEvaluatorExprVisitor}) visits every Soy node in the order
    * that the code generated from those node would execute and constructs an {@link AccessGraph}.
@@ -1129,6 +1146,28 @@ final class TemplateAnalysisImpl implements TemplateAnalysis {
       return resolvedExprs;
     }
 
+    /** Returns the variables that are referenced on every path from the start to the end. */
+    Set<VarDefn> getDefinitelyReferencedVars() {
+      // Same as above, the set of variables definitely referenced by the end of a block is the
+      // intersection of the sets of its predecessors plus everything referenced in the block.
+      IdentityHashMap<Block, Set<VarDefn>> blockToReferencedVars = new IdentityHashMap<>();
+      for (Block current : getTopologicalOrdering()) {
+        Set<VarDefn> currentBlockSet = mergePredecessors(blockToReferencedVars, current);
+        for (ExprNode expr : current.exprs) {
+          if (expr instanceof VarRefNode) {
+            currentBlockSet.add(((VarRefNode) expr).getDefnDecl());
+          }
+        }
+        if (current == end) {
+          return currentBlockSet;
+        }
+        if (!current.successors.isEmpty()) {
+          blockToReferencedVars.put(current, currentBlockSet);
+        }
+      }
+      throw new AssertionError("end block is not reachable");
+    }
+
     static <T> Set<T> mergePredecessors(Map<Block, Set<T>> blockToAccessedExprs, Block current) {
       Set<T> currentBlockSet = null;
       for (Block predecessor : current.predecessors) {
@@ -66,6 +66,7 @@ import com.google.template.soy.types.NullType;
 import com.google.template.soy.types.TemplateType;
 import com.google.template.soy.types.TemplateType.Parameter;
 import com.google.template.soy.types.UndefinedType;
+import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -78,7 +79,9 @@ import java.util.Set;
 import javax.annotation.Nullable;
 import org.objectweb.asm.ConstantDynamic;
 import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
 import org.objectweb.asm.commons.Method;
 
 /**
@@ -99,14 +102,25 @@ final class TemplateCompiler {
   private final TemplateAnalysis analysis;
   private final JavaSourceFunctionCompiler javaSourceFunctionCompiler;
   private final FileSetMetadata fileSetMetadata;
+  private final boolean prefetchParams;
+  private final boolean utf8Constants;
 
+  /**
+   * @param prefetchParams Whether the template waits for all of the params it will definitely
+   *     reference to be resolved before rendering anything, see {@link
+   *     com.google.template.soy.SoyFileSet.Builder#setPrefetchParams}.
+   * @param utf8Constants Whether raw text is appended along with a pre-encoded UTF-8 copy, see
+   *     {@link com.google.template.soy.SoyFileSet.Builder#setUtf8Constants}.
+   */
   TemplateCompiler(
       TemplateNode templateNode,
       SoyClassWriter writer,
       FieldManager fields,
       InnerMethods innerClasses,
       JavaSourceFunctionCompiler javaSourceFunctionCompiler,
-      FileSetMetadata fileSetMetadata) {
+      FileSetMetadata fileSetMetadata,
+      boolean prefetchParams,
+      boolean utf8Constants) {
     this.template = CompiledTemplateMetadata.create(templateNode, fileSetMetadata);
     this.templateNode = templateNode;
     this.writer = writer;
@@ -115,6 +129,8 @@ final class TemplateCompiler {
     this.analysis = TemplateAnalysisImpl.analyze(templateNode);
     this.javaSourceFunctionCompiler = javaSourceFunctionCompiler;
     this.fileSetMetadata = fileSetMetadata;
+    this.prefetchParams = prefetchParams;
+    this.utf8Constants = utf8Constants;
   }
 
   /**
@@ -480,7 +496,8 @@ final class TemplateCompiler {
             fields,
             constantCompiler,
             javaSourceFunctionCompiler,
-            fileSetMetadata);
+            fileSetMetadata,
+            utf8Constants);
     // Allocate local variables for all _used_ parameters.  Unused params issue a warning but
     // especially in the case of element templates things may be just unused server side.
     // NOTE: we initialize the parameters prior to where the jump table is initialized, this means
@@ -533,25 +550,96 @@ final class TemplateCompiler {
     Statement methodBody =
         nodeCompiler.compile(
             templateNode,
-            /* prefix= */ ExtraCodeCompiler.NO_OP,
+            /* prefix= */ prefetchParams(variableSet),
             /* suffix= */ ExtraCodeCompiler.NO_OP);
     Label exitTemplateScope = templateScope.exitScopeMarker();
     Statement returnDone = Statement.returnExpression(constantNull(BytecodeUtils.STACK_FRAME_TYPE));
-    new Statement(Statement.Kind.TERMINAL) {
+    String templateName = templateNode.getTemplateName();
+    // This needs to run before the reattach table, which replaces the stack frame with its child.
+    Statement enterTemplate =
+        renderContext.enterTemplate(
+            templateName, variableSet.getMethodParameter(StandardNames.STACK_FRAME));
+    Statement body =
+        new Statement(Statement.Kind.TERMINAL) {
+          @Override
+          protected void doGen(CodeBuilder adapter) {
+            adapter.mark(start);
+            enterTemplate.gen(adapter);
+            for (Statement paramInitStatement : paramInitStatements) {
+              paramInitStatement.gen(adapter);
+            }
+            methodBody.gen(adapter);
+            adapter.mark(exitTemplateScope);
+            adapter.mark(end);
+            returnDone.gen(adapter);
+
+            variableSet.generateTableEntries(adapter);
+          }
+        };
+    // The template returns from every detach point as well as at the end, so rather than
+    // instrumenting each of those we notify the RenderContext before every return instruction.
+    int renderContextIndex = variableSet.getMethodParameter(StandardNames.RENDER_CONTEXT).index();
+    MethodVisitor methodVisitor =
+        new MethodVisitor(
+            Opcodes.ASM9,
+            writer.visitMethod(
+                methodAccess(),
+                method.getName(),
+                method.getDescriptor(),
+                /* signature= */ null,
+                new String[] {Type.getInternalName(IOException.class)})) {
+          @Override
+          public void visitInsn(int opcode) {
+            if (opcode == Opcodes.ARETURN) {
+              // Stack: SF -> SF, RenderContext, String -> SF
+              super.visitVarInsn(Opcodes.ALOAD, renderContextIndex);
+              super.visitLdcInsn(templateName);
+              MethodRef exitTemplate = RenderContextExpression.EXIT_TEMPLATE;
+              super.visitMethodInsn(
+                  Opcodes.INVOKESTATIC,
+                  exitTemplate.owner().internalName(),
+                  exitTemplate.method().getName(),
+                  exitTemplate.method().getDescriptor(),
+                  /* isInterface= */ false);
+            }
+            super.visitInsn(opcode);
+          }
+        };
+    body.writeMethodTo(new CodeBuilder(methodAccess(), method, methodVisitor));
+  }
+
+  /**
+   * Returns code that waits for all the params that are definitely referenced by the template to
+   * be resolved, if prefetching params is enabled.
+   */
+  private ExtraCodeCompiler prefetchParams(TemplateVariableManager variableSet) {
+    if (!prefetchParams) {
+      return ExtraCodeCompiler.NO_OP;
+    }
+    ImmutableList<Expression> providers =
+        analysis.getDefinitelyReferencedParams().stream()
+            .filter(param -> !param.isInjected())
+            .map(param -> variableSet.getVariable(param.name()))
+            .collect(toImmutableList());
+    // With a single param this is no better than detaching at the first reference.
+    if (providers.size() < 2) {
+      return ExtraCodeCompiler.NO_OP;
+    }
+    return new ExtraCodeCompiler() {
       @Override
-      protected void doGen(CodeBuilder adapter) {
-        adapter.mark(start);
-        for (Statement paramInitStatement : paramInitStatements) {
-          paramInitStatement.gen(adapter);
-        }
-        methodBody.gen(adapter);
-        adapter.mark(exitTemplateScope);
-        adapter.mark(end);
-        returnDone.gen(adapter);
+      public Statement compile(
+          ExpressionCompiler exprCompiler,
+          AppendableExpression appendable,
+          DetachState detachState) {
+        return detachState.detachForRender(
+            MethodRefs.RUNTIME_GET_ALL_STATUS.invoke(BytecodeUtils.asList(providers)));
+      }
 
-        variableSet.generateTableEntries(adapter);
+      @Override
+      public boolean requiresDetachLogic(TemplateAnalysis analysis) {
+        return true;
       }
-    }.writeIOExceptionMethod(methodAccess(), method, writer);
+    };
   }
 
   /**
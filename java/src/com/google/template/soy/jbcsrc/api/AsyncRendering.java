@@ -0,0 +1,259 @@
+/*
+ * Copyright 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.jbcsrc.api;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.template.soy.jbcsrc.api.SoySauce.Continuation;
+import com.google.template.soy.jbcsrc.api.SoySauce.WriteContinuation;
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Drives renders to completion on an {@link Executor}, so callers don't need to write their own
+ * loop around {@link WriteContinuation#continueRender()}.
+ *
+ * <p>When a render detaches on a future that is a {@link ListenableFuture} or a {@link
+ * CompletionStage}, rendering is resumed on the executor once the future completes and no thread is
+ * occupied in the meantime. For any other kind of future the rendering thread waits for it, which
+ * is cheap when rendering on a virtual thread, see {@link #virtualThreadExecutor()}.
+ *
+ * <p>If the output reports that its {@linkplain AdvisingAppendable#softLimitReached() soft limit}
+ * has been reached, rendering yields and is then continued. Callers that want to apply
+ * backpressure should keep using the continuation APIs directly.
+ *
+ * <p>Cancelling the returned future stops rendering the next time the render pauses.
+ */
+public final class AsyncRendering {
+
+  /** Starts a render that writes to an output, e.g. {@code () -> renderer.renderHtml(out)}. */
+  @FunctionalInterface
+  public interface WriteRender {
+    WriteContinuation start() throws IOException;
+  }
+
+  private static final Executor VIRTUAL_THREAD_EXECUTOR =
+      task -> Thread.ofVirtual().name("soy-render").start(task);
+
+  /**
+   * Returns an {@link Executor} that runs each task on a new virtual thread.
+   *
+   * <p>Virtual threads park cheaply, so waiting for an unresolved {@code Future} parameter doesn't
+   * tie up a platform thread.
+   */
+  public static Executor virtualThreadExecutor() {
+    return VIRTUAL_THREAD_EXECUTOR;
+  }
+
+  /**
+   * Starts the render on the given executor and returns a future that completes when rendering is
+   * complete or fails with the exception thrown by rendering.
+   */
+  public static CompletableFuture<Void> render(WriteRender render, Executor executor) {
+    checkNotNull(render);
+    CompletableFuture<Void> result = new CompletableFuture<>();
+    new Pump<Void>(executor, result) {
+      @Override
+      Step<Void> start() throws IOException {
+        return writeStep(render.start());
+      }
+    }.schedule();
+    return result;
+  }
+
+  /** As above, but renders on a {@link #virtualThreadExecutor() virtual thread}. */
+  public static CompletableFuture<Void> render(WriteRender render) {
+    return render(render, VIRTUAL_THREAD_EXECUTOR);
+  }
+
+  /**
+   * Starts the render on the given executor and returns a future for the rendered value, e.g. {@code
+   * renderToValue(() -> renderer.renderHtml(), executor)}.
+   */
+  public static <T> CompletableFuture<T> renderToValue(
+      Supplier<Continuation<T>> render, Executor executor) {
+    checkNotNull(render);
+    CompletableFuture<T> result = new CompletableFuture<>();
+    new Pump<T>(executor, result) {
+      @Override
+      Step<T> start() {
+        return valueStep(render.get());
+      }
+    }.schedule();
+    return result;
+  }
+
+  /** As above, but renders on a {@link #virtualThreadExecutor() virtual thread}. */
+  public static <T> CompletableFuture<T> renderToValue(Supplier<Continuation<T>> render) {
+    return renderToValue(render, VIRTUAL_THREAD_EXECUTOR);
+  }
+
+  /** Abstracts over {@link WriteContinuation} and {@link Continuation}. */
+  private interface Step<T> {
+    RenderResult result();
+
+    Step<T> next() throws IOException;
+
+    T value();
+  }
+
+  private static Step<Void> writeStep(WriteContinuation continuation) {
+    return new Step<Void>() {
+      @Override
+      public RenderResult result() {
+        return continuation.result();
+      }
+
+      @Override
+      public Step<Void> next() throws IOException {
+        return writeStep(continuation.continueRender());
+      }
+
+      @Override
+      public Void value() {
+        return null;
+      }
+    };
+  }
+
+  private static <T> Step<T> valueStep(Continuation<T> continuation) {
+    return new Step<T>() {
+      @Override
+      public RenderResult result() {
+        return continuation.result();
+      }
+
+      @Override
+      public Step<T> next() {
+        return valueStep(continuation.continueRender());
+      }
+
+      @Override
+      public T value() {
+        return continuation.get();
+      }
+    };
+  }
+
+  private abstract static class Pump<T> {
+    private final Executor executor;
+    private final CompletableFuture<T> result;
+
+    Pump(Executor executor, CompletableFuture<T> result) {
+      this.executor = checkNotNull(executor);
+      this.result = result;
+    }
+
+    abstract Step<T> start() throws IOException;
+
+    void schedule() {
+      try {
+        executor.execute(
+            () -> {
+              Step<T> step;
+              try {
+                step = start();
+              } catch (Throwable t) {
+                result.completeExceptionally(t);
+                return;
+              }
+              run(step);
+            });
+      } catch (RuntimeException e) {
+        // e.g. a RejectedExecutionException
+        result.completeExceptionally(e);
+      }
+    }
+
+    private void resume(Step<T> step) {
+      Step<T> next;
+      try {
+        next = step.next();
+      } catch (Throwable t) {
+        result.completeExceptionally(t);
+        return;
+      }
+      run(next);
+    }
+
+    /** Runs until the render is done or detaches on a future that we can listen to. */
+    private void run(Step<T> step) {
+      try {
+        while (!result.isDone()) {
+          RenderResult renderResult = step.result();
+          switch (renderResult.type()) {
+            case DONE:
+              result.complete(step.value());
+              return;
+            case LIMITED:
+              Thread.yield();
+              break;
+            case DETACH:
+              Future<?> future = renderResult.future();
+              if (!future.isDone() && listen(future, step)) {
+                return;
+              }
+              awaitQuietly(future);
+              break;
+          }
+          step = step.next();
+        }
+      } catch (Throwable t) {
+        result.completeExceptionally(t);
+      }
+    }
+
+    /**
+     * Resumes rendering on the executor once the future completes, returns {@code false} if the
+     * future doesn't support listeners.
+     */
+    private boolean listen(Future<?> future, Step<T> step) {
+      Runnable resume = () -> resume(step);
+      if (future instanceof ListenableFuture) {
+        ((ListenableFuture<?>) future).addListener(resume, executor);
+        return true;
+      }
+      if (future instanceof CompletionStage) {
+        ((CompletionStage<?>) future).whenCompleteAsync((v, t) -> resume.run(), executor);
+        return true;
+      }
+      return false;
+    }
+  }
+
+  private static void awaitQuietly(Future<?> future) {
+    try {
+      future.get();
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt(); // restore interrupted bit
+      throw new RuntimeException("Interrupted while waiting on: " + future + " to complete", ie);
+    } catch (CancellationException | ExecutionException expected) {
+      // ignore these here, both of these are final states for the future.  When continuing the
+      // render the provider should end up dereferencing the future which should ensure that an
+      // exception is thrown with the correct stack trace.
+    }
+  }
+
+  private AsyncRendering() {}
+}
@@ -57,6 +57,7 @@ public final class OutputAppendable extends LoggingAdvisingAppendable {
   private final Appendable outputAppendable;
   private int logOnlyDepth;
   @Nullable private SoyLogger.LoggingAttrs loggingAttrs;
+  private long outputLength;
 
   private OutputAppendable(Appendable outputAppendable, @Nullable SoyLogger logger) {
     this.outputAppendable = checkNotNull(outputAppendable);
@@ -67,6 +68,14 @@ public final class OutputAppendable extends LoggingAdvisingAppendable {
     return logOnlyDepth != 0;
   }
 
+  /**
+   * Returns the number of chars that have been appended to the output, not including attributes
+   * added by the {@link SoyLogger}.
+   */
+  public long outputLength() {
+    return outputLength;
+  }
+
   @Override
   public boolean softLimitReached() {
     return outputAppendable instanceof AdvisingAppendable
@@ -78,6 +87,7 @@ public final class OutputAppendable extends LoggingAdvisingAppendable {
   public LoggingAdvisingAppendable append(CharSequence csq) throws IOException {
     if (!isLogOnly()) {
       outputAppendable.append(csq);
+      outputLength += csq.length();
     }
     return this;
   }
@@ -87,6 +97,7 @@ public final class OutputAppendable extends LoggingAdvisingAppendable {
   public LoggingAdvisingAppendable append(CharSequence csq, int start, int end) throws IOException {
     if (!isLogOnly()) {
       outputAppendable.append(csq, start, end);
+      outputLength += end - start;
     }
     return this;
   }
@@ -96,6 +107,22 @@ public final class OutputAppendable extends LoggingAdvisingAppendable {
   public LoggingAdvisingAppendable append(char c) throws IOException {
     if (!isLogOnly()) {
       outputAppendable.append(c);
+      outputLength++;
+    }
+    return this;
+  }
+
+  @CanIgnoreReturnValue
+  @Override
+  public LoggingAdvisingAppendable appendUtf8Constant(String text, byte[] utf8)
+      throws IOException {
+    if (!isLogOnly()) {
+      if (outputAppendable instanceof Utf8OutputAppendable) {
+        ((Utf8OutputAppendable) outputAppendable).appendUtf8(utf8);
+      } else {
+        outputAppendable.append(text);
+      }
+      outputLength += text.length();
     }
     return this;
   }
@@ -129,6 +156,7 @@ public final class OutputAppendable extends LoggingAdvisingAppendable {
       } else {
         if (!value.isEmpty()) {
           outputAppendable.append(value);
+          outputLength += value.length();
         }
       }
     }
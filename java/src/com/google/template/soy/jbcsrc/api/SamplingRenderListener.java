@@ -0,0 +1,190 @@
+/*
+ * Copyright 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.jbcsrc.api;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableSortedMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregates per template render counts, time and output size over a sample of renders.
+ *
+ * <p>Usage:
+ *
+ * <pre>{@code
+ * SamplingRenderListener stats = SamplingRenderListener.create(100);
+ * ...
+ * renderer.setRenderListener(stats.newRenderListener()).renderHtml(out);
+ * ...
+ * ImmutableSortedMap<String, TemplateStats> snapshot = stats.snapshot();
+ * }</pre>
+ *
+ * <p>Only one in every {@code samplingInterval} calls to {@link #newRenderListener()} returns a
+ * listener that records anything, the rest return {@link SoyRenderListener#NO_OP} so unsampled
+ * renders pay no cost.
+ *
+ * <p>This class is thread safe, the listeners it returns must each only be used for a single
+ * render.
+ */
+public final class SamplingRenderListener {
+
+  /** Statistics for a single template, accumulated over all sampled renders. */
+  @AutoValue
+  public abstract static class TemplateStats {
+    static TemplateStats create(long count, long totalNanos, long selfNanos, long outputLength) {
+      return new AutoValue_SamplingRenderListener_TemplateStats(
+          count, totalNanos, selfNanos, outputLength);
+    }
+
+    /** The number of times the template was rendered. */
+    public abstract long count();
+
+    /**
+     * The time spent rendering the template including the templates it called, not including time
+     * spent detached.
+     */
+    public abstract long totalNanos();
+
+    /** The time spent rendering the template excluding the templates it called. */
+    public abstract long selfNanos();
+
+    /** The number of chars written while the template was rendering. */
+    public abstract long outputLength();
+  }
+
+  /** Returns an instance that records one in every {@code samplingInterval} renders. */
+  public static SamplingRenderListener create(int samplingInterval) {
+    return create(samplingInterval, Ticker.systemTicker());
+  }
+
+  static SamplingRenderListener create(int samplingInterval, Ticker ticker) {
+    checkArgument(samplingInterval > 0, "samplingInterval must be positive: %s", samplingInterval);
+    return new SamplingRenderListener(samplingInterval, checkNotNull(ticker));
+  }
+
+  private final int samplingInterval;
+  private final Ticker ticker;
+  private final AtomicLong renders = new AtomicLong();
+  private final ConcurrentHashMap<String, Counters> templateToCounters = new ConcurrentHashMap<>();
+
+  private SamplingRenderListener(int samplingInterval, Ticker ticker) {
+    this.samplingInterval = samplingInterval;
+    this.ticker = ticker;
+  }
+
+  /** Returns a listener for a single render, which may or may not be sampled. */
+  public SoyRenderListener newRenderListener() {
+    if (renders.getAndIncrement() % samplingInterval != 0) {
+      return SoyRenderListener.NO_OP;
+    }
+    return new Recorder();
+  }
+
+  /** Returns the statistics recorded so far, keyed by template name. */
+  public ImmutableSortedMap<String, TemplateStats> snapshot() {
+    ImmutableSortedMap.Builder<String, TemplateStats> builder = ImmutableSortedMap.naturalOrder();
+    templateToCounters.forEach(
+        (template, counters) ->
+            builder.put(
+                template,
+                TemplateStats.create(
+                    counters.count.sum(),
+                    counters.totalNanos.sum(),
+                    counters.selfNanos.sum(),
+                    counters.outputLength.sum())));
+    return builder.buildOrThrow();
+  }
+
+  /** Discards all recorded statistics. */
+  public void reset() {
+    templateToCounters.clear();
+  }
+
+  private static final class Counters {
+    final LongAdder count = new LongAdder();
+    final LongAdder totalNanos = new LongAdder();
+    final LongAdder selfNanos = new LongAdder();
+    final LongAdder outputLength = new LongAdder();
+  }
+
+  /** A template on the render stack. */
+  private static final class Frame {
+    final String templateName;
+    final long startLength;
+    long resumedAt;
+    long activeNanos;
+    long childNanos;
+
+    Frame(String templateName, long startLength, long now) {
+      this.templateName = templateName;
+      this.startLength = startLength;
+      this.resumedAt = now;
+    }
+  }
+
+  /**
+   * Tracks the stack of templates for a single render.
+   *
+   * <p>Frames stay on the stack while detached, {@code running} is the number of frames, counting
+   * from the bottom, that are currently rendering.
+   */
+  private final class Recorder implements SoyRenderListener {
+    private final List<Frame> stack = new ArrayList<>();
+    private int running;
+
+    @Override
+    public void onTemplateEnter(String templateName, long outputLength) {
+      stack.add(new Frame(templateName, outputLength, ticker.read()));
+      running++;
+    }
+
+    @Override
+    public void onTemplateDetach(String templateName, long outputLength) {
+      Frame frame = stack.get(--running);
+      frame.activeNanos += ticker.read() - frame.resumedAt;
+    }
+
+    @Override
+    public void onTemplateResume(String templateName, long outputLength) {
+      Frame frame = stack.get(running++);
+      frame.resumedAt = ticker.read();
+    }
+
+    @Override
+    public void onTemplateExit(String templateName, long outputLength) {
+      Frame frame = stack.remove(--running);
+      long totalNanos = frame.activeNanos + ticker.read() - frame.resumedAt;
+      if (running > 0) {
+        stack.get(running - 1).childNanos += totalNanos;
+      }
+      Counters counters =
+          templateToCounters.computeIfAbsent(frame.templateName, k -> new Counters());
+      counters.count.increment();
+      counters.totalNanos.add(totalNanos);
+      counters.selfNanos.add(totalNanos - frame.childNanos);
+      counters.outputLength.add(outputLength - frame.startLength);
+    }
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.jbcsrc.api;
+
+/**
+ * Receives callbacks as templates are rendered, for collecting metrics about which templates are
+ * expensive. See {@link SamplingRenderListener} for a way to aggregate these across renders.
+ *
+ * <p>A listener is configured per render via {@link SoySauce.Renderer#setRenderListener}. All the
+ * callbacks for a single render are made sequentially, but not necessarily on the same thread if
+ * rendering is asynchronous.
+ *
+ * <p>Every callback is passed the number of chars that have been written to the output of the
+ * render so far. The difference between the values passed to the enter and exit callbacks is the
+ * amount of output produced by the template, including the templates it called. Content that is
+ * buffered, e.g. in a {@code let} or {@code param} block, counts toward the template that prints
+ * it.
+ *
+ * <p>If rendering fails with an exception, the templates being rendered are not exited.
+ */
+public interface SoyRenderListener {
+
+  /**
+   * A listener that ignores all callbacks. Configuring this is the same as not configuring a
+   * listener at all.
+   */
+  SoyRenderListener NO_OP = new SoyRenderListener() {};
+
+  /** Called when a template starts rendering. */
+  default void onTemplateEnter(String templateName, long outputLength) {}
+
+  /** Called when a template has finished rendering. */
+  default void onTemplateExit(String templateName, long outputLength) {}
+
+  /**
+   * Called when a template pauses rendering, either because it is waiting on a future or because
+   * the output has asked rendering to pause. Templates pause from the innermost call outward.
+   */
+  default void onTemplateDetach(String templateName, long outputLength) {}
+
+  /**
+   * Called when a template that previously {@linkplain #onTemplateDetach detached} continues
+   * rendering. Templates resume from the outermost call inward.
+   */
+  default void onTemplateResume(String templateName, long outputLength) {}
+
+  /**
+   * Called whenever control returns to the caller of the render, either because rendering is
+   * complete or because it has detached. At this point everything that has been rendered so far has
+   * been written to the output.
+   */
+  default void onOutputFlushed(long outputLength) {}
+}
@@ -118,6 +118,79 @@ public interface SoySauce {
    */
   boolean hasTemplate(String template);
 
+  /**
+   * Returns a new {@link RenderPrototype.Builder} for configuring the rendering parameters that are
+   * shared by many renders.
+   *
+   * <p>See {@link RenderPrototype} for more details.
+   */
+  RenderPrototype.Builder newRenderPrototype();
+
+  /**
+   * An immutable set of rendering parameters that are typically constant across many renders, for
+   * example the message bundle for a locale or the renaming maps of a deployment.
+   *
+   * <p>Renderers created from a prototype start out configured with all of the prototype's
+   * parameters, so per request code only needs to supply the data and {@code $ij}. Since the shared
+   * parameters are bound (and plugin instances are combined) once, creating a renderer from a
+   * prototype doesn't need to allocate anything beyond the renderer itself.
+   *
+   * <p>Prototypes are thread safe and are intended to be created once and cached, e.g. one per
+   * locale.
+   */
+  interface RenderPrototype {
+    /** Returns a new {@link Renderer} for the given template, configured with this prototype. */
+    Renderer renderTemplate(String template);
+
+    default Renderer renderTemplate(TemplateName template) {
+      return renderTemplate(template.name());
+    }
+
+    /**
+     * Returns a new {@link Renderer} for the given template, configured with this prototype. The
+     * returned renderer will have its data set and may not allow additional calls to {@link
+     * Renderer#setData}.
+     */
+    Renderer newRenderer(SoyTemplate params);
+
+    /** A builder for configuring a {@link RenderPrototype}. */
+    interface Builder {
+      /**
+       * Sets the plugin instances that will be used for plugins that are implemented with {@code
+       * SoyJavaSourceFunctions} that use {@code JavaValueFactory.callInstanceMethod}.
+       *
+       * <p>These are combined with the plugin instances associated with the SoySauce instance.
+       */
+      @CanIgnoreReturnValue
+      Builder setPluginInstances(Map<String, ? extends Supplier<Object>> pluginInstances);
+
+      /** Configures the {@code {css ..}} renaming map. */
+      @CanIgnoreReturnValue
+      Builder setCssRenamingMap(SoyCssRenamingMap cssRenamingMap);
+
+      /** Configures the {@code {xid ..}} renaming map. */
+      @CanIgnoreReturnValue
+      Builder setXidRenamingMap(SoyIdRenamingMap xidRenamingMap);
+
+      /** Sets the predicate to use for testing whether or not a given {@code modname} is active. */
+      @CanIgnoreReturnValue
+      Builder setActiveModSelector(Predicate<String> active);
+
+      /** Configures the bundle of translated messages to use. */
+      @CanIgnoreReturnValue
+      Builder setMsgBundle(SoyMsgBundle msgs);
+
+      /**
+       * When passing a value of true, Soy compiler will render additional HTML comments for runtime
+       * inspection.
+       */
+      @CanIgnoreReturnValue
+      Builder setDebugSoyTemplateInfo(boolean debugSoyTemplateInfo);
+
+      RenderPrototype build();
+    }
+  }
+
   /** A Renderer can configure rendering parameters and render the template. */
   interface Renderer {
     /** Configures the data to pass to template. */
@@ -151,6 +224,8 @@ public interface SoySauce {
      *
      * <p>Most plugin instances should be associated with the SoySauce instance during construction,
      * but this method can be used to add more plugins or override existing plugins, per renderer.
+     * For renderers created from a {@link RenderPrototype} these are combined with the prototype's
+     * plugin instances.
      */
     @CanIgnoreReturnValue
     Renderer setPluginInstances(Map<String, ? extends Supplier<Object>> pluginInstances);
@@ -193,6 +268,13 @@ public interface SoySauce {
     @CanIgnoreReturnValue
     Renderer setViewerGrammaticalGender(GrammaticalGender viewerGrammaticalGender);
 
+    /**
+     * Configures a {@link SoyRenderListener} to be notified as templates are rendered. By default
+     * there is no listener and templates do no extra work.
+     */
+    @CanIgnoreReturnValue
+    Renderer setRenderListener(SoyRenderListener listener);
+
     /**
      * Renders the configured html template to the given appendable, returning a continuation (more
      * details below). Verifies that the content type is {@link ContentKind.HTML} (corresponding to
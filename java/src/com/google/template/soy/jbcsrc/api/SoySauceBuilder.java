@@ -16,6 +16,7 @@
 
 package com.google.template.soy.jbcsrc.api;
 
+import static com.google.common.base.Preconditions.checkNotNull;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 import com.google.common.collect.ImmutableList;
@@ -35,6 +36,7 @@ import java.io.InputStreamReader;
 import java.net.URL;
 import java.util.Enumeration;
 import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.function.Supplier;
 
 /** Constructs {@link SoySauce} implementations. */
@@ -44,6 +46,7 @@ public final class SoySauceBuilder {
   private PluginInstances userPluginInstances = PluginInstances.empty();
   private CompiledTemplates.Factory compiledTemplatesFactory = CompiledTemplates::new;
   private ClassLoader loader;
+  private Executor preloadExecutor;
 
   public SoySauceBuilder() {}
 
@@ -82,6 +85,21 @@ public final class SoySauceBuilder {
     return this;
   }
 
+  /**
+   * Eagerly loads all the public templates on the classpath when the SoySauce is built, rather
+   * than loading each template the first time it is rendered.
+   *
+   * <p>Templates are loaded in parallel using the given executor and {@link #build()} returns once
+   * all of them have been loaded. This moves the cost of class loading and linking generated
+   * templates from the first requests to startup, and pairs well with a class data sharing archive
+   * created from the class lists that are written to the template jars.
+   */
+  @CanIgnoreReturnValue
+  public SoySauceBuilder withEagerLoading(Executor executor) {
+    this.preloadExecutor = checkNotNull(executor);
+    return this;
+  }
+
   /** Sets the user functions. */
   @CanIgnoreReturnValue
   SoySauceBuilder withFunctions(
@@ -114,8 +132,15 @@ public final class SoySauceBuilder {
     if (loader == null) {
       loader = SoySauceBuilder.class.getClassLoader();
     }
+    CompiledTemplates templates =
+        compiledTemplatesFactory.create(
+            readLinesFromMetaInf(loader, Names.META_INF_DELTEMPLATE_PATH), loader);
+    if (preloadExecutor != null) {
+      templates.preloadTemplates(
+          readLinesFromMetaInf(loader, Names.META_INF_TEMPLATES_PATH), preloadExecutor);
+    }
     return new SoySauceImpl(
-        compiledTemplatesFactory.create(readDelTemplatesFromMetaInf(loader), loader),
+        templates,
         userFunctions, // We don't need internal functions because they only matter at compile time
         ImmutableList.<SoyPrintDirective>builder()
             // but internal directives are still required at render time.
@@ -126,12 +151,12 @@ public final class SoySauceBuilder {
         userPluginInstances);
   }
 
-  /** Walks all resources with the META_INF_DELTEMPLATE_PATH and collects the deltemplates. */
-  private static ImmutableSet<String> readDelTemplatesFromMetaInf(ClassLoader loader) {
+  /** Walks all resources with the given path and collects the lines. */
+  private static ImmutableSet<String> readLinesFromMetaInf(ClassLoader loader, String path) {
     URL url = null;
     try {
       ImmutableSet.Builder<String> builder = ImmutableSet.builder();
-      Enumeration<URL> resources = loader.getResources(Names.META_INF_DELTEMPLATE_PATH);
+      Enumeration<URL> resources = loader.getResources(path);
       while (resources.hasMoreElements()) {
         url = resources.nextElement();
         try (InputStream in = url.openStream()) {
@@ -143,7 +168,7 @@ public final class SoySauceBuilder {
       }
       return builder.build();
     } catch (IOException iox) {
-      throw new RuntimeException("Unable to read deltemplate listing in " + url, iox);
+      throw new RuntimeException("Unable to read " + path + " listing in " + url, iox);
     }
   }
 }
@@ -66,6 +66,8 @@ public final class SoySauceImpl implements SoySauce {
   private final CompiledTemplates templates;
   private final PluginInstances pluginInstances;
   private final ImmutableMap<String, SoyJavaPrintDirective> printDirectives;
+  // Used by the renderers that aren't created from an explicit prototype.
+  private final RenderPrototypeImpl defaultPrototype;
 
   public SoySauceImpl(
       CompiledTemplates templates,
@@ -93,6 +95,14 @@ public final class SoySauceImpl implements SoySauce {
     }
     this.printDirectives = soyJavaPrintDirectives.buildOrThrow();
     this.pluginInstances = pluginInstances.combine(pluginInstanceBuilder.buildOrThrow());
+    this.defaultPrototype =
+        new RenderPrototypeImpl(
+            this.pluginInstances,
+            /* activeModSelector= */ null,
+            /* cssRenamingMap= */ null,
+            /* xidRenamingMap= */ null,
+            /* msgBundle= */ null,
+            /* debugSoyTemplateInfo= */ false);
   }
 
   @Override
@@ -125,32 +135,136 @@ public final class SoySauceImpl implements SoySauce {
 
   @Override
   public RendererImpl renderTemplate(String template) {
-    CompiledTemplates.TemplateData data = templates.getTemplateData(template);
-    return new RendererImpl(template, data.template(), data.kind(), /* data=*/ null);
+    return defaultPrototype.renderTemplate(template);
   }
 
   @Override
   public RendererImpl newRenderer(SoyTemplate params) {
-    String template = params.getTemplateName();
-    CompiledTemplates.TemplateData data = templates.getTemplateData(template);
-    // getParamsAsMap has a loose type to fix a build cycle.
-    var typedParams = (ParamStore) params.getParamsAsRecord();
-    return new RendererImpl(template, data.template(), data.kind(), typedParams);
+    return defaultPrototype.newRenderer(params);
+  }
+
+  @Override
+  public RenderPrototypeBuilderImpl newRenderPrototype() {
+    return new RenderPrototypeBuilderImpl();
+  }
+
+  final class RenderPrototypeBuilderImpl implements RenderPrototype.Builder {
+    private PluginInstances pluginInstances = SoySauceImpl.this.pluginInstances;
+    private Predicate<String> activeModSelector;
+    private SoyCssRenamingMap cssRenamingMap;
+    private SoyIdRenamingMap xidRenamingMap;
+    private SoyMsgBundle msgBundle;
+    private boolean debugSoyTemplateInfo;
+
+    @CanIgnoreReturnValue
+    @Override
+    public RenderPrototypeBuilderImpl setPluginInstances(
+        Map<String, ? extends Supplier<Object>> pluginInstances) {
+      this.pluginInstances = SoySauceImpl.this.pluginInstances.combine(pluginInstances);
+      return this;
+    }
+
+    @CanIgnoreReturnValue
+    @Override
+    public RenderPrototypeBuilderImpl setCssRenamingMap(SoyCssRenamingMap cssRenamingMap) {
+      this.cssRenamingMap = checkNotNull(cssRenamingMap);
+      return this;
+    }
+
+    @CanIgnoreReturnValue
+    @Override
+    public RenderPrototypeBuilderImpl setXidRenamingMap(SoyIdRenamingMap xidRenamingMap) {
+      this.xidRenamingMap = checkNotNull(xidRenamingMap);
+      return this;
+    }
+
+    @CanIgnoreReturnValue
+    @Override
+    public RenderPrototypeBuilderImpl setActiveModSelector(Predicate<String> active) {
+      this.activeModSelector = checkNotNull(active);
+      return this;
+    }
+
+    @CanIgnoreReturnValue
+    @Override
+    public RenderPrototypeBuilderImpl setMsgBundle(SoyMsgBundle msgs) {
+      this.msgBundle = checkNotNull(msgs);
+      return this;
+    }
+
+    @CanIgnoreReturnValue
+    @Override
+    public RenderPrototypeBuilderImpl setDebugSoyTemplateInfo(boolean debugSoyTemplateInfo) {
+      this.debugSoyTemplateInfo = debugSoyTemplateInfo;
+      return this;
+    }
+
+    @Override
+    public RenderPrototypeImpl build() {
+      return new RenderPrototypeImpl(
+          pluginInstances,
+          activeModSelector,
+          cssRenamingMap,
+          xidRenamingMap,
+          msgBundle,
+          debugSoyTemplateInfo);
+    }
+  }
+
+  final class RenderPrototypeImpl implements RenderPrototype {
+    private final PluginInstances pluginInstances;
+    @Nullable private final Predicate<String> activeModSelector;
+    @Nullable private final SoyCssRenamingMap cssRenamingMap;
+    @Nullable private final SoyIdRenamingMap xidRenamingMap;
+    @Nullable private final SoyMsgBundle msgBundle;
+    private final boolean debugSoyTemplateInfo;
+
+    RenderPrototypeImpl(
+        PluginInstances pluginInstances,
+        @Nullable Predicate<String> activeModSelector,
+        @Nullable SoyCssRenamingMap cssRenamingMap,
+        @Nullable SoyIdRenamingMap xidRenamingMap,
+        @Nullable SoyMsgBundle msgBundle,
+        boolean debugSoyTemplateInfo) {
+      this.pluginInstances = checkNotNull(pluginInstances);
+      this.activeModSelector = activeModSelector;
+      this.cssRenamingMap = cssRenamingMap;
+      this.xidRenamingMap = xidRenamingMap;
+      this.msgBundle = msgBundle;
+      this.debugSoyTemplateInfo = debugSoyTemplateInfo;
+    }
+
+    @Override
+    public RendererImpl renderTemplate(String template) {
+      CompiledTemplates.TemplateData data = templates.getTemplateData(template);
+      return new RendererImpl(template, data.template(), data.kind(), /* data= */ null, this);
+    }
+
+    @Override
+    public RendererImpl newRenderer(SoyTemplate params) {
+      String template = params.getTemplateName();
+      CompiledTemplates.TemplateData data = templates.getTemplateData(template);
+      // getParamsAsMap has a loose type to fix a build cycle.
+      var typedParams = (ParamStore) params.getParamsAsRecord();
+      return new RendererImpl(template, data.template(), data.kind(), typedParams, this);
+    }
   }
 
   final class RendererImpl implements Renderer {
     private final String templateName;
     private final CompiledTemplate template;
     private final ContentKind contentKind;
+    private final RenderPrototypeImpl prototype;
     private Predicate<String> activeModSelector;
     private SoyCssRenamingMap cssRenamingMap;
     private SoyIdRenamingMap xidRenamingMap;
-    private PluginInstances pluginInstances = SoySauceImpl.this.pluginInstances;
+    private PluginInstances pluginInstances;
     private SoyMsgBundle msgBundle;
     private boolean debugSoyTemplateInfo;
     private SoyLogger logger;
     private SoyCssTracker cssTracker;
     private SoyJsIdTracker jsIdTracker;
+    @Nullable private SoyRenderListener renderListener;
 
     private ParamStore data;
     private SoyInjector ij;
@@ -162,10 +276,18 @@ public final class SoySauceImpl implements SoySauce {
         String templateName,
         CompiledTemplate template,
         ContentKind contentKind,
-        @Nullable ParamStore data) {
+        @Nullable ParamStore data,
+        RenderPrototypeImpl prototype) {
       this.templateName = templateName;
       this.template = checkNotNull(template);
       this.contentKind = contentKind;
+      this.prototype = prototype;
+      this.pluginInstances = prototype.pluginInstances;
+      this.activeModSelector = prototype.activeModSelector;
+      this.cssRenamingMap = prototype.cssRenamingMap;
+      this.xidRenamingMap = prototype.xidRenamingMap;
+      this.msgBundle = prototype.msgBundle;
+      this.debugSoyTemplateInfo = prototype.debugSoyTemplateInfo;
       if (data != null) {
         this.data = data;
         // TODO(lukes): eliminate this and just use the nullness of data to enforce this.
@@ -173,7 +295,7 @@ public final class SoySauceImpl implements SoySauce {
       }
     }
 
-    private RenderContext makeContext() {
+    private RenderContext makeContext(OutputAppendable output) {
       return new RenderContext(
           templates,
           printDirectives,
@@ -187,7 +309,9 @@ public final class SoySauceImpl implements SoySauce {
           cssTracker,
           jsIdTracker,
           viewerGrammaticalGender,
-          initialContextNode);
+          initialContextNode,
+          renderListener,
+          output::outputLength);
     }
 
     private ParamStore mapAsParamStore(Map<String, ?> source) {
@@ -224,7 +348,7 @@ public final class SoySauceImpl implements SoySauce {
     @Override
     public RendererImpl setPluginInstances(
         Map<String, ? extends Supplier<Object>> pluginInstances) {
-      this.pluginInstances = SoySauceImpl.this.pluginInstances.combine(pluginInstances);
+      this.pluginInstances = prototype.pluginInstances.combine(pluginInstances);
       return this;
     }
 
@@ -302,6 +426,15 @@ public final class SoySauceImpl implements SoySauce {
       return this;
     }
 
+    @CanIgnoreReturnValue
+    @Override
+    public RendererImpl setRenderListener(SoyRenderListener renderListener) {
+      // Use null for the no-op listener so that templates can skip the callbacks entirely.
+      this.renderListener =
+          checkNotNull(renderListener) == SoyRenderListener.NO_OP ? null : renderListener;
+      return this;
+    }
+
     @Override
     public WriteContinuation renderHtml(AdvisingAppendable out) throws IOException {
       return startRender(out, ContentKind.HTML);
@@ -416,8 +549,8 @@ public final class SoySauceImpl implements SoySauce {
         Continuation<T> startRenderToValue(ContentKind contentKind) {
       StringBuilder sb = new StringBuilder();
       ParamStore params = data == null ? ParamStore.EMPTY_INSTANCE : data;
-      RenderContext context = makeContext();
       OutputAppendable output = OutputAppendable.create(sb, logger);
+      RenderContext context = makeContext(output);
       return doRenderToValue(contentKind, sb, template, null, params, output, context);
     }
 
@@ -426,8 +559,8 @@ public final class SoySauceImpl implements SoySauce {
       enforceContentKind(contentKind);
 
       ParamStore params = data == null ? ParamStore.EMPTY_INSTANCE : data;
-      RenderContext context = makeContext();
       OutputAppendable output = OutputAppendable.create(out, logger);
+      RenderContext context = makeContext(output);
       return doRender(template, null, params, output, context);
     }
 
@@ -464,6 +597,7 @@ public final class SoySauceImpl implements SoySauce {
       Throwables.throwIfInstanceOf(t, IOException.class);
       throw t;
     }
+    context.onOutputFlushed();
     if (frame == null) {
       context.logDeferredErrors();
       return Continuations.done();
@@ -556,6 +690,7 @@ public final class SoySauceImpl implements SoySauce {
       rewriteStackTrace(t);
       throw t;
     }
+    context.onOutputFlushed();
     if (frame == null) {
       context.logDeferredErrors();
       String content = underlying.toString();
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.jbcsrc.api;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An {@link AdvisingAppendable} that encodes everything written to it as UTF-8 directly into a
+ * byte buffer which is written to an {@link OutputStream} when it fills up or is {@link #flush()
+ * flushed}.
+ *
+ * <p>This avoids rendering to chars and then transcoding in a separate pass, e.g. via an {@link
+ * java.io.OutputStreamWriter}. Content that is already encoded, such as the raw text of a
+ * template, can be written with {@link #appendUtf8} and is just copied into the buffer.
+ *
+ * <p>Unpaired surrogates are encoded as {@code '?'}, the same as {@link String#getBytes}. A high
+ * surrogate at the end of a write is held until the next write so that pairs split across writes
+ * are encoded correctly, or until {@link #finish()} ends the output.
+ *
+ * <p>Instances are not thread safe. Callers must call {@link #finish()} when rendering is complete,
+ * {@link #flush()} only writes out what has been encoded so far.
+ */
+public final class Utf8OutputAppendable implements AdvisingAppendable, Flushable {
+  private static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+  // 4 bytes is the longest encoding of a single code point.
+  private static final int MIN_BUFFER_SIZE = 4;
+
+  /** Returns an appendable that writes to {@code out} with a default sized buffer. */
+  public static Utf8OutputAppendable create(OutputStream out) {
+    return new Utf8OutputAppendable(out, new byte[DEFAULT_BUFFER_SIZE]);
+  }
+
+  /**
+   * Returns an appendable that writes to {@code out} using the given buffer.
+   *
+   * <p>This allows callers to pool buffers across renders. The buffer must not be used by anything
+   * else until the appendable has been flushed for the last time.
+   */
+  public static Utf8OutputAppendable create(OutputStream out, byte[] buffer) {
+    checkArgument(
+        buffer.length >= MIN_BUFFER_SIZE,
+        "buffer must be at least %s bytes, got %s",
+        MIN_BUFFER_SIZE,
+        buffer.length);
+    return new Utf8OutputAppendable(out, buffer);
+  }
+
+  private final OutputStream out;
+  private final byte[] buffer;
+  private int position;
+  // A high surrogate from the end of the last write, or 0 if there isn't one.
+  private char pendingHighSurrogate;
+
+  private Utf8OutputAppendable(OutputStream out, byte[] buffer) {
+    this.out = checkNotNull(out);
+    this.buffer = buffer;
+  }
+
+  @CanIgnoreReturnValue
+  @Override
+  public Utf8OutputAppendable append(CharSequence csq) throws IOException {
+    return append(csq, 0, csq.length());
+  }
+
+  @CanIgnoreReturnValue
+  @Override
+  public Utf8OutputAppendable append(CharSequence csq, int start, int end) throws IOException {
+    byte[] buffer = this.buffer;
+    int i = start;
+    while (i < end) {
+      if (pendingHighSurrogate == 0) {
+        // Copy runs of ascii directly, this is the common case for html.
+        int limit = Math.min(end, i + buffer.length - position);
+        int pos = position;
+        char c;
+        while (i < limit && (c = csq.charAt(i)) < 0x80) {
+          buffer[pos++] = (byte) c;
+          i++;
+        }
+        position = pos;
+        if (i == end) {
+          break;
+        }
+        if (i == limit) {
+          flushBuffer();
+          continue;
+        }
+      }
+      encodeChar(csq.charAt(i++));
+    }
+    return this;
+  }
+
+  @CanIgnoreReturnValue
+  @Override
+  public Utf8OutputAppendable append(char c) throws IOException {
+    encodeChar(c);
+    return this;
+  }
+
+  /**
+   * Appends content that is already encoded as UTF-8.
+   *
+   * <p>The array is not modified or retained.
+   */
+  @CanIgnoreReturnValue
+  public Utf8OutputAppendable appendUtf8(byte[] utf8) throws IOException {
+    if (pendingHighSurrogate != 0) {
+      pendingHighSurrogate = 0;
+      writeByte('?');
+    }
+    int length = utf8.length;
+    if (length > buffer.length - position) {
+      flushBuffer();
+      if (length >= buffer.length) {
+        // Too big to be worth buffering.
+        out.write(utf8);
+        return this;
+      }
+    }
+    System.arraycopy(utf8, 0, buffer, position, length);
+    position += length;
+    return this;
+  }
+
+  /** The buffer is drained as it fills, so there is never a reason to pause rendering. */
+  @Override
+  public boolean softLimitReached() {
+    return false;
+  }
+
+  /**
+   * Writes all buffered bytes to the output stream and flushes it.
+   *
+   * <p>A trailing high surrogate is kept in case the next write completes the pair.
+   */
+  @Override
+  public void flush() throws IOException {
+    flushBuffer();
+    out.flush();
+  }
+
+  /**
+   * Ends the output: encodes a trailing unpaired high surrogate as {@code '?'} and then {@link
+   * #flush flushes}.
+   *
+   * <p>The output stream is not closed, and nothing should be appended afterwards.
+   */
+  public void finish() throws IOException {
+    if (pendingHighSurrogate != 0) {
+      pendingHighSurrogate = 0;
+      writeByte('?');
+    }
+    flush();
+  }
+
+  private void flushBuffer() throws IOException {
+    if (position > 0) {
+      out.write(buffer, 0, position);
+      position = 0;
+    }
+  }
+
+  private void encodeChar(char c) throws IOException {
+    if (pendingHighSurrogate != 0) {
+      char high = pendingHighSurrogate;
+      pendingHighSurrogate = 0;
+      if (Character.isLowSurrogate(c)) {
+        int codePoint = Character.toCodePoint(high, c);
+        ensureCapacity(4);
+        buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+        buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+        buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+        buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+        return;
+      }
+      writeByte('?');
+    }
+    if (c < 0x80) {
+      writeByte(c);
+    } else if (c < 0x800) {
+      ensureCapacity(2);
+      buffer[position++] = (byte) (0xC0 | (c >> 6));
+      buffer[position++] = (byte) (0x80 | (c & 0x3F));
+    } else if (Character.isHighSurrogate(c)) {
+      pendingHighSurrogate = c;
+    } else if (Character.isLowSurrogate(c)) {
+      writeByte('?');
+    } else {
+      ensureCapacity(3);
+      buffer[position++] = (byte) (0xE0 | (c >> 12));
+      buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+      buffer[position++] = (byte) (0x80 | (c & 0x3F));
+    }
+  }
+
+  private void writeByte(int b) throws IOException {
+    ensureCapacity(1);
+    buffer[position++] = (byte) b;
+  }
+
+  private void ensureCapacity(int bytes) throws IOException {
+    if (buffer.length - position < bytes) {
+      flushBuffer();
+    }
+  }
+}
@@ -52,6 +52,16 @@ public abstract class AbstractMemoryClassLoader extends ClassLoader
   @ForOverride
   protected abstract ClassData getClassData(String name);
 
+  /**
+   * Returns the classloader that the generated class with the given name should be loaded from
+   * instead of this one, or {@code null} if this classloader defines it.
+   */
+  @Nullable
+  @ForOverride
+  protected ClassLoader getGeneratedClassDelegate(String name) {
+    return null;
+  }
+
   @Override
   public String getDebugInfoForClass(String className) {
     ClassData data = getClassData(className);
@@ -65,6 +75,10 @@ public abstract class AbstractMemoryClassLoader extends ClassLoader
     // but we don't want to use it in this case.
     // This replicates part of super.loadClass.
     if (Names.isGenerated(name)) {
+      ClassLoader delegate = getGeneratedClassDelegate(name);
+      if (delegate != null) {
+        return delegate.loadClass(name);
+      }
       synchronized (getClassLoadingLock(name)) {
         // First, check if the class has already been loaded
         Class<?> c = findLoadedClass(name);
@@ -181,6 +181,7 @@ public final class BytecodeUtils {
   public static final Type RENDER_RESULT_TYPE = Type.getType(RenderResult.class);
   public static final Type PARAM_STORE_TYPE = Type.getType(ParamStore.class);
   public static final Type STRING_TYPE = Type.getType(String.class);
+  public static final Type BYTE_ARRAY_TYPE = Type.getType(byte[].class);
   public static final Type THROWABLE_TYPE = Type.getType(Throwable.class);
   public static final Type ILLEGAL_STATE_EXCEPTION_TYPE = Type.getType(IllegalStateException.class);
   public static final Type SOY_VISUAL_ELEMENT_TYPE = Type.getType(SoyVisualElement.class);
@@ -221,6 +222,16 @@ public final class BytecodeUtils {
               String[].class)
           .asHandle();
 
+  private static final Handle UTF8_CONSTANT_HANDLE =
+      MethodRef.createPure(
+              LargeStringConstantFactory.class,
+              "bootstrapUtf8Constant",
+              MethodHandles.Lookup.class,
+              String.class,
+              Class.class,
+              String[].class)
+          .asHandle();
+
   private static final Handle NULL_CONSTANT_HANDLE =
       MethodRef.createPure(
               ConstantBootstraps.class,
@@ -539,6 +550,46 @@ public final class BytecodeUtils {
 
   /** Returns an {@link Expression} that can load the given String constant. */
   public static Expression constant(String value) {
+    List<String> stringConstants = splitStringConstant(value);
+    if (stringConstants.size() == 1) {
+      String basicString = stringConstants.get(0);
+      return new Expression(
+          STRING_TYPE,
+          Expression.ConstantValue.raw(basicString, STRING_TYPE),
+          Features.of(Feature.CHEAP, Feature.NON_JAVA_NULLABLE)) {
+        @Override
+        protected void doGen(CodeBuilder mv) {
+          mv.visitLdcInsn(basicString);
+        }
+      };
+    }
+    return constant(
+        STRING_TYPE,
+        new ConstantDynamic(
+            "largeString",
+            STRING_TYPE.getDescriptor(),
+            LARGE_STRING_CONSTANT_HANDLE,
+            stringConstants.toArray()),
+        Feature.NON_JAVA_NULLABLE.asFeatures());
+  }
+
+  /**
+   * Returns an {@link Expression} that evaluates to the UTF-8 encoding of the given string.
+   *
+   * <p>The array is shared by every evaluation of the expression so it must not be modified.
+   */
+  public static Expression constantUtf8(String value) {
+    return constant(
+        BYTE_ARRAY_TYPE,
+        new ConstantDynamic(
+            "utf8",
+            BYTE_ARRAY_TYPE.getDescriptor(),
+            UTF8_CONSTANT_HANDLE,
+            splitStringConstant(value).toArray()),
+        Feature.NON_JAVA_NULLABLE.asFeatures());
+  }
+
+  private static List<String> splitStringConstant(String value) {
     // string constants use a "modified UTF8" encoding
     // https://en.wikipedia.org/wiki/UTF-8#Modified_UTF-8
     // and are limited by the classfile format to contain no more than 65535 bytes
@@ -572,26 +623,7 @@ public final class BytecodeUtils {
       index++;
     }
     stringConstants.add(value.substring(previousStart));
-    if (stringConstants.size() == 1) {
-      String basicString = stringConstants.get(0);
-      return new Expression(
-          STRING_TYPE,
-          Expression.ConstantValue.raw(basicString, STRING_TYPE),
-          Features.of(Feature.CHEAP, Feature.NON_JAVA_NULLABLE)) {
-        @Override
-        protected void doGen(CodeBuilder mv) {
-          mv.visitLdcInsn(basicString);
-        }
-      };
-    }
-    return constant(
-        STRING_TYPE,
-        new ConstantDynamic(
-            "largeString",
-            STRING_TYPE.getDescriptor(),
-            LARGE_STRING_CONSTANT_HANDLE,
-            stringConstants.toArray()),
-        Feature.NON_JAVA_NULLABLE.asFeatures());
+    return stringConstants;
   }
 
   /** Returns an {@link Expression} that evaluates to the given ContentKind, or null. */
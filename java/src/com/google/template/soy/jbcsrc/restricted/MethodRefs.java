@@ -372,6 +372,16 @@ public final class MethodRefs {
   public static final MethodRef RUNTIME_GET_MAP_STATUS =
       createNonPure(JbcSrcRuntime.class, "getMapStatus", Map.class);
 
+  public static final MethodRef RUNTIME_GET_ALL_STATUS =
+      createNonPure(JbcSrcRuntime.class, "getAllStatus", List.class);
+
+  public static final MethodRef RUNTIME_RENDER_AND_RESOLVE_ESCAPED =
+      createNonPure(
+          JbcSrcRuntime.class,
+          "renderAndResolveEscaped",
+          SoyValueProvider.class,
+          LoggingAdvisingAppendable.class);
+
   public static final MethodRef RUNTIME_GET_LEGACY_OBJECT_MAP_ITEM =
       createPure(JbcSrcRuntime.class, "getSoyLegacyObjectMapItem", SoyValue.class, SoyValue.class);
 
@@ -614,6 +624,9 @@ public final class MethodRefs {
   public static final MethodRef STRING_DATA_FOR_VALUE =
       createPure(StringData.class, "forValue", String.class).asCheap();
 
+  public static final MethodRef STRING_DATA_FOR_CONSTANT =
+      createPure(StringData.class, "forConstant", String.class).asCheap();
+
   public static final MethodRef LOGGING_ADVISING_APPENDABLE_BUFFERING =
       createNonPure(
               LoggingAdvisingAppendable.class, "buffering", SanitizedContent.ContentKind.class)
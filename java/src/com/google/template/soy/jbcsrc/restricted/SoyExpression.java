@@ -486,6 +486,8 @@ public final class SoyExpression extends Expression {
           // Special case the boxed empty string
           return FieldRef.EMPTY_STRING_DATA.accessor().withSourceLocation(delegate.location);
         }
+        // Intern constants so that every template loading the same string shares one instance.
+        return MethodRefs.STRING_DATA_FOR_CONSTANT.invoke(delegate).toMaybeConstant();
       }
       return MethodRefs.STRING_DATA_FOR_VALUE.invoke(delegate).toMaybeConstant();
     } else if (type.isKnownGbigint()) {
@@ -18,6 +18,7 @@ package com.google.template.soy.jbcsrc.runtime;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
 import static java.lang.invoke.MethodType.methodType;
 import static java.util.stream.Collectors.joining;
 
@@ -31,6 +32,7 @@ import com.google.common.collect.Sets;
 import com.google.common.io.BaseEncoding;
 import com.google.common.primitives.UnsignedLong;
 import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import com.google.errorprone.annotations.Immutable;
 import com.google.errorprone.annotations.Keep;
@@ -70,6 +72,7 @@ import com.google.template.soy.msgs.restricted.PlaceholderName;
 import com.google.template.soy.msgs.restricted.SoyMsgPluralPartForRendering;
 import com.google.template.soy.msgs.restricted.SoyMsgRawParts;
 import com.google.template.soy.msgs.restricted.SoyMsgSelectPartForRendering;
+import com.google.template.soy.shared.internal.Sanitizers;
 import com.google.template.soy.shared.restricted.SoyJavaPrintDirective;
 import com.ibm.icu.util.ULocale;
 import java.io.IOException;
@@ -78,6 +81,7 @@ import java.lang.invoke.ConstantCallSite;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -209,6 +213,64 @@ public final class JbcSrcRuntime {
     return RenderResult.done();
   }
 
+  /**
+   * Returns the combined status of all the providers.
+   *
+   * <p>Unlike {@link #getListStatus}, this checks the status of every provider even after finding
+   * one that isn't done, so that all of them can make progress concurrently. If several of them
+   * are waiting on {@link ListenableFuture}s, the result waits for all of those futures at once.
+   * This allows a template to wait for all of its future valued params with a single detach,
+   * rather than detaching and reattaching once for each of them.
+   */
+  public static RenderResult getAllStatus(List<? extends SoyValueProvider> soyValueProviders) {
+    RenderResult firstPending = null;
+    List<ListenableFuture<?>> futures = null;
+    boolean canCombine = true;
+    for (SoyValueProvider soyValueProvider : soyValueProviders) {
+      RenderResult result = soyValueProvider.status();
+      if (result.isDone()) {
+        continue;
+      }
+      if (firstPending == null) {
+        firstPending = result;
+        futures = new ArrayList<>(soyValueProviders.size());
+      }
+      if (canCombine
+          && result.type() == RenderResult.Type.DETACH
+          && result.future() instanceof ListenableFuture) {
+        futures.add((ListenableFuture<?>) result.future());
+      } else {
+        // We can only combine listenable futures, otherwise just wait for the first one.  The
+        // rest have still been started by calling status().
+        canCombine = false;
+      }
+    }
+    if (firstPending == null) {
+      return RenderResult.done();
+    }
+    if (!canCombine || futures.size() == 1) {
+      return firstPending;
+    }
+    return RenderResult.continueAfter(
+        Futures.whenAllComplete(futures).call(() -> null, directExecutor()));
+  }
+
+  /**
+   * Renders the provider onto an appendable that applies streaming print directives.
+   *
+   * <p>Strings are handed to {@link Sanitizers#appendEscaped} first, so that a string that is
+   * printed several times with the same escaper is only scanned once, like it is when it is
+   * escaped by a non streaming print directive.
+   */
+  public static RenderResult renderAndResolveEscaped(
+      SoyValueProvider soyValueProvider, LoggingAdvisingAppendable appendable) throws IOException {
+    if (soyValueProvider instanceof StringData
+        && Sanitizers.appendEscaped((StringData) soyValueProvider, appendable)) {
+      return RenderResult.done();
+    }
+    return soyValueProvider.renderAndResolve(appendable);
+  }
+
   @Keep
   @Nonnull
   public static SoyValue getSoyMapItem(SoyValue soyMap, SoyValue key) {
@@ -23,6 +23,9 @@ import static java.lang.invoke.MethodType.methodType;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Splitter;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedSet;
@@ -41,12 +44,19 @@ import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodHandles.Lookup;
 import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
 import javax.annotation.Nullable;
@@ -81,6 +91,25 @@ public class CompiledTemplates {
       new ConcurrentHashMap<>();
 
   final DelTemplateSelector<TemplateData> selector;
+
+  /**
+   * All the mods that are referenced by deltemplates. Which of these are active completely
+   * determines the result of deltemplate selection.
+   */
+  private final ImmutableList<String> allMods;
+
+  /**
+   * Caches deltemplate selection results keyed by the set of active mods, where bit {@code i}
+   * corresponds to {@code allMods.get(i)}.
+   *
+   * <p>There are generally only a few distinct sets of active mods, but in case there are many we
+   * only keep the {@link #MAX_CACHED_MOD_SETS} most recently used ones to bound memory use.
+   */
+  private final Cache<BitSet, DelTemplateDispatch> activeModsToDispatch =
+      CacheBuilder.newBuilder().maximumSize(MAX_CACHED_MOD_SETS).build();
+
+  private static final int MAX_CACHED_MOD_SETS = 64;
+
   private final int id;
 
   /** Interface for constructor. */
@@ -98,6 +127,7 @@ public class CompiledTemplates {
     this.loader = checkNotNull(loader);
     // We need to build the deltemplate selector eagerly.
     DelTemplateSelector.Builder<TemplateData> builder = new DelTemplateSelector.Builder<>();
+    Set<String> allMods = new TreeSet<>();
     for (String delTemplateImplName : delTemplateNames) {
       TemplateData data = getTemplateData(delTemplateImplName);
       if (data.delTemplateName.isEmpty()) {
@@ -107,6 +137,7 @@ public class CompiledTemplates {
       String delTemplateName = data.delTemplateName.get();
       if (data.modName.isPresent()) {
         String modName = data.modName.get();
+        allMods.add(modName);
         TemplateData prev = builder.add(delTemplateName, modName, data.variant, data);
         if (prev != null) {
           throw new IllegalArgumentException(
@@ -125,9 +156,11 @@ public class CompiledTemplates {
       }
     }
     this.selector = builder.build();
+    this.allMods = ImmutableList.copyOf(allMods);
   }
 
-  ClassLoader getClassLoader() {
+  /** Returns the classloader that the templates are loaded from. */
+  public ClassLoader getClassLoader() {
     return loader;
   }
 
@@ -223,16 +256,23 @@ public class CompiledTemplates {
     return ImmutableList.copyOf(requiredPaths);
   }
 
-  /** Returns an active delegate for the given name, variant and active package selector. */
-  @Nullable
-  CompiledTemplate selectDelTemplate(
-      String delTemplateName, String variant, Predicate<String> activeModSelector) {
-    TemplateData selectedTemplate =
-        selector.selectTemplate(delTemplateName, variant, activeModSelector);
-    if (selectedTemplate == null) {
-      return null;
+  /**
+   * Returns a cache of deltemplate selection results for the set of mods selected by the given
+   * predicate.
+   *
+   * <p>Renders with the same set of active mods share a result, so each deltemplate is only
+   * selected once per set of active mods rather than on every call.
+   */
+  DelTemplateDispatch getDelTemplateDispatch(Predicate<String> activeModSelector) {
+    BitSet activeMods = new BitSet(allMods.size());
+    for (int i = 0; i < allMods.size(); i++) {
+      if (activeModSelector.test(allMods.get(i))) {
+        activeMods.set(i);
+      }
     }
-    return selectedTemplate.template();
+    return activeModsToDispatch
+        .asMap()
+        .computeIfAbsent(activeMods, unused -> new DelTemplateDispatch(selector));
   }
 
   private static final Splitter HASH_SPLITTER = Splitter.on('#');
@@ -294,6 +334,27 @@ public class CompiledTemplates {
     }
   }
 
+  /**
+   * Eagerly loads the given templates and resolves the method handles used to call them, so that
+   * the first render of each template doesn't pay for class loading and linkage.
+   *
+   * <p>The work is spread across the given executor and this method returns once all the templates
+   * have been loaded.
+   */
+  public void preloadTemplates(Iterable<String> templateNames, Executor executor) {
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    for (String templateName : templateNames) {
+      futures.add(
+          CompletableFuture.runAsync(() -> getTemplateData(templateName).preload(), executor));
+    }
+    try {
+      CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+    } catch (CompletionException e) {
+      Throwables.throwIfUnchecked(e.getCause());
+      throw e;
+    }
+  }
+
   public TemplateData getTemplateData(String name) {
     checkNotNull(name);
     TemplateData template = templateNameToFactory.get(name);
@@ -398,22 +459,19 @@ public class CompiledTemplates {
     // here are only weakly referenced by the callsites.  Thus they live or die with this object.
     // For that reason it is important to ensure that at most one of these is ever returned from
     // their accessor methods so that we maintain a hard reference to the values returned.
-    // If for some reason we have contention on these locks, we can switch to a double-checked
-    // locking protocol
+    // These are accessed on every call to a template so we use a double-checked locking protocol,
+    // once initialized, reads never contend on the lock.
 
-    MethodHandle renderMethod;
+    private volatile MethodHandle renderMethod;
 
-    MethodHandle positionalRenderMethod;
+    private volatile MethodHandle positionalRenderMethod;
 
     final String soyTemplateName;
     // lazily initialized since it is not always needed
-    // NOTE: we do not need to guard this with the lock.  Even if multiple threads racily initialize
-    // this value they will always calculate the same value because of how the method is
-    // implemented.
-    @LazyInit CompiledTemplate template;
+    private volatile CompiledTemplate template;
 
     // lazily initialized since it is not always needed
-    TemplateValue templateValue;
+    private volatile TemplateValue templateValue;
 
     // many of these fields should probably be only lazily calculated
     final ContentKind kind;
@@ -524,7 +582,12 @@ public class CompiledTemplates {
       }
     }
 
-    synchronized MethodHandle renderMethod() {
+    MethodHandle renderMethod() {
+      var renderMethod = this.renderMethod;
+      return renderMethod != null ? renderMethod : initRenderMethod();
+    }
+
+    private synchronized MethodHandle initRenderMethod() {
       var renderMethod = this.renderMethod;
       if (renderMethod == null) {
         String templateMethodName = Names.renderMethodNameFromSoyTemplateName(soyTemplateName);
@@ -551,7 +614,14 @@ public class CompiledTemplates {
       return renderMethod;
     }
 
-    synchronized MethodHandle positionalRenderMethod(int arity) {
+    MethodHandle positionalRenderMethod(int arity) {
+      var positionalRenderMethod = this.positionalRenderMethod;
+      return positionalRenderMethod != null
+          ? positionalRenderMethod
+          : initPositionalRenderMethod(arity);
+    }
+
+    private synchronized MethodHandle initPositionalRenderMethod(int arity) {
       var positionalRenderMethod = this.positionalRenderMethod;
       if (positionalRenderMethod == null) {
         String templateMethodName = Names.renderMethodNameFromSoyTemplateName(soyTemplateName);
@@ -612,7 +682,21 @@ public class CompiledTemplates {
       }
     }
 
-    synchronized TemplateValue templateValue() {
+    /** Resolves everything that is lazily initialized for calls to this template. */
+    void preload() {
+      template();
+      renderMethod();
+      if (positionalParameters.isPresent()) {
+        positionalRenderMethod(positionalParameters.get().size());
+      }
+    }
+
+    TemplateValue templateValue() {
+      TemplateValue local = templateValue;
+      return local != null ? local : initTemplateValue();
+    }
+
+    private synchronized TemplateValue initTemplateValue() {
       TemplateValue local = templateValue;
       if (local == null) {
         this.templateValue = local = TemplateValue.create(this.soyTemplateName, template());
@@ -620,7 +704,12 @@ public class CompiledTemplates {
       return local;
     }
 
-    public synchronized CompiledTemplate template() {
+    public CompiledTemplate template() {
+      CompiledTemplate local = template;
+      return local != null ? local : initTemplate();
+    }
+
+    private synchronized CompiledTemplate initTemplate() {
       CompiledTemplate local = template;
       if (local == null) {
         try {
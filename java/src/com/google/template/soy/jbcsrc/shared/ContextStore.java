@@ -47,8 +47,12 @@ public interface ContextStore {
     @Nullable
     abstract ContextNode parent();
 
+    // ContextNodes are immutable so all renders can share a single root.
+    private static final ContextNode ROOT =
+        new AutoValue_ContextStore_ContextNode(ImmutableMap.of(), null);
+
     public static ContextNode createRoot() {
-      return new AutoValue_ContextStore_ContextNode(ImmutableMap.of(), null);
+      return ROOT;
     }
 
     @Nullable
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.jbcsrc.shared;
+
+import com.google.template.soy.jbcsrc.shared.CompiledTemplates.TemplateData;
+import com.google.template.soy.shared.internal.DelTemplateSelector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+
+/**
+ * Caches the results of deltemplate selection for a single set of active mods.
+ *
+ * <p>The result of {@link DelTemplateSelector#selectTemplate} only depends on which of the mods
+ * referenced by the selector are active, so a single instance can be shared by all renders that
+ * have the same active mods. See {@link CompiledTemplates#getDelTemplateDispatch}.
+ */
+final class DelTemplateDispatch {
+  /** A sentinel for when there is no active implementation, since we can't store nulls. */
+  private static final Object NO_TEMPLATE = new Object();
+
+  private final DelTemplateSelector<TemplateData> selector;
+  private final ConcurrentHashMap<String, ConcurrentHashMap<String, Object>>
+      nameToVariantToTemplate = new ConcurrentHashMap<>();
+
+  DelTemplateDispatch(DelTemplateSelector<TemplateData> selector) {
+    this.selector = selector;
+  }
+
+  /**
+   * Returns the active implementation for the given name and variant, or {@code null} if there
+   * isn't one.
+   *
+   * <p>The {@code activeModSelector} must select the same set of mods for every call to this
+   * object.
+   */
+  @Nullable
+  CompiledTemplate select(
+      String delTemplateName, String variant, Predicate<String> activeModSelector) {
+    ConcurrentHashMap<String, Object> variantToTemplate =
+        nameToVariantToTemplate.get(delTemplateName);
+    if (variantToTemplate == null) {
+      variantToTemplate =
+          nameToVariantToTemplate.computeIfAbsent(
+              delTemplateName, name -> new ConcurrentHashMap<>());
+    }
+    Object selected = variantToTemplate.get(variant);
+    if (selected == null) {
+      // Racing threads will calculate the same value, so there is no need to lock.
+      TemplateData data = selector.selectTemplate(delTemplateName, variant, activeModSelector);
+      selected = data == null ? NO_TEMPLATE : data.template();
+      variantToTemplate.putIfAbsent(variant, selected);
+    }
+    return selected == NO_TEMPLATE ? null : (CompiledTemplate) selected;
+  }
+}
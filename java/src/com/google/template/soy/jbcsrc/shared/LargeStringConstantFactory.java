@@ -16,6 +16,8 @@
 
 package com.google.template.soy.jbcsrc.shared;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 import java.lang.invoke.MethodHandles;
 
 /**
@@ -47,5 +49,16 @@ public final class LargeStringConstantFactory {
     return sb.toString();
   }
 
+  /**
+   * Returns the UTF-8 encoding of the concatenation of {@code parts}.
+   *
+   * <p>This is used to pre-encode raw text so that it can be written to byte oriented outputs
+   * without encoding it on every render.
+   */
+  public static byte[] bootstrapUtf8Constant(
+      MethodHandles.Lookup lookup, String name, Class<?> type, String... parts) {
+    return bootstrapLargeStringConstant(lookup, name, type, parts).getBytes(UTF_8);
+  }
+
   private LargeStringConstantFactory() {}
 }
@@ -40,6 +40,21 @@ public final class Names {
   public static final String META_INF_PLUGIN_PATH =
       "META-INF/services/com.google.template.soy.plugins";
 
+  /**
+   * Lists the public templates in a jar, these are preloaded when {@code
+   * SoySauceBuilder.withEagerLoading} is used.
+   */
+  public static final String META_INF_TEMPLATES_PATH =
+      "META-INF/services/com.google.template.soy.templates";
+
+  /**
+   * Lists every class generated for the templates in a jar in the internal name format used by
+   * class list files, so it can be appended to the class list passed to {@code
+   * -XX:SharedClassListFile} when creating a class data sharing archive.
+   */
+  public static final String META_INF_CLASSLIST_PATH =
+      "META-INF/services/com.google.template.soy.classlist";
+
   static final String CLASS_PREFIX = "com.google.template.soy.jbcsrc.gen.";
   public static final String INTERNAL_CLASS_PREFIX = CLASS_PREFIX.replace('.', '/');
 
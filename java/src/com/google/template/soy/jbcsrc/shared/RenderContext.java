@@ -38,6 +38,7 @@ import com.google.template.soy.data.restricted.StringData;
 import com.google.template.soy.data.restricted.UndefinedData;
 import com.google.template.soy.internal.i18n.BidiGlobalDir;
 import com.google.template.soy.jbcsrc.api.AdvisingAppendable;
+import com.google.template.soy.jbcsrc.api.SoyRenderListener;
 import com.google.template.soy.jbcsrc.shared.CompiledTemplates.TemplateData;
 import com.google.template.soy.logging.LoggableElementMetadata;
 import com.google.template.soy.msgs.GrammaticalGender;
@@ -57,6 +58,7 @@ import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Set;
 import java.util.function.Function;
+import java.util.function.LongSupplier;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import javax.annotation.Nonnull;
@@ -104,6 +106,12 @@ public final class RenderContext implements ContextStore, NodeBuilder.SoftLimitO
 
   private ContextNode currentContext = ContextNode.createRoot();
 
+  /** Lazily initialized on the first deltemplate call. */
+  @Nullable private DelTemplateDispatch delTemplateDispatch;
+
+  @Nullable private final SoyRenderListener renderListener;
+  private final LongSupplier outputLength;
+
   public RenderContext(
       CompiledTemplates templates,
       ImmutableMap<String, SoyJavaPrintDirective> soyJavaDirectivesMap,
@@ -117,7 +125,9 @@ public final class RenderContext implements ContextStore, NodeBuilder.SoftLimitO
       @Nullable SoyCssTracker cssTracker,
       @Nullable SoyJsIdTracker jsIdTracker,
       GrammaticalGender viewerGrammaticalGender,
-      ContextNode initialContext) {
+      ContextNode initialContext,
+      @Nullable SoyRenderListener renderListener,
+      @Nullable LongSupplier outputLength) {
     this.templates = templates;
     this.soyJavaDirectivesMap = soyJavaDirectivesMap;
     this.pluginInstances = pluginInstances;
@@ -131,9 +141,52 @@ public final class RenderContext implements ContextStore, NodeBuilder.SoftLimitO
     this.jsIdTracker = jsIdTracker;
     this.viewerGrammaticalGender = viewerGrammaticalGender;
     this.currentContext = initialContext;
+    this.renderListener = renderListener;
+    this.outputLength = outputLength == null ? () -> 0 : outputLength;
     verify(viewerGrammaticalGender != null);
   }
 
+  /**
+   * Called by every template when it starts or resumes rendering, {@code frame} is the frame the
+   * template was called with.
+   */
+  public void enterTemplate(String templateName, @Nullable StackFrame frame) {
+    var listener = renderListener;
+    if (listener != null) {
+      if (frame == null) {
+        listener.onTemplateEnter(templateName, outputLength.getAsLong());
+      } else {
+        listener.onTemplateResume(templateName, outputLength.getAsLong());
+      }
+    }
+  }
+
+  /**
+   * Called by every template when it returns, {@code frame} is the value being returned. This is
+   * static so that it can be called with the frame already on the operand stack.
+   */
+  @Nullable
+  public static StackFrame exitTemplate(
+      @Nullable StackFrame frame, RenderContext context, String templateName) {
+    var listener = context.renderListener;
+    if (listener != null) {
+      if (frame == null) {
+        listener.onTemplateExit(templateName, context.outputLength.getAsLong());
+      } else {
+        listener.onTemplateDetach(templateName, context.outputLength.getAsLong());
+      }
+    }
+    return frame;
+  }
+
+  /** Called when control returns to the caller of the render. */
+  public void onOutputFlushed() {
+    var listener = renderListener;
+    if (listener != null) {
+      listener.onOutputFlushed(outputLength.getAsLong());
+    }
+  }
+
   @Nullable
   public ULocale getLocale() {
     return msgBundle.getLocale();
@@ -257,7 +310,11 @@ public final class RenderContext implements ContextStore, NodeBuilder.SoftLimitO
   }
 
   public CompiledTemplate getDelTemplate(String calleeName, String variant) {
-    CompiledTemplate callee = templates.selectDelTemplate(calleeName, variant, activeModSelector);
+    DelTemplateDispatch dispatch = delTemplateDispatch;
+    if (dispatch == null) {
+      this.delTemplateDispatch = dispatch = templates.getDelTemplateDispatch(activeModSelector);
+    }
+    CompiledTemplate callee = dispatch.select(calleeName, variant, activeModSelector);
     if (callee == null) {
       throw new IllegalArgumentException(
           "Found no active impl for delegate call to \""
@@ -609,6 +666,8 @@ public final class RenderContext implements ContextStore, NodeBuilder.SoftLimitO
     private SoyJsIdTracker jsIdTracker;
     private SoyInjector ijData;
     private GrammaticalGender viewerGrammaticalGender = GrammaticalGender.UNSPECIFIED;
+    private SoyRenderListener renderListener;
+    private LongSupplier outputLength;
 
     public Builder(
         CompiledTemplates templates,
@@ -679,6 +738,13 @@ public final class RenderContext implements ContextStore, NodeBuilder.SoftLimitO
       return this;
     }
 
+    @CanIgnoreReturnValue
+    public Builder withRenderListener(SoyRenderListener renderListener, LongSupplier outputLength) {
+      this.renderListener = checkNotNull(renderListener);
+      this.outputLength = checkNotNull(outputLength);
+      return this;
+    }
+
     public RenderContext build() {
       return new RenderContext(
           templates,
@@ -693,7 +759,9 @@ public final class RenderContext implements ContextStore, NodeBuilder.SoftLimitO
           cssTracker,
           jsIdTracker,
           viewerGrammaticalGender,
-          ContextNode.createRoot());
+          ContextNode.createRoot(),
+          renderListener,
+          outputLength);
     }
   }
 }
@@ -50,6 +50,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.google.errorprone.annotations.CheckReturnValue;
 import com.google.template.soy.base.SourceLocation;
 import com.google.template.soy.base.SourceLocation.ByteSpan;
@@ -220,6 +221,21 @@ public class GenJsCodeVisitor extends AbstractSoyNodeVisitor<List<String>> {
 
   public List<String> gen(
       SoyFileSetNode node, FileSetMetadata registry, ErrorReporter errorReporter) {
+    return genInternal(node, registry, errorReporter);
+  }
+
+  /**
+   * Generates the JS for a single file.
+   *
+   * <p>Visitors keep state while generating code, so to generate files concurrently each thread
+   * needs its own visitor.
+   */
+  public String gen(SoyFileNode node, FileSetMetadata registry, ErrorReporter errorReporter) {
+    return Iterables.getOnlyElement(genInternal(node, registry, errorReporter));
+  }
+
+  private List<String> genInternal(
+      SoyNode node, FileSetMetadata registry, ErrorReporter errorReporter) {
     this.fileSetMetadata = checkNotNull(registry);
     this.errorReporter = checkNotNull(errorReporter);
     state.enterFileSet(fileSetMetadata, errorReporter);
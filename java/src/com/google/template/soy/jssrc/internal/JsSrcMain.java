@@ -17,6 +17,7 @@
 package com.google.template.soy.jssrc.internal;
 
 import com.google.common.base.Preconditions;
+import com.google.template.soy.base.internal.ParallelFileTasks;
 import com.google.template.soy.error.ErrorReporter;
 import com.google.template.soy.internal.i18n.BidiGlobalDir;
 import com.google.template.soy.internal.i18n.SoyBidiUtils;
@@ -38,12 +39,24 @@ public class JsSrcMain {
 
   private final SoyTypeRegistry typeRegistry;
 
+  private final int compilerThreads;
+
   /**
    * @param apiCallScope The scope object that manages the API call scope.
    */
   public JsSrcMain(SoyScopedData.Enterable apiCallScope, SoyTypeRegistry typeRegistry) {
+    this(apiCallScope, typeRegistry, /* compilerThreads= */ 1);
+  }
+
+  /**
+   * @param apiCallScope The scope object that manages the API call scope.
+   * @param compilerThreads The number of threads to generate files with.
+   */
+  public JsSrcMain(
+      SoyScopedData.Enterable apiCallScope, SoyTypeRegistry typeRegistry, int compilerThreads) {
     this.apiCallScope = apiCallScope;
     this.typeRegistry = typeRegistry;
+    this.compilerThreads = compilerThreads;
   }
 
   /**
@@ -86,8 +99,18 @@ public class JsSrcMain {
       }
       // Combine raw text nodes before codegen.
       new CombineConsecutiveRawTextNodesPass().run(soyTree);
-      return createVisitor(jsSrcOptions, typeRegistry, inScope.getBidiGlobalDir(), errorReporter)
-          .gen(soyTree, fileSetMetadata, errorReporter);
+      BidiGlobalDir dir = inScope.getBidiGlobalDir();
+      // Each file gets its own visitor so that files can be generated in parallel.
+      return ParallelFileTasks.run(
+          soyTree.getChildren(),
+          compilerThreads,
+          errorReporter,
+          (file, reporter) -> {
+            try (SoyScopedData.InScope unused = apiCallScope.enter(dir)) {
+              return createVisitor(jsSrcOptions, typeRegistry, dir, reporter)
+                  .gen(file, fileSetMetadata, reporter);
+            }
+          });
     }
   }
 
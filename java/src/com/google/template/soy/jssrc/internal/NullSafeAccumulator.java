@@ -41,10 +41,10 @@ import com.google.template.soy.plugin.javascript.restricted.SoyJavaScriptSourceF
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Deque;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import javax.annotation.Nullable;
 
@@ -284,8 +284,9 @@ final class NullSafeAccumulator {
   }
 
   private static final class FunctionCall extends ChainAccess {
+    // Concurrent since files may be generated in parallel.
     private static final Map<SoyJavaScriptSourceFunction, Boolean> hasNativeNullSafeCache =
-        new HashMap<>();
+        new ConcurrentHashMap<>();
 
     private final SoyJavaScriptSourceFunctionInvocation funct;
 
@@ -27,6 +27,7 @@ import com.google.common.collect.Iterables;
 import com.google.common.collect.Sets;
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import com.google.template.soy.base.SourceLogicalPath;
+import com.google.template.soy.base.internal.CompilerProfiler;
 import com.google.template.soy.base.internal.IdGenerator;
 import com.google.template.soy.conformance.ValidatedConformanceConfig;
 import com.google.template.soy.css.CssRegistry;
@@ -70,8 +71,9 @@ import javax.annotation.Nullable;
  *
  * <p>The reason things have been divided in this way is partially to create consistency and also to
  * enable other compiler features. For example, for in process (server side) compilation we can
- * cache the results of the single file passes to speed up edit-refresh flows. Also, theoretically,
- * we could run the single file passes for each file in parallel.
+ * cache the results of the single file passes to speed up edit-refresh flows. Also, the parse
+ * passes for each file can be run in parallel, see {@link #runParsePasses(SoyFileNode, IdGenerator,
+ * ErrorReporter)}.
  *
  * <p>A note on ordering. There is no real structure to the ordering of the passes beyond what is
  * documented in comments. Many passes do rely on running before/after a different pass (e.g. {@link
@@ -113,23 +115,61 @@ public final class PassManager {
   @VisibleForTesting final ImmutableList<CompilerFilePass> parsePasses;
   @VisibleForTesting final ImmutableList<CompilerFileSetPass> passes;
   private final AccumulatedState accumulatedState;
+  private final CompilerProfiler profiler;
 
   private PassManager(
       ImmutableList<CompilerFilePass> parsePasses,
       ImmutableList<CompilerFileSetPass> passes,
-      AccumulatedState accumulatedState) {
+      AccumulatedState accumulatedState,
+      CompilerProfiler profiler) {
     this.parsePasses = parsePasses;
     this.passes = passes;
     this.accumulatedState = accumulatedState;
+    this.profiler = profiler;
     checkOrdering();
   }
 
   public void runParsePasses(SoyFileNode file, IdGenerator nodeIdGen) {
     for (CompilerFilePass pass : parsePasses) {
+      runFilePass(pass, file, nodeIdGen);
+    }
+  }
+
+  /**
+   * Runs the parse passes reporting errors to the given reporter instead of the one this pass
+   * manager was configured with.
+   *
+   * <p>The parse passes depend on nothing but the file and the reporter, so this is safe to call
+   * concurrently for different files as long as each call has its own reporter.
+   */
+  public void runParsePasses(
+      SoyFileNode file, IdGenerator nodeIdGen, ErrorReporter errorReporter) {
+    for (CompilerFilePass pass : createParsePasses(errorReporter)) {
+      runFilePass(pass, file, nodeIdGen);
+    }
+  }
+
+  private void runFilePass(CompilerFilePass pass, SoyFileNode file, IdGenerator nodeIdGen) {
+    try (CompilerProfiler.Span span =
+        profiler.start("pass", pass.name(), file.getFilePath().path())) {
       pass.run(file, nodeIdGen);
     }
   }
 
+  private Result runPass(
+      CompilerFileSetPass pass, ImmutableList<SoyFileNode> sourceFiles, IdGenerator idGenerator) {
+    if (profiler.isEnabled() && pass instanceof CompilerFilePass) {
+      // Record each file separately, so that slow files stand out.
+      for (SoyFileNode file : sourceFiles) {
+        runFilePass((CompilerFilePass) pass, file, idGenerator);
+      }
+      return Result.CONTINUE;
+    }
+    try (CompilerProfiler.Span span = profiler.start("pass", pass.name())) {
+      return pass.run(sourceFiles, idGenerator);
+    }
+  }
+
   /**
    * Runs passes that are needed before we can add the fileset's files to the {TemplateRegistry}.
    *
@@ -149,7 +189,7 @@ public final class PassManager {
       if (pass instanceof TopologicallyOrdered) {
         sourceFilesThisPass = accumulatedState.topologicallyOrderedFiles;
       }
-      if (pass.run(sourceFilesThisPass, idGenerator) == Result.STOP) {
+      if (runPass(pass, sourceFilesThisPass, idGenerator) == Result.STOP) {
         return Result.STOP;
       }
     }
@@ -311,6 +351,7 @@ public final class PassManager {
     private boolean addHtmlAttributesForDebugging = true;
     private boolean addHtmlAttributesForLogging = true;
     private AstRewrites astRewrites = AstRewrites.ALL;
+    private CompilerProfiler profiler = CompilerProfiler.NONE;
     private final Map<Class<? extends CompilerPass>, PassContinuationRule>
         passContinuationRegistry = new HashMap<>();
     private boolean building;
@@ -323,6 +364,13 @@ public final class PassManager {
       return this;
     }
 
+    /** Records how long each pass takes on each file. */
+    @CanIgnoreReturnValue
+    public Builder setProfiler(CompilerProfiler profiler) {
+      this.profiler = checkNotNull(profiler);
+      return this;
+    }
+
     @CanIgnoreReturnValue
     public Builder setSoyPrintDirectives(
         ImmutableList<? extends SoyPrintDirective> printDirectives) {
@@ -779,7 +827,8 @@ public final class PassManager {
         throw new IllegalStateException(
             "The following continuation rules don't match any pass: " + passContinuationRegistry);
       }
-      return new PassManager(createParsePasses(errorReporter), passes.build(), accumulatedState);
+      return new PassManager(
+          createParsePasses(errorReporter), passes.build(), accumulatedState, profiler);
     }
 
     /** Adds the pass as a file set pass. */
@@ -22,6 +22,7 @@ import com.google.auto.value.AutoValue;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
 import com.google.template.soy.compilermetrics.Impression;
 import com.google.template.soy.error.ErrorReporter;
 import com.google.template.soy.error.SoyErrorKind;
@@ -119,7 +120,7 @@ final class GenPyCodeVisitor extends AbstractSoyNodeVisitor<List<String>> {
 
   GenPyCodeVisitor(
       SoyPySrcOptions pySrcOptions,
-      ImmutableMap<String, String> currentManifest,
+      ImmutableMap<String, String> namespaceManifest,
       FileSetMetadata fileSetMetadata,
       IsComputableAsPyExprVisitor isComputableAsPyExprVisitor,
       GenPyExprsVisitorFactory genPyExprsVisitorFactory,
@@ -131,15 +132,24 @@ final class GenPyCodeVisitor extends AbstractSoyNodeVisitor<List<String>> {
     this.genPyExprsVisitorFactory = genPyExprsVisitorFactory;
     this.genPyCallExprVisitor = genPyCallExprVisitor;
     this.pluginValueFactory = pluginValueFactory;
-
-    this.namespaceManifest =
-        new ImmutableMap.Builder<String, String>()
-            .putAll(pySrcOptions.getNamespaceManifest())
-            .putAll(currentManifest)
-            .buildOrThrow();
+    this.namespaceManifest = namespaceManifest;
   }
 
   public List<String> gen(SoyFileSetNode node, ErrorReporter errorReporter) {
+    return genInternal(node, errorReporter);
+  }
+
+  /**
+   * Generates the Python for a single file.
+   *
+   * <p>Visitors keep state while generating code, so to generate files concurrently each thread
+   * needs its own visitor.
+   */
+  public String gen(SoyFileNode node, ErrorReporter errorReporter) {
+    return Iterables.getOnlyElement(genInternal(node, errorReporter));
+  }
+
+  private List<String> genInternal(SoyNode node, ErrorReporter errorReporter) {
     // All these fields should move into Impl but are currently exposed for tests.
     pyCodeBuilder = null;
     genPyExprsVisitor = null;
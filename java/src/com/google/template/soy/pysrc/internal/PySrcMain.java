@@ -23,6 +23,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.io.Files;
 import com.google.template.soy.base.SourceLocation;
 import com.google.template.soy.base.SourceLogicalPath;
+import com.google.template.soy.base.internal.ParallelFileTasks;
 import com.google.template.soy.compilermetrics.Impression;
 import com.google.template.soy.error.ErrorReporter;
 import com.google.template.soy.error.SoyErrorKind;
@@ -56,8 +57,15 @@ public final class PySrcMain {
   /** The scope object that manages the API call scope. */
   private final SoyScopedData.Enterable apiCallScope;
 
+  private final int compilerThreads;
+
   public PySrcMain(SoyScopedData.Enterable apiCallScope) {
+    this(apiCallScope, /* compilerThreads= */ 1);
+  }
+
+  public PySrcMain(SoyScopedData.Enterable apiCallScope, int compilerThreads) {
     this.apiCallScope = apiCallScope;
+    this.compilerThreads = compilerThreads;
   }
 
   /**
@@ -81,13 +89,21 @@ public final class PySrcMain {
     BidiGlobalDir bidiGlobalDir =
         SoyBidiUtils.decodeBidiGlobalDirFromPyOptions(pySrcOptions.getBidiIsRtlFn());
     try (SoyScopedData.InScope inScope = apiCallScope.enter(/* msgBundle= */ null, bidiGlobalDir)) {
-      return createVisitor(
-              pySrcOptions,
-              inScope.getBidiGlobalDir(),
-              errorReporter,
-              currentManifest,
-              fileSetMetadata)
-          .gen(soyTree, errorReporter);
+      BidiGlobalDir dir = inScope.getBidiGlobalDir();
+      ImmutableMap<String, String> namespaceManifest =
+          namespaceManifest(pySrcOptions, currentManifest);
+      // Each file gets its own visitor so that files can be generated in parallel.
+      return ParallelFileTasks.run(
+          soyTree.getChildren(),
+          compilerThreads,
+          errorReporter,
+          (file, reporter) -> {
+            try (SoyScopedData.InScope unused = apiCallScope.enter(dir)) {
+              return createVisitorWithNamespaceManifest(
+                      pySrcOptions, dir, reporter, namespaceManifest, fileSetMetadata)
+                  .gen(file, reporter);
+            }
+          });
     }
   }
 
@@ -174,6 +190,15 @@ public final class PySrcMain {
     return namespaces.build();
   }
 
+  /** Combines the manifest for the current sources with the one from the options. */
+  private static ImmutableMap<String, String> namespaceManifest(
+      SoyPySrcOptions pySrcOptions, ImmutableMap<String, String> currentManifest) {
+    return new ImmutableMap.Builder<String, String>()
+        .putAll(pySrcOptions.getNamespaceManifest())
+        .putAll(currentManifest)
+        .buildOrThrow();
+  }
+
   @VisibleForTesting
   static GenPyCodeVisitor createVisitor(
       SoyPySrcOptions pySrcOptions,
@@ -181,6 +206,20 @@ public final class PySrcMain {
       ErrorReporter errorReporter,
       ImmutableMap<String, String> currentManifest,
       FileSetMetadata fileSetMetadata) {
+    return createVisitorWithNamespaceManifest(
+        pySrcOptions,
+        bidiGlobalDir,
+        errorReporter,
+        namespaceManifest(pySrcOptions, currentManifest),
+        fileSetMetadata);
+  }
+
+  private static GenPyCodeVisitor createVisitorWithNamespaceManifest(
+      SoyPySrcOptions pySrcOptions,
+      BidiGlobalDir bidiGlobalDir,
+      ErrorReporter errorReporter,
+      ImmutableMap<String, String> namespaceManifest,
+      FileSetMetadata fileSetMetadata) {
     IsComputableAsPyExprVisitor isComputableAsPyExprs = new IsComputableAsPyExprVisitor();
     // There is a circular dependency between the GenPyExprsVisitorFactory and GenPyCallExprVisitor
     // here we resolve it with a mutable field in a custom provider
@@ -202,7 +241,7 @@ public final class PySrcMain {
 
     return new GenPyCodeVisitor(
         pySrcOptions,
-        currentManifest,
+        namespaceManifest,
         fileSetMetadata,
         isComputableAsPyExprs,
         genPyExprsFactory,
@@ -16,12 +16,17 @@
 
 package com.google.template.soy.shared;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.primitives.Ints;
 import com.google.template.soy.base.SourceLogicalPath;
 import com.google.template.soy.base.internal.SoyFileSupplier.Version;
 import com.google.template.soy.soytree.SoyFileNode;
-import java.util.HashMap;
-import java.util.Map;
-import javax.annotation.concurrent.GuardedBy;
+import com.google.template.soy.soytree.SoyTreeUtils;
+import java.util.concurrent.atomic.LongAdder;
 import javax.inject.Inject;
 
 /**
@@ -31,8 +36,19 @@ import javax.inject.Inject;
  * over and over if the contents have not changed. This helps the development experience when there
  * are a large number of files, most of which aren't changing during the edit/reflect loop. This
  * does not help in a production startup-compilation setup; instead, this will just use more memory.
+ *
+ * <p>Files are identified by their path and {@link Version}, suppliers that want entries to be
+ * shared whenever the contents are the same should use {@link Version#forContentHash}. At most one
+ * version of each file is kept.
+ *
+ * <p>The cache is safe to share between compiles running concurrently. Its size is bounded by a
+ * budget measured in AST nodes, which is roughly proportional to the memory the trees retain. When
+ * the budget is exceeded the least recently used files are evicted.
  */
 public final class SoyAstCache {
+  /** The default budget, in AST nodes. */
+  public static final long DEFAULT_MAX_NODES = 4_000_000;
+
   /** A {@link SoyFileNode} with an associated {@link Version}. */
   private static final class VersionedFile {
     final SoyFileNode file;
@@ -46,11 +62,34 @@ public final class SoyAstCache {
   }
 
   /** Cache mapping file path to the result of the last parse. */
-  @GuardedBy("this")
-  private final Map<SourceLogicalPath, VersionedFile> cache = new HashMap<>();
+  private final Cache<SourceLogicalPath, VersionedFile> cache;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
 
   @Inject
-  public SoyAstCache() {}
+  public SoyAstCache() {
+    this(DEFAULT_MAX_NODES);
+  }
+
+  /** @param maxNodes The budget for the cache, in AST nodes. */
+  public SoyAstCache(long maxNodes) {
+    checkArgument(maxNodes > 0, "maxNodes must be positive: %s", maxNodes);
+    this.cache =
+        CacheBuilder.newBuilder()
+            .maximumWeight(maxNodes)
+            .weigher(
+                (SourceLogicalPath fileName, VersionedFile entry) ->
+                    Ints.saturatedCast(SoyTreeUtils.allNodes(entry.file).count()))
+            .removalListener(
+                notification -> {
+                  if (notification.wasEvicted()) {
+                    evictions.increment();
+                  }
+                })
+            .build();
+  }
 
   /**
    * Stores a cached version of the AST.
@@ -60,7 +99,7 @@ public final class SoyAstCache {
    * @param file The parsed file. Caution this is stored as is, callers should take care to make
    *     defensive copies.
    */
-  public synchronized void put(SourceLogicalPath fileName, Version version, SoyFileNode file) {
+  public void put(SourceLogicalPath fileName, Version version, SoyFileNode file) {
     cache.put(fileName, new VersionedFile(file, version));
   }
 
@@ -72,16 +111,19 @@ public final class SoyAstCache {
    * @return The stored version of the tree. Callers should take care to make copies to avoid
    *     corrupting data in the cache.
    */
-  public synchronized SoyFileNode get(SourceLogicalPath fileName, Version version) {
-    VersionedFile entry = cache.get(fileName);
+  public SoyFileNode get(SourceLogicalPath fileName, Version version) {
+    VersionedFile entry = cache.getIfPresent(fileName);
     if (entry != null) {
       if (entry.version.equals(version)) {
+        hits.increment();
         return entry.file;
       } else {
-        // Aggressively purge to save memory.
-        cache.remove(fileName);
+        // Aggressively purge to save memory. Only remove this entry, a concurrent compile may have
+        // already replaced it.
+        cache.asMap().remove(fileName, entry);
       }
     }
+    misses.increment();
     return null;
   }
 
@@ -89,8 +131,27 @@ public final class SoyAstCache {
    * Evicts a file from the cache, normally this is not necessary but it can be used to limit memory
    * consumption.
    */
-  public synchronized boolean evict(SourceLogicalPath fileName) {
-    VersionedFile entry = cache.remove(fileName);
+  public boolean evict(SourceLogicalPath fileName) {
+    VersionedFile entry = cache.asMap().remove(fileName);
     return entry != null;
   }
+
+  /** Returns the number of files in the cache. */
+  public long size() {
+    return cache.size();
+  }
+
+  /**
+   * Returns the hit, miss and eviction counts of the cache. A lookup for a file whose version has
+   * changed counts as a miss, evictions only count files removed to stay within the budget.
+   */
+  public CacheStats stats() {
+    return new CacheStats(
+        hits.sum(),
+        misses.sum(),
+        /* loadSuccessCount= */ 0,
+        /* loadExceptionCount= */ 0,
+        /* totalLoadTime= */ 0,
+        evictions.sum());
+  }
 }
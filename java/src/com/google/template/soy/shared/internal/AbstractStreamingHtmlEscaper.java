@@ -24,6 +24,7 @@ import com.google.template.soy.data.Dir;
 import com.google.template.soy.data.LoggingAdvisingAppendable;
 import com.google.template.soy.data.LoggingFunctionInvocation;
 import com.google.template.soy.data.SanitizedContent.ContentKind;
+import com.google.template.soy.data.restricted.StringData;
 import com.google.template.soy.shared.internal.EscapingConventions.CrossLanguageStringXform;
 import java.io.IOException;
 import java.util.function.Function;
@@ -87,6 +88,12 @@ public abstract class AbstractStreamingHtmlEscaper extends LoggingAdvisingAppend
     return this;
   }
 
+  /** See {@link Sanitizers#appendEscaped}. */
+  final boolean appendEscaped(StringData value) throws IOException {
+    var transform = this.transform;
+    return transform != null && Sanitizers.escapeOnto(value, transform, delegate);
+  }
+
   @CanIgnoreReturnValue
   @Override
   public final LoggingAdvisingAppendable appendLoggingFunctionInvocation(
@@ -19,6 +19,7 @@ package com.google.template.soy.shared.internal;
 import static com.google.common.base.Preconditions.checkState;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Ascii;
 import com.google.common.collect.ImmutableList;
 import com.google.common.escape.Escaper;
@@ -123,6 +124,13 @@ public final class EscapingConventions {
     private static final String[] EMPTY_ASCII_ESCAPES_ARRAY = new String[0x80];
     private final String directiveName;
     @Nullable private final Pattern valueFilter;
+
+    /**
+     * A DFA equivalent to {@link #valueFilter}, or {@code null} if there is no filter or it uses
+     * syntax the DFA doesn't support.
+     */
+    @Nullable private final ValueFilterDfa valueFilterDfa;
+
     private final ImmutableList<Escape> escapes;
 
     /**
@@ -137,6 +145,14 @@ public final class EscapingConventions {
     /** Values in a sparse mapping corresponding to {@link #nonAsciiCodeUnits}. */
     @Nullable protected final String[] nonAsciiEscapes;
 
+    /**
+     * A bit set of all the code units in {@link #escapes}, sized to fit the largest one. This lets
+     * the escape loops skip over runs of code units that don't need escaping with a single lookup
+     * each, rather than a binary search over {@link #nonAsciiCodeUnits} for every non ASCII code
+     * unit.
+     */
+    private final long[] escapedCodeUnits;
+
     protected CrossLanguageStringXform() {
       this(null);
     }
@@ -155,6 +171,7 @@ public final class EscapingConventions {
           ("|" + Ascii.toLowerCase(simpleName.charAt(0)) + simpleName.substring(1));
 
       this.valueFilter = valueFilter;
+      this.valueFilterDfa = valueFilter == null ? null : ValueFilterDfa.compile(valueFilter);
       this.escapes = defineEscapes();
 
       // Now create the maps used by the escape methods.  The below depends on defineEscapes()
@@ -187,6 +204,12 @@ public final class EscapingConventions {
         nonAsciiCodeUnits = null;
         nonAsciiEscapes = null;
       }
+      // Create the bit set, the last escape has the largest code unit.
+      escapedCodeUnits =
+          new long[numEscapes == 0 ? 0 : (escapes.get(numEscapes - 1).plainText >> 6) + 1];
+      for (Escape escape : escapes) {
+        escapedCodeUnits[escape.plainText >> 6] |= 1L << escape.plainText;
+      }
     }
 
     /** Returns the escapes used for this escaper. */
@@ -220,6 +243,24 @@ public final class EscapingConventions {
       return valueFilter;
     }
 
+    /**
+     * Returns whether the {@link #getValueFilter value filter} accepts the value, i.e. whether
+     * {@code getValueFilter().matcher(value).find()}, or true if there is no filter. This doesn't
+     * backtrack or allocate when the filter could be compiled to a DFA.
+     */
+    public final boolean isAcceptedByValueFilter(CharSequence value) {
+      if (valueFilterDfa != null) {
+        return valueFilterDfa.matches(value);
+      }
+      return valueFilter == null || valueFilter.matcher(value).find();
+    }
+
+    /** Whether {@link #isAcceptedByValueFilter} uses a DFA rather than the regular expression. */
+    @VisibleForTesting
+    final boolean hasValueFilterDfa() {
+      return valueFilterDfa != null;
+    }
+
     /** The escapes need to translate the input language to the output language. */
     public final ImmutableList<Escape> getEscapes() {
       return escapes;
@@ -247,23 +288,37 @@ public final class EscapingConventions {
      * <p>If the string is already escaped, this method will return the original string.
      */
     public String escape(String string) {
-      var escapesByCodeUnit = this.escapesByCodeUnit;
-      var nonAsciiCodeUnits = this.nonAsciiCodeUnits;
-      for (int i = 0, n = string.length(); i < n; ++i) {
-        char c = string.charAt(i);
-        if (c < 0x80) { // Use the dense map.
-          String esc = escapesByCodeUnit[c];
-          if (esc != null) {
-            return escapeOntoStringBuilderStartingAt(string, i);
-          }
-        } else { // Use the sparse map.
-          int index = nonAsciiCodeUnits != null ? Arrays.binarySearch(nonAsciiCodeUnits, c) : -1;
-          if (index >= 0) {
-            return escapeOntoStringBuilderStartingAt(string, i);
-          }
+      int length = string.length();
+      int i = indexOfFirstEscaped(string, 0, length);
+      return i == length ? string : escapeOntoStringBuilderStartingAt(string, i);
+    }
+
+    /**
+     * Returns the index of the first code unit in {@code s} between {@code start} (inclusive) and
+     * {@code end} (exclusive) that has an escape in {@link #getEscapes}, or {@code end} if there is
+     * none.
+     */
+    final int indexOfFirstEscaped(CharSequence s, int start, int end) {
+      for (int i = start; i < end; ++i) {
+        if (isEscaped(s.charAt(i))) {
+          return i;
         }
       }
-      return string;
+      return end;
+    }
+
+    /** Returns whether the code unit has an escape in {@link #getEscapes}. */
+    final boolean isEscaped(char c) {
+      var escapedCodeUnits = this.escapedCodeUnits;
+      int word = c >> 6;
+      return word < escapedCodeUnits.length && (escapedCodeUnits[word] & (1L << c)) != 0;
+    }
+
+    /** Returns the escape for a code unit that has one in {@link #getEscapes}. */
+    private String escapeFor(char c) {
+      return c < 0x80
+          ? escapesByCodeUnit[c]
+          : nonAsciiEscapes[Arrays.binarySearch(nonAsciiCodeUnits, c)];
     }
 
     /**
@@ -314,16 +369,8 @@ public final class EscapingConventions {
 
     @CanIgnoreReturnValue
     public Appendable escapeOnto(char c, Appendable out) throws IOException {
-      if (c < 0x80) { // Use the dense map.
-        String esc = escapesByCodeUnit[c];
-        if (esc != null) {
-          return out.append(esc);
-        }
-      } else {
-        int index = Arrays.binarySearch(nonAsciiCodeUnits, c);
-        if (index >= 0) { // Found in the sparse map.
-          return out.append(nonAsciiEscapes[index]);
-        }
+      if (isEscaped(c)) {
+        return out.append(escapeFor(c));
       }
       return out.append(c);
     }
@@ -344,23 +391,8 @@ public final class EscapingConventions {
     public Appendable escapeOnto(CharSequence s, Appendable out, int start, int end)
         throws IOException {
       int pos = start;
-      var escapesByCodeUnit = this.escapesByCodeUnit;
-      var nonAsciiCodeUnits = this.nonAsciiCodeUnits;
-      for (int i = start; i < end; ++i) {
-        char c = s.charAt(i);
-        if (c < 0x80) { // Use the dense map.
-          String esc = escapesByCodeUnit[c];
-          if (esc != null) {
-            out.append(s, pos, i).append(esc);
-            pos = i + 1;
-          }
-        } else { // Use the sparse map.
-          int index = Arrays.binarySearch(nonAsciiCodeUnits, c);
-          if (index >= 0) {
-            out.append(s, pos, i).append(nonAsciiEscapes[index]);
-            pos = i + 1;
-          }
-        }
+      for (int i; (i = indexOfFirstEscaped(s, pos, end)) < end; pos = i + 1) {
+        out.append(s, pos, i).append(escapeFor(s.charAt(i)));
       }
       return out.append(s, pos, end);
     }
@@ -376,17 +408,6 @@ public final class EscapingConventions {
       checkState(nonAsciiCodeUnits == null);
     }
 
-    @Override
-    public final String escape(String string) {
-      for (int i = 0, n = string.length(); i < n; ++i) {
-        char c = string.charAt(i);
-        if (c < 0x80 && escapesByCodeUnit[c] != null) {
-          return escapeOntoStringBuilderStartingAt(string, i);
-        }
-      }
-      return string;
-    }
-
     @Override
     @CanIgnoreReturnValue
     public final Appendable escapeOnto(char c, Appendable out) throws IOException {
@@ -403,13 +424,8 @@ public final class EscapingConventions {
         throws IOException {
       int pos = start;
       var localEscapes = this.escapesByCodeUnit;
-      for (int i = start; i < end; ++i) {
-        char c = s.charAt(i);
-        String escape;
-        if (c < 0x80 && (escape = localEscapes[c]) != null) {
-          out.append(s, pos, i).append(escape);
-          pos = i + 1;
-        }
+      for (int i; (i = indexOfFirstEscaped(s, pos, end)) < end; pos = i + 1) {
+        out.append(s, pos, i).append(localEscapes[s.charAt(i)]);
       }
       return out.append(s, pos, end);
     }
@@ -737,13 +753,9 @@ public final class EscapingConventions {
 
     @Override
     public final String escape(String string) {
-      for (int i = 0, n = string.length(); i < n; ++i) {
-        var escaped = escapeChar(string.charAt(i));
-        if (escaped != null) {
-          return escapeOntoStringBuilderStartingAt(string, i);
-        }
-      }
-      return string;
+      int length = string.length();
+      int i = indexOfFirstEscaped(string, 0, length);
+      return i == length ? string : escapeOntoStringBuilderStartingAt(string, i);
     }
 
     @Override
@@ -761,14 +773,8 @@ public final class EscapingConventions {
     public final Appendable escapeOnto(CharSequence s, Appendable out, int start, int end)
         throws IOException {
       int pos = start;
-
-      for (int i = start; i < end; ++i) {
-        char c = s.charAt(i);
-        String escape = escapeChar(c);
-        if (escape != null) {
-          out.append(s, pos, i).append(escape);
-          pos = i + 1;
-        }
+      for (int i; (i = indexOfFirstEscaped(s, pos, end)) < end; pos = i + 1) {
+        out.append(s, pos, i).append(escapeChar(s.charAt(i)));
       }
       return out.append(s, pos, end);
     }
@@ -1527,14 +1533,6 @@ public final class EscapingConventions {
           // terminated by a right angle bracket.
           "<" + HTML_TAG_FIRST_TOKEN_STR + "(?:[^>'\"]|\"[^\"]*\"|'[^']*')*>");
 
-  /**
-   * Used by custom loops in Java and JS. Matches the beginning of an HTML comment or element,
-   * assuming that the previous character is a '<'. e.g. matches "!--" (comment), "b" (open tag),
-   * "/b" (close tag). Must be used with {@link java.util.regex.Matcher#region}.
-   */
-  public static final Pattern HTML_TAG_FIRST_TOKEN =
-      Pattern.compile("^" + HTML_TAG_FIRST_TOKEN_STR);
-
   /**
    * Convert an ASCII string to full-width. Full-width characters are in Unicode page U+FFxx and are
    * used to allow ASCII characters to be embedded in written Chinese without breaking alignment --
@@ -0,0 +1,330 @@
+/*
+ * Copyright 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.shared.internal;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Ascii;
+import com.google.common.base.Strings;
+import com.google.template.soy.shared.internal.EscapingConventions.CrossLanguageStringXform;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import javax.annotation.Nullable;
+
+/**
+ * Removes the tags that aren't in a {@link TagWhitelist} from HTML and normalizes the text between
+ * them, as a state machine that can be fed the HTML a chunk at a time.
+ *
+ * <p>Text is normalized and written out as soon as it is seen, only the tag currently being parsed
+ * is buffered. Tags are balanced incrementally by dropping close tags for unopened tags and
+ * emitting close tags for any still open tags when the input is {@link #finish finished}.
+ */
+final class HtmlTagStripper {
+  private enum State {
+    /** Outside of a tag. */
+    TEXT,
+    /** Just after a {@code <}. */
+    TAG_START,
+    /** Just after a {@code </}. */
+    CLOSE_TAG_START,
+    /** In the name of a tag. */
+    TAG_NAME,
+    /** In a tag, after its name. */
+    TAG,
+    /** In a quoted string in a tag. */
+    TAG_QUOTE
+  }
+
+  private final Appendable out;
+  @Nullable private final TagWhitelist safeTags;
+  private final CrossLanguageStringXform normalizer;
+  private final int maxTagLength;
+
+  private State state = State.TEXT;
+
+  /** The text of the tag being parsed, starting at its {@code <}. */
+  private final StringBuilder tag = new StringBuilder();
+
+  /** The bounds of the tag name in {@link #tag}, or -1 if there is no name. */
+  private int tagNameStart = -1;
+
+  private int tagNameEnd = -1;
+
+  /** The quote char that will end the current {@link State#TAG_QUOTE}. */
+  private char quote;
+
+  /**
+   * Whether the text so far ended with an {@code &} that hasn't been written out yet. It is
+   * normalized to {@code &amp;} if a {@code <} follows it, so that {@code "&<b>amp;</b>"} can't
+   * turn into {@code "&amp;"}.
+   */
+  private boolean pendingAmpersand;
+
+  /** The whitelisted tags that are open, in order. */
+  private final List<String> openTags = new ArrayList<>();
+
+  private int openListTagCount;
+
+  /** A reusable view of a single char, for {@link #append(char)}. */
+  private final char[] singleChar = new char[1];
+
+  private final CharBuffer singleCharBuffer = CharBuffer.wrap(singleChar);
+
+  /**
+   * @param out Receives the stripped HTML.
+   * @param safeTags The tags that are allowed in the output, or {@code null} to strip all tags.
+   * @param normalizer Normalizes the text between tags.
+   * @param maxTagLength The longest a tag can be. Once a {@code <} is followed by more than this
+   *     many chars without the tag ending it is treated as text, which bounds the memory used.
+   */
+  HtmlTagStripper(
+      Appendable out,
+      @Nullable TagWhitelist safeTags,
+      CrossLanguageStringXform normalizer,
+      int maxTagLength) {
+    this.out = checkNotNull(out);
+    this.safeTags = safeTags;
+    this.normalizer = checkNotNull(normalizer);
+    this.maxTagLength = maxTagLength;
+  }
+
+  /** Strips the tags from the next char of HTML. */
+  void append(char c) throws IOException {
+    singleChar[0] = c;
+    append(singleCharBuffer, 0, 1);
+  }
+
+  /** Strips the tags from the given range of the next chunk of HTML. */
+  void append(CharSequence s, int start, int end) throws IOException {
+    int i = start;
+    while (i < end) {
+      char c = s.charAt(i);
+      switch (state) {
+        case TEXT:
+          i = appendText(s, i, end);
+          break;
+        case TAG_START:
+          if (c == '!') {
+            tag.append(c);
+            state = State.TAG;
+            i++;
+          } else if (c == '/') {
+            tag.append(c);
+            state = State.CLOSE_TAG_START;
+            i++;
+          } else if (isAsciiLetter(c)) {
+            tagNameStart = tag.length();
+            tag.append(c);
+            state = State.TAG_NAME;
+            i++;
+          } else {
+            backtrack();
+          }
+          break;
+        case CLOSE_TAG_START:
+          if (isAsciiLetter(c)) {
+            tagNameStart = tag.length();
+            tag.append(c);
+            state = State.TAG_NAME;
+            i++;
+          } else {
+            backtrack();
+          }
+          break;
+        case TAG_NAME:
+          if (isAsciiLetter(c) || (c >= '0' && c <= '9') || c == ':' || c == '-') {
+            tag.append(c);
+            i++;
+          } else {
+            // Leave the char for the TAG state.
+            tagNameEnd = tag.length();
+            state = State.TAG;
+          }
+          break;
+        case TAG:
+          tag.append(c);
+          i++;
+          if (c == '\'' || c == '"') {
+            quote = c;
+            state = State.TAG_QUOTE;
+          } else if (c == '>') {
+            endTag();
+          }
+          break;
+        case TAG_QUOTE:
+          tag.append(c);
+          i++;
+          if (c == quote) {
+            state = State.TAG;
+          }
+          break;
+      }
+      if (tag.length() > maxTagLength) {
+        backtrack();
+      }
+    }
+  }
+
+  /**
+   * Writes out the text starting at {@code start} up to the next tag, and returns the index after
+   * the text.
+   */
+  private int appendText(CharSequence s, int start, int end) throws IOException {
+    int lt = start;
+    while (lt < end && s.charAt(lt) != '<') {
+      lt++;
+    }
+    if (pendingAmpersand) {
+      pendingAmpersand = false;
+      out.append(lt == start ? "&amp;" : "&");
+    }
+    boolean endsWithAmpersand = lt > start && s.charAt(lt - 1) == '&';
+    normalizer.escapeOnto(s, out, start, endsWithAmpersand ? lt - 1 : lt);
+    if (lt == end) {
+      // The text may continue in the next chunk.
+      pendingAmpersand = endsWithAmpersand;
+      return end;
+    }
+    if (endsWithAmpersand) {
+      out.append("&amp;");
+    }
+    tag.append('<');
+    state = State.TAG_START;
+    return lt + 1;
+  }
+
+  /**
+   * Called when the tag being parsed turns out not to be one. Writes out its {@code <} as text and
+   * parses the rest of it again, since it may contain tags itself, e.g. {@code <b'<b>}.
+   */
+  private void backtrack() throws IOException {
+    String rest = tag.substring(1);
+    resetTag();
+    normalizer.escapeOnto('<', out);
+    append(rest, 0, rest.length());
+  }
+
+  private void resetTag() {
+    state = State.TEXT;
+    tag.setLength(0);
+    tagNameStart = -1;
+    tagNameEnd = -1;
+  }
+
+  /** Writes out the tag that was just parsed, if it is whitelisted. */
+  private void endTag() throws IOException {
+    if (safeTags != null && tagNameStart >= 0) {
+      // Use Ascii so that <I> works when the default locale is Turkish
+      String tagName = Ascii.toLowerCase(tag.substring(tagNameStart, tagNameEnd));
+      if (safeTags.isSafeTag(tagName)) {
+        if (tag.charAt(1) == '/') {
+          endCloseTag(tagName);
+        } else {
+          endOpenTag(tagName);
+        }
+      }
+    }
+    resetTag();
+  }
+
+  private void endCloseTag(String tagName) throws IOException {
+    int lastIdx = openTags.lastIndexOf(tagName);
+    if (lastIdx >= 0) {
+      // Close contained tags as well. If we didn't, then we would convert "<ul><li></ul>" to
+      // "<ul><li></ul></li>" which could lead to broken layout for embedding HTML that uses lists
+      // for formatting. This leads to observably different behavior for adoption-agency dependent
+      // tag combinations like "<b><i>Foo</b> Bar</b>" but fails safe.
+      // http://www.whatwg.org/specs/web-apps/current-work/multipage/the-end.html#misnested-tags:-b-i-/b-/i
+      closeTags(lastIdx);
+    }
+  }
+
+  private void endOpenTag(String tagName) throws IOException {
+    // Only allow whitelisted <li> through if it is nested in a parent <ol> or <ul>.
+    if (openListTagCount == 0 && "li".equals(tagName)) {
+      return;
+    }
+    if (isListTag(tagName)) {
+      openListTagCount++;
+    }
+    out.append('<').append(tagName);
+
+    // Most attributes are dropped, but the dir attribute is preserved if it exists.
+    Matcher attributeMatcher = Sanitizers.HTML_ATTRIBUTE_PATTERN.matcher(tag);
+    while (attributeMatcher.find()) {
+      String attributeName = attributeMatcher.group(1);
+      if (!Strings.isNullOrEmpty(attributeName) && Ascii.equalsIgnoreCase(attributeName, "dir")) {
+        String dir = attributeMatcher.group(2);
+        if (!Strings.isNullOrEmpty(dir)) {
+          // Strip quotes if the attribute value was quoted.
+          if (dir.charAt(0) == '\'' || dir.charAt(0) == '"') {
+            dir = dir.substring(1, dir.length() - 1);
+          }
+          dir = Ascii.toLowerCase(dir);
+          if ("ltr".equals(dir) || "rtl".equals(dir) || "auto".equals(dir)) {
+            out.append(" dir=\"").append(dir).append("\"");
+          }
+        }
+        break;
+      }
+    }
+    out.append('>');
+
+    // Keep track of tags that need closing.
+    if (!Sanitizers.HTML5_VOID_ELEMENTS.contains(tagName)) {
+      openTags.add(tagName);
+    }
+  }
+
+  /** Writes close tags for the open tags starting at the given index, innermost first. */
+  private void closeTags(int fromIndex) throws IOException {
+    for (int i = openTags.size(); --i >= fromIndex; ) {
+      String tagName = openTags.remove(i);
+      if (isListTag(tagName)) {
+        openListTagCount--;
+      }
+      out.append("</").append(tagName).append('>');
+    }
+  }
+
+  /**
+   * Ends the input. Any unfinished tag is treated as text, and close tags are emitted for any
+   * still open tags so that e.g. {@code <table>} can't break the layout of the embedding HTML. The
+   * stripper can then be reused for new input.
+   */
+  void finish() throws IOException {
+    while (state != State.TEXT) {
+      backtrack();
+    }
+    if (pendingAmpersand) {
+      pendingAmpersand = false;
+      out.append('&');
+    }
+    closeTags(0);
+  }
+
+  private static boolean isListTag(String tagName) {
+    return "ol".equals(tagName) || "ul".equals(tagName);
+  }
+
+  private static boolean isAsciiLetter(char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+  }
+}
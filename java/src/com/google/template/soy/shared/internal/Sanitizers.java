@@ -17,14 +17,12 @@
 package com.google.template.soy.shared.internal;
 
 import static com.google.common.flogger.StackSize.MEDIUM;
-import static com.google.template.soy.shared.internal.EscapingConventions.HTML_TAG_FIRST_TOKEN;
 import static java.lang.Math.min;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Ascii;
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
-import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.escape.Escaper;
@@ -43,16 +41,12 @@ import com.google.template.soy.data.UnsafeSanitizedContentOrdainer;
 import com.google.template.soy.data.restricted.BooleanData;
 import com.google.template.soy.data.restricted.NullData;
 import com.google.template.soy.data.restricted.NumberData;
+import com.google.template.soy.data.restricted.StringData;
 import com.google.template.soy.shared.internal.TagWhitelist.OptionalSafeTag;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicReference;
-import java.util.function.BiFunction;
 import java.util.function.Function;
-import java.util.regex.Matcher;
+import java.util.function.UnaryOperator;
 import java.util.regex.Pattern;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -77,7 +71,7 @@ public final class Sanitizers {
     if (isSanitizedContentOfKind(value, SanitizedContent.ContentKind.HTML)) {
       return value.coerceToString();
     }
-    return escapeHtml(value.coerceToString());
+    return escape(value, ESCAPE_HTML_BIT, Sanitizers::escapeHtml);
   }
 
   /** Converts plain text to HTML by entity escaping. */
@@ -165,16 +159,43 @@ public final class Sanitizers {
     return new CleanHtmlAppendable(delegate, optionalSafeTags);
   }
 
+  /**
+   * The longest tag that {@link CleanHtmlAppendable} buffers while parsing it, longer ones are
+   * treated as text.
+   */
+  private static final int MAX_STREAMING_TAG_LENGTH = 4096;
+
+  /**
+   * Cleans non HTML content as it is appended rather than buffering the whole value, so only the
+   * tag currently being parsed is held in memory.
+   */
   private static final class CleanHtmlAppendable extends LoggingAdvisingAppendable {
-    private final Collection<? extends OptionalSafeTag> optionalSafeTags;
+    private final TagWhitelist safeTags;
     private final LoggingAdvisingAppendable delegate;
-    private final StringBuilder buffer = new StringBuilder();
+
+    /** Cleans the current value, created when its first char is appended. */
+    @Nullable private HtmlTagStripper stripper;
 
     CleanHtmlAppendable(
         LoggingAdvisingAppendable delegate,
         Collection<? extends OptionalSafeTag> optionalSafeTags) {
       this.delegate = delegate;
-      this.optionalSafeTags = optionalSafeTags;
+      this.safeTags = TagWhitelist.FORMATTING.withOptionalSafeTags(optionalSafeTags);
+    }
+
+    private HtmlTagStripper stripper() {
+      var stripper = this.stripper;
+      if (stripper == null) {
+        stripper =
+            new HtmlTagStripper(
+                delegate.setKindAndDirectionality(
+                    ContentKind.HTML, getSanitizedContentDirectionality()),
+                safeTags,
+                EscapingConventions.NormalizeHtml.INSTANCE,
+                MAX_STREAMING_TAG_LENGTH);
+        this.stripper = stripper;
+      }
+      return stripper;
     }
 
     @Override
@@ -190,7 +211,7 @@ public final class Sanitizers {
     @Override
     public LoggingAdvisingAppendable append(char c) throws IOException {
       if (!isInHtml()) {
-        buffer.append(c);
+        stripper().append(c);
       } else {
         delegate.append(c);
       }
@@ -201,7 +222,9 @@ public final class Sanitizers {
     public LoggingAdvisingAppendable append(CharSequence csq, int start, int end)
         throws IOException {
       if (!isInHtml()) {
-        buffer.append(csq, start, end);
+        if (start < end) {
+          stripper().append(csq, start, end);
+        }
       } else {
         delegate.append(csq, start, end);
       }
@@ -211,7 +234,9 @@ public final class Sanitizers {
     @Override
     public LoggingAdvisingAppendable append(CharSequence csq) throws IOException {
       if (!isInHtml()) {
-        buffer.append(csq);
+        if (csq.length() > 0) {
+          stripper().append(csq, 0, csq.length());
+        }
       } else {
         delegate.append(csq);
       }
@@ -255,13 +280,10 @@ public final class Sanitizers {
 
     @Override
     public void flushBuffers(int depth) throws IOException {
-      if (!isInHtml()) {
-        StringBuilder buffer = this.buffer;
-        if (buffer.length() > 0) {
-          cleanHtml(buffer.toString(), getSanitizedContentDirectionality(), optionalSafeTags)
-              .render(delegate);
-          buffer.setLength(0);
-        }
+      var stripper = this.stripper;
+      if (stripper != null) {
+        stripper.finish();
+        this.stripper = null;
       }
       if (depth > 0) {
         delegate.flushBuffers(depth - 1);
@@ -380,7 +402,7 @@ public final class Sanitizers {
       // |escapeHtmlAttribute should only be used on attribute values that cannot have tags.
       return stripHtmlTags(value.coerceToString(), null, true);
     }
-    return escapeHtmlAttribute(value.coerceToString());
+    return escape(value, ESCAPE_HTML_BIT, Sanitizers::escapeHtmlAttribute);
   }
 
   /**
@@ -465,7 +487,7 @@ public final class Sanitizers {
   @Nonnull
   public static String escapeJsString(SoyValue value) {
     value = normalizeNull(value);
-    return escapeJsString(value.coerceToString());
+    return escape(value, ESCAPE_JS_STRING_BIT, Sanitizers::escapeJsString);
   }
 
   /** Converts plain text to the body of a JavaScript string by using {@code \n} style escapes. */
@@ -601,7 +623,7 @@ public final class Sanitizers {
   @Nonnull
   public static String escapeUri(SoyValue value) {
     value = normalizeNull(value);
-    return escapeUri(value.coerceToString());
+    return escape(value, ESCAPE_URI_BIT, Sanitizers::escapeUri);
   }
 
   /** Converts plain text to a piece of a URI by percent encoding the string as UTF-8 bytes. */
@@ -658,7 +680,7 @@ public final class Sanitizers {
    */
   @Nonnull
   public static String filterNormalizeUri(String value) {
-    if (EscapingConventions.FilterNormalizeUri.INSTANCE.getValueFilter().matcher(value).find()) {
+    if (EscapingConventions.FilterNormalizeUri.INSTANCE.isAcceptedByValueFilter(value)) {
       return EscapingConventions.FilterNormalizeUri.INSTANCE.escape(value);
     }
     logger.atWarning().withStackTrace(MEDIUM).log(
@@ -688,10 +710,7 @@ public final class Sanitizers {
    */
   @Nonnull
   public static String filterNormalizeMediaUri(String value) {
-    if (EscapingConventions.FilterNormalizeMediaUri.INSTANCE
-        .getValueFilter()
-        .matcher(value)
-        .find()) {
+    if (EscapingConventions.FilterNormalizeMediaUri.INSTANCE.isAcceptedByValueFilter(value)) {
       return EscapingConventions.FilterNormalizeMediaUri.INSTANCE.escape(value);
     }
     logger.atWarning().withStackTrace(MEDIUM).log(
@@ -796,7 +815,7 @@ public final class Sanitizers {
   /** Makes sure that the given input is a data URI corresponding to an image. */
   @Nonnull
   public static SanitizedContent filterImageDataUri(String value) {
-    if (EscapingConventions.FilterImageDataUri.INSTANCE.getValueFilter().matcher(value).find()) {
+    if (EscapingConventions.FilterImageDataUri.INSTANCE.isAcceptedByValueFilter(value)) {
       // NOTE: No need to escape.
       return UnsafeSanitizedContentOrdainer.ordainAsSafe(value, ContentKind.URI);
     }
@@ -817,7 +836,7 @@ public final class Sanitizers {
   /** Makes sure that the given input is a sip URI. */
   @Nonnull
   public static SanitizedContent filterSipUri(String value) {
-    if (EscapingConventions.FilterSipUri.INSTANCE.getValueFilter().matcher(value).find()) {
+    if (EscapingConventions.FilterSipUri.INSTANCE.isAcceptedByValueFilter(value)) {
       // NOTE: No need to escape. Escaping for other contexts (e.g. HTML) happen after this.
       return UnsafeSanitizedContentOrdainer.ordainAsSafe(value, ContentKind.URI);
     }
@@ -837,7 +856,7 @@ public final class Sanitizers {
   /** Makes sure that the given input is a sms URI. */
   @Nonnull
   public static SanitizedContent filterSmsUri(String value) {
-    if (EscapingConventions.FilterSmsUri.INSTANCE.getValueFilter().matcher(value).find()) {
+    if (EscapingConventions.FilterSmsUri.INSTANCE.isAcceptedByValueFilter(value)) {
       // NOTE: No need to escape. Escaping for other contexts (e.g. HTML) happen after this.
       return UnsafeSanitizedContentOrdainer.ordainAsSafe(value, ContentKind.URI);
     }
@@ -857,7 +876,7 @@ public final class Sanitizers {
   /** Makes sure that the given input is a tel URI. */
   @Nonnull
   public static SanitizedContent filterTelUri(String value) {
-    if (EscapingConventions.FilterTelUri.INSTANCE.getValueFilter().matcher(value).find()) {
+    if (EscapingConventions.FilterTelUri.INSTANCE.isAcceptedByValueFilter(value)) {
       // NOTE: No need to escape. Escaping for other contexts (e.g. HTML) happen after this.
       return UnsafeSanitizedContentOrdainer.ordainAsSafe(value, ContentKind.URI);
     }
@@ -885,7 +904,7 @@ public final class Sanitizers {
    */
   @Nonnull
   public static String filterHtmlAttributes(String value) {
-    if (EscapingConventions.FilterHtmlAttributes.INSTANCE.getValueFilter().matcher(value).find()) {
+    if (EscapingConventions.FilterHtmlAttributes.INSTANCE.isAcceptedByValueFilter(value)) {
       return value;
     }
     logger.atWarning().withStackTrace(MEDIUM).log(
@@ -1002,7 +1021,7 @@ public final class Sanitizers {
   /** Checks that the input is part of the name of an innocuous element. */
   @Nonnull
   public static String filterHtmlElementName(String value) {
-    if (EscapingConventions.FilterHtmlElementName.INSTANCE.getValueFilter().matcher(value).find()) {
+    if (EscapingConventions.FilterHtmlElementName.INSTANCE.isAcceptedByValueFilter(value)) {
       return value;
     }
     logger.atWarning().withStackTrace(MEDIUM).log(
@@ -1019,7 +1038,7 @@ public final class Sanitizers {
 
   @Nonnull
   public static String filterCspNonceValue(String value) {
-    if (EscapingConventions.FilterCspNonceValue.INSTANCE.getValueFilter().matcher(value).find()) {
+    if (EscapingConventions.FilterCspNonceValue.INSTANCE.isAcceptedByValueFilter(value)) {
       return value;
     }
     logger.atWarning().withStackTrace(MEDIUM).log(
@@ -1194,235 +1213,18 @@ public final class Sanitizers {
             ? EscapingConventions.NormalizeHtml.INSTANCE
             : EscapingConventions.NormalizeHtmlNospace.INSTANCE;
 
-    // We do some very simple tag balancing by dropping any close tags for unopened tags and at the
-    // end emitting close tags for any still open tags.
-    // This is sufficient (in HTML) to prevent embedded content with safe tags from breaking layout
-    // when, for example, stripHtmlTags("</table>") is embedded in a page that uses tables for
-    // formatting.
-    AtomicReference<List<String>> openTags = new AtomicReference<>(null);
-    AtomicInteger openListTagCount = new AtomicInteger(0);
-
-    CharSequence replaced =
-        replaceHtmlTags(
-            value,
-            (tag, tagName, startIndex, endIndex) -> {
-              if (safeTags == null || tagName == null) {
-                return "";
-              }
-              tagName = Ascii.toLowerCase(tagName);
-              if (!safeTags.isSafeTag(tagName)) {
-                return "";
-              }
-
-              StringBuilder out = new StringBuilder();
-              // Use locale so that <I> works when the default locale is Turkish
-              boolean isClose = tag.charAt(1) == '/';
-              if (isClose) {
-                if (openTags.get() != null) {
-                  int lastIdx = openTags.get().lastIndexOf(tagName);
-                  if (lastIdx >= 0) {
-                    // Close contained tags as well. If we didn't, then we would convert
-                    // "<ul><li></ul>" to "<ul><li></ul></li>" which could lead to broken layout for
-                    // embedding HTML that uses lists for formatting. This leads to observably
-                    // different behavior for adoption-agency dependent tag combinations like
-                    // "<b><i>Foo</b> Bar</b>" but fails safe.
-                    // http://www.whatwg.org/specs/web-apps/current-work/multipage/the-end.html#misnested-tags:-b-i-/b-/i
-                    List<String> tagsToClose =
-                        openTags.get().subList(lastIdx, openTags.get().size());
-                    for (String tagToClose : tagsToClose) {
-                      if (isListTag(tagToClose)) {
-                        openListTagCount.decrementAndGet();
-                      }
-                    }
-                    out.append(closeTags(tagsToClose));
-                  }
-                }
-              } else {
-                // Only allow whitelisted <li> through if it is nested in a parent <ol> or
-                // <ul>.
-                if (openListTagCount.get() > 0 || !"li".equals(tagName)) {
-                  if (isListTag(tagName)) {
-                    openListTagCount.incrementAndGet();
-                  }
-
-                  // Emit beginning of the opening tag and tag name on the un-normalized
-                  // channel.
-                  out.append('<').append(tagName);
-
-                  // Most attributes are dropped, but the dir attribute is preserved if it exists.
-                  // The attribute matching could be made more generic if more attributes need
-                  // to be whitelisted in the future. There are also probably other utilities in
-                  // common to do such parsing of HTML, but this seemed simple enough and keeps with
-                  // the current spirit of this function of doing custom parsing.
-                  Matcher attributeMatcher = HTML_ATTRIBUTE_PATTERN.matcher(tag);
-                  while (attributeMatcher.find()) {
-                    String attributeName = attributeMatcher.group(1);
-                    if (!Strings.isNullOrEmpty(attributeName)
-                        && Ascii.equalsIgnoreCase(attributeName, "dir")) {
-                      String dir = attributeMatcher.group(2);
-                      if (!Strings.isNullOrEmpty(dir)) {
-                        // Strip quotes if the attribute value was quoted.
-                        if (dir.charAt(0) == '\'' || dir.charAt(0) == '"') {
-                          dir = dir.substring(1, dir.length() - 1);
-                        }
-                        dir = Ascii.toLowerCase(dir);
-                        if ("ltr".equals(dir) || "rtl".equals(dir) || "auto".equals(dir)) {
-                          out.append(" dir=\"").append(dir).append("\"");
-                        }
-                      }
-                      break;
-                    }
-                  }
-
-                  // Emit the end of the opening tag
-                  out.append('>');
-
-                  // Keep track of tags that need closing.
-                  if (!HTML5_VOID_ELEMENTS.contains(tagName)) {
-                    if (openTags.get() == null) {
-                      openTags.set(new ArrayList<>());
-                    }
-                    openTags.get().add(tagName);
-                  }
-                }
-              }
-              return out.toString();
-            },
-            (token, isLast) -> {
-              // More aggressively normalize ampersands at the end of a chunk so that
-              //   "&<b>amp;</b>" -> "&amp;amp;" instead of "&amp;".
-              token = normalizer.escape(token);
-              if (!isLast && token.endsWith("&")) {
-                token = token.substring(0, token.length() - 1) + "&amp;";
-              }
-              return token;
-            });
-
-    // Emit close tags, so that safeTags("<table>") can't break the layout of embedding HTML that
-    // uses tables for layout.
-    if (openTags.get() != null) {
-      replaced += closeTags(openTags.get());
-    }
-    return replaced.toString();
-  }
-
-  private enum State {
-    DEFAULT,
-    TAG;
-  }
-
-  /** Signature for callback passed to replaceHtmlTags() */
-  @FunctionalInterface
-  public interface ReplaceHtmlTagCallback {
-    String apply(String tag, String tagName, int startIndex, int endIndex);
-  }
-
-  public static CharSequence replaceHtmlTags(
-      String s, ReplaceHtmlTagCallback callback, BiFunction<String, Boolean, String> escaper) {
-    StringBuilder buffer = new StringBuilder();
-    int l = s.length();
-
-    State state = State.DEFAULT;
-    StringBuilder tagBuffer = null;
-    String tagName = null;
-    int tagStartIdx = -1;
-
-    int i = 0;
-    while (i < l) {
-      switch (state) {
-        case DEFAULT:
-          int nextLt = s.indexOf('<', i);
-          if (nextLt < 0) {
-            // No more < found, push remaining string on buffer and exit.
-            if (buffer.length() == 0) {
-              return escaper.apply(s, true);
-            }
-            buffer.append(escaper.apply(s.substring(i), true));
-            i = l;
-          } else {
-            // Push up to < onto buffer.
-            buffer.append(escaper.apply(s.substring(i, nextLt), false));
-            tagStartIdx = nextLt;
-            i = nextLt + 1;
-            // Search for required token after <
-            Matcher m = HTML_TAG_FIRST_TOKEN.matcher(s).region(i, s.length());
-            if (m.find()) {
-              tagBuffer = new StringBuilder().append('<').append(m.group(0));
-              tagName = m.group(1);
-              state = State.TAG;
-              i = m.end();
-            } else {
-              // Otherwise push < to the buffer and continue.
-              buffer.append(escaper.apply("<", false));
-            }
-          }
-          break;
-
-        case TAG:
-          char c = s.charAt(i++);
-          switch (c) {
-            case '\'':
-            case '"':
-              // Find the corresponding closing quote.
-              int nextQuote = s.indexOf(c, i);
-              if (nextQuote < 0) {
-                // If non closing we will have to backtrack.
-                i = l;
-              } else {
-                // Push full quote token onto tag buffer.
-                tagBuffer.append(c).append(s.substring(i, nextQuote + 1));
-                i = nextQuote + 1;
-              }
-              break;
-
-            case '>':
-              // We found the end of the tag!
-              tagBuffer.append(c);
-              buffer.append(callback.apply(tagBuffer.toString(), tagName, tagStartIdx, i));
-              state = State.DEFAULT;
-              tagBuffer = new StringBuilder();
-              tagName = null;
-              tagStartIdx = -1;
-              break;
-
-            default:
-              tagBuffer.append(c);
-          }
-          break;
-      }
-
-      // Check if we exhausted the input without completing the tag. In this case
-      // we need to backtrack because we may have skipped over fully formed tags
-      // while we thought we were in a tag. e.g.: <b'<b>
-      if (state == State.TAG && i >= l) {
-        // Push the < that started the incomplete tag and backtrack to the next
-        // character.
-        i = tagStartIdx + 1;
-        buffer.append(escaper.apply("<", false));
-        state = State.DEFAULT;
-        tagBuffer = new StringBuilder();
-        tagName = null;
-        tagStartIdx = -1;
-      }
-    }
-
-    return buffer;
-  }
-
-
-  private static String closeTags(List<String> openTags) {
-    StringBuilder out = new StringBuilder();
-    for (int i = openTags.size(); --i >= 0; ) {
-      out.append("</").append(openTags.get(i)).append('>');
+    StringBuilder out = new StringBuilder(value.length());
+    HtmlTagStripper stripper =
+        new HtmlTagStripper(out, safeTags, normalizer, /* maxTagLength= */ Integer.MAX_VALUE);
+    try {
+      stripper.append(value, 0, value.length());
+      stripper.finish();
+    } catch (IOException e) {
+      throw new AssertionError(e); // impossible
     }
-    openTags.clear();
     return out.toString();
   }
 
-  private static boolean isListTag(String tagName) {
-    return "ol".equals(tagName) || "ul".equals(tagName);
-  }
-
   /** From http://www.w3.org/TR/html-markup/syntax.html#syntax-elements */
   public static final ImmutableSet<String> HTML5_VOID_ELEMENTS =
       ImmutableSet.of(
@@ -1692,4 +1494,93 @@ public final class Sanitizers {
   private static SoyValue normalizeNull(@Nullable SoyValue v) {
     return v == null ? NullData.INSTANCE : v;
   }
+
+  // Bits identifying the escapers for StringData.isUnchangedByEscaper. escapeHtml and
+  // escapeHtmlAttribute share a bit since they escape plain text the same way, and the streaming
+  // escapers use the bit of the transform they apply.
+  @VisibleForTesting public static final int ESCAPE_HTML_BIT = 1;
+  @VisibleForTesting public static final int ESCAPE_JS_STRING_BIT = 1 << 1;
+  @VisibleForTesting public static final int ESCAPE_URI_BIT = 1 << 2;
+
+  /**
+   * Escapes the string value of the given value. The same {@link StringData} is often printed
+   * several times in a render, so strings that the escaper leaves unchanged are remembered on the
+   * value and returned as is afterwards.
+   */
+  private static String escape(SoyValue value, int escaperBit, UnaryOperator<String> escaper) {
+    if (value instanceof StringData) {
+      StringData stringData = (StringData) value;
+      String string = stringData.getValue();
+      if (stringData.isUnchangedByEscaper(escaperBit)) {
+        return string;
+      }
+      String escaped = escaper.apply(string);
+      // The escapers return the same instance when nothing needed escaping.
+      if (escaped == string) {
+        stringData.markUnchangedByEscaper(escaperBit);
+      }
+      return escaped;
+    }
+    return escaper.apply(value.coerceToString());
+  }
+
+  /**
+   * Appends a string to an appendable returned by one of the streaming escapers, consulting and
+   * recording the same bits on the value as the {@link SoyValue} escaping functions do.
+   *
+   * @return false if the value must be rendered onto the appendable as usual instead, e.g. because
+   *     the appendable isn't a streaming escaper.
+   */
+  public static boolean appendEscaped(StringData value, LoggingAdvisingAppendable appendable)
+      throws IOException {
+    if (appendable instanceof StreamingEscaper) {
+      return ((StreamingEscaper) appendable).appendEscaped(value);
+    }
+    if (appendable instanceof StreamingAttributeEscaper) {
+      return ((StreamingAttributeEscaper) appendable).appendEscaped(value);
+    }
+    if (appendable instanceof AbstractStreamingHtmlEscaper) {
+      return ((AbstractStreamingHtmlEscaper) appendable).appendEscaped(value);
+    }
+    return false;
+  }
+
+  /**
+   * Appends the value escaped by the given transform to {@code out}, skipping the transform if it
+   * is known to leave the value unchanged.
+   *
+   * @return false if the transform has no bit or the value has to be rendered instead.
+   */
+  static boolean escapeOnto(
+      StringData value,
+      EscapingConventions.CrossLanguageStringXform transform,
+      LoggingAdvisingAppendable out)
+      throws IOException {
+    int escaperBit = escaperBit(transform);
+    if (escaperBit == 0 || value.isBuffered()) {
+      return false;
+    }
+    String string = value.getValue();
+    if (!value.isUnchangedByEscaper(escaperBit)) {
+      String escaped = transform.escape(string);
+      if (escaped != string) {
+        out.append(escaped);
+        return true;
+      }
+      value.markUnchangedByEscaper(escaperBit);
+    }
+    out.append(string);
+    return true;
+  }
+
+  /** Returns the bit for the escaper that applies the given transform, or 0 if there is none. */
+  private static int escaperBit(EscapingConventions.CrossLanguageStringXform transform) {
+    if (transform == EscapingConventions.EscapeHtml.INSTANCE) {
+      return ESCAPE_HTML_BIT;
+    }
+    if (transform == EscapingConventions.EscapeJsString.INSTANCE) {
+      return ESCAPE_JS_STRING_BIT;
+    }
+    return 0;
+  }
 }
@@ -25,6 +25,7 @@ import com.google.template.soy.data.LogStatement;
 import com.google.template.soy.data.LoggingAdvisingAppendable;
 import com.google.template.soy.data.LoggingFunctionInvocation;
 import com.google.template.soy.data.SanitizedContent.ContentKind;
+import com.google.template.soy.data.restricted.StringData;
 import com.google.template.soy.shared.internal.EscapingConventions.CrossLanguageStringXform;
 import java.io.IOException;
 import java.util.function.Function;
@@ -109,6 +110,12 @@ public final class StreamingAttributeEscaper extends LoggingAdvisingAppendable {
     return this;
   }
 
+  /** See {@link Sanitizers#appendEscaped}. */
+  boolean appendEscaped(StringData value) throws IOException {
+    // Strings are buffered rather than escaped once HTML content has been seen.
+    return buffer == null && Sanitizers.escapeOnto(value, transform, delegate);
+  }
+
   @CanIgnoreReturnValue
   @Override
   public LoggingAdvisingAppendable appendLoggingFunctionInvocation(
@@ -23,6 +23,7 @@ import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import com.google.template.soy.data.LogStatement;
 import com.google.template.soy.data.LoggingAdvisingAppendable;
 import com.google.template.soy.data.LoggingFunctionInvocation;
+import com.google.template.soy.data.restricted.StringData;
 import com.google.template.soy.shared.internal.EscapingConventions.CrossLanguageStringXform;
 import java.io.IOException;
 import java.util.function.Function;
@@ -80,6 +81,11 @@ public final class StreamingEscaper extends LoggingAdvisingAppendable {
     return this;
   }
 
+  /** See {@link Sanitizers#appendEscaped}. */
+  boolean appendEscaped(StringData value) throws IOException {
+    return Sanitizers.escapeOnto(value, transform, delegate);
+  }
+
   @CanIgnoreReturnValue
   @Override
   public LoggingAdvisingAppendable appendLoggingFunctionInvocation(
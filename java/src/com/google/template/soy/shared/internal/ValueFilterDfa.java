@@ -0,0 +1,800 @@
+/*
+ * Copyright 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.shared.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+
+/**
+ * A deterministic automaton that decides whether {@code pattern.matcher(value).find()} is true for
+ * one of the {@link EscapingConventions.CrossLanguageStringXform#getValueFilter value filters}.
+ *
+ * <p>Matching is linear in the length of the value, doesn't backtrack and doesn't allocate. Only
+ * the subset of the regular expression syntax used by the value filters is supported:
+ *
+ * <ul>
+ *   <li>A top level alternation where every alternative starts with {@code ^}, optionally followed
+ *       by a single negative lookahead {@code (?!...)}.
+ *   <li>Literals, character classes with ranges and negation, {@code \s}, {@code \d}, non capturing
+ *       groups, alternation and the greedy {@code * + ? {n,m}} quantifiers.
+ *   <li>The {@code \z} and {@code $} anchors.
+ *   <li>The {@link Pattern#CASE_INSENSITIVE} flag, which folds ASCII letters only.
+ * </ul>
+ *
+ * <p>{@link #compile} returns {@code null} for anything else, so callers can fall back to the
+ * regular expression.
+ */
+final class ValueFilterDfa {
+
+  /** The most states a DFA can have before {@link #compile} gives up. */
+  private static final int MAX_STATES = 2048;
+
+  private static final int DEAD = -1;
+  private static final int ACCEPT = -2;
+
+  /** The first char that isn't ASCII, chars below this are classified by a table lookup. */
+  private static final int ASCII_LIMIT = 0x80;
+
+  /** The equivalence class of each ASCII char. */
+  private final byte[] asciiClasses;
+
+  /** The starts of the ranges of non ASCII chars in each equivalence class, in order. */
+  private final int[] nonAsciiRangeStarts;
+
+  private final byte[] nonAsciiRangeClasses;
+
+  private final int numClasses;
+
+  /**
+   * The transitions, indexed by {@code state * numClasses + charClass}. The target is {@link #DEAD}
+   * or {@link #ACCEPT} when the outcome no longer depends on the rest of the value.
+   */
+  private final int[] transitions;
+
+  /** Whether the value is accepted if it ends in each state. */
+  private final boolean[] accepting;
+
+  /** The start state, or {@link #DEAD} or {@link #ACCEPT}. */
+  private final int start;
+
+  private ValueFilterDfa(
+      byte[] asciiClasses,
+      int[] nonAsciiRangeStarts,
+      byte[] nonAsciiRangeClasses,
+      int numClasses,
+      int[] transitions,
+      boolean[] accepting,
+      int start) {
+    this.asciiClasses = asciiClasses;
+    this.nonAsciiRangeStarts = nonAsciiRangeStarts;
+    this.nonAsciiRangeClasses = nonAsciiRangeClasses;
+    this.numClasses = numClasses;
+    this.transitions = transitions;
+    this.accepting = accepting;
+    this.start = start;
+  }
+
+  /** Returns whether {@code pattern.matcher(value).find()} is true. */
+  boolean matches(CharSequence value) {
+    int state = start;
+    for (int i = 0, n = value.length(); i < n && state >= 0; i++) {
+      state = transitions[state * numClasses + classOf(value.charAt(i))];
+    }
+    return state == ACCEPT || (state >= 0 && accepting[state]);
+  }
+
+  private int classOf(char c) {
+    if (c < ASCII_LIMIT) {
+      return asciiClasses[c];
+    }
+    int index = Arrays.binarySearch(nonAsciiRangeStarts, c);
+    return nonAsciiRangeClasses[index >= 0 ? index : -index - 2];
+  }
+
+  /**
+   * Compiles the pattern into a DFA, or returns {@code null} if it uses syntax that isn't
+   * supported.
+   */
+  @Nullable
+  static ValueFilterDfa compile(Pattern pattern) {
+    if ((pattern.flags() & ~Pattern.CASE_INSENSITIVE) != 0) {
+      return null;
+    }
+    List<Alternative> alternatives;
+    try {
+      alternatives =
+          new Parser(pattern.pattern(), (pattern.flags() & Pattern.CASE_INSENSITIVE) != 0)
+              .parseFilter();
+    } catch (UnsupportedSyntaxException e) {
+      return null;
+    }
+    List<Nfa> nfas = new ArrayList<>();
+    for (Alternative alternative : alternatives) {
+      nfas.add(Nfa.forPrefix(alternative.match));
+      if (alternative.negativeLookahead != null) {
+        nfas.add(Nfa.forPrefix(alternative.negativeLookahead));
+      }
+    }
+    return new Builder(alternatives, nfas).build();
+  }
+
+  /** Thrown by the {@link Parser} for syntax that isn't supported. */
+  private static final class UnsupportedSyntaxException extends Exception {
+    UnsupportedSyntaxException(String message) {
+      super(message);
+    }
+  }
+
+  /** A set of chars, as sorted non overlapping {@code [start, end)} ranges. */
+  private static final class CharSet {
+    static final CharSet ALL = new CharSet(new int[] {0, 0x10000});
+
+    final int[] ranges;
+
+    CharSet(int[] ranges) {
+      this.ranges = ranges;
+    }
+
+    static CharSet of(char c) {
+      return new CharSet(new int[] {c, c + 1});
+    }
+
+    /** Builds a set from unsorted, possibly overlapping ranges. */
+    static CharSet union(List<int[]> ranges) {
+      ranges.sort((a, b) -> Integer.compare(a[0], b[0]));
+      List<Integer> merged = new ArrayList<>();
+      for (int[] range : ranges) {
+        int last = merged.size() - 1;
+        if (last > 0 && range[0] <= merged.get(last)) {
+          merged.set(last, Math.max(merged.get(last), range[1]));
+        } else {
+          merged.add(range[0]);
+          merged.add(range[1]);
+        }
+      }
+      return new CharSet(merged.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    CharSet negate() {
+      List<int[]> result = new ArrayList<>();
+      int previousEnd = 0;
+      for (int i = 0; i < ranges.length; i += 2) {
+        if (ranges[i] > previousEnd) {
+          result.add(new int[] {previousEnd, ranges[i]});
+        }
+        previousEnd = ranges[i + 1];
+      }
+      if (previousEnd < 0x10000) {
+        result.add(new int[] {previousEnd, 0x10000});
+      }
+      return union(result);
+    }
+
+    /** Adds the other case of every ASCII letter, like {@link Pattern#CASE_INSENSITIVE}. */
+    CharSet foldAsciiCase() {
+      List<int[]> result = new ArrayList<>();
+      for (int i = 0; i < ranges.length; i += 2) {
+        result.add(new int[] {ranges[i], ranges[i + 1]});
+        addCaseRange(result, ranges[i], ranges[i + 1], 'a', 'z' + 1, 'A' - 'a');
+        addCaseRange(result, ranges[i], ranges[i + 1], 'A', 'Z' + 1, 'a' - 'A');
+      }
+      return union(result);
+    }
+
+    private static void addCaseRange(
+        List<int[]> result, int start, int end, int caseStart, int caseEnd, int delta) {
+      int from = Math.max(start, caseStart);
+      int to = Math.min(end, caseEnd);
+      if (from < to) {
+        result.add(new int[] {from + delta, to + delta});
+      }
+    }
+
+    boolean contains(int c) {
+      for (int i = 0; i < ranges.length; i += 2) {
+        if (c >= ranges[i] && c < ranges[i + 1]) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /** A node in the syntax tree of a regular expression. */
+  private abstract static class Node {}
+
+  private static final class CharNode extends Node {
+    final CharSet chars;
+
+    CharNode(CharSet chars) {
+      this.chars = chars;
+    }
+  }
+
+  /** Matches the empty string, but only at the end of the value. */
+  private static final class EndNode extends Node {}
+
+  private static final class SequenceNode extends Node {
+    final List<Node> nodes;
+
+    SequenceNode(List<Node> nodes) {
+      this.nodes = nodes;
+    }
+  }
+
+  private static final class AlternationNode extends Node {
+    final List<Node> nodes;
+
+    AlternationNode(List<Node> nodes) {
+      this.nodes = nodes;
+    }
+  }
+
+  /** Repeats a node between {@code min} and {@code max} times, {@code max < 0} is unbounded. */
+  private static final class RepeatNode extends Node {
+    final Node node;
+    final int min;
+    final int max;
+
+    RepeatNode(Node node, int min, int max) {
+      this.node = node;
+      this.min = min;
+      this.max = max;
+    }
+  }
+
+  /** A top level alternative of a value filter: {@code ^(?!negativeLookahead)match}. */
+  private static final class Alternative {
+    final Node match;
+    @Nullable final Node negativeLookahead;
+
+    Alternative(Node match, @Nullable Node negativeLookahead) {
+      this.match = match;
+      this.negativeLookahead = negativeLookahead;
+    }
+  }
+
+  /** A recursive descent parser for the supported subset of the regular expression syntax. */
+  private static final class Parser {
+    private final String pattern;
+    private final boolean caseInsensitive;
+    private int pos;
+
+    Parser(String pattern, boolean caseInsensitive) {
+      this.pattern = pattern;
+      this.caseInsensitive = caseInsensitive;
+    }
+
+    List<Alternative> parseFilter() throws UnsupportedSyntaxException {
+      List<Alternative> alternatives = new ArrayList<>();
+      do {
+        expect('^');
+        Node negativeLookahead = null;
+        if (pattern.startsWith("(?!", pos)) {
+          pos += 3;
+          negativeLookahead = parseAlternation();
+          expect(')');
+        }
+        alternatives.add(new Alternative(parseSequence(), negativeLookahead));
+      } while (consume('|'));
+      if (pos != pattern.length()) {
+        throw new UnsupportedSyntaxException("unexpected " + pattern.charAt(pos));
+      }
+      return alternatives;
+    }
+
+    private Node parseAlternation() throws UnsupportedSyntaxException {
+      List<Node> nodes = new ArrayList<>();
+      do {
+        nodes.add(parseSequence());
+      } while (consume('|'));
+      return nodes.size() == 1 ? nodes.get(0) : new AlternationNode(nodes);
+    }
+
+    private Node parseSequence() throws UnsupportedSyntaxException {
+      List<Node> nodes = new ArrayList<>();
+      while (pos < pattern.length() && pattern.charAt(pos) != '|' && pattern.charAt(pos) != ')') {
+        nodes.add(parseQuantified(parseAtom()));
+      }
+      return new SequenceNode(nodes);
+    }
+
+    private Node parseQuantified(Node atom) throws UnsupportedSyntaxException {
+      while (pos < pattern.length()) {
+        char c = pattern.charAt(pos);
+        if (c == '*') {
+          atom = new RepeatNode(atom, 0, -1);
+        } else if (c == '+') {
+          atom = new RepeatNode(atom, 1, -1);
+        } else if (c == '?') {
+          atom = new RepeatNode(atom, 0, 1);
+        } else if (c == '{') {
+          int close = pattern.indexOf('}', pos);
+          if (close < 0) {
+            throw new UnsupportedSyntaxException("unclosed {");
+          }
+          String[] bounds = pattern.substring(pos + 1, close).split(",", -1);
+          try {
+            int min = Integer.parseInt(bounds[0]);
+            int max =
+                bounds.length == 1 ? min : bounds[1].isEmpty() ? -1 : Integer.parseInt(bounds[1]);
+            if (bounds.length > 2 || (max >= 0 && max < min) || min > 16 || max > 16) {
+              throw new UnsupportedSyntaxException("unsupported bounds");
+            }
+            atom = new RepeatNode(atom, min, max);
+          } catch (NumberFormatException e) {
+            throw new UnsupportedSyntaxException("unsupported bounds");
+          }
+          pos = close;
+        } else {
+          return atom;
+        }
+        pos++;
+        if (pos < pattern.length() && (pattern.charAt(pos) == '?' || pattern.charAt(pos) == '+')) {
+          throw new UnsupportedSyntaxException("reluctant or possessive quantifier");
+        }
+      }
+      return atom;
+    }
+
+    private Node parseAtom() throws UnsupportedSyntaxException {
+      char c = pattern.charAt(pos++);
+      switch (c) {
+        case '(':
+          if (!pattern.startsWith("?:", pos)) {
+            throw new UnsupportedSyntaxException("only non capturing groups are supported");
+          }
+          pos += 2;
+          Node group = parseAlternation();
+          expect(')');
+          return group;
+        case '[':
+          return chars(parseClass());
+        case '\\':
+          return parseEscape();
+        case '$':
+          // Like the end of the value, but allowing a final line terminator.
+          return new SequenceNode(
+              List.of(
+                  new AlternationNode(
+                      List.of(
+                          new SequenceNode(List.of()),
+                          new CharNode(charsOf("\n\r\u0085\u2028\u2029")),
+                          new SequenceNode(
+                              List.of(
+                                  new CharNode(CharSet.of('\r')),
+                                  new CharNode(CharSet.of('\n')))))),
+                  new EndNode()));
+        case '.':
+        case '^':
+        case ')':
+        case '*':
+        case '+':
+        case '?':
+        case '{':
+          throw new UnsupportedSyntaxException("unexpected " + c);
+        default:
+          return chars(CharSet.of(c));
+      }
+    }
+
+    private Node parseEscape() throws UnsupportedSyntaxException {
+      char c = pattern.charAt(pos++);
+      if (c == 'z') {
+        return new EndNode();
+      }
+      CharSet predefined = predefinedClass(c);
+      if (predefined != null) {
+        return new CharNode(predefined);
+      }
+      return chars(CharSet.of(literalEscape(c)));
+    }
+
+    private CharSet parseClass() throws UnsupportedSyntaxException {
+      boolean negated = consume('^');
+      List<int[]> ranges = new ArrayList<>();
+      boolean first = true;
+      while (pos < pattern.length() && (first || pattern.charAt(pos) != ']')) {
+        first = false;
+        char c = pattern.charAt(pos++);
+        if (c == '[' || (c == '&' && pattern.startsWith("&", pos))) {
+          throw new UnsupportedSyntaxException("nested classes and intersections");
+        }
+        if (c == '\\') {
+          char escaped = pattern.charAt(pos++);
+          CharSet predefined = predefinedClass(escaped);
+          if (predefined != null) {
+            for (int i = 0; i < predefined.ranges.length; i += 2) {
+              ranges.add(new int[] {predefined.ranges[i], predefined.ranges[i + 1]});
+            }
+            continue;
+          }
+          c = literalEscape(escaped);
+        }
+        if (pos + 1 < pattern.length()
+            && pattern.charAt(pos) == '-'
+            && pattern.charAt(pos + 1) != ']') {
+          pos++;
+          char end = pattern.charAt(pos++);
+          if (end == '\\') {
+            end = literalEscape(pattern.charAt(pos++));
+          } else if (end == '[') {
+            throw new UnsupportedSyntaxException("nested classes");
+          }
+          if (end < c) {
+            throw new UnsupportedSyntaxException("bad range");
+          }
+          ranges.add(new int[] {c, end + 1});
+        } else {
+          ranges.add(new int[] {c, c + 1});
+        }
+      }
+      expect(']');
+      CharSet set = CharSet.union(ranges);
+      if (caseInsensitive) {
+        set = set.foldAsciiCase();
+      }
+      return negated ? set.negate() : set;
+    }
+
+    @Nullable
+    private static CharSet predefinedClass(char c) {
+      switch (c) {
+        case 's':
+          return charsOf(" \t\n\u000B\f\r");
+        case 'd':
+          return new CharSet(new int[] {'0', '9' + 1});
+        default:
+          return null;
+      }
+    }
+
+    private static char literalEscape(char c) throws UnsupportedSyntaxException {
+      if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')) {
+        throw new UnsupportedSyntaxException("unsupported escape \\" + c);
+      }
+      return c;
+    }
+
+    private static CharSet charsOf(String chars) {
+      List<int[]> ranges = new ArrayList<>();
+      for (int i = 0; i < chars.length(); i++) {
+        ranges.add(new int[] {chars.charAt(i), chars.charAt(i) + 1});
+      }
+      return CharSet.union(ranges);
+    }
+
+    private Node chars(CharSet set) {
+      return new CharNode(caseInsensitive ? set.foldAsciiCase() : set);
+    }
+
+    private boolean consume(char c) {
+      if (pos < pattern.length() && pattern.charAt(pos) == c) {
+        pos++;
+        return true;
+      }
+      return false;
+    }
+
+    private void expect(char c) throws UnsupportedSyntaxException {
+      if (!consume(c)) {
+        throw new UnsupportedSyntaxException("expected " + c);
+      }
+    }
+  }
+
+  /**
+   * A nondeterministic automaton that accepts the values with a prefix matching a node. The final
+   * state loops on every char, so once it is reached the value is accepted.
+   */
+  private static final class Nfa {
+    /** The char set of the transition out of each state, or null if there is none. */
+    final List<CharSet> charSets = new ArrayList<>();
+
+    /** The target of the char transition out of each state. */
+    final List<Integer> charTargets = new ArrayList<>();
+
+    /** The epsilon transitions out of each state. */
+    final List<List<Integer>> epsilons = new ArrayList<>();
+
+    /** The epsilon transitions out of each state that can only be taken at the end of a value. */
+    final List<List<Integer>> endEpsilons = new ArrayList<>();
+
+    int start;
+    int end;
+
+    static Nfa forPrefix(Node node) {
+      Nfa nfa = new Nfa();
+      nfa.start = nfa.newState();
+      int matched = nfa.add(node, nfa.start);
+      nfa.end = nfa.newState();
+      nfa.epsilons.get(matched).add(nfa.end);
+      nfa.addCharTransition(nfa.end, CharSet.ALL, nfa.end);
+      return nfa;
+    }
+
+    int size() {
+      return epsilons.size();
+    }
+
+    private int newState() {
+      charSets.add(null);
+      charTargets.add(-1);
+      epsilons.add(new ArrayList<>());
+      endEpsilons.add(new ArrayList<>());
+      return epsilons.size() - 1;
+    }
+
+    private void addCharTransition(int from, CharSet chars, int to) {
+      charSets.set(from, chars);
+      charTargets.set(from, to);
+    }
+
+    /** Adds the states for a node starting at the given state, and returns its end state. */
+    private int add(Node node, int from) {
+      int to = newState();
+      if (node instanceof CharNode) {
+        addCharTransition(from, ((CharNode) node).chars, to);
+      } else if (node instanceof EndNode) {
+        endEpsilons.get(from).add(to);
+      } else if (node instanceof SequenceNode) {
+        int current = from;
+        for (Node child : ((SequenceNode) node).nodes) {
+          current = add(child, current);
+        }
+        epsilons.get(current).add(to);
+      } else if (node instanceof AlternationNode) {
+        for (Node child : ((AlternationNode) node).nodes) {
+          int childStart = newState();
+          epsilons.get(from).add(childStart);
+          epsilons.get(add(child, childStart)).add(to);
+        }
+      } else {
+        RepeatNode repeat = (RepeatNode) node;
+        int current = from;
+        for (int i = 0; i < repeat.min; i++) {
+          current = add(repeat.node, current);
+        }
+        if (repeat.max < 0) {
+          int loop = newState();
+          epsilons.get(current).add(loop);
+          epsilons.get(add(repeat.node, loop)).add(loop);
+          current = loop;
+        } else {
+          for (int i = repeat.min; i < repeat.max; i++) {
+            epsilons.get(current).add(to);
+            current = add(repeat.node, current);
+          }
+        }
+        epsilons.get(current).add(to);
+      }
+      return to;
+    }
+
+    /** Adds the states reachable through epsilon transitions. */
+    BitSet closure(BitSet states, boolean atEnd) {
+      BitSet result = (BitSet) states.clone();
+      List<Integer> work = new ArrayList<>();
+      states.stream().forEach(work::add);
+      while (!work.isEmpty()) {
+        int state = work.remove(work.size() - 1);
+        for (int target : epsilons.get(state)) {
+          if (!result.get(target)) {
+            result.set(target);
+            work.add(target);
+          }
+        }
+        if (atEnd) {
+          for (int target : endEpsilons.get(state)) {
+            if (!result.get(target)) {
+              result.set(target);
+              work.add(target);
+            }
+          }
+        }
+      }
+      return result;
+    }
+
+    BitSet step(BitSet states, int c) {
+      BitSet next = new BitSet();
+      for (int state = states.nextSetBit(0); state >= 0; state = states.nextSetBit(state + 1)) {
+        CharSet chars = charSets.get(state);
+        if (chars != null && chars.contains(c)) {
+          next.set(charTargets.get(state));
+        }
+      }
+      return closure(next, false);
+    }
+
+    boolean accepts(BitSet states) {
+      return states.get(end) || closure(states, true).get(end);
+    }
+  }
+
+  /**
+   * Builds the DFA by running the subset construction on all the NFAs at once, so that the negative
+   * lookaheads can be subtracted from their alternatives.
+   */
+  private static final class Builder {
+    private final List<Alternative> alternatives;
+    private final List<Nfa> nfas;
+
+    /** The DFA states, each is the set of states that each NFA is in. */
+    private final List<List<BitSet>> states = new ArrayList<>();
+
+    private final Map<List<BitSet>, Integer> stateIds = new HashMap<>();
+
+    Builder(List<Alternative> alternatives, List<Nfa> nfas) {
+      this.alternatives = alternatives;
+      this.nfas = nfas;
+    }
+
+    @Nullable
+    ValueFilterDfa build() {
+      // Partition the chars into the ranges that no char set distinguishes between.
+      TreeSet<Integer> boundaries = new TreeSet<>();
+      boundaries.add(0);
+      for (int c = 0; c <= ASCII_LIMIT; c++) {
+        boundaries.add(c);
+      }
+      for (Nfa nfa : nfas) {
+        for (CharSet chars : nfa.charSets) {
+          if (chars != null) {
+            for (int range : chars.ranges) {
+              if (range < 0x10000) {
+                boundaries.add(range);
+              }
+            }
+          }
+        }
+      }
+      int[] rangeStarts = boundaries.stream().mapToInt(Integer::intValue).toArray();
+
+      // Each range is represented by its first char, and ranges that are in exactly the same char
+      // sets share a class.
+      Map<String, Integer> classesBySignature = new HashMap<>();
+      List<Integer> classRepresentatives = new ArrayList<>();
+      byte[] rangeClasses = new byte[rangeStarts.length];
+      for (int i = 0; i < rangeStarts.length; i++) {
+        StringBuilder signature = new StringBuilder();
+        for (Nfa nfa : nfas) {
+          for (CharSet chars : nfa.charSets) {
+            signature.append(chars != null && chars.contains(rangeStarts[i]) ? '1' : '0');
+          }
+        }
+        Integer charClass = classesBySignature.get(signature.toString());
+        if (charClass == null) {
+          charClass = classRepresentatives.size();
+          if (charClass > Byte.MAX_VALUE) {
+            return null;
+          }
+          classesBySignature.put(signature.toString(), charClass);
+          classRepresentatives.add(rangeStarts[i]);
+        }
+        rangeClasses[i] = (byte) (int) charClass;
+      }
+      int numClasses = classRepresentatives.size();
+      byte[] asciiClasses = Arrays.copyOf(rangeClasses, ASCII_LIMIT);
+      int[] nonAsciiRangeStarts = Arrays.copyOfRange(rangeStarts, ASCII_LIMIT, rangeStarts.length);
+      byte[] nonAsciiRangeClasses =
+          Arrays.copyOfRange(rangeClasses, ASCII_LIMIT, rangeClasses.length);
+
+      // The subset construction.
+      List<BitSet> initial = new ArrayList<>();
+      for (Nfa nfa : nfas) {
+        BitSet start = new BitSet();
+        start.set(nfa.start);
+        initial.add(nfa.closure(start, false));
+      }
+      stateId(initial);
+      List<int[]> rows = new ArrayList<>();
+      for (int state = 0; state < states.size(); state++) {
+        if (states.size() > MAX_STATES) {
+          return null;
+        }
+        List<BitSet> current = states.get(state);
+        int[] row = new int[numClasses];
+        for (int charClass = 0; charClass < numClasses; charClass++) {
+          List<BitSet> next = new ArrayList<>();
+          for (int i = 0; i < nfas.size(); i++) {
+            next.add(nfas.get(i).step(current.get(i), classRepresentatives.get(charClass)));
+          }
+          row[charClass] = stateId(next);
+        }
+        rows.add(row);
+      }
+      boolean[] accepting = new boolean[states.size()];
+      for (int state = 0; state < states.size(); state++) {
+        accepting[state] = accepts(states.get(state));
+      }
+
+      // Find the states where the outcome no longer depends on the rest of the value, so matching
+      // can stop early.
+      boolean[] canAccept = accepting.clone();
+      boolean[] canReject = new boolean[states.size()];
+      for (int state = 0; state < states.size(); state++) {
+        canReject[state] = !accepting[state];
+      }
+      for (boolean changed = true; changed; ) {
+        changed = false;
+        for (int state = 0; state < states.size(); state++) {
+          for (int target : rows.get(state)) {
+            if (canAccept[target] && !canAccept[state]) {
+              canAccept[state] = true;
+              changed = true;
+            }
+            if (canReject[target] && !canReject[state]) {
+              canReject[state] = true;
+              changed = true;
+            }
+          }
+        }
+      }
+      int[] transitions = new int[states.size() * numClasses];
+      for (int state = 0; state < states.size(); state++) {
+        for (int charClass = 0; charClass < numClasses; charClass++) {
+          int target = rows.get(state)[charClass];
+          transitions[state * numClasses + charClass] =
+              !canReject[target] ? ACCEPT : !canAccept[target] ? DEAD : target;
+        }
+      }
+      int start = !canReject[0] ? ACCEPT : !canAccept[0] ? DEAD : 0;
+      return new ValueFilterDfa(
+          asciiClasses,
+          nonAsciiRangeStarts,
+          nonAsciiRangeClasses,
+          numClasses,
+          transitions,
+          accepting,
+          start);
+    }
+
+    private int stateId(List<BitSet> state) {
+      Integer id = stateIds.get(state);
+      if (id == null) {
+        id = states.size();
+        states.add(state);
+        stateIds.put(state, id);
+      }
+      return id;
+    }
+
+    private boolean accepts(List<BitSet> state) {
+      int nfaIndex = 0;
+      for (Alternative alternative : alternatives) {
+        boolean matches = nfas.get(nfaIndex).accepts(state.get(nfaIndex));
+        nfaIndex++;
+        if (alternative.negativeLookahead != null) {
+          matches &= !nfas.get(nfaIndex).accepts(state.get(nfaIndex));
+          nfaIndex++;
+        }
+        if (matches) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
@@ -16,88 +16,70 @@
 
 package com.google.template.soy.soyparse;
 
-import com.google.common.base.Utf8;
+import com.google.common.io.CharStreams;
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import com.google.template.soy.base.SourceLocation.Point;
 import java.io.IOException;
 import java.io.Reader;
-import java.nio.CharBuffer;
+import java.io.UncheckedIOException;
 import java.util.Arrays;
 
 /**
  * Extends the generated char stream here:
+ *
+ * <p>The whole file is read up front, which the byte offset index needs anyway. The generated
+ * stream already tracks lines and columns, so the per char work here is kept to counting the
+ * position in the file. Byte offsets are calculated from that position with a table of the non
+ * ASCII chars, and line lengths are only recorded at line breaks.
  */
 final class SoySimpleCharStream extends SimpleCharStream {
-  // The length of each line (1-indexed), updated only up to the latest char we've parsed so far
-  // (e.g. if we're midway through parsing line 150, only lines 1 - 149 will have the correct
+  // The length of each line (1-indexed), updated only up to the latest line break we've parsed so
+  // far (e.g. if we're midway through parsing line 150, only lines 1 - 149 will have the correct
   // lengths).
   int[] lineLengths = new int[2048];
 
-  // Current utf8 byte offset.
-  private int currentByteOffset = 0;
-  // Buffered chars waiting to be used for calculating encodedLength.
-  private final char[] utf8Buffer = new char[2048];
-  // Buffer index.
-  private int utf8BufferIdx = 0;
+  /** The full contents of the file. */
+  private final String text;
+
+  /** The index in {@link #text} of the next char to read. */
+  private int charOffset = 0;
+
+  /**
+   * The indices of the non ASCII chars, in order, and the number of extra UTF-8 bytes used by the
+   * chars up to and including each one. These are empty for ASCII files.
+   */
+  private final int[] nonAsciiIndices;
+
+  private final int[] extraBytes;
+
   // Byte offset of last token start.
   int tokenBeginByteOffset = -1;
 
-  /** Returns the full contents of the file read so far. Only call this after encountering EOF. */
+  /** Returns the full contents of the file. */
   String getFullFile() {
-    return ((FullBuffer) inputStream).buffer.toString();
+    return text;
   }
 
   @Override
   public char readChar() throws IOException {
     char c = super.readChar();
-    updateLineLengthsForNewChar();
-    utf8Buffer[utf8BufferIdx++] = c;
-    if (utf8BufferIdx == utf8Buffer.length) {
-      flushUtf8Buffer();
+    charOffset++;
+    if (c == '\n' || c == '\r') {
+      recordLineLength();
     }
     return c;
   }
 
-  private void flushUtf8Buffer() {
-    int limit = 4;
-    int badTrailingBytes = 0;
-    while (badTrailingBytes < limit) {
-      try {
-        currentByteOffset +=
-            Utf8.encodedLength(CharBuffer.wrap(utf8Buffer, 0, utf8BufferIdx - badTrailingBytes));
-        break;
-      } catch (RuntimeException e) {
-        // Ignore error when the last few bytes are non-terminated sequences.
-        if (badTrailingBytes == limit - 1) {
-          throw e;
-        }
-      }
-      badTrailingBytes++;
-    }
-    if (badTrailingBytes > 0) {
-      System.arraycopy(
-          utf8Buffer, utf8Buffer.length - badTrailingBytes, utf8Buffer, 0, badTrailingBytes);
-    }
-    utf8BufferIdx = badTrailingBytes;
-  }
-
   public int getCurrentByteOffset() {
-    if (utf8BufferIdx > 0) {
-      currentByteOffset += Utf8.encodedLength(CharBuffer.wrap(utf8Buffer, 0, utf8BufferIdx));
-      utf8BufferIdx = 0;
-    }
-    return currentByteOffset;
+    int index = Arrays.binarySearch(nonAsciiIndices, charOffset);
+    // The number of non ASCII chars before the current one.
+    int count = index >= 0 ? index : -index - 1;
+    return charOffset + (count == 0 ? 0 : extraBytes[count - 1]);
   }
 
   @Override
   public void backup(int amount) {
-    if (utf8BufferIdx >= amount) {
-      utf8BufferIdx -= amount;
-    } else if (utf8BufferIdx > 0) {
-      int approxBytes = amount - utf8BufferIdx;
-      utf8BufferIdx = 0;
-      currentByteOffset -= approxBytes; // Won't work backing up over emoji.
-    }
+    charOffset -= amount;
     super.backup(amount);
   }
 
@@ -108,15 +90,18 @@ final class SoySimpleCharStream extends SimpleCharStream {
     return super.BeginToken();
   }
 
-  /** Update line lengths for the current char. */
-  private void updateLineLengthsForNewChar() {
+  /**
+   * Records the length of the line of the line break that was just read. A line break is the last
+   * char of its line, so its column is the length of the line.
+   */
+  private void recordLineLength() {
+    int line = bufline[bufpos];
     // Increase the size of the array, if necessary.
     if (line >= lineLengths.length) {
       lineLengths = Arrays.copyOf(lineLengths, Math.max(lineLengths.length, line) + 2048);
     }
-
-    // Update the line lengths for the most recently parsed char.
-    lineLengths[line] = Math.max(lineLengths[line], column);
+    // A \r\n line break has two chars on the same line.
+    lineLengths[line] = Math.max(lineLengths[line], bufcolumn[bufpos]);
   }
 
   /**
@@ -151,41 +136,68 @@ final class SoySimpleCharStream extends SimpleCharStream {
   }
 
   /** Constructor. */
-  public SoySimpleCharStream(
-      java.io.Reader dstream, int startline, int startcolumn, int buffersize) {
-    super(new FullBuffer(dstream), startline, startcolumn, buffersize);
+  public SoySimpleCharStream(String text, int startline, int startcolumn) {
+    super(new StringContentsReader(text), startline, startcolumn, 4096);
+    this.text = text;
+    int nonAscii = 0;
+    for (int index = 0; index < text.length(); index++) {
+      if (text.charAt(index) >= 0x80) {
+        nonAscii++;
+      }
+    }
+    nonAsciiIndices = new int[nonAscii];
+    extraBytes = new int[nonAscii];
+    int extra = 0;
+    int i = 0;
+    for (int index = 0; i < nonAscii; index++) {
+      char c = text.charAt(index);
+      if (c >= 0x80) {
+        // Each half of a surrogate pair counts for 2 of the 4 bytes of the pair.
+        extra += c < 0x800 || Character.isSurrogate(c) ? 1 : 2;
+        nonAsciiIndices[i] = index;
+        extraBytes[i] = extra;
+        i++;
+      }
+    }
   }
 
   /** Constructor. */
-  public SoySimpleCharStream(java.io.Reader dstream, int startline, int startcolumn) {
-    this(dstream, startline, startcolumn, 4096);
+  public SoySimpleCharStream(Reader dstream) {
+    this(readFully(dstream), 1, 1);
   }
 
-  /** Constructor. */
-  public SoySimpleCharStream(java.io.Reader dstream) {
-    this(dstream, 1, 1, 4096);
+  private static String readFully(Reader reader) {
+    try {
+      return CharStreams.toString(reader);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
   }
 
-  private static class FullBuffer extends Reader {
-    private final Reader delegate;
-    private final StringBuilder buffer = new StringBuilder();
+  /**
+   * A reader over the file contents. Unlike {@link java.io.StringReader} it doesn't lock, the
+   * stream only reads from a single thread.
+   */
+  private static final class StringContentsReader extends Reader {
+    private final String text;
+    private int position;
 
-    public FullBuffer(Reader delegate) {
-      this.delegate = delegate;
+    StringContentsReader(String text) {
+      this.text = text;
     }
 
     @Override
-    public int read(char[] cbuf, int off, int len) throws IOException {
-      int nRead = delegate.read(cbuf, off, len);
-      if (nRead != -1) {
-        buffer.append(cbuf, off, nRead);
+    public int read(char[] cbuf, int off, int len) {
+      if (position == text.length()) {
+        return -1;
       }
-      return nRead;
+      int n = Math.min(len, text.length() - position);
+      text.getChars(position, position + n, cbuf, off);
+      position += n;
+      return n;
     }
 
     @Override
-    public void close() throws IOException {
-      delegate.close();
-    }
+    public void close() {}
   }
 }
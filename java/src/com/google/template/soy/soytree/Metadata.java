@@ -28,12 +28,15 @@ import static java.util.Comparator.comparing;
 import com.google.auto.value.AutoValue;
 import com.google.auto.value.extension.memoized.Memoized;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableCollection;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultiset;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
 import com.google.errorprone.annotations.concurrent.LazyInit;
 import com.google.template.soy.base.SourceFilePath;
 import com.google.template.soy.base.SourceLocation;
@@ -237,7 +240,13 @@ public final class Metadata {
     abstract SoyTypeRegistry typeRegistry();
   }
 
-  /** FileSetMetadata for deps. */
+  /**
+   * FileSetMetadata for deps.
+   *
+   * <p>Templates are indexed by name straight from the protos and are only converted to {@link
+   * TemplateMetadata} when they are looked up, since a compile typically uses a small fraction of
+   * the templates in its deps.
+   */
   @AutoValue
   abstract static class DepsFileSetMetadata implements FileSetMetadata {
 
@@ -246,8 +255,8 @@ public final class Metadata {
     abstract ParseContext context();
 
     @Memoized
-    protected ImmutableMap<SourceLogicalPath, FileMetadata> fileIndex() {
-      ImmutableMap.Builder<SourceLogicalPath, FileMetadata> builder = ImmutableMap.builder();
+    protected ImmutableMap<SourceLogicalPath, DepsFileMetadata> fileIndex() {
+      ImmutableMap.Builder<SourceLogicalPath, DepsFileMetadata> builder = ImmutableMap.builder();
       units()
           .forEach(
               u ->
@@ -263,26 +272,37 @@ public final class Metadata {
     }
 
     @Memoized
-    protected ImmutableMap<String, TemplateMetadata> templateIndex() {
-      Map<String, TemplateMetadata> builder = new LinkedHashMap<>();
-      getAllTemplates()
-          .forEach(
-              t -> {
-                TemplateMetadata previous = builder.put(t.getTemplateName(), t);
-                warnNameCollision(context().errorReporter(), previous, t);
-              });
+    protected ImmutableMap<String, DepsTemplate> templateIndex() {
+      Map<String, DepsTemplate> builder = new LinkedHashMap<>();
+      for (DepsFileMetadata file : fileIndex().values()) {
+        for (DepsTemplate t : file.depsTemplates()) {
+          DepsTemplate previous = builder.put(t.templateName, t);
+          if (previous != null) {
+            warnNameCollision(context().errorReporter(), previous.get(), t.get());
+          }
+        }
+      }
       return ImmutableMap.copyOf(builder);
     }
 
     @Override
     public TemplateMetadata getTemplate(String templateFqn) {
-      return templateIndex().get(templateFqn);
+      DepsTemplate template = templateIndex().get(templateFqn);
+      return template == null ? null : template.get();
+    }
+
+    /** Returns the templates that {@link #buildDelTemplateSelector} may register. */
+    @Memoized
+    ImmutableList<TemplateMetadata> getDelTemplates() {
+      return fileIndex().values().stream()
+          .flatMap(f -> f.getDelTemplates().stream())
+          .collect(toImmutableList());
     }
 
     @Override
     @Memoized
     public DelTemplateSelector<TemplateMetadata> getDelTemplateSelector() {
-      return buildDelTemplateSelector(getAllTemplates(), context().errorReporter(), this);
+      return buildDelTemplateSelector(getDelTemplates(), context().errorReporter(), this);
     }
 
     @Override
@@ -347,9 +367,12 @@ public final class Metadata {
   private static class AstFileSetMetadata implements FileSetMetadata {
 
     private final ParseContext context;
-    // The following three fields contain all files/templates from both AST and deps.
+    private final FileSetMetadata deps;
+    private final ImmutableList<FileMetadata> astFiles;
+    // Contains all files from both AST and deps.
     private final ImmutableMap<SourceLogicalPath, FileMetadata> fullFileIndex;
-    @LazyInit private ImmutableMap<String, TemplateMetadata> lazyFullTemplateIndex;
+    // Only contains the templates from the AST, templates from deps are looked up in deps.
+    @LazyInit private ImmutableMap<String, TemplateMetadata> lazyAstTemplateIndex;
     @LazyInit private ImmutableList<TemplateMetadata> lazyAllTemplatesWithCollisions;
     @LazyInit private DelTemplateSelector<TemplateMetadata> delTemplateSelector;
     @LazyInit private ImmutableMap<String, SourceLogicalPath> namespaceIndex;
@@ -357,56 +380,62 @@ public final class Metadata {
     /** ASTs are mutable so we need to copy all data in the constructor. */
     public AstFileSetMetadata(FileSetMetadata deps, List<SoyFileNode> ast, ParseContext context) {
       this.context = context;
+      this.deps = deps;
 
       ImmutableMap.Builder<SourceLogicalPath, FileMetadata> fullFileIndexBuilder =
           ImmutableMap.builder();
       for (FileMetadata depFile : deps.getAllFiles()) {
         fullFileIndexBuilder.put(depFile.getPath().asLogicalPath(), depFile);
       }
+      ImmutableList.Builder<FileMetadata> astFilesBuilder = ImmutableList.builder();
       ast.forEach(
           f -> {
             FileMetadata astMetadata = new AstFileMetadata(f);
+            astFilesBuilder.add(astMetadata);
             fullFileIndexBuilder.put(f.getFilePath().asLogicalPath(), astMetadata);
           });
+      astFiles = astFilesBuilder.build();
       fullFileIndex = fullFileIndexBuilder.buildOrThrow();
     }
 
-    private ImmutableMap<String, TemplateMetadata> templateIndex() {
-      ImmutableMap<String, TemplateMetadata> tmp = lazyFullTemplateIndex;
-      ImmutableList.Builder<TemplateMetadata> allBuilder = ImmutableList.builder();
+    private ImmutableMap<String, TemplateMetadata> astTemplateIndex() {
+      ImmutableMap<String, TemplateMetadata> tmp = lazyAstTemplateIndex;
       if (tmp == null) {
         Map<String, TemplateMetadata> builder = new LinkedHashMap<>();
-        fullFileIndex
-            .values()
-            .forEach(
-                f ->
-                    f.getTemplates()
-                        .forEach(
-                            t -> {
-                              allBuilder.add(t);
-                              TemplateMetadata previous = builder.put(t.getTemplateName(), t);
-                              // Avoid duplicate warnings between deps and AST versions.
-                              if (!(f instanceof DepsFileMetadata)) {
-                                warnNameCollision(context.errorReporter(), previous, t);
-                              }
-                            }));
+        astFiles.forEach(
+            f ->
+                f.getTemplates()
+                    .forEach(
+                        t -> {
+                          TemplateMetadata previous = builder.put(t.getTemplateName(), t);
+                          if (previous == null) {
+                            previous = deps.getTemplate(t.getTemplateName());
+                          }
+                          warnNameCollision(context.errorReporter(), previous, t);
+                        }));
         tmp = ImmutableMap.copyOf(builder);
-        lazyFullTemplateIndex = tmp;
-        lazyAllTemplatesWithCollisions = allBuilder.build();
+        lazyAstTemplateIndex = tmp;
       }
       return tmp;
     }
 
     @Override
     public TemplateMetadata getTemplate(String templateFqn) {
-      return templateIndex().get(templateFqn);
+      TemplateMetadata template = astTemplateIndex().get(templateFqn);
+      return template != null ? template : deps.getTemplate(templateFqn);
     }
 
     @Override
     public DelTemplateSelector<TemplateMetadata> getDelTemplateSelector() {
       DelTemplateSelector<TemplateMetadata> tmp = delTemplateSelector;
       if (tmp == null) {
-        tmp = buildDelTemplateSelector(getAllTemplates(), context.errorReporter(), this);
+        ImmutableList.Builder<TemplateMetadata> candidates = ImmutableList.builder();
+        candidates.addAll(
+            deps instanceof DepsFileSetMetadata
+                ? ((DepsFileSetMetadata) deps).getDelTemplates()
+                : deps.getAllTemplates());
+        astFiles.forEach(f -> candidates.addAll(f.getTemplates()));
+        tmp = buildDelTemplateSelector(candidates.build(), context.errorReporter(), this);
         delTemplateSelector = tmp;
       }
       return tmp;
@@ -424,8 +453,16 @@ public final class Metadata {
 
     @Override
     public ImmutableCollection<TemplateMetadata> getAllTemplates() {
-      templateIndex(); // init lazyAllTemplatesWithCollisions
-      return lazyAllTemplatesWithCollisions;
+      ImmutableList<TemplateMetadata> tmp = lazyAllTemplatesWithCollisions;
+      if (tmp == null) {
+        astTemplateIndex(); // report collisions
+        tmp =
+            fullFileIndex.values().stream()
+                .flatMap(f -> f.getTemplates().stream())
+                .collect(toImmutableList());
+        lazyAllTemplatesWithCollisions = tmp;
+      }
+      return tmp;
     }
 
     @Override
@@ -473,7 +510,7 @@ public final class Metadata {
     }
 
     @Override
-    public final ImmutableSet<String> getTemplateNames() {
+    public ImmutableSet<String> getTemplateNames() {
       return templateIndex().keySet();
     }
 
@@ -553,18 +590,34 @@ public final class Metadata {
     }
 
     @Memoized
-    @Override
-    public ImmutableList<TemplateMetadata> getTemplates() {
+    protected ImmutableList<DepsTemplate> depsTemplates() {
       return proto().getTemplateList().stream()
           .map(
               t ->
-                  TemplateMetadataSerializer.metadataFromProto(
-                      proto(),
-                      t,
-                      kind(),
-                      context().typeRegistry(),
-                      getPath(),
-                      context().errorReporter()))
+                  new DepsTemplate(
+                      TemplateMetadataSerializer.templateNameFromProto(proto(), t),
+                      TemplateMetadataSerializer.hasDelTemplateName(t),
+                      () ->
+                          TemplateMetadataSerializer.metadataFromProto(
+                              proto(),
+                              t,
+                              kind(),
+                              context().typeRegistry(),
+                              getPath(),
+                              context().errorReporter())))
+          .collect(toImmutableList());
+    }
+
+    @Memoized
+    @Override
+    public ImmutableList<TemplateMetadata> getTemplates() {
+      return depsTemplates().stream().map(DepsTemplate::get).collect(toImmutableList());
+    }
+
+    ImmutableList<TemplateMetadata> getDelTemplates() {
+      return depsTemplates().stream()
+          .filter(t -> t.hasDelTemplateName)
+          .map(DepsTemplate::get)
           .collect(toImmutableList());
     }
 
@@ -595,14 +648,14 @@ public final class Metadata {
       return kind();
     }
 
+    /** The templates keyed by partial name. */
     @Memoized
-    @Override
-    protected ImmutableMap<String, TemplateMetadata> templateIndex() {
-      return getTemplates().stream()
+    protected ImmutableMap<String, DepsTemplate> depsTemplateIndex() {
+      return depsTemplates().stream()
           .collect(
               toImmutableMap(
                   t -> {
-                    String name = t.getTemplateName();
+                    String name = t.templateName;
                     int index = name.lastIndexOf('.');
                     return index >= 0 ? name.substring(index + 1) : name;
                   },
@@ -610,6 +663,23 @@ public final class Metadata {
                   (t1, t2) -> t1) /* Will be reported as error elsewhere. */);
     }
 
+    @Memoized
+    @Override
+    protected ImmutableMap<String, TemplateMetadata> templateIndex() {
+      return ImmutableMap.copyOf(Maps.transformValues(depsTemplateIndex(), DepsTemplate::get));
+    }
+
+    @Override
+    public TemplateMetadata getTemplate(String name) {
+      DepsTemplate template = depsTemplateIndex().get(name);
+      return template == null ? null : template.get();
+    }
+
+    @Override
+    public ImmutableSet<String> getTemplateNames() {
+      return depsTemplateIndex().keySet();
+    }
+
     @Memoized
     @Override
     protected ImmutableMap<String, TypeDef> typeDefIndex() {
@@ -638,6 +708,24 @@ public final class Metadata {
     }
   }
 
+  /** A template from a dependency that is converted from its proto the first time it is used. */
+  static final class DepsTemplate {
+    final String templateName;
+    final boolean hasDelTemplateName;
+    private final Supplier<TemplateMetadata> metadata;
+
+    DepsTemplate(
+        String templateName, boolean hasDelTemplateName, Supplier<TemplateMetadata> metadata) {
+      this.templateName = templateName;
+      this.hasDelTemplateName = hasDelTemplateName;
+      this.metadata = Suppliers.memoize(metadata::get);
+    }
+
+    TemplateMetadata get() {
+      return metadata.get();
+    }
+  }
+
   /** PartialFileMetadata for AST under compilation. */
   private static final class AstPartialFileMetadata implements PartialFileMetadata {
 
@@ -242,6 +242,38 @@ public final class TemplateMetadataSerializer {
     return builder.build();
   }
 
+  /**
+   * Returns the fully qualified name of the template, without converting the rest of the proto.
+   */
+  static String templateNameFromProto(SoyFileP fileProto, TemplateMetadataP templateProto) {
+    switch (TEMPLATE_KIND_CONVERTER.convert(templateProto.getTemplateKind())) {
+      case ELEMENT:
+      case BASIC:
+        return TemplateNodeBuilder.combineNsAndName(
+            fileProto.getNamespace(), templateProto.getTemplateName());
+      case DELTEMPLATE:
+        return TemplateNodeBuilder.combineNsAndName(
+            fileProto.getNamespace(),
+            TemplateDelegateNodeBuilder.partialDeltemplateTemplateName(
+                templateProto.getTemplateName(),
+                emptyToNull(fileProto.getModName()),
+                templateProto.getDelTemplateVariant()));
+      default:
+        throw new AssertionError();
+    }
+  }
+
+  /**
+   * Returns whether the {@link TemplateMetadata} for the template will have a {@link
+   * TemplateMetadata#getDelTemplateName() deltemplate name}.
+   */
+  static boolean hasDelTemplateName(TemplateMetadataP templateProto) {
+    return TEMPLATE_KIND_CONVERTER.convert(templateProto.getTemplateKind())
+            == TemplateType.TemplateKind.DELTEMPLATE
+        || templateProto.getTemplateType().getIsModifiable()
+        || templateProto.getTemplateType().getIsModifying();
+  }
+
   static TemplateMetadata metadataFromProto(
       SoyFileP fileProto,
       TemplateMetadataP templateProto,
@@ -253,32 +285,15 @@ public final class TemplateMetadataSerializer {
     TemplateType.TemplateKind templateKind =
         TEMPLATE_KIND_CONVERTER.convert(templateProto.getTemplateKind());
     @Nullable String modName = emptyToNull(fileProto.getModName());
-    String templateName;
+    String templateName = templateNameFromProto(fileProto, templateProto);
     String variant = templateProto.getDelTemplateVariant();
-    switch (templateKind) {
-      case ELEMENT:
-      case BASIC:
-        templateName =
-            TemplateNodeBuilder.combineNsAndName(
-                fileProto.getNamespace(), templateProto.getTemplateName());
-        if (templateProto.getTemplateType().getIsModifiable()
-            || templateProto.getTemplateType().getIsModifying()) {
-          builder
-              .setDelTemplateVariant(variant)
-              .setDelTemplateName(templateProto.getModifiableTemplateName());
-        }
-        break;
-      case DELTEMPLATE:
-        String delTemplateName = templateProto.getTemplateName();
-        templateName =
-            TemplateNodeBuilder.combineNsAndName(
-                fileProto.getNamespace(),
-                TemplateDelegateNodeBuilder.partialDeltemplateTemplateName(
-                    delTemplateName, modName, variant));
-        builder.setDelTemplateVariant(variant).setDelTemplateName(delTemplateName);
-        break;
-      default:
-        throw new AssertionError();
+    if (hasDelTemplateName(templateProto)) {
+      builder
+          .setDelTemplateVariant(variant)
+          .setDelTemplateName(
+              templateKind == TemplateType.TemplateKind.DELTEMPLATE
+                  ? templateProto.getTemplateName()
+                  : templateProto.getModifiableTemplateName());
     }
 
     SoyTypeP returnTypeP = templateProto.getTemplateType().getReturnType();
@@ -95,6 +95,7 @@ public final class SoyFileSetParserBuilder {
   private boolean addHtmlAttributesForLogging = false;
   private final PassManager.Builder passManager = new PassManager.Builder();
   private boolean disableAllTypeChecking = false;
+  private int compilerThreads = 1;
 
   public static SoyFileSetParserBuilder forTemplateAndImports(
       String contents, GenericDescriptor... descriptors) {
@@ -371,6 +372,12 @@ public final class SoyFileSetParserBuilder {
     return this;
   }
 
+  @CanIgnoreReturnValue
+  public SoyFileSetParserBuilder compilerThreads(int compilerThreads) {
+    this.compilerThreads = compilerThreads;
+    return this;
+  }
+
   public static final SourceFilePath FILE_PATH = SourceFilePath.create("no-path", "no-path");
 
   private static List<SoyFileSupplier> buildTestSoyFileSuppliers(String... soyFileContents) {
@@ -460,6 +467,7 @@ public final class SoyFileSetParserBuilder {
         .setErrorReporter(errorReporter)
         .setCssRegistry(cssRegistry)
         .setToggleRegistry(toggleRegistry)
+        .setCompilerThreads(compilerThreads)
         .build();
   }
 }
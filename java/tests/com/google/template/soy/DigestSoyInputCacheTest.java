@@ -0,0 +1,160 @@
+/*
+ * Copyright 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
+import com.google.protobuf.ByteString;
+import com.google.template.soy.base.SourceFilePath;
+import com.google.template.soy.base.internal.SoyFileSupplier;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class DigestSoyInputCacheTest {
+  @Rule public final TemporaryFolder temp = new TemporaryFolder();
+
+  private final List<String> evicted = new ArrayList<>();
+
+  private final SoyInputCache.CacheLoader<String> loader =
+      new SoyInputCache.CacheLoader<String>() {
+        @Override
+        public String read(File file, SoyCompilerFileReader reader, SoyInputCache cache)
+            throws IOException {
+          return reader.read(file).asCharSource(UTF_8).read();
+        }
+
+        @Override
+        public void onEvict(String item) {
+          evicted.add(item);
+        }
+      };
+
+  @Test
+  public void testReadIsKeyedByDigest() throws IOException {
+    DigestSoyInputCache cache = new DigestSoyInputCache();
+    File file = newFile("a", "1");
+
+    assertThat(read(cache, file, "d1")).isEqualTo("1");
+    Files.asCharSink(file, UTF_8).write("2");
+    // The digest is unchanged, so the file isn't read again.
+    assertThat(read(cache, file, "d1")).isEqualTo("1");
+    assertThat(read(cache, file, "d2")).isEqualTo("2");
+
+    assertThat(cache.hitCount()).isEqualTo(1);
+    assertThat(cache.missCount()).isEqualTo(2);
+    assertThat(evicted).containsExactly("1");
+  }
+
+  @Test
+  public void testDigestsAreComputedWhenMissing() throws IOException {
+    DigestSoyInputCache cache = new DigestSoyInputCache();
+    File file = newFile("a", "1");
+    SoyInputCache request = cache.forRequest(ImmutableMap.of(), FileSystemSoyFileReader.INSTANCE);
+
+    assertThat(request.read(file, loader, FileSystemSoyFileReader.INSTANCE)).isEqualTo("1");
+    Files.asCharSink(file, UTF_8).write("2");
+    request = cache.forRequest(ImmutableMap.of(), FileSystemSoyFileReader.INSTANCE);
+    assertThat(request.read(file, loader, FileSystemSoyFileReader.INSTANCE)).isEqualTo("2");
+  }
+
+  @Test
+  public void testLeastRecentlyUsedIsEvicted() throws IOException {
+    DigestSoyInputCache cache = new DigestSoyInputCache(2);
+    File a = newFile("a", "a");
+    File b = newFile("b", "b");
+    File c = newFile("c", "c");
+
+    read(cache, a, "a");
+    read(cache, b, "b");
+    read(cache, a, "a");
+    read(cache, c, "c");
+
+    assertThat(cache.size()).isEqualTo(2);
+    assertThat(evicted).containsExactly("b");
+  }
+
+  @Test
+  public void testDependentsAreEvicted() throws IOException {
+    DigestSoyInputCache cache = new DigestSoyInputCache();
+    File a = newFile("a", "a");
+    File b = newFile("b", "b");
+    SoyInputCache request = request(cache, a, "a1", b, "b1");
+    request.read(a, loader, FileSystemSoyFileReader.INSTANCE);
+    request.read(b, loader, FileSystemSoyFileReader.INSTANCE);
+    request.declareDependency(a, b);
+
+    // a is unchanged but b isn't, so a is reloaded.
+    request = request(cache, a, "a1", b, "b2");
+    request.read(a, loader, FileSystemSoyFileReader.INSTANCE);
+    assertThat(cache.missCount()).isEqualTo(3);
+    request.read(b, loader, FileSystemSoyFileReader.INSTANCE);
+    assertThat(evicted).containsExactly("a", "b");
+  }
+
+  @Test
+  public void testFileSupplierVersionIsTheDigest() throws IOException {
+    DigestSoyInputCache cache = new DigestSoyInputCache();
+    File file = newFile("a.soy", "{namespace a}");
+    SourceFilePath path = SourceFilePath.create(file.getPath(), file.getPath());
+
+    SoyFileSupplier first =
+        request(cache, file, "d1")
+            .createFileSupplier(file, path, FileSystemSoyFileReader.INSTANCE);
+    SoyFileSupplier second =
+        request(cache, file, "d1")
+            .createFileSupplier(file, path, FileSystemSoyFileReader.INSTANCE);
+    SoyFileSupplier third =
+        request(cache, file, "d2")
+            .createFileSupplier(file, path, FileSystemSoyFileReader.INSTANCE);
+
+    assertThat(first.getVersion()).isEqualTo(second.getVersion());
+    assertThat(first.getVersion()).isNotEqualTo(third.getVersion());
+    assertThat(first.asCharSource().read()).isEqualTo("{namespace a}");
+    assertThat(request(cache, file, "d1").astCache()).isNotNull();
+  }
+
+  private File newFile(String name, String contents) throws IOException {
+    File file = temp.newFile(name);
+    Files.asCharSink(file, UTF_8).write(contents);
+    return file;
+  }
+
+  private String read(DigestSoyInputCache cache, File file, String digest) throws IOException {
+    return request(cache, file, digest).read(file, loader, FileSystemSoyFileReader.INSTANCE);
+  }
+
+  private static SoyInputCache request(DigestSoyInputCache cache, Object... filesAndDigests) {
+    ImmutableMap.Builder<String, ByteString> digests = ImmutableMap.builder();
+    for (int i = 0; i < filesAndDigests.length; i += 2) {
+      digests.put(
+          ((File) filesAndDigests[i]).getPath(),
+          ByteString.copyFromUtf8((String) filesAndDigests[i + 1]));
+    }
+    return cache.forRequest(digests.buildOrThrow(), FileSystemSoyFileReader.INSTANCE);
+  }
+}
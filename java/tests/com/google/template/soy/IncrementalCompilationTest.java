@@ -0,0 +1,167 @@
+/*
+ * Copyright 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.hash.Hashing;
+import com.google.common.testing.GcFinalization;
+import com.google.template.soy.base.SourceFilePath;
+import com.google.template.soy.base.SourceLogicalPath;
+import com.google.template.soy.base.internal.AbstractSoyFileSupplier;
+import com.google.template.soy.error.SoyCompilationException;
+import com.google.template.soy.jbcsrc.api.SoySauce;
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.ref.WeakReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class IncrementalCompilationTest {
+  private static final SourceLogicalPath A = SourceLogicalPath.create("a.soy");
+  private static final SourceLogicalPath B = SourceLogicalPath.create("b.soy");
+  private static final SourceLogicalPath C = SourceLogicalPath.create("c.soy");
+
+  private final IncrementalCompilation incrementalCompilation = new IncrementalCompilation();
+  private final Map<String, String> files = new LinkedHashMap<>();
+
+  @Test
+  public void testOnlyChangedFilesAndTheirDependentsAreCompiled() {
+    files.put("a.soy", "{namespace a}\n{template foo}A1{/template}\n");
+    files.put(
+        "b.soy",
+        "{namespace b}\nimport {foo} from 'a.soy';\n{template bar}B{call foo /}{/template}\n");
+    files.put("c.soy", "{namespace c}\n{template baz}C1{/template}\n");
+
+    SoySauce sauce = compile();
+    assertThat(incrementalCompilation.getLastCompiledFiles()).containsExactly(A, B, C);
+    assertThat(render(sauce, "b.bar")).isEqualTo("BA1");
+
+    files.put("c.soy", "{namespace c}\n{template baz}C2{/template}\n");
+    sauce = compile();
+    assertThat(incrementalCompilation.getLastCompiledFiles()).containsExactly(C);
+    assertThat(render(sauce, "c.baz")).isEqualTo("C2");
+    assertThat(render(sauce, "b.bar")).isEqualTo("BA1");
+
+    files.put("a.soy", "{namespace a}\n{template foo}A2{/template}\n");
+    sauce = compile();
+    assertThat(incrementalCompilation.getLastCompiledFiles()).containsExactly(A, B);
+    assertThat(render(sauce, "b.bar")).isEqualTo("BA2");
+    assertThat(render(sauce, "a.foo")).isEqualTo("A2");
+    assertThat(render(sauce, "c.baz")).isEqualTo("C2");
+
+    sauce = compile();
+    assertThat(incrementalCompilation.getLastCompiledFiles()).isEmpty();
+    assertThat(render(sauce, "b.bar")).isEqualTo("BA2");
+  }
+
+  @Test
+  public void testChangesToTheCalleeAreTypeChecked() {
+    files.put("a.soy", "{namespace a}\n{template foo}{@param p: string}{$p}{/template}\n");
+    files.put(
+        "b.soy",
+        "{namespace b}\n"
+            + "import {foo} from 'a.soy';\n"
+            + "{template bar}{call foo}{param p: 'x' /}{/call}{/template}\n");
+    files.put("c.soy", "{namespace c}\n{template baz}C{/template}\n");
+    compile();
+
+    files.put("a.soy", "{namespace a}\n{template foo}{@param q: string}{$q}{/template}\n");
+    assertThrows(SoyCompilationException.class, this::compile);
+
+    // The failed compile isn't recorded, so b.soy is still compiled once it is fixed.
+    files.put(
+        "b.soy",
+        "{namespace b}\n"
+            + "import {foo} from 'a.soy';\n"
+            + "{template bar}{call foo}{param q: 'y' /}{/call}{/template}\n");
+    SoySauce sauce = compile();
+    assertThat(incrementalCompilation.getLastCompiledFiles()).containsExactly(A, B);
+    assertThat(render(sauce, "b.bar")).isEqualTo("y");
+  }
+
+  @Test
+  public void testRemovedFile() {
+    files.put("a.soy", "{namespace a}\n{template foo}A{/template}\n");
+    files.put("b.soy", "{namespace b}\n{template bar}B{/template}\n");
+    files.put("c.soy", "{namespace c}\n{template baz}C{/template}\n");
+    compile();
+
+    files.remove("c.soy");
+    files.put("a.soy", "{namespace a}\n{template foo}A2{/template}\n");
+    SoySauce sauce = compile();
+    assertThat(incrementalCompilation.getLastCompiledFiles()).containsExactly(A);
+    assertThat(render(sauce, "a.foo")).isEqualTo("A2");
+    assertThat(sauce.hasTemplate("c.baz")).isFalse();
+  }
+
+  @Test
+  public void testOlderGenerationsCanBeCollected() {
+    files.put("a.soy", "{namespace a}\n{template foo}A1{/template}\n");
+    files.put("b.soy", "{namespace b}\n{template bar}B1{/template}\n");
+    compile();
+    WeakReference<ClassLoader> firstGeneration =
+        new WeakReference<>(incrementalCompilation.getTemplates().getClassLoader());
+
+    files.put("a.soy", "{namespace a}\n{template foo}A2{/template}\n");
+    compile();
+    files.put("b.soy", "{namespace b}\n{template bar}B2{/template}\n");
+    SoySauce sauce = compile();
+    assertThat(incrementalCompilation.getLastCompiledFiles()).containsExactly(B);
+    assertThat(render(sauce, "a.foo")).isEqualTo("A2");
+    assertThat(render(sauce, "b.bar")).isEqualTo("B2");
+
+    // Every class of the first generation has been recompiled since, so nothing needs it anymore.
+    GcFinalization.awaitClear(firstGeneration);
+  }
+
+  private SoySauce compile() {
+    SoyFileSet.Builder builder = SoyFileSet.builder();
+    files.forEach((path, contents) -> builder.add(new VersionedSupplier(contents, path)));
+    return builder.build().compileTemplatesIncrementally(incrementalCompilation);
+  }
+
+  private static String render(SoySauce sauce, String template) {
+    return sauce.renderTemplate(template).renderHtml().get().toString();
+  }
+
+  /** A supplier whose version is the hash of its contents, like a dev server would use. */
+  private static final class VersionedSupplier extends AbstractSoyFileSupplier {
+    private final String contents;
+
+    VersionedSupplier(String contents, String path) {
+      super(SourceFilePath.forTest(path));
+      this.contents = contents;
+    }
+
+    @Override
+    public Reader open() {
+      return new StringReader(contents);
+    }
+
+    @Override
+    public Version getVersion() {
+      return Version.forContentHash(Hashing.sha256().hashString(contents, UTF_8));
+    }
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.template.soy.error.SoyCompilationException;
+import com.google.template.soy.jbcsrc.api.SoySauce;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class LazyCompilationTest {
+
+  @Test
+  public void testTemplatesAreCompiledOnDemand() {
+    SoySauce sauce =
+        SoyFileSet.builder()
+            .add("{namespace a}\n{template foo}{@param p: string}A{$p}{/template}\n", "a.soy")
+            .add(
+                "{namespace b}\n"
+                    + "import {foo} from 'a.soy';\n"
+                    + "{template bar}B{call foo}{param p: 'x' /}{/call}{/template}\n",
+                "b.soy")
+            .build()
+            .compileTemplatesLazily();
+
+    assertThat(render(sauce, "b.bar")).isEqualTo("BAx");
+    assertThat(sauce.hasTemplate("a.foo")).isTrue();
+  }
+
+  @Test
+  public void testErrorsInTemplateBodiesAreReportedWhenTheFileIsLoaded() {
+    SoySauce sauce =
+        SoyFileSet.builder()
+            .add("{namespace a}\n{template foo}{@param p: string}A{/template}\n", "a.soy")
+            .add(
+                "{namespace c}\n"
+                    + "import {foo} from 'a.soy';\n"
+                    + "{template baz}{call foo /}{/template}\n",
+                "c.soy")
+            .build()
+            .compileTemplatesLazily();
+
+    assertThat(
+            sauce
+                .renderTemplate("a.foo")
+                .setData(ImmutableMap.of("p", "x"))
+                .renderHtml()
+                .get()
+                .toString())
+        .isEqualTo("A");
+    // The missing param is only found by the cross template checks, which run on demand.
+    SoyCompilationException e =
+        assertThrows(SoyCompilationException.class, () -> render(sauce, "c.baz"));
+    assertThat(e).hasMessageThat().contains("c.soy:3");
+  }
+
+  @Test
+  public void testErrorsInTemplateHeadersAreReportedUpFront() {
+    SoyFileSet fileSet =
+        SoyFileSet.builder()
+            .add("{namespace a}\n{template foo}{@param p: string}{/template}\n", "a.soy")
+            .add(
+                "{namespace b}\n"
+                    + "import {foo} from 'a.soy';\n"
+                    + "import {foo} from 'a.soy';\n"
+                    + "{template bar}{/template}\n",
+                "b.soy")
+            .build();
+
+    assertThrows(SoyCompilationException.class, fileSet::compileTemplatesLazily);
+  }
+
+  private static String render(SoySauce sauce, String template) {
+    return sauce.renderTemplate(template).renderHtml().get().toString();
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.template.soy.base.SourceLogicalPath;
+import com.google.template.soy.idomsrc.SoyIdomSrcOptions;
+import com.google.template.soy.jssrc.SoyJsSrcOptions;
+import com.google.template.soy.pysrc.SoyPySrcOptions;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Optional;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Checks that the output of the source backends doesn't depend on the number of threads. */
+@RunWith(JUnit4.class)
+public final class ParallelCodeGenTest {
+
+  private static final int NUM_FILES = 16;
+
+  private static SoyFileSet fileSet(int compilerThreads) {
+    SoyFileSet.Builder builder = SoyFileSet.builder().setCompilerThreads(compilerThreads);
+    for (int i = 0; i < NUM_FILES; i++) {
+      builder.add(
+          "{namespace ns"
+              + i
+              + "}\n"
+              + (i + 1 < NUM_FILES ? "import {bar as next} from 'f" + (i + 1) + ".soy';\n" : "")
+              + "{template foo}\n"
+              + "  {@param p: string}\n"
+              + "  {@param? n: number}\n"
+              + "  <div class=\"a\" title=\"{$p}\">{$p}{$n ?? 1}</div>\n"
+              + "  {msg desc=\"...\"}Hello {$p}{/msg}\n"
+              + "  {call bar}{param p: $p /}{/call}\n"
+              + (i + 1 < NUM_FILES ? "  {call next}{param p: $p /}{/call}\n" : "")
+              + "{/template}\n"
+              + "{template bar}\n"
+              + "  {@param p: string}\n"
+              + "  <a href=\"{$p}\">{$p |escapeUri}</a>\n"
+              + "{/template}\n",
+          "f" + i + ".soy");
+    }
+    return builder.build();
+  }
+
+  @Test
+  public void testJsSrc() {
+    List<String> sequential =
+        fileSet(1).compileToJsSrcInternal(SoyJsSrcOptions.getDefault(), null);
+    List<String> parallel = fileSet(4).compileToJsSrcInternal(SoyJsSrcOptions.getDefault(), null);
+    assertThat(parallel).hasSize(NUM_FILES);
+    assertThat(parallel).containsExactlyElementsIn(sequential).inOrder();
+  }
+
+  @Test
+  public void testIdomSrc() {
+    List<String> sequential =
+        fileSet(1).compileToIdomSrcInternal(SoyIdomSrcOptions.getDefault());
+    List<String> parallel = fileSet(4).compileToIdomSrcInternal(SoyIdomSrcOptions.getDefault());
+    assertThat(parallel).hasSize(NUM_FILES);
+    assertThat(parallel).containsExactlyElementsIn(sequential).inOrder();
+  }
+
+  @Test
+  public void testPySrc() {
+    ImmutableMap.Builder<SourceLogicalPath, Path> outputPaths = ImmutableMap.builder();
+    for (int i = 0; i < NUM_FILES; i++) {
+      outputPaths.put(SourceLogicalPath.create("f" + i + ".soy"), Paths.get("f" + i + ".py"));
+    }
+    SoyPySrcOptions options =
+        new SoyPySrcOptions(
+            "example.runtime",
+            "",
+            "example.bidi.fn",
+            "example.translator.SimpleTranslator",
+            ImmutableMap.of(),
+            outputPaths.buildOrThrow(),
+            Optional.empty(),
+            null);
+    List<String> sequential = fileSet(1).compileToPySrcFiles(options);
+    List<String> parallel = fileSet(4).compileToPySrcFiles(options);
+    assertThat(parallel).hasSize(NUM_FILES);
+    assertThat(parallel).containsExactlyElementsIn(sequential).inOrder();
+  }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import com.google.protobuf.ByteString;
+import com.google.template.soy.worker.Input;
+import com.google.template.soy.worker.WorkRequest;
+import com.google.template.soy.worker.WorkResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class SoyCompilerWorkerTest {
+  @Rule public final TemporaryFolder temp = new TemporaryFolder();
+
+  private final DigestSoyInputCache cache = new DigestSoyInputCache();
+  private final SoyCompilerWorker worker =
+      new SoyCompilerWorker(
+          SoyHeaderCompiler::new,
+          new PluginLoader.Default(),
+          FileSystemSoyFileReader.INSTANCE,
+          cache);
+
+  private File aSoy;
+  private File aHeader;
+  private File bSoy;
+
+  @Before
+  public void setUp() throws IOException {
+    aSoy = temp.newFile("a.soy");
+    Files.asCharSink(aSoy, UTF_8).write("{namespace a}\n{template foo}\n  Hello\n{/template}\n");
+    aHeader = new File(temp.getRoot(), "a.soyh");
+    bSoy = temp.newFile("b.soy");
+    Files.asCharSink(bSoy, UTF_8)
+        .write(
+            "{namespace b}\n"
+                + "import {foo} from '"
+                + aSoy.getPath()
+                + "';\n"
+                + "{template bar}\n"
+                + "  {call foo /}\n"
+                + "{/template}\n");
+  }
+
+  @Test
+  public void testRequestsShareTheCache() throws IOException {
+    WorkRequest compileA = request(0, "--srcs", aSoy.getPath(), "--output", aHeader.getPath());
+    WorkRequest compileB =
+        request(
+            0,
+            "--srcs",
+            bSoy.getPath(),
+            "--depHeaders",
+            aHeader.getPath(),
+            "--output",
+            new File(temp.getRoot(), "b.soyh").getPath());
+
+    List<WorkResponse> responses = new ArrayList<>();
+    responses.addAll(run(compileA));
+    responses.addAll(run(compileB));
+    responses.addAll(run(compileB));
+
+    assertThat(responses).hasSize(3);
+    for (WorkResponse response : responses) {
+      assertThat(response.getOutput()).isEmpty();
+      assertThat(response.getExitCode()).isEqualTo(0);
+    }
+    // The dependency header of b.soy is only read the first time.
+    assertThat(cache.missCount()).isEqualTo(1);
+    assertThat(cache.hitCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testChangedDependencyIsReloaded() throws IOException {
+    WorkRequest compileB =
+        request(
+            0,
+            "--srcs",
+            bSoy.getPath(),
+            "--depHeaders",
+            aHeader.getPath(),
+            "--output",
+            new File(temp.getRoot(), "b.soyh").getPath());
+    run(request(0, "--srcs", aSoy.getPath(), "--output", aHeader.getPath()));
+    assertThat(run(compileB).get(0).getExitCode()).isEqualTo(0);
+
+    // Rename the template, b.soy should no longer compile.
+    Files.asCharSink(aSoy, UTF_8).write("{namespace a}\n{template baz}\n  Hello\n{/template}\n");
+    run(request(0, "--srcs", aSoy.getPath(), "--output", aHeader.getPath()));
+    WorkResponse response = run(compileB).get(0);
+
+    assertThat(response.getExitCode()).isEqualTo(1);
+    assertThat(response.getOutput()).contains("foo");
+  }
+
+  @Test
+  public void testUncompressedHeaders() throws IOException {
+    WorkResponse response =
+        run(
+                request(
+                    0,
+                    "--srcs",
+                    aSoy.getPath(),
+                    "--output",
+                    aHeader.getPath(),
+                    "--compress_output=false"))
+            .get(0);
+    assertThat(response.getExitCode()).isEqualTo(0);
+
+    response =
+        run(
+                request(
+                    0,
+                    "--srcs",
+                    bSoy.getPath(),
+                    "--depHeaders",
+                    aHeader.getPath(),
+                    "--output",
+                    new File(temp.getRoot(), "b.soyh").getPath()))
+            .get(0);
+    assertThat(response.getOutput()).isEmpty();
+    assertThat(response.getExitCode()).isEqualTo(0);
+  }
+
+  @Test
+  public void testProfileOutput() throws IOException {
+    File profile = new File(temp.getRoot(), "profile.json");
+    WorkResponse response =
+        run(
+                request(
+                    0,
+                    "--srcs",
+                    aSoy.getPath(),
+                    "--output",
+                    aHeader.getPath(),
+                    "--profile_output",
+                    profile.getPath()))
+            .get(0);
+
+    assertThat(response.getExitCode()).isEqualTo(0);
+    String trace = Files.asCharSource(profile, UTF_8).read();
+    assertThat(trace).contains("\"traceEvents\"");
+    assertThat(trace).contains("\"ResolveExpressionTypes\"");
+    assertThat(trace).contains(aSoy.getPath());
+  }
+
+  @Test
+  public void testErrorsAreReturnedInTheResponse() throws IOException {
+    Files.asCharSink(aSoy, UTF_8).write("{namespace a}\n{template foo}\n  {if}\n{/template}\n");
+
+    List<WorkResponse> responses =
+        run(request(0, "--srcs", aSoy.getPath(), "--output", aHeader.getPath()));
+
+    assertThat(responses.get(0).getExitCode()).isEqualTo(1);
+    assertThat(responses.get(0).getOutput()).contains("a.soy:3");
+  }
+
+  @Test
+  public void testMultiplexRequests() throws IOException {
+    List<WorkRequest> requests = new ArrayList<>();
+    for (int i = 1; i <= 8; i++) {
+      requests.add(
+          request(
+              i,
+              "--srcs",
+              aSoy.getPath(),
+              "--output",
+              new File(temp.getRoot(), "a" + i + ".soyh").getPath()));
+    }
+    List<WorkResponse> responses = run(requests.toArray(new WorkRequest[0]));
+
+    assertThat(responses.stream().map(WorkResponse::getRequestId).collect(toImmutableList()))
+        .containsExactly(1, 2, 3, 4, 5, 6, 7, 8);
+    for (WorkResponse response : responses) {
+      assertThat(response.getExitCode()).isEqualTo(0);
+      assertThat(new File(temp.getRoot(), "a" + response.getRequestId() + ".soyh").exists())
+          .isTrue();
+    }
+  }
+
+  private static WorkRequest request(int id, String... args) {
+    return WorkRequest.newBuilder()
+        .setRequestId(id)
+        .addAllArguments(ImmutableList.copyOf(args))
+        .build();
+  }
+
+  /** Sends the requests to the worker, with the digests of the inputs as they are now. */
+  private List<WorkResponse> run(WorkRequest... requests) throws IOException {
+    List<Input> inputs = new ArrayList<>();
+    for (File input : ImmutableList.of(aSoy, aHeader, bSoy)) {
+      if (input.exists()) {
+        inputs.add(
+            Input.newBuilder()
+                .setPath(input.getPath())
+                .setDigest(
+                    ByteString.copyFrom(
+                        Files.asByteSource(input).hash(Hashing.sha256()).asBytes()))
+                .build());
+      }
+    }
+    ByteArrayOutputStream in = new ByteArrayOutputStream();
+    for (WorkRequest request : requests) {
+      request.toBuilder().addAllInputs(inputs).build().writeDelimitedTo(in);
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    worker.run(new ByteArrayInputStream(in.toByteArray()), out);
+
+    List<WorkResponse> responses = new ArrayList<>();
+    ByteArrayInputStream responseStream = new ByteArrayInputStream(out.toByteArray());
+    WorkResponse response;
+    while ((response = WorkResponse.parseDelimitedFrom(responseStream)) != null) {
+      responses.add(response);
+    }
+    return responses;
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.template.soy.SoyFileSetParser.ParseResult;
+import com.google.template.soy.error.ErrorReporter;
+import com.google.template.soy.error.SoyError;
+import com.google.template.soy.soytree.SoyFileNode;
+import com.google.template.soy.testing.SoyFileSetParserBuilder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class SoyFileSetParserTest {
+
+  @Test
+  public void testParallelParse() {
+    String[] files = new String[32];
+    for (int i = 0; i < files.length; i++) {
+      files[i] =
+          "{namespace ns"
+              + i
+              + "}\n"
+              + "{template foo}\n"
+              + "  {@param p: string}\n"
+              + "  <div class=\"a\">{$p}</div>\n"
+              + "  {msg desc=\"...\"}Hello {$p}{/msg}\n"
+              + "{/template}\n";
+    }
+    ParseResult sequential = SoyFileSetParserBuilder.forFileContents(files).parse();
+    ParseResult parallel =
+        SoyFileSetParserBuilder.forFileContents(files).compilerThreads(4).parse();
+
+    assertThat(sourceStrings(parallel)).isEqualTo(sourceStrings(sequential));
+    assertThat(parallel.fileSet().getChildren().get(31).getNamespace()).isEqualTo("ns31");
+    assertThat(parallel.registry().getAllTemplates())
+        .hasSize(sequential.registry().getAllTemplates().size());
+  }
+
+  @Test
+  public void testParallelParse_errorsAreReportedInFileOrder() {
+    String[] files = new String[16];
+    for (int i = 0; i < files.length; i++) {
+      files[i] =
+          "{namespace ns"
+              + i
+              + "}\n"
+              + "{template foo}\n"
+              // Duplicate attributes are reported by a parse pass.
+              + "  <div id=\"a"
+              + i
+              + "\" id=\"b\"></div>\n"
+              + (i % 5 == 0 ? "  {if}\n" : "")
+              + "{/template}\n";
+    }
+    ErrorReporter sequentialReporter = ErrorReporter.create();
+    SoyFileSetParserBuilder.forFileContents(files).errorReporter(sequentialReporter).parse();
+    ErrorReporter parallelReporter = ErrorReporter.create();
+    SoyFileSetParserBuilder.forFileContents(files)
+        .errorReporter(parallelReporter)
+        .compilerThreads(4)
+        .parse();
+
+    // Files with syntax errors don't get to the parse passes, so there is one error per file.
+    assertThat(sequentialReporter.getErrors()).hasSize(files.length);
+    assertThat(messages(parallelReporter.getReports()))
+        .isEqualTo(messages(sequentialReporter.getReports()));
+  }
+
+  private static ImmutableList<String> sourceStrings(ParseResult result) {
+    return result.fileSet().getChildren().stream()
+        .map(SoyFileNode::toSourceString)
+        .collect(toImmutableList());
+  }
+
+  private static ImmutableList<String> messages(ImmutableList<SoyError> errors) {
+    return errors.stream()
+        .map(error -> error.location() + ": " + error.message())
+        .collect(toImmutableList());
+  }
+}
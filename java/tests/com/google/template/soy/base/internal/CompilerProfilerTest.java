@@ -0,0 +1,80 @@
+/*
+ * Copyright 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.base.internal;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.io.StringWriter;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class CompilerProfilerTest {
+
+  @Test
+  public void testSpansAreRecorded() {
+    CompilerProfiler profiler = CompilerProfiler.create();
+    try (CompilerProfiler.Span outer = profiler.start("backend", "Jssrc")) {
+      try (CompilerProfiler.Span inner = profiler.start("pass", "ResolveNames", "a.soy")) {
+        int[] unused = new int[1024];
+      }
+    }
+
+    CompilerProfiler.Event inner = profiler.getEvents().get(0);
+    CompilerProfiler.Event outer = profiler.getEvents().get(1);
+    assertThat(inner.category()).isEqualTo("pass");
+    assertThat(inner.name()).isEqualTo("ResolveNames");
+    assertThat(inner.file()).isEqualTo("a.soy");
+    assertThat(outer.file()).isNull();
+    assertThat(outer.wallNanos()).isAtLeast(inner.wallNanos());
+    assertThat(inner.cpuNanos()).isAtLeast(-1);
+    assertThat(inner.allocatedBytes()).isAtLeast(-1);
+  }
+
+  @Test
+  public void testNoneDoesNotRecord() {
+    try (CompilerProfiler.Span span = CompilerProfiler.NONE.start("pass", "ResolveNames")) {}
+
+    assertThat(CompilerProfiler.NONE.isEnabled()).isFalse();
+    assertThat(CompilerProfiler.NONE.getEvents()).isEmpty();
+  }
+
+  @Test
+  public void testTraceEvents() throws IOException {
+    CompilerProfiler profiler = CompilerProfiler.create();
+    try (CompilerProfiler.Span span = profiler.start("parse", "Parse", "dir/a \"b\".soy")) {}
+    StringWriter out = new StringWriter();
+    profiler.writeTraceEvents(out);
+
+    JsonArray events =
+        JsonParser.parseString(out.toString()).getAsJsonObject().getAsJsonArray("traceEvents");
+    assertThat(events.size()).isEqualTo(1);
+    JsonObject event = events.get(0).getAsJsonObject();
+    assertThat(event.get("name").getAsString()).isEqualTo("Parse");
+    assertThat(event.get("cat").getAsString()).isEqualTo("parse");
+    assertThat(event.get("ph").getAsString()).isEqualTo("X");
+    JsonObject args = event.getAsJsonObject("args");
+    assertThat(args.get("file").getAsString()).isEqualTo("dir/a \"b\".soy");
+    assertThat(args.has("cpuMicros")).isTrue();
+    assertThat(args.has("allocatedBytes")).isTrue();
+  }
+}
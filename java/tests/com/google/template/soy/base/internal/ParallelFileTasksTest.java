@@ -0,0 +1,121 @@
+/*
+ * Copyright 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.base.internal;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.collect.ImmutableList;
+import com.google.template.soy.base.SourceLocation;
+import com.google.template.soy.compilermetrics.Impression;
+import com.google.template.soy.error.ErrorReporter;
+import com.google.template.soy.error.SoyError;
+import com.google.template.soy.error.SoyErrorKind;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class ParallelFileTasksTest {
+
+  private static final SoyErrorKind ERROR =
+      SoyErrorKind.of("Error {0}.", Impression.MAIN_UNEXPECTED_DIAGNOSTIC);
+
+  private static final ImmutableList<Integer> INPUTS =
+      IntStream.range(0, 64).boxed().collect(toImmutableList());
+
+  @Test
+  public void testResultsAreInInputOrder() {
+    List<String> results =
+        ParallelFileTasks.run(INPUTS, 4, ErrorReporter.exploding(), (i, reporter) -> "r" + i);
+    assertThat(results)
+        .containsExactlyElementsIn(INPUTS.stream().map(i -> "r" + i).collect(toImmutableList()))
+        .inOrder();
+  }
+
+  @Test
+  public void testErrorsAreReportedInInputOrder() {
+    ErrorReporter errorReporter = ErrorReporter.create();
+    List<Integer> results =
+        ParallelFileTasks.run(
+            INPUTS,
+            4,
+            errorReporter,
+            (i, reporter) -> {
+              if (i % 3 == 0) {
+                reporter.report(SourceLocation.UNKNOWN, ERROR, i);
+                return null;
+              }
+              return i;
+            });
+
+    assertThat(results.get(0)).isNull();
+    assertThat(results.get(1)).isEqualTo(1);
+    ImmutableList<String> expected =
+        INPUTS.stream()
+            .filter(i -> i % 3 == 0)
+            .map(i -> "Error " + i + ".")
+            .collect(toImmutableList());
+    assertThat(errorReporter.getErrors().stream().map(SoyError::message).collect(toImmutableList()))
+        .containsExactlyElementsIn(expected)
+        .inOrder();
+  }
+
+  @Test
+  public void testSingleThreadReportsDirectly() {
+    ErrorReporter errorReporter = ErrorReporter.create();
+    Thread caller = Thread.currentThread();
+    ParallelFileTasks.run(
+        INPUTS,
+        1,
+        errorReporter,
+        (i, reporter) -> {
+          assertThat(reporter).isSameInstanceAs(errorReporter);
+          assertThat(Thread.currentThread()).isSameInstanceAs(caller);
+          return i;
+        });
+  }
+
+  @Test
+  public void testExceptionsArePropagated() {
+    IllegalStateException thrown =
+        assertThrows(
+            IllegalStateException.class,
+            () ->
+                ParallelFileTasks.run(
+                    INPUTS,
+                    4,
+                    ErrorReporter.exploding(),
+                    (i, reporter) -> {
+                      if (i == 17) {
+                        throw new IllegalStateException("boom");
+                      }
+                      return i;
+                    }));
+    assertThat(thrown).hasMessageThat().isEqualTo("boom");
+  }
+
+  @Test
+  public void testThreadsMustBePositive() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> ParallelFileTasks.run(INPUTS, 0, ErrorReporter.exploding(), (i, reporter) -> i));
+  }
+}
@@ -18,6 +18,8 @@ package com.google.template.soy.data.restricted;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
@@ -146,4 +148,34 @@ public class PrimitiveDataTest {
     assertFalse(sd0.equals(sd1));
     assertFalse(sd1.equals(sd0));
   }
+
+  @Test
+  public void testSmallValuesAreCached() {
+    assertSame(IntegerData.ZERO, IntegerData.forValue(0));
+    assertSame(IntegerData.MINUS_ONE, IntegerData.forValue(-1));
+    assertSame(IntegerData.forValue(-128), IntegerData.forValue(-128));
+    assertSame(IntegerData.forValue(1023), IntegerData.forValue(1023));
+    assertNotSame(IntegerData.forValue(1024), IntegerData.forValue(1024));
+    assertEquals(1024, IntegerData.forValue(1024).getValue());
+    assertEquals(-129, IntegerData.forValue(-129).getValue());
+
+    assertSame(FloatData.forValue(2.0), FloatData.forValue(2.0));
+    assertNotSame(FloatData.forValue(2.5), FloatData.forValue(2.5));
+    // -0.0 formats differently from 0.0 so it must not share its instance.
+    assertEquals("-0.0", FloatData.forValue(-0.0).coerceToString());
+    assertEquals("0", FloatData.forValue(0.0).coerceToString());
+    assertEquals("NaN", FloatData.forValue(Double.NaN).coerceToString());
+
+    assertSame(StringData.EMPTY_STRING, StringData.forValue(""));
+    assertSame(StringData.forValue("a"), StringData.forValue("a"));
+    assertEquals("\u00e9", StringData.forValue("\u00e9").getValue());
+  }
+
+  @Test
+  public void testStringDataForConstant() {
+    StringData constant = StringData.forConstant("boo");
+    assertEquals("boo", constant.getValue());
+    assertSame(constant, StringData.forConstant(new String("boo")));
+    assertSame(StringData.EMPTY_STRING, StringData.forConstant(""));
+  }
 }
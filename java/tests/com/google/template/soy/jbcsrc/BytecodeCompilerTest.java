@@ -26,6 +26,7 @@ import static com.google.template.soy.jbcsrc.TemplateTester.assertThatFile;
 import static com.google.template.soy.jbcsrc.TemplateTester.assertThatTemplateBody;
 import static com.google.template.soy.jbcsrc.TemplateTester.getDefaultContext;
 import static com.google.template.soy.jbcsrc.TemplateTester.getDefaultContextWithDebugInfo;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Arrays.stream;
 import static org.junit.Assert.fail;
 
@@ -34,7 +35,9 @@ import com.google.common.collect.HashMultiset;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.template.soy.SoyFileSetParser;
 import com.google.template.soy.SoyFileSetParser.ParseResult;
 import com.google.template.soy.base.SourceFilePath;
@@ -60,8 +63,10 @@ import com.google.template.soy.data.restricted.StringData;
 import com.google.template.soy.data.restricted.UndefinedData;
 import com.google.template.soy.error.ErrorReporter;
 import com.google.template.soy.jbcsrc.TemplateTester.CompiledTemplateSubject;
+import com.google.template.soy.jbcsrc.api.OutputAppendable;
 import com.google.template.soy.jbcsrc.api.SoySauce;
 import com.google.template.soy.jbcsrc.api.SoySauceBuilder;
+import com.google.template.soy.jbcsrc.api.Utf8OutputAppendable;
 import com.google.template.soy.jbcsrc.runtime.DetachableContentProvider;
 import com.google.template.soy.jbcsrc.shared.CompiledTemplate;
 import com.google.template.soy.jbcsrc.shared.CompiledTemplates;
@@ -81,15 +86,26 @@ import com.google.template.soy.shared.restricted.SoyJavaFunction;
 import com.google.template.soy.soytree.CompilationUnitAndKind;
 import com.google.template.soy.soytree.TemplateMetadataSerializer;
 import com.google.template.soy.testing.SoyFileSetParserBuilder;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.net.URLClassLoader;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
+import java.util.jar.JarFile;
 import javax.annotation.Nullable;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
@@ -98,6 +114,8 @@ import org.junit.runners.JUnit4;
 public class BytecodeCompilerTest {
   public static final SoyList EMPTY_LIST = ListImpl.forProviderList(ImmutableList.of());
 
+  @Rule public final TemporaryFolder temp = new TemporaryFolder();
+
   @Test
   public void testDelCall_modSelections() throws IOException {
     SoyFileSupplier soyFileContent1 =
@@ -213,6 +231,18 @@ public class BytecodeCompilerTest {
     activePackages = "NonexistentFeature"::equals;
     assertThat(renderWithContext(template, getDefaultContext(templates, activePackages)))
         .isEqualTo("default");
+
+    // Selections are shared between renders with the same set of active mods, so the selector is
+    // only consulted once for each mod that is referenced by a deltemplate.
+    AtomicInteger calls = new AtomicInteger();
+    activePackages =
+        mod -> {
+          calls.incrementAndGet();
+          return mod.equals("SecretFeature");
+        };
+    assertThat(renderWithContext(template, getDefaultContext(templates, activePackages)))
+        .isEqualTo("SecretFeature aaaaaah");
+    assertThat(calls.get()).isEqualTo(2);
   }
 
   @Test
@@ -267,6 +297,30 @@ public class BytecodeCompilerTest {
         .isEqualTo("foo");
   }
 
+  @Test
+  public void testRawText_utf8Constants() throws IOException {
+    // Large enough to need splitting into several class file constants.
+    String large = "é".repeat(40_000);
+    CompiledTemplates templates =
+        TemplateTester.compileTemplateBodyWithUtf8Constants(
+            "héllo {'wörld'} " + large + " 😀");
+    CompiledTemplate template = templates.getTemplate("ns.foo");
+    String expected = "héllo wörld " + large + " 😀";
+    assertThat(renderWithContext(template, getDefaultContext(templates))).isEqualTo(expected);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    Utf8OutputAppendable utf8 = Utf8OutputAppendable.create(bytes);
+    assertThat(
+            template.render(
+                null,
+                ParamStore.EMPTY_INSTANCE,
+                OutputAppendable.create(utf8, null),
+                getDefaultContext(templates)))
+        .isNull();
+    utf8.finish();
+    assertThat(bytes.toByteArray()).isEqualTo(expected.getBytes(UTF_8));
+  }
+
   private static String renderWithContext(CompiledTemplate template, RenderContext context)
       throws IOException {
     BufferingAppendable builder = LoggingAdvisingAppendable.buffering();
@@ -1392,6 +1446,121 @@ public class BytecodeCompilerTest {
             "com.google.template.soy.jbcsrc.gen.loader2");
   }
 
+  @Test
+  public void testCompileToJar_eagerLoading() throws Exception {
+    SoyFileSetParser parser =
+        createParserForFileContents(
+            ImmutableMap.of(
+                "ns.soy",
+                Joiner.on("\n")
+                    .join(
+                        "{namespace ns}",
+                        "{template publicTemplate}",
+                        "  {@param p : string}",
+                        "  {let $greeting kind=\"text\"}Hello {$p}{/let}",
+                        "  {$greeting} {call privateTemplate /}",
+                        "{/template}",
+                        "{template privateTemplate visibility=\"private\"}",
+                        "  PVT",
+                        "{/template}")));
+    ParseResult parseResult = parser.parse();
+    File jar = temp.newFile("templates.jar");
+    BytecodeCompiler.compileToJar(
+        parseResult.fileSet(),
+        ErrorReporter.explodeOnErrorsAndIgnoreDeprecations(),
+        parser.typeRegistry(),
+        Files.asByteSink(jar),
+        parseResult.registry());
+
+    try (JarFile jarFile = new JarFile(jar)) {
+      assertThat(readJarEntry(jarFile, Names.META_INF_TEMPLATES_PATH))
+          .isEqualTo("ns.publicTemplate");
+      ImmutableList<String> classes =
+          ImmutableList.copyOf(readJarEntry(jarFile, Names.META_INF_CLASSLIST_PATH).split("\n"));
+      assertThat(classes).contains("com/google/template/soy/jbcsrc/gen/ns");
+      for (String clazz : classes) {
+        assertThat(jarFile.getEntry(clazz + ".class")).isNotNull();
+      }
+    }
+
+    Set<String> loadedClasses = ConcurrentHashMap.newKeySet();
+    try (URLClassLoader loader =
+        new URLClassLoader(
+            new URL[] {jar.toURI().toURL()}, BytecodeCompilerTest.class.getClassLoader()) {
+          @Override
+          protected Class<?> findClass(String name) throws ClassNotFoundException {
+            loadedClasses.add(name);
+            return super.findClass(name);
+          }
+        }) {
+      SoySauce sauce =
+          new SoySauceBuilder()
+              .withClassLoader(loader)
+              .withEagerLoading(MoreExecutors.directExecutor())
+              .build();
+      assertThat(loadedClasses).contains("com.google.template.soy.jbcsrc.gen.ns");
+      assertThat(
+              sauce
+                  .renderTemplate("ns.publicTemplate")
+                  .setData(ImmutableMap.of("p", "world"))
+                  .renderHtml()
+                  .get()
+                  .toString())
+          .isEqualTo("Hello world PVT");
+    }
+  }
+
+  @Test
+  public void testCompileToJar_parallel() throws Exception {
+    ImmutableMap.Builder<String, String> files = ImmutableMap.builder();
+    for (int i = 0; i < 16; i++) {
+      // Each file calls the next one.
+      boolean last = i == 15;
+      files.put(
+          "ns" + i + ".soy",
+          Joiner.on("\n")
+              .join(
+                  "{namespace ns" + i + "}",
+                  last ? "" : "import {publicTemplate as next} from 'ns" + (i + 1) + ".soy';",
+                  "{template publicTemplate}",
+                  "  {@param? p : string}",
+                  last ? "  {$p}" : "  {call next}{param p: $p /}{/call} ns" + i,
+                  "{/template}",
+                  "{template modTemplate modifiable=\"true\"}",
+                  "  default",
+                  "{/template}"));
+    }
+    SoyFileSetParser parser = createParserForFileContents(files.buildOrThrow());
+    ParseResult parseResult = parser.parse();
+    File sequentialJar = temp.newFile("sequential.jar");
+    BytecodeCompiler.compileToJar(
+        parseResult.fileSet(),
+        ErrorReporter.explodeOnErrorsAndIgnoreDeprecations(),
+        parser.typeRegistry(),
+        Files.asByteSink(sequentialJar),
+        parseResult.registry());
+    File parallelJar = temp.newFile("parallel.jar");
+    BytecodeCompiler.compileToJar(
+        parseResult.fileSet(),
+        ErrorReporter.explodeOnErrorsAndIgnoreDeprecations(),
+        parser.typeRegistry(),
+        Files.asByteSink(parallelJar),
+        parseResult.registry(),
+        /* compilerThreads= */ 4);
+
+    assertThat(Files.asByteSource(parallelJar).contentEquals(Files.asByteSource(sequentialJar)))
+        .isTrue();
+    try (JarFile jarFile = new JarFile(parallelJar)) {
+      assertThat(readJarEntry(jarFile, Names.META_INF_TEMPLATES_PATH).split("\n")).hasLength(32);
+    }
+  }
+
+  private static String readJarEntry(JarFile jarFile, String name) throws IOException {
+    try (InputStream in = jarFile.getInputStream(jarFile.getEntry(name))) {
+      return new String(in.readAllBytes(), UTF_8);
+    }
+  }
+
   private static class DelegatingClassLoader extends ClassLoader implements DebuggingClassLoader {
     private final CompilingClassLoader loader1;
     private final CompilingClassLoader loader2;
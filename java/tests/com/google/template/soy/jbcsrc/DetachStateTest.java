@@ -131,6 +131,38 @@ public final class DetachStateTest {
     assertThat(output.toString()).isEqualTo("prefix future suffix");
   }
 
+  @Test
+  public void testPrefetchParams_detachesOnceForAllParams() throws IOException {
+    SettableFuture<String> foo = SettableFuture.create();
+    SettableFuture<String> bar = SettableFuture.create();
+    CompiledTemplates templates =
+        TemplateTester.compileTemplateBodyWithPrefetchParams(
+            "{@param foo : string}",
+            "{@param bar : string}",
+            "{@param? baz : string}",
+            "prefix{sp}{$foo}{sp}{$bar}{if $baz}{$baz}{/if}");
+    CompiledTemplate template = templates.getTemplate("ns.foo");
+    RenderContext context = getDefaultContext(templates);
+    BufferingAppendable output = LoggingAdvisingAppendable.buffering();
+    TemplateRenderer renderer =
+        (frame) ->
+            template.render(
+                frame, asParams(ImmutableMap.of("foo", foo, "bar", bar)), output, context);
+
+    var result = renderer.render();
+    // Nothing is rendered until both definitely referenced params are available.
+    assertThat(output.toString()).isEmpty();
+    ListenableFuture<?> allParams = (ListenableFuture<?>) result.asRenderResult().future();
+    bar.set("bar");
+    assertThat(allParams.isDone()).isFalse();
+    foo.set("foo");
+    assertThat(allParams.isDone()).isTrue();
+
+    result = renderer.render(result);
+    assertThat(result).isNull();
+    assertThat(output.toString()).isEqualTo("prefix foo bar");
+  }
+
   @Test
   public void testDetachOnEachIteration() throws IOException {
     CompiledTemplates templates =
@@ -38,6 +38,7 @@ import com.google.template.soy.data.SoyRecord;
 import com.google.template.soy.data.SoyValueConverter;
 import com.google.template.soy.data.SoyValueConverterUtility;
 import com.google.template.soy.data.internal.ParamStore;
+import com.google.template.soy.data.restricted.StringData;
 import com.google.template.soy.error.ErrorReporter;
 import com.google.template.soy.jbcsrc.restricted.BytecodeUtils;
 import com.google.template.soy.jbcsrc.restricted.Expression;
@@ -50,6 +51,7 @@ import com.google.template.soy.jbcsrc.shared.CompiledTemplate;
 import com.google.template.soy.jbcsrc.shared.CompiledTemplates;
 import com.google.template.soy.jbcsrc.shared.RenderContext;
 import com.google.template.soy.jbcsrc.shared.StackFrame;
+import com.google.template.soy.shared.internal.Sanitizers;
 import com.google.template.soy.testing.SoyFileSetParserBuilder;
 import java.io.IOException;
 import java.util.List;
@@ -217,6 +219,46 @@ public final class StreamingPrintDirectivesTest {
     assertThat(output.getAndClearBuffer()).isEqualTo("<div class=\"foo\"></div>");
   }
 
+  @Test
+  public void testStreamingEscapersSkipStringsTheyLeaveUnchanged() throws IOException {
+    CompiledTemplates templates =
+        compileFile(
+            "{namespace ns}",
+            "",
+            "{template foo}",
+            "  {@param name : string}",
+            "  <div title=\"{$name}\">{$name}</div><span title=\"{$name}\">{$name}</span>",
+            "{/template}");
+    CompiledTemplate template = templates.getTemplate("ns.foo");
+    RenderContext context = getDefaultContext(templates);
+    BufferingAppendable output = BufferingAppendable.buffering();
+
+    // The first print escapes the value and records that it was left unchanged.
+    StringData clean = StringData.forValue("Ada Lovelace");
+    assertThat(template.render(null, nameParam(clean), output, context)).isNull();
+    assertThat(output.getAndClearBuffer())
+        .isEqualTo(
+            "<div title=\"Ada Lovelace\">Ada Lovelace</div>"
+                + "<span title=\"Ada Lovelace\">Ada Lovelace</span>");
+    assertThat(clean.isUnchangedByEscaper(Sanitizers.ESCAPE_HTML_BIT)).isTrue();
+
+    // Prints in both HTML and attribute contexts trust the record instead of escaping again, which
+    // a value with a false record makes visible.
+    StringData falselyMarked = StringData.forValue("<b>");
+    falselyMarked.markUnchangedByEscaper(Sanitizers.ESCAPE_HTML_BIT);
+    assertThat(template.render(null, nameParam(falselyMarked), output, context)).isNull();
+    assertThat(output.getAndClearBuffer())
+        .isEqualTo("<div title=\"<b>\"><b></div><span title=\"<b>\"><b></span>");
+
+    // Values that need escaping are escaped every time.
+    StringData dirty = StringData.forValue("<b>");
+    assertThat(template.render(null, nameParam(dirty), output, context)).isNull();
+    assertThat(output.getAndClearBuffer())
+        .isEqualTo(
+            "<div title=\"&lt;b&gt;\">&lt;b&gt;</div><span title=\"&lt;b&gt;\">&lt;b&gt;</span>");
+    assertThat(dirty.isUnchangedByEscaper(Sanitizers.ESCAPE_HTML_BIT)).isFalse();
+  }
+
   @Test
   public void testStreamingCall() throws Exception {
     // As of right now only a few directives support streaming, but this includes |escapeHtml and
@@ -332,6 +374,10 @@ public final class StreamingPrintDirectivesTest {
     return output.getAndClearBuffer();
   }
 
+  private static ParamStore nameParam(StringData name) {
+    return new ParamStore(1).setField(RecordProperty.get("name"), name);
+  }
+
   static CompiledTemplates compileFile(String... fileBody) {
     String file = Joiner.on('\n').join(fileBody);
     SoyFileSetParser parser =
@@ -16,10 +16,12 @@
 
 package com.google.template.soy.jbcsrc;
 
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.truth.Truth.assertThat;
 import static org.junit.Assert.fail;
 
 import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.template.soy.base.SourceLocation;
 import com.google.template.soy.basetree.Node;
@@ -40,6 +42,7 @@ import com.google.template.soy.soytree.SoyNode.MsgSubstUnitNode;
 import com.google.template.soy.soytree.SoyTreeUtils;
 import com.google.template.soy.soytree.SoyTreeUtils.VisitDirective;
 import com.google.template.soy.soytree.TemplateNode;
+import com.google.template.soy.soytree.defn.TemplateParam;
 import com.google.template.soy.testing.SoyFileSetParserBuilder;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -483,6 +486,31 @@ public final class TemplateAnalysisTest {
         "{refed($p)}");
   }
 
+  @Test
+  public void testDefinitelyReferencedParams() {
+    assertThat(
+            definitelyReferencedParams(
+                "{@param a : string}",
+                "{@param b : string}",
+                "{@param c : string}",
+                "{@param d : string}",
+                "{@param e : ?}",
+                "{@param f : string}",
+                "{$a}",
+                "{$b ? $c : $c + $d}",
+                "{call foo}{param p1 : $e /}{/call}",
+                "{let $l : $f /}",
+                "{$l}"))
+        .containsExactly("a", "b", "c", "f")
+        .inOrder();
+
+    // loops may not execute at all
+    assertThat(
+            definitelyReferencedParams(
+                "{@param a : list<string>}", "{@param b : string}", "{for $i in $a}{$b}{/for}"))
+        .containsExactly("a");
+  }
+
   // we can construct a deep analysis graph with a large number of sequential if-statements
   @Test
   public void testDeepGraph() {
@@ -496,6 +524,14 @@ public final class TemplateAnalysisTest {
     runTest(longTemplate.toString());
   }
 
+  private static ImmutableList<String> definitelyReferencedParams(String... lines) {
+    return TemplateAnalysisImpl.analyze(parseTemplate(lines))
+        .getDefinitelyReferencedParams()
+        .stream()
+        .map(TemplateParam::name)
+        .collect(toImmutableList());
+  }
+
   void runTest(String... lines) {
     TemplateNode template = parseTemplate(lines);
     TemplateAnalysisImpl analysis = TemplateAnalysisImpl.analyze(template);
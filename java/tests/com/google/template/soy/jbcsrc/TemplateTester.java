@@ -532,6 +532,40 @@ public final class TemplateTester {
         .get();
   }
 
+  /**
+   * Like {@link #compileTemplateBody}, but the template waits for all the params it will definitely
+   * reference before rendering.
+   */
+  static CompiledTemplates compileTemplateBodyWithPrefetchParams(String... body) {
+    return compileTemplateBodyWithOptions(
+        /* prefetchParams= */ true, /* utf8Constants= */ false, body);
+  }
+
+  /**
+   * Like {@link #compileTemplateBody}, but raw text is compiled along with a pre-encoded UTF-8
+   * copy.
+   */
+  static CompiledTemplates compileTemplateBodyWithUtf8Constants(String... body) {
+    return compileTemplateBodyWithOptions(
+        /* prefetchParams= */ false, /* utf8Constants= */ true, body);
+  }
+
+  private static CompiledTemplates compileTemplateBodyWithOptions(
+      boolean prefetchParams, boolean utf8Constants, String... body) {
+    SoyFileSetParser parser = SoyFileSetParserBuilder.forFileContents(toTemplate(body)).build();
+    ParseResult parseResult = parser.parse();
+    return BytecodeCompiler.compile(
+            parseResult.registry(),
+            parseResult.fileSet(),
+            ErrorReporter.exploding(),
+            parser.soyFileSuppliers(),
+            parser.typeRegistry(),
+            /* previous= */ null,
+            prefetchParams,
+            utf8Constants)
+        .get();
+  }
+
   static CompiledTemplates compileFileWithImports(
       GenericDescriptor[] protoImports, String... fileBody) {
     String file = Joiner.on('\n').join(fileBody);
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.jbcsrc.api;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.template.soy.SoyFileSet;
+import com.google.template.soy.base.internal.SoyFileKind;
+import com.google.template.soy.data.SanitizedContent;
+import com.google.template.soy.testing.Foo;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class AsyncRenderingTest {
+
+  private SoySauce sauce;
+
+  @Before
+  public void setUp() throws Exception {
+    SoyFileSet.Builder builder = SoyFileSet.builder();
+    builder.add(AsyncRenderingTest.class.getResource("strict.soy"));
+    builder.addSourceFunction(new TestAsyncPlugin());
+    builder.addProtoDescriptors(SoyFileKind.DEP, Foo.getDescriptor());
+    sauce = builder.build().compileTemplates();
+  }
+
+  @Test
+  public void testRender_resumesWhenListenableFutureCompletes() throws Exception {
+    StringBuilder sb = new StringBuilder();
+    SettableFuture<String> p = SettableFuture.create();
+    CompletableFuture<Void> result =
+        AsyncRendering.render(
+            () ->
+                sauce
+                    .renderTemplate("strict_test.withParam")
+                    .setData(ImmutableMap.of("p", p))
+                    .renderHtml(sb),
+            MoreExecutors.directExecutor());
+
+    assertThat(result.isDone()).isFalse();
+    assertThat(sb.toString()).isEqualTo("Hello, ");
+
+    p.set("tigger");
+    assertThat(result.isDone()).isTrue();
+    result.get();
+    assertThat(sb.toString()).isEqualTo("Hello, tigger");
+  }
+
+  @Test
+  public void testRender_resumesWhenCompletableFutureCompletes() throws Exception {
+    StringBuilder sb = new StringBuilder();
+    CompletableFuture<String> p = new CompletableFuture<>();
+    CompletableFuture<Void> result =
+        AsyncRendering.render(
+            () ->
+                sauce
+                    .renderTemplate("strict_test.withParam")
+                    .setData(ImmutableMap.of("p", p))
+                    .renderHtml(sb),
+            MoreExecutors.directExecutor());
+
+    assertThat(result.isDone()).isFalse();
+    p.complete("piglet");
+    result.get(10, SECONDS);
+    assertThat(sb.toString()).isEqualTo("Hello, piglet");
+  }
+
+  @Test
+  public void testRender_waitsForOtherFuturesOnVirtualThread() throws Exception {
+    StringBuilder sb = new StringBuilder();
+    FutureTask<String> p = new FutureTask<>(() -> "eeyore");
+    CompletableFuture<Void> result =
+        AsyncRendering.render(
+            () ->
+                sauce
+                    .renderTemplate("strict_test.withParam")
+                    .setData(ImmutableMap.of("p", p))
+                    .renderHtml(sb));
+
+    p.run();
+    result.get(10, SECONDS);
+    assertThat(sb.toString()).isEqualTo("Hello, eeyore");
+  }
+
+  @Test
+  public void testRender_propagatesFailures() {
+    SettableFuture<String> p = SettableFuture.create();
+    CompletableFuture<Void> result =
+        AsyncRendering.render(
+            () ->
+                sauce
+                    .renderTemplate("strict_test.withParam")
+                    .setData(ImmutableMap.of("p", p))
+                    .renderHtml(new StringBuilder()),
+            MoreExecutors.directExecutor());
+
+    p.setException(new IllegalStateException("boom"));
+    ExecutionException ee = assertThrows(ExecutionException.class, result::get);
+    assertThat(ee).hasCauseThat().hasCauseThat().hasMessageThat().isEqualTo("boom");
+  }
+
+  @Test
+  public void testRenderToValue() throws Exception {
+    SettableFuture<String> p = SettableFuture.create();
+    CompletableFuture<SanitizedContent> result =
+        AsyncRendering.renderToValue(
+            () ->
+                sauce
+                    .renderTemplate("strict_test.withParam")
+                    .setData(ImmutableMap.of("p", p))
+                    .renderHtml());
+
+    p.set("pooh bear");
+    assertThat(result.get(10, SECONDS).getContent()).isEqualTo("Hello, pooh bear");
+  }
+}
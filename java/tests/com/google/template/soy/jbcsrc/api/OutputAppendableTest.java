@@ -17,6 +17,7 @@
 package com.google.template.soy.jbcsrc.api;
 
 import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 import com.google.common.base.Functions;
 import com.google.common.collect.ImmutableList;
@@ -25,6 +26,7 @@ import com.google.common.html.types.SafeHtml;
 import com.google.template.soy.data.LogStatement;
 import com.google.template.soy.data.LoggingFunctionInvocation;
 import com.google.template.soy.logging.SoyLogger;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.Optional;
 import org.junit.Test;
@@ -161,4 +163,24 @@ public final class OutputAppendableTest {
         .exitLoggableElement();
     assertThat(buffer.toString()).isEqualTo("<a data-foo=\"bar\"></a>");
   }
+
+  @Test
+  public void testAppendUtf8Constant() throws IOException {
+    // Use different text and bytes so we can tell which was written.
+    byte[] utf8 = "bytes".getBytes(UTF_8);
+
+    var buffer = new StringBuilder();
+    OutputAppendable.create(buffer).appendUtf8Constant("text", utf8);
+    assertThat(buffer.toString()).isEqualTo("text");
+
+    var bytes = new ByteArrayOutputStream();
+    var sink = Utf8OutputAppendable.create(bytes);
+    OutputAppendable appendable = OutputAppendable.create(sink, LOGGER);
+    appendable.appendUtf8Constant("text", utf8);
+    appendable.enterLoggableElement(LOGONLY);
+    appendable.appendUtf8Constant("text", utf8);
+    appendable.exitLoggableElement();
+    sink.finish();
+    assertThat(bytes.toString(UTF_8)).isEqualTo("bytes");
+  }
 }
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.jbcsrc.api;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.testing.FakeTicker;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.template.soy.SoyFileSet;
+import com.google.template.soy.jbcsrc.api.SamplingRenderListener.TemplateStats;
+import com.google.template.soy.jbcsrc.api.SoySauce.WriteContinuation;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class SamplingRenderListenerTest {
+
+  private static final String SOY =
+      "{namespace ns}\n"
+          + "{template outer}\n"
+          + "  {@param p: string}\n"
+          + "  <div>{call inner}{param p: $p /}{/call}</div>\n"
+          + "{/template}\n"
+          + "{template inner}\n"
+          + "  {@param p: string}\n"
+          + "  <span>{$p}</span>\n"
+          + "{/template}\n";
+
+  private SoySauce sauce;
+
+  @Before
+  public void setUp() {
+    sauce = SoyFileSet.builder().add(SOY, "test.soy").build().compileTemplates();
+  }
+
+  @Test
+  public void testListenerCallbacks() throws IOException {
+    List<String> events = new ArrayList<>();
+    SoyRenderListener listener =
+        new SoyRenderListener() {
+          @Override
+          public void onTemplateEnter(String templateName, long outputLength) {
+            events.add("enter " + templateName + " " + outputLength);
+          }
+
+          @Override
+          public void onTemplateExit(String templateName, long outputLength) {
+            events.add("exit " + templateName + " " + outputLength);
+          }
+
+          @Override
+          public void onTemplateDetach(String templateName, long outputLength) {
+            events.add("detach " + templateName + " " + outputLength);
+          }
+
+          @Override
+          public void onTemplateResume(String templateName, long outputLength) {
+            events.add("resume " + templateName + " " + outputLength);
+          }
+
+          @Override
+          public void onOutputFlushed(long outputLength) {
+            events.add("flushed " + outputLength);
+          }
+        };
+    SettableFuture<String> p = SettableFuture.create();
+    StringBuilder sb = new StringBuilder();
+    WriteContinuation continuation =
+        sauce
+            .renderTemplate("ns.outer")
+            .setData(ImmutableMap.of("p", p))
+            .setRenderListener(listener)
+            .renderHtml(sb);
+    assertThat(continuation.result().isDone()).isFalse();
+    assertThat(events)
+        .containsExactly(
+            "enter ns.outer 0",
+            "enter ns.inner 5",
+            "detach ns.inner 11",
+            "detach ns.outer 11",
+            "flushed 11")
+        .inOrder();
+
+    events.clear();
+    p.set("hi");
+    continuation = continuation.continueRender();
+    assertThat(continuation.result().isDone()).isTrue();
+    assertThat(sb.toString()).isEqualTo("<div><span>hi</span></div>");
+    assertThat(events)
+        .containsExactly(
+            "resume ns.outer 11",
+            "resume ns.inner 11",
+            "exit ns.inner 20",
+            "exit ns.outer 26",
+            "flushed 26")
+        .inOrder();
+  }
+
+  @Test
+  public void testSampling() throws IOException {
+    FakeTicker ticker = new FakeTicker();
+    SamplingRenderListener stats = SamplingRenderListener.create(2, ticker);
+
+    for (int i = 0; i < 4; i++) {
+      SoyRenderListener listener = stats.newRenderListener();
+      assertThat(listener == SoyRenderListener.NO_OP).isEqualTo(i % 2 == 1);
+      SettableFuture<String> p = SettableFuture.create();
+      WriteContinuation continuation =
+          sauce
+              .renderTemplate("ns.outer")
+              .setData(ImmutableMap.of("p", p))
+              .setRenderListener(listener)
+              .renderHtml(new StringBuilder());
+      ticker.advance(1000);
+      p.set("hi");
+      // Time spent detached doesn't count.
+      assertThat(continuation.continueRender().result().isDone()).isTrue();
+    }
+
+    ImmutableMap<String, TemplateStats> snapshot = stats.snapshot();
+    assertThat(snapshot.keySet()).containsExactly("ns.inner", "ns.outer");
+    assertThat(snapshot.get("ns.outer").count()).isEqualTo(2);
+    assertThat(snapshot.get("ns.outer").outputLength()).isEqualTo(52);
+    assertThat(snapshot.get("ns.outer").totalNanos()).isEqualTo(0);
+    assertThat(snapshot.get("ns.inner").count()).isEqualTo(2);
+    assertThat(snapshot.get("ns.inner").outputLength()).isEqualTo(30);
+
+    stats.reset();
+    assertThat(stats.snapshot()).isEmpty();
+  }
+
+  @Test
+  public void testSelfTime() throws IOException {
+    FakeTicker ticker = new FakeTicker();
+    SamplingRenderListener stats = SamplingRenderListener.create(1, ticker);
+    SoyRenderListener listener = stats.newRenderListener();
+    // Drive the listener directly to control the passage of time within each template.
+    listener.onTemplateEnter("outer", 0);
+    ticker.advance(10);
+    listener.onTemplateEnter("inner", 0);
+    ticker.advance(5);
+    listener.onTemplateDetach("inner", 0);
+    listener.onTemplateDetach("outer", 0);
+    ticker.advance(1000);
+    listener.onTemplateResume("outer", 0);
+    listener.onTemplateResume("inner", 0);
+    ticker.advance(5);
+    listener.onTemplateExit("inner", 3);
+    ticker.advance(20);
+    listener.onTemplateExit("outer", 7);
+
+    ImmutableMap<String, TemplateStats> snapshot = stats.snapshot();
+    assertThat(snapshot.get("inner").totalNanos()).isEqualTo(10);
+    assertThat(snapshot.get("inner").selfNanos()).isEqualTo(10);
+    assertThat(snapshot.get("inner").outputLength()).isEqualTo(3);
+    assertThat(snapshot.get("outer").totalNanos()).isEqualTo(40);
+    assertThat(snapshot.get("outer").selfNanos()).isEqualTo(30);
+    assertThat(snapshot.get("outer").outputLength()).isEqualTo(7);
+  }
+}
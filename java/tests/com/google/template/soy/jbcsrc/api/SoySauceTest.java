@@ -338,6 +338,67 @@ public class SoySauceTest {
     assertThat(continuation.get().getContent()).isEqualTo("Hello, Charlie!");
   }
 
+  @Test
+  public void testRenderPrototype() {
+    SoySauce.RenderPrototype prototype =
+        sauce
+            .newRenderPrototype()
+            .setCssRenamingMap(selector -> "c-" + selector)
+            .setXidRenamingMap(id -> "x-" + id)
+            .build();
+
+    assertThat(
+            prototype
+                .renderTemplate("strict_test.withRenaming")
+                .setData(ImmutableMap.of("p", "Alice"))
+                .renderHtml()
+                .get()
+                .getContent())
+        .isEqualTo("<div class=\"c-greeting\" id=\"x-greeting\">Hello, Alice</div>");
+    // The same prototype can be used for many renders
+    assertThat(
+            prototype
+                .renderTemplate("strict_test.withRenaming")
+                .setData(ImmutableMap.of("p", "Bob"))
+                .renderHtml()
+                .get()
+                .getContent())
+        .isEqualTo("<div class=\"c-greeting\" id=\"x-greeting\">Hello, Bob</div>");
+    // Renderers can still override the prototype
+    assertThat(
+            prototype
+                .renderTemplate("strict_test.withRenaming")
+                .setData(ImmutableMap.of("p", "Carol"))
+                .setCssRenamingMap(selector -> "o-" + selector)
+                .renderHtml()
+                .get()
+                .getContent())
+        .isEqualTo("<div class=\"o-greeting\" id=\"x-greeting\">Hello, Carol</div>");
+    // And renderers not created from the prototype are unaffected
+    assertThat(
+            sauce
+                .renderTemplate("strict_test.withRenaming")
+                .setData(ImmutableMap.of("p", "Dave"))
+                .renderHtml()
+                .get()
+                .getContent())
+        .isEqualTo("<div class=\"greeting\" id=\"greeting_\">Hello, Dave</div>");
+  }
+
+  @Test
+  public void testRenderPrototype_pluginInstances() {
+    SoySauce.RenderPrototype prototype =
+        sauce
+            .newRenderPrototype()
+            .setPluginInstances(ImmutableMap.of("testAsyncPlugin", () -> testAsyncPlugin))
+            .build();
+    testAsyncPlugin.resolveTo("Charlie");
+
+    Continuation<SanitizedContent> continuation =
+        prototype.renderTemplate("strict_test.withAsyncPluginCall").renderHtml();
+    assertThat(continuation.result()).isEqualTo(RenderResult.done());
+    assertThat(continuation.get().getContent()).isEqualTo("Hello, Charlie!");
+  }
 
   @Test
   public void testExceptionRewriting() {
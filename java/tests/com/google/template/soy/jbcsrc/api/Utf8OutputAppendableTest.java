@@ -0,0 +1,147 @@
+/*
+ * Copyright 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.jbcsrc.api;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.template.soy.SoyFileSet;
+import com.google.template.soy.base.internal.SoyFileKind;
+import com.google.template.soy.testing.Foo;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class Utf8OutputAppendableTest {
+
+  @Test
+  public void testEncoding() throws IOException {
+    assertEncodesLikeString("");
+    assertEncodesLikeString("hello world");
+    assertEncodesLikeString("café € 中文");
+    assertEncodesLikeString("emoji 😀!");
+    // Unpaired surrogates
+    assertEncodesLikeString("a\ud83db");
+    assertEncodesLikeString("a\ude00b");
+    assertEncodesLikeString("\ude00\ud83d");
+    assertEncodesLikeString("a\ud83d");
+  }
+
+  @Test
+  public void testEncoding_random() throws IOException {
+    Random random = new Random(12345);
+    char[] alphabet = {'a', '<', 'é', '߿', 'ࠀ', '€', '\ud83d', '\ude00', '￿'};
+    for (int i = 0; i < 1000; i++) {
+      StringBuilder sb = new StringBuilder();
+      int length = random.nextInt(64);
+      for (int j = 0; j < length; j++) {
+        sb.append(alphabet[random.nextInt(alphabet.length)]);
+      }
+      assertEncodesLikeString(sb.toString());
+    }
+  }
+
+  @Test
+  public void testSurrogatePairSplitAcrossWrites() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Utf8OutputAppendable appendable = Utf8OutputAppendable.create(out);
+    appendable.append("a\ud83d").append('\ude00').append("b", 0, 1);
+    appendable.finish();
+    assertThat(out.toString(UTF_8)).isEqualTo("a😀b");
+  }
+
+  @Test
+  public void testTrailingHighSurrogate() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Utf8OutputAppendable appendable = Utf8OutputAppendable.create(out);
+    appendable.append("a\ud83d");
+    // flush keeps the high surrogate in case the next write completes the pair
+    appendable.flush();
+    assertThat(out.toString(UTF_8)).isEqualTo("a");
+    // but it is written as '?' once the output is finished
+    appendable.finish();
+    assertThat(out.toString(UTF_8)).isEqualTo("a?");
+  }
+
+  @Test
+  public void testAppendUtf8() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Utf8OutputAppendable appendable = Utf8OutputAppendable.create(out, new byte[8]);
+    appendable.append("<p>");
+    appendable.appendUtf8("café".getBytes(UTF_8));
+    appendable.appendUtf8("a long pre-encoded string".getBytes(UTF_8));
+    appendable.append("</p>");
+    appendable.finish();
+    assertThat(out.toString(UTF_8)).isEqualTo("<p>caféa long pre-encoded string</p>");
+  }
+
+  @Test
+  public void testBufferTooSmall() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> Utf8OutputAppendable.create(new ByteArrayOutputStream(), new byte[3]));
+  }
+
+  @Test
+  public void testRender() throws IOException {
+    SoySauce sauce =
+        SoyFileSet.builder()
+            .add(Utf8OutputAppendableTest.class.getResource("strict.soy"))
+            .addSourceFunction(new TestAsyncPlugin())
+            .addProtoDescriptors(SoyFileKind.DEP, Foo.getDescriptor())
+            .build()
+            .compileTemplates();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Utf8OutputAppendable appendable = Utf8OutputAppendable.create(out, new byte[4]);
+    assertThat(
+            sauce
+                .renderTemplate("strict_test.withParam")
+                .setData(ImmutableMap.of("p", "über 😀"))
+                .renderHtml(appendable)
+                .result())
+        .isEqualTo(RenderResult.done());
+    appendable.finish();
+    assertThat(out.toString(UTF_8)).isEqualTo("Hello, über 😀");
+  }
+
+  private static void assertEncodesLikeString(String s) throws IOException {
+    byte[] expected = s.getBytes(UTF_8);
+    for (int bufferSize : new int[] {4, 5, 7, 1024}) {
+      // Whole string
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      Utf8OutputAppendable appendable = Utf8OutputAppendable.create(out, new byte[bufferSize]);
+      appendable.append(s);
+      appendable.finish();
+      assertThat(out.toByteArray()).isEqualTo(expected);
+
+      // A char at a time
+      out = new ByteArrayOutputStream();
+      appendable = Utf8OutputAppendable.create(out, new byte[bufferSize]);
+      for (int i = 0; i < s.length(); i++) {
+        appendable.append(s.charAt(i));
+      }
+      appendable.finish();
+      assertThat(out.toByteArray()).isEqualTo(expected);
+    }
+  }
+}
@@ -22,6 +22,7 @@ import static org.junit.Assert.assertThrows;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.util.concurrent.SettableFuture;
 import com.google.template.soy.data.LoggingAdvisingAppendable;
 import com.google.template.soy.data.SoyValue;
 import com.google.template.soy.data.SoyValueProvider;
@@ -30,6 +31,7 @@ import com.google.template.soy.jbcsrc.api.RenderResult;
 import com.google.template.soy.jbcsrc.runtime.JbcSrcRuntime.MsgRenderer;
 import com.google.template.soy.msgs.restricted.PlaceholderName;
 import com.google.template.soy.msgs.restricted.SoyMsgRawParts;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.ToIntFunction;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -227,6 +229,51 @@ public final class JbcSrcRuntimeTest {
     assertThat(provider.calls).isEqualTo(20);
   }
 
+  @Test
+  public void testGetAllStatus_done() {
+    FakeProvider a = new FakeProvider(RenderResult.done());
+    FakeProvider b = new FakeProvider(RenderResult.done());
+    assertThat(JbcSrcRuntime.getAllStatus(ImmutableList.of(a, b)).isDone()).isTrue();
+  }
+
+  @Test
+  public void testGetAllStatus_singlePendingFuture() {
+    SettableFuture<String> future = SettableFuture.create();
+    FakeProvider a = new FakeProvider(RenderResult.done());
+    FakeProvider b = new FakeProvider(RenderResult.continueAfter(future));
+    RenderResult result = JbcSrcRuntime.getAllStatus(ImmutableList.of(a, b));
+    assertThat(result.future()).isSameInstanceAs(future);
+  }
+
+  @Test
+  public void testGetAllStatus_waitsForAllFutures() {
+    SettableFuture<String> future1 = SettableFuture.create();
+    SettableFuture<String> future2 = SettableFuture.create();
+    FakeProvider a = new FakeProvider(RenderResult.continueAfter(future1));
+    FakeProvider b = new FakeProvider(RenderResult.continueAfter(future2));
+    RenderResult result = JbcSrcRuntime.getAllStatus(ImmutableList.of(a, b));
+    // both providers were checked
+    assertThat(a.calls).isEqualTo(1);
+    assertThat(b.calls).isEqualTo(1);
+
+    future2.set("b");
+    assertThat(result.future().isDone()).isFalse();
+    future1.set("a");
+    assertThat(result.future().isDone()).isTrue();
+  }
+
+  @Test
+  public void testGetAllStatus_nonListenableFuture() {
+    SettableFuture<String> future1 = SettableFuture.create();
+    CompletableFuture<String> future2 = new CompletableFuture<>();
+    FakeProvider a = new FakeProvider(RenderResult.continueAfter(future1));
+    FakeProvider b = new FakeProvider(RenderResult.continueAfter(future2));
+    RenderResult result = JbcSrcRuntime.getAllStatus(ImmutableList.of(a, b));
+    // falls back to waiting for the first one, but still checks all of them.
+    assertThat(result.future()).isSameInstanceAs(future1);
+    assertThat(b.calls).isEqualTo(1);
+  }
+
   private void assertRendersAs(MsgRenderer renderer, String expected) {
     assertThat(renderer.status().isDone()).isTrue();
     assertThat(renderer.resolve().coerceToString()).isEqualTo(expected);
@@ -19,7 +19,9 @@ package com.google.template.soy.shared;
 import static com.google.common.truth.Truth.assertThat;
 
 import com.google.auto.value.AutoValue;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hashing;
 import com.google.template.soy.base.SourceLocation;
 import com.google.template.soy.base.SourceLogicalPath;
 import com.google.template.soy.base.internal.Identifier;
@@ -28,6 +30,7 @@ import com.google.template.soy.error.ErrorReporter;
 import com.google.template.soy.soytree.ByteOffsetIndex;
 import com.google.template.soy.soytree.NamespaceDeclaration;
 import com.google.template.soy.soytree.SoyFileNode;
+import com.google.template.soy.soytree.SoyTreeUtils;
 import com.google.template.soy.soytree.TemplateNode;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -87,4 +90,44 @@ public final class SoyAstCacheTest {
     assertThat(cache.get(foo, version2)).isNull();
     assertThat(cache.get(bar, version1)).isNull();
   }
+
+  @Test
+  public void testStats() {
+    SourceLogicalPath foo = SourceLogicalPath.create("foo");
+    assertThat(cache.get(foo, version1)).isNull();
+    cache.put(foo, version1, fileNode1);
+    assertThat(cache.get(foo, version1)).isSameInstanceAs(fileNode1);
+    // A changed version is a miss, and the old version is dropped.
+    assertThat(cache.get(foo, version2)).isNull();
+    assertThat(cache.size()).isEqualTo(0);
+
+    CacheStats stats = cache.stats();
+    assertThat(stats.hitCount()).isEqualTo(1);
+    assertThat(stats.missCount()).isEqualTo(2);
+    assertThat(stats.evictionCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void testBudget() {
+    long nodes = SoyTreeUtils.allNodes(fileNode1).count();
+    SoyAstCache small = new SoyAstCache(nodes * 2);
+    for (int i = 0; i < 10; i++) {
+      small.put(SourceLogicalPath.create("f" + i), version1, fileNode1);
+    }
+
+    assertThat(small.size()).isAtMost(2);
+    assertThat(small.stats().evictionCount()).isAtLeast(8);
+    assertThat(small.get(SourceLogicalPath.create("f9"), version1)).isSameInstanceAs(fileNode1);
+  }
+
+  @Test
+  public void testContentHashVersion() {
+    SourceLogicalPath foo = SourceLogicalPath.create("foo");
+    cache.put(foo, Version.forContentHash(Hashing.sha256().hashUnencodedChars("a")), fileNode1);
+
+    assertThat(cache.get(foo, Version.forContentHash(Hashing.sha256().hashUnencodedChars("a"))))
+        .isSameInstanceAs(fileNode1);
+    assertThat(cache.get(foo, Version.forContentHash(Hashing.sha256().hashUnencodedChars("b"))))
+        .isNull();
+  }
 }
@@ -17,11 +17,17 @@
 package com.google.template.soy.shared.internal;
 
 import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
 
+import com.google.common.base.Ascii;
 import java.lang.reflect.Modifier;
 import java.net.URLEncoder;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.regex.Pattern;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
@@ -86,6 +92,50 @@ public class EscapingConventionsTest {
     assertThat(sb.toString()).isEqualTo("Hi%0A%C2%85%E1%88%B4");
   }
 
+  @Test
+  public void testEscapesMatchDefinedEscapes() throws Exception {
+    // Mixes runs of plain ASCII and non ASCII text with every code unit that any escaper escapes,
+    // to check the fast scanning paths agree with the escape lists.
+    Set<Character> escaped = new LinkedHashSet<>();
+    for (EscapingConventions.CrossLanguageStringXform directive :
+        EscapingConventions.getAllEscapers()) {
+      for (EscapingConventions.Escape escape : directive.getEscapes()) {
+        escaped.add(escape.getPlainText());
+      }
+    }
+    StringBuilder input = new StringBuilder();
+    for (char c : escaped) {
+      input.append("plain text é\u1234\ud83d\udc4c").append(c);
+    }
+    input.append("trailing plain text");
+
+    for (EscapingConventions.CrossLanguageStringXform directive :
+        EscapingConventions.getAllEscapers()) {
+      if (directive.getNonAsciiPrefix() != null) {
+        continue; // Escapes all non ASCII code units, which is covered by testEscaperInterface.
+      }
+      Map<Character, String> escapes = new HashMap<>();
+      for (EscapingConventions.Escape escape : directive.getEscapes()) {
+        escapes.put(escape.getPlainText(), escape.getEscaped());
+      }
+      StringBuilder expected = new StringBuilder();
+      StringBuilder perChar = new StringBuilder();
+      for (int i = 0; i < input.length(); i++) {
+        char c = input.charAt(i);
+        expected.append(escapes.getOrDefault(c, String.valueOf(c)));
+        directive.escapeOnto(c, perChar);
+      }
+      String name = directive.getDirectiveName();
+      assertWithMessage(name)
+          .that(directive.escape(input.toString()))
+          .isEqualTo(expected.toString());
+      assertWithMessage(name)
+          .that(directive.escapeOnto(input, new StringBuilder()).toString())
+          .isEqualTo(expected.toString());
+      assertWithMessage(name).that(perChar.toString()).isEqualTo(expected.toString());
+    }
+  }
+
   @Test
   public void testFilterTelUri() throws Exception {
     String[] shouldReject =
@@ -124,4 +174,46 @@ public class EscapingConventionsTest {
       assertThat(uri).matches(EscapingConventions.FilterTelUri.INSTANCE.getValueFilter());
     }
   }
+
+  @Test
+  public void testValueFilterDfasMatchValueFilters() {
+    Random random = new Random(1234);
+    for (EscapingConventions.CrossLanguageStringXform directive :
+        EscapingConventions.getAllEscapers()) {
+      Pattern filter = directive.getValueFilter();
+      if (filter == null) {
+        continue;
+      }
+      String name = directive.getDirectiveName();
+      assertWithMessage(name).that(directive.hasValueFilterDfa()).isTrue();
+      for (int i = 0; i < 20000; i++) {
+        String value = randomValue(random, filter.pattern());
+        assertWithMessage(name + " " + value)
+            .that(directive.isAcceptedByValueFilter(value))
+            .isEqualTo(filter.matcher(value).find());
+      }
+    }
+  }
+
+  /**
+   * Returns a random value made of fragments of the pattern and interesting chars, so that values
+   * often get past prefixes like {@code data:image/}.
+   */
+  private static String randomValue(Random random, String pattern) {
+    String chars = "aZ09 :/?#&%=+.;,\t\n\r\u0085\u2028\u00e9\uff1a";
+    StringBuilder value = new StringBuilder();
+    for (int pieces = random.nextInt(6); pieces > 0; pieces--) {
+      if (random.nextBoolean()) {
+        int start = random.nextInt(pattern.length());
+        int end = Math.min(pattern.length(), start + 1 + random.nextInt(12));
+        String fragment = pattern.substring(start, end);
+        value.append(random.nextBoolean() ? fragment : Ascii.toUpperCase(fragment));
+      } else {
+        for (int n = random.nextInt(4); n >= 0; n--) {
+          value.append(chars.charAt(random.nextInt(chars.length())));
+        }
+      }
+    }
+    return value.toString();
+  }
 }
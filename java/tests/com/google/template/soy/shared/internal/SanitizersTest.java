@@ -20,8 +20,11 @@ import static com.google.common.truth.Truth.assertThat;
 import static com.google.common.truth.Truth.assertWithMessage;
 import static org.junit.Assert.assertEquals;
 
+import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableSet;
 import com.google.template.soy.data.Dir;
+import com.google.template.soy.data.LoggingAdvisingAppendable;
+import com.google.template.soy.data.LoggingAdvisingAppendable.BufferingAppendable;
 import com.google.template.soy.data.SanitizedContent;
 import com.google.template.soy.data.SanitizedContent.ContentKind;
 import com.google.template.soy.data.SoyValue;
@@ -32,6 +35,7 @@ import com.google.template.soy.data.restricted.IntegerData;
 import com.google.template.soy.data.restricted.NullData;
 import com.google.template.soy.data.restricted.StringData;
 import com.google.template.soy.shared.internal.TagWhitelist.OptionalSafeTag;
+import java.io.IOException;
 import java.util.EnumSet;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -86,6 +90,24 @@ public class SanitizersTest {
     assertThat(Sanitizers.escapeJsString(ASCII_CHARS_SOYDATA)).isEqualTo(escapedAscii);
   }
 
+  @Test
+  public void testEscapeStringDataRepeatedly() {
+    StringData clean = StringData.forValue("Ada Lovelace");
+    StringData dirty = StringData.forValue("<b>Ada</b> & co");
+    for (int i = 0; i < 2; i++) {
+      assertThat(Sanitizers.escapeHtml(clean)).isSameInstanceAs(clean.getValue());
+      assertThat(Sanitizers.escapeHtmlAttribute(clean)).isSameInstanceAs(clean.getValue());
+      assertThat(Sanitizers.escapeJsString(clean)).isSameInstanceAs(clean.getValue());
+      assertThat(Sanitizers.escapeUri(clean)).isEqualTo("Ada%20Lovelace");
+
+      assertThat(Sanitizers.escapeHtml(dirty)).isEqualTo("&lt;b&gt;Ada&lt;/b&gt; &amp; co");
+      assertThat(Sanitizers.escapeHtmlAttribute(dirty))
+          .isEqualTo("&lt;b&gt;Ada&lt;/b&gt; &amp; co");
+      assertThat(Sanitizers.escapeJsString(dirty))
+          .isEqualTo("\\x3cb\\x3eAda\\x3c\\/b\\x3e \\x26 co");
+    }
+  }
+
   @Test
   public void testEscapeJsRegExpString() {
     // The minimal escapes.
@@ -644,6 +666,60 @@ public class SanitizersTest {
     assertThat(cleanHtml("&<hr>amp;")).isEqualTo("&amp;amp;");
   }
 
+  @Test
+  public void testStripHtmlTags_onlyDroppedTagsBeforeText() {
+    assertThat(stripHtmlTags("<b>Hello", true)).isEqualTo("Hello");
+    assertThat(cleanHtml("<p>Hello <b>World")).isEqualTo("Hello <b>World</b>");
+  }
+
+  @Test
+  public void testCleanHtmlStreaming() throws IOException {
+    String html =
+        "<em>f<object data='x>y'>oo</em> &<hr>amp; <b dir=\"rtl\">bar<br/><ul><li>1<li>2</ul>"
+            + " <i/onmouseover=alert(1337)>x</i> <<img/onload=alert(1337)>img <table><tr>&";
+    String expected =
+        Sanitizers.cleanHtml(html, ImmutableSet.of(OptionalSafeTag.UL, OptionalSafeTag.LI))
+            .getContent();
+    for (int chunkSize = 1; chunkSize <= html.length(); chunkSize++) {
+      BufferingAppendable output = LoggingAdvisingAppendable.buffering();
+      LoggingAdvisingAppendable cleaner =
+          Sanitizers.cleanHtmlStreaming(
+              output, ImmutableSet.of(OptionalSafeTag.UL, OptionalSafeTag.LI));
+      for (int i = 0; i < html.length(); i += chunkSize) {
+        if (chunkSize == 1) {
+          cleaner.append(html.charAt(i));
+        } else {
+          cleaner.append(html, i, Math.min(html.length(), i + chunkSize));
+        }
+      }
+      cleaner.flushBuffers(0);
+      assertWithMessage("chunk size %s", chunkSize)
+          .that(output.toString())
+          .isEqualTo(expected);
+    }
+  }
+
+  @Test
+  public void testCleanHtmlStreaming_tagTooLong() throws IOException {
+    // Only 4096 chars of a tag are buffered when streaming, so a longer tag is treated as text.
+    String title = Strings.repeat("a", 5000);
+    String html = "<b title=\"" + title + "\">bold</b>";
+    for (int chunkSize : new int[] {1, 7, 4096, html.length()}) {
+      BufferingAppendable output = LoggingAdvisingAppendable.buffering();
+      LoggingAdvisingAppendable cleaner =
+          Sanitizers.cleanHtmlStreaming(output, ImmutableSet.of());
+      for (int i = 0; i < html.length(); i += chunkSize) {
+        cleaner.append(html, i, Math.min(html.length(), i + chunkSize));
+      }
+      cleaner.flushBuffers(0);
+      assertWithMessage("chunk size %s", chunkSize)
+          .that(output.toString())
+          .isEqualTo("&lt;b title=&quot;" + title + "&quot;&gt;bold");
+    }
+    // cleanHtml buffers the whole value, so it has no limit.
+    assertThat(Sanitizers.cleanHtml(html).getContent()).isEqualTo("<b>bold</b>");
+  }
+
   @Test
   public void testCleanHtml() {
     assertThat(Sanitizers.cleanHtml("<em>f<object>oo</em>"))
@@ -1006,6 +1006,27 @@ public final class SourceLocationTest {
         .isEqualTo(ByteSpan.create(start, start + paramLength));
   }
 
+  @Test
+  public void testByteOffset_longNonAsciiText() {
+    String comment = "  // " + "é👌".repeat(3000);
+    String template =
+        JOINER.join(
+            "{namespace ns}", "{template t}", comment, "  {@param foo: ?}", "{/template}");
+    TemplateNode templateNode =
+        (TemplateNode)
+            SoyFileSetParserBuilder.forFileContents(template)
+                .parse()
+                .fileSet()
+                .getChild(0)
+                .getChild(0);
+
+    int start = 14 + 1 + 12 + 1 + Utf8.encodedLength(comment) + 1 + 2;
+    assertThat(templateNode.getParams().get(0).getSourceLocation().getByteSpan())
+        .isEqualTo(ByteSpan.create(start, start + "{@param foo: ?}".length()));
+    assertThat(templateNode.getSourceLocation().getByteSpan())
+        .isEqualTo(ByteSpan.create(15, Utf8.encodedLength(template)));
+  }
+
   @Test
   public void testUnicodeCols() {
     String template =
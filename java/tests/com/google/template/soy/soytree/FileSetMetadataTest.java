@@ -32,6 +32,7 @@ import com.google.template.soy.error.ErrorReporter;
 import com.google.template.soy.exprtree.TemplateLiteralNode;
 import com.google.template.soy.exprtree.VarRefNode;
 import com.google.template.soy.testing.SoyFileSetParserBuilder;
+import com.google.template.soy.types.SoyTypeRegistryBuilder;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -501,4 +502,43 @@ public final class FileSetMetadataTest {
             null);
     assertThat(depsMetadata.getNamespaceIndex().get("ns").path()).isEqualTo("file1.soy");
   }
+
+  @Test
+  public void testDepsTemplatesAreConvertedLazily() {
+    ParseResult parseResult =
+        SoyFileSetParserBuilder.forSuppliers(
+                SoyFileSupplier.Factory.create(
+                    "{namespace ns}\n"
+                        + "{template ok}{/template}\n"
+                        + "{template broken}{/template}\n"
+                        + "{template mod modifiable='true'}{/template}\n",
+                    FILE_PATH))
+            .parse();
+    CompilationUnit unit =
+        TemplateMetadataSerializer.compilationUnitFromFileSet(
+            parseResult.fileSet(), parseResult.registry());
+    // Make the variant type of broken reference a proto that doesn't exist.
+    CompilationUnit.Builder builder = unit.toBuilder();
+    builder
+        .getFileBuilder(0)
+        .getTemplateBuilder(1)
+        .getTemplateTypeBuilder()
+        .setUseVariantType(SoyTypeP.newBuilder().setProto("not.a.Proto"));
+    ErrorReporter errorReporter = ErrorReporter.create();
+    FileSetMetadata deps =
+        Metadata.metadataForDeps(
+            ImmutableList.of(CompilationUnitAndKind.create(SoyFileKind.DEP, builder.build())),
+            errorReporter,
+            SoyTypeRegistryBuilder.create());
+
+    assertThat(deps.getTemplate("ns.ok").getTemplateName()).isEqualTo("ns.ok");
+    assertThat(deps.getFile(FILE_PATH.asLogicalPath()).getTemplateNames())
+        .containsExactly("ok", "broken", "mod");
+    assertThat(deps.getDelTemplateSelector().hasDelTemplateNamed("ns.mod")).isTrue();
+    assertThat(errorReporter.getErrors()).isEmpty();
+
+    assertThat(deps.getTemplate("ns.broken")).isNotNull();
+    assertThat(errorReporter.getErrors()).hasSize(1);
+    assertThat(deps.getTemplate("ns.broken")).isSameInstanceAs(deps.getTemplate("ns.broken"));
+  }
 }